@@ -0,0 +1,81 @@
+package math3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for BoundingVolumeHierarchy: building one over 200,000
+ * small triangles scattered through a cube, sequentially and in parallel,
+ * and tracing random rays through it. Each ray benchmark traces the next of
+ * 65,536 rays.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoundingVolumeHierarchyBenchmarks {
+    private static final int TRIANGLES = 200000;
+    private static final int RAYS = 65536;
+    
+    private double[] triangles;
+    private double[] rays;
+    private BoundingVolumeHierarchy bvh;
+    private BoundingVolumeHierarchy.Hit hit = new BoundingVolumeHierarchy.Hit();
+    private int ray;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        triangles = new double[TRIANGLES * 9];
+        for(int t = 0; t < TRIANGLES; t++) {
+            double cx = random.nextDouble() * 100;
+            double cy = random.nextDouble() * 100;
+            double cz = random.nextDouble() * 100;
+            for(int i = 0; i < 9; i += 3) {
+                triangles[t * 9 + i] = cx + random.nextDouble() - 0.5;
+                triangles[t * 9 + i + 1] = cy + random.nextDouble() - 0.5;
+                triangles[t * 9 + i + 2] = cz + random.nextDouble() - 0.5;
+            }
+        }
+        rays = new double[RAYS * 6];
+        for(int i = 0; i < rays.length; i++)
+            rays[i] = i % 6 < 3 ? random.nextDouble() * 100
+                    : random.nextGaussian();
+        bvh = new BoundingVolumeHierarchy(triangles, false);
+    }
+    
+    @Benchmark
+    public BoundingVolumeHierarchy buildSequential() {
+        return new BoundingVolumeHierarchy(triangles, false);
+    }
+    
+    @Benchmark
+    public BoundingVolumeHierarchy buildParallel() {
+        return new BoundingVolumeHierarchy(triangles, true);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean closestHit() {
+        int i = nextRay();
+        return bvh.closestHit(rays[i], rays[i + 1], rays[i + 2], rays[i + 3],
+                rays[i + 4], rays[i + 5], Double.POSITIVE_INFINITY, hit);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean anyHit() {
+        int i = nextRay();
+        return bvh.anyHit(rays[i], rays[i + 1], rays[i + 2], rays[i + 3],
+                rays[i + 4], rays[i + 5], Double.POSITIVE_INFINITY, hit);
+    }
+    
+    private int nextRay() {
+        ray = (ray + 1) & (RAYS - 1);
+        return ray * 6;
+    }
+}
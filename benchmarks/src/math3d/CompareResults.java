@@ -0,0 +1,214 @@
+package math3d;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Compares two JMH result files (written with "-rf json") and reports every
+ * benchmark whose throughput dropped, or whose allocation per operation
+ * (gc.alloc.rate.norm, from "-prof gc") grew, by more than a threshold.
+ * Exits with status 1 if there are any regressions.
+ *
+ * Usage: CompareResults baseline.json current.json [threshold percent]
+ * @author vanjac
+ */
+public class CompareResults {
+    private static final double DEFAULT_THRESHOLD = 10;
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    //allocation differences smaller than this are noise from the profiler
+    private static final double MIN_BYTES = 1;
+    
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: CompareResults baseline.json "
+                    + "current.json [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2])
+                : DEFAULT_THRESHOLD;
+        Map<String, double[]> baseline = read(args[0]);
+        Map<String, double[]> current = read(args[1]);
+        
+        int regressions = 0;
+        System.out.printf("%-50s %12s %12s %10s %10s%n", "benchmark",
+                "baseline", "current", "B/op was", "B/op now");
+        for(Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            double[] after = entry.getValue();
+            if(before == null) {
+                System.out.printf("%-50s %12s %12.3f%n", entry.getKey(),
+                        "(new)", after[0]);
+                continue;
+            }
+            boolean slower = after[0] < before[0] * (1 - threshold / 100);
+            boolean allocates = !Double.isNaN(before[1])
+                    && after[1] - before[1] > MIN_BYTES
+                    && after[1] > before[1] * (1 + threshold / 100);
+            System.out.printf("%-50s %12.3f %12.3f %10.1f %10.1f%s%n",
+                    entry.getKey(), before[0], after[0], before[1], after[1],
+                    slower || allocates ? "  REGRESSION" : "");
+            if(slower || allocates)
+                regressions++;
+        }
+        for(String name : baseline.keySet())
+            if(!current.containsKey(name))
+                System.out.printf("%-50s %12s%n", name, "(missing)");
+        if(regressions > 0) {
+            System.out.println(regressions + " regression(s) of more than "
+                    + threshold + "%");
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Read a JMH JSON result file.
+     * @param file the path of the file
+     * @return the score and the bytes allocated per operation (NaN if it
+     * wasn't measured) of each benchmark, by benchmark name
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, double[]> read(String file) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(file)),
+                StandardCharsets.UTF_8);
+        Map<String, double[]> results = new TreeMap<>();
+        for(Object o : (List<Object>)new JsonParser(json).value()) {
+            Map<String, Object> result = (Map<String, Object>)o;
+            String name = (String)result.get("benchmark");
+            Map<String, Object> params =
+                    (Map<String, Object>)result.get("params");
+            if(params != null)
+                name += new TreeMap<>(params);
+            double score = score(result.get("primaryMetric"));
+            double bytes = Double.NaN;
+            Map<String, Object> secondary =
+                    (Map<String, Object>)result.get("secondaryMetrics");
+            if(secondary != null)
+                for(Map.Entry<String, Object> e : secondary.entrySet())
+                    if(e.getKey().endsWith(ALLOCATION))
+                        bytes = score(e.getValue());
+            results.put(name, new double[] {score, bytes});
+        }
+        return results;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static double score(Object metric) {
+        Object score = ((Map<String, Object>)metric).get("score");
+        return score instanceof Double ? (Double)score : Double.NaN;
+    }
+    
+    /**
+     * A minimal JSON parser: objects become Maps, arrays become Lists, and
+     * numbers become Doubles. "NaN" (which JMH writes) is accepted.
+     */
+    private static class JsonParser {
+        private final String s;
+        private int pos;
+        
+        JsonParser(String s) {
+            this.s = s;
+        }
+        
+        Object value() {
+            skipSpaces();
+            char c = s.charAt(pos);
+            if(c == '{') {
+                pos++;
+                Map<String, Object> map = new LinkedHashMap<>();
+                skipSpaces();
+                if(s.charAt(pos) == '}') {
+                    pos++;
+                    return map;
+                }
+                do {
+                    skipSpaces();
+                    String key = string();
+                    skipSpaces();
+                    expect(':');
+                    map.put(key, value());
+                    skipSpaces();
+                } while(s.charAt(pos++) == ',');
+                return map;
+            } else if(c == '[') {
+                pos++;
+                List<Object> list = new ArrayList<>();
+                skipSpaces();
+                if(s.charAt(pos) == ']') {
+                    pos++;
+                    return list;
+                }
+                do {
+                    list.add(value());
+                    skipSpaces();
+                } while(s.charAt(pos++) == ',');
+                return list;
+            } else if(c == '"') {
+                String str = string();
+                return str.equals("NaN") ? (Object)Double.NaN : str;
+            } else if(s.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if(s.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else if(s.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            } else if(s.startsWith("NaN", pos)) {
+                pos += 3;
+                return Double.NaN;
+            }
+            int start = pos;
+            while(pos < s.length() && "+-.eE0123456789".indexOf(
+                    s.charAt(pos)) != -1)
+                pos++;
+            if(start == pos)
+                throw new IllegalArgumentException(
+                        "Unexpected character at " + pos);
+            return Double.parseDouble(s.substring(start, pos));
+        }
+        
+        private String string() {
+            expect('"');
+            StringBuilder b = new StringBuilder();
+            while(true) {
+                char c = s.charAt(pos++);
+                if(c == '"')
+                    return b.toString();
+                if(c == '\\') {
+                    c = s.charAt(pos++);
+                    switch(c) {
+                        case 'n': b.append('\n'); break;
+                        case 't': b.append('\t'); break;
+                        case 'r': b.append('\r'); break;
+                        case 'b': b.append('\b'); break;
+                        case 'f': b.append('\f'); break;
+                        case 'u':
+                            b.append((char)Integer.parseInt(
+                                    s.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default: b.append(c);
+                    }
+                } else {
+                    b.append(c);
+                }
+            }
+        }
+        
+        private void expect(char c) {
+            if(s.charAt(pos) != c)
+                throw new IllegalArgumentException("Expected " + c + " at "
+                        + pos);
+            pos++;
+        }
+        
+        private void skipSpaces() {
+            while(pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+                pos++;
+        }
+    }
+}
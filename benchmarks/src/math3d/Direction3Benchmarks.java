@@ -0,0 +1,66 @@
+package math3d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for Direction3. Each one creates a new Direction3, from the
+ * representation it doesn't have, so the conversion is measured instead of
+ * the memoized value. The "cached" benchmarks measure a repeated call on the
+ * same objects.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Direction3Benchmarks {
+    private double yRot = 0.4, zRot = -1.1;
+    private double otherYRot = -0.7, otherZRot = 2.3;
+    private Vector3 unitVector = new Vector3(0.48, -0.6, 0.64);
+    private Direction3 cached = new Direction3(yRot, zRot);
+    private Direction3 other = new Direction3(otherYRot, otherZRot);
+    
+    @Benchmark
+    public Vector3 getUnitVector() {
+        return new Direction3(yRot, zRot).getUnitVector();
+    }
+    
+    @Benchmark
+    public Vector3 getUnitVectorCached() {
+        return cached.getUnitVector();
+    }
+    
+    @Benchmark
+    public double getYRotation() {
+        return new Direction3(unitVector).getYRotation();
+    }
+    
+    @Benchmark
+    public double getYRotationCached() {
+        return cached.getYRotation();
+    }
+    
+    @Benchmark
+    public int hashCodeFromVector() {
+        return new Direction3(unitVector).hashCode();
+    }
+    
+    @Benchmark
+    public int hashCodeFromAngles() {
+        return new Direction3(yRot, zRot).hashCode();
+    }
+    
+    @Benchmark
+    public double angleBetween() {
+        return new Direction3(yRot, zRot).angleBetween(
+                new Direction3(otherYRot, otherZRot));
+    }
+    
+    @Benchmark
+    public double angleBetweenCached() {
+        return cached.angleBetween(other);
+    }
+}
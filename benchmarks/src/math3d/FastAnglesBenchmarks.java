@@ -0,0 +1,52 @@
+package math3d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks comparing the approximations in FastAngles with the
+ * java.lang.Math versions used by Vector2.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastAnglesBenchmarks {
+    private double x = 0.6, y = -1.3;
+    private double angle = 2.7;
+    private double largeAngle = 317.5;
+    private MutableVector2 result = new MutableVector2();
+    
+    @Benchmark
+    public double directionMath() {
+        return Vector2.direction(x, y);
+    }
+    
+    @Benchmark
+    public double directionFast() {
+        return FastAngles.direction(x, y);
+    }
+    
+    @Benchmark
+    public double rotateMath() {
+        return 3 * Math.cos(angle) - 4 * Math.sin(angle);
+    }
+    
+    @Benchmark
+    public double rotateFast() {
+        return FastAngles.rotate(3, 4, angle, result).getX();
+    }
+    
+    @Benchmark
+    public double fixRotationMath() {
+        return Vector2.fixRotation(largeAngle);
+    }
+    
+    @Benchmark
+    public double fixRotationFast() {
+        return FastAngles.fixRotation(largeAngle);
+    }
+}
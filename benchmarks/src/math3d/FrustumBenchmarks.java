@@ -0,0 +1,66 @@
+package math3d;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for culling 200,000 boxes scattered around the camera with
+ * Frustum.cullBoxes(), with and without plane hints. Each operation is one
+ * frame, and the camera turns a little every frame, so the hints from the
+ * last frame are usually right.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrustumBenchmarks {
+    private static final int OBJECTS = 200000;
+    private static final int FRAMES = 64;
+    
+    private double[] boxes;
+    private Frustum[] frustums;
+    private int[] hints = new int[OBJECTS];
+    private BitSet visible = new BitSet(OBJECTS);
+    private int frame;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        boxes = new double[OBJECTS * 6];
+        for(int b = 0; b < OBJECTS; b++) {
+            for(int j = 0; j < 3; j++) {
+                double v = random.nextDouble() * 2000 - 1000;
+                boxes[b * 6 + j] = v;
+                boxes[b * 6 + j + 3] = v + random.nextDouble() * 4;
+            }
+        }
+        //turning one way, then back, so every frame follows a similar one
+        frustums = new Frustum[FRAMES];
+        for(int f = 0; f < FRAMES; f++) {
+            int step = f < FRAMES / 2 ? f : FRAMES - f;
+            frustums[f] = new Frustum(new Vector3(0, 0, 0),
+                    new Rotation3(0, 0, step * 0.01), Math.PI / 3, 16.0 / 9,
+                    0.1, 1000);
+        }
+    }
+    
+    @Benchmark
+    public BitSet cullBoxes() {
+        return nextFrame().cullBoxes(boxes, 0, OBJECTS, null, visible);
+    }
+    
+    @Benchmark
+    public BitSet cullBoxesWithHints() {
+        return nextFrame().cullBoxes(boxes, 0, OBJECTS, hints, visible);
+    }
+    
+    private Frustum nextFrame() {
+        frame = (frame + 1) % FRAMES;
+        return frustums[frame];
+    }
+}
@@ -0,0 +1,79 @@
+package math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for filling a direct buffer with the positions and normals
+ * of 100,000 triangles: with toGlArray() and a put for every value, and with
+ * GlVertexWriter, all at once and in 64 KB chunks.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GlVertexWriterBenchmarks {
+    private static final int TRIANGLES = 100000;
+    
+    private List<Polygon> polygons;
+    private FloatBuffer whole = ByteBuffer.allocateDirect(TRIANGLES * 3 * 24)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    private ByteBuffer chunk = ByteBuffer.allocateDirect(65536)
+            .order(ByteOrder.nativeOrder());
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        polygons = new ArrayList<>(TRIANGLES);
+        for(int i = 0; i < TRIANGLES; i++)
+            polygons.add(new Triangle(randomVector(random),
+                    randomVector(random), randomVector(random),
+                    VertexOrder.COUNTER_CLOCKWISE));
+    }
+    
+    private static Vector3 randomVector(Random random) {
+        return new Vector3(random.nextDouble(), random.nextDouble(),
+                random.nextDouble());
+    }
+    
+    @Benchmark
+    public FloatBuffer toGlArray() {
+        whole.clear();
+        for(Polygon p : polygons) {
+            for(Polygon.Vertex v : p.getVertices()) {
+                for(double d : v.getPosition().toGlArray())
+                    whole.put((float)d);
+                for(double d : v.getNormal().getUnitVector().toGlArray())
+                    whole.put((float)d);
+            }
+        }
+        return whole;
+    }
+    
+    @Benchmark
+    public FloatBuffer writer() {
+        whole.clear();
+        GlVertexWriter.forPolygons(polygons, null).write(whole);
+        return whole;
+    }
+    
+    @Benchmark
+    public double writerChunks() {
+        GlVertexWriter writer = GlVertexWriter.forPolygons(polygons, null);
+        double total = 0;
+        while(writer.hasRemaining()) {
+            chunk.clear();
+            writer.write(chunk);
+            total += chunk.getFloat(0);
+        }
+        return total;
+    }
+}
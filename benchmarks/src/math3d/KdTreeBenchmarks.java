@@ -0,0 +1,92 @@
+package math3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for KdTree with 1 million random points: building it,
+ * sequentially and in parallel, and nearest neighbor queries, compared to
+ * a linear search of every point. Each query benchmark searches for the next
+ * of 65,536 random points.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KdTreeBenchmarks {
+    private static final int POINTS = 1000000;
+    private static final int QUERIES = 65536;
+    
+    private double[] points;
+    private double[] queries;
+    private KdTree tree;
+    private KdTree.Neighbors neighbors = new KdTree.Neighbors();
+    private int query;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        points = new double[POINTS * 3];
+        for(int i = 0; i < points.length; i++)
+            points[i] = random.nextDouble() * 100;
+        queries = new double[QUERIES * 3];
+        for(int i = 0; i < queries.length; i++)
+            queries[i] = random.nextDouble() * 100;
+        tree = new KdTree(points, false);
+    }
+    
+    @Benchmark
+    public KdTree buildSequential() {
+        return new KdTree(points, false);
+    }
+    
+    @Benchmark
+    public KdTree buildParallel() {
+        return new KdTree(points, true);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nearest() {
+        int q = nextQuery();
+        return tree.nearest(queries[q], queries[q + 1], queries[q + 2],
+                Double.POSITIVE_INFINITY);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int nearest8() {
+        int q = nextQuery();
+        tree.nearest(queries[q], queries[q + 1], queries[q + 2], 8,
+                Double.POSITIVE_INFINITY, neighbors);
+        return neighbors.getIndex(7);
+    }
+    
+    @Benchmark
+    public int linearSearch() {
+        int q = nextQuery();
+        double x = queries[q], y = queries[q + 1], z = queries[q + 2];
+        int best = -1;
+        double bestSquare = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < POINTS; i++) {
+            double dx = points[i * 3] - x;
+            double dy = points[i * 3 + 1] - y;
+            double dz = points[i * 3 + 2] - z;
+            double d = dx * dx + dy * dy + dz * dz;
+            if(d < bestSquare) {
+                best = i;
+                bestSquare = d;
+            }
+        }
+        return best;
+    }
+    
+    private int nextQuery() {
+        query = (query + 1) & (QUERIES - 1);
+        return query * 3;
+    }
+}
@@ -0,0 +1,57 @@
+package math3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for creating Triangles whose normals repeat (right
+ * triangles in the 3 axis planes), with and without a shared NormalCache.
+ * Run with "-prof gc" to see the memory saved by sharing normals.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NormalCacheBenchmarks {
+    private static final int TRIANGLES = 65536;
+    
+    @Param({"false", "true"})
+    private boolean cached;
+    
+    private double[] corners;
+    private double[] v = new double[9];
+    private int triangle;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        corners = new double[TRIANGLES * 9];
+        for(int t = 0; t < TRIANGLES; t++) {
+            int axis = random.nextInt(3);
+            double x = random.nextInt(1000), y = random.nextInt(1000);
+            double z = random.nextInt(1000);
+            double[] c = {x, y, z, x, y, z, x, y, z};
+            c[3 + (axis + 1) % 3] += 1;
+            c[6 + (axis + 2) % 3] += 1;
+            System.arraycopy(c, 0, corners, t * 9, 9);
+        }
+        NormalCache.setShared(cached ? new NormalCache(1024) : null);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        NormalCache.setShared(null);
+    }
+    
+    @Benchmark
+    public Triangle createTriangle() {
+        triangle = (triangle + 1) & (TRIANGLES - 1);
+        System.arraycopy(corners, triangle * 9, v, 0, 9);
+        return new Triangle(v, VertexOrder.COUNTER_CLOCKWISE);
+    }
+}
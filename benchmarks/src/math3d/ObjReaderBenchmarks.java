@@ -0,0 +1,111 @@
+package math3d;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for reading the faces of an OBJ file with 200,000 triangles
+ * with ObjReader, sequentially and in parallel, compared to the usual
+ * approach of splitting every line into Strings and parsing them.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjReaderBenchmarks {
+    private static final int TRIANGLES = 200000;
+    
+    private Path path;
+    
+    @Setup
+    public void setup() throws IOException {
+        path = Files.createTempFile("benchmark", ".obj");
+        Random random = new Random(1);
+        try(BufferedWriter out = Files.newBufferedWriter(path)) {
+            for(int i = 0; i < TRIANGLES; i++) {
+                for(int j = 0; j < 3; j++)
+                    out.write(String.format(Locale.ROOT,
+                            "v %.6f %.6f %.6f\n", random.nextDouble() * 100,
+                            random.nextDouble() * 100,
+                            random.nextDouble() * 100));
+                out.write(String.format(Locale.ROOT, "vn %.6f %.6f %.6f\n",
+                        random.nextDouble(), random.nextDouble(),
+                        random.nextDouble()));
+                out.write("f -3//-1 -2//-1 -1//-1\n");
+            }
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(path);
+    }
+    
+    @Benchmark
+    public double readSequential() throws IOException {
+        try(Stream<Polygon> faces = ObjReader.faces(path, false)) {
+            return faces.mapToDouble(ObjReaderBenchmarks::sum).sum();
+        }
+    }
+    
+    @Benchmark
+    public double readParallel() throws IOException {
+        try(Stream<Polygon> faces = ObjReader.faces(path, true)) {
+            return faces.mapToDouble(ObjReaderBenchmarks::sum).sum();
+        }
+    }
+    
+    //the usual approach, with Strings for every line and number
+    @Benchmark
+    public double readSplit() throws IOException {
+        List<Vector3> positions = new ArrayList<>();
+        List<Direction3> normals = new ArrayList<>();
+        double total = 0;
+        try(BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            while((line = in.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if(parts[0].equals("v")) {
+                    positions.add(new Vector3(Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]),
+                            Double.parseDouble(parts[3])));
+                } else if(parts[0].equals("vn")) {
+                    normals.add(new Vector3(Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]),
+                            Double.parseDouble(parts[3])).direction());
+                } else if(parts[0].equals("f")) {
+                    List<Polygon.Vertex> vertices = new ArrayList<>();
+                    for(int i = 1; i < parts.length; i++) {
+                        String[] index = parts[i].split("/");
+                        int v = Integer.parseInt(index[0]);
+                        int n = Integer.parseInt(index[2]);
+                        vertices.add(new Polygon.Vertex(
+                                positions.get(v < 0 ? positions.size() + v
+                                        : v - 1),
+                                normals.get(n < 0 ? normals.size() + n
+                                        : n - 1)));
+                    }
+                    Polygon p = new Triangle(vertices.get(0), vertices.get(1),
+                            vertices.get(2), VertexOrder.COUNTER_CLOCKWISE);
+                    total += sum(p);
+                }
+            }
+        }
+        return total;
+    }
+    
+    private static double sum(Polygon p) {
+        return p.getVertices().get(0).getPosition().getX();
+    }
+}
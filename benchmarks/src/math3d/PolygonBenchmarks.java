@@ -0,0 +1,62 @@
+package math3d;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for polygons and planes: Triangle construction,
+ * ConvexPolygon.getTriangles() and Plane.getPlaneCoefficients().
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolygonBenchmarks {
+    private Vector3 v1 = new Vector3(0.5, 1, 2);
+    private Vector3 v2 = new Vector3(3, 0.25, -1);
+    private Vector3 v3 = new Vector3(-2, 4, 0.75);
+    private double[] coordinates = {0.5, 1, 2, 3, 0.25, -1, -2, 4, 0.75};
+    private ConvexPolygon hexagon;
+    private Plane plane;
+    
+    @Setup
+    public void setup() {
+        Vector3[] points = new Vector3[6];
+        for(int i = 0; i < points.length; i++) {
+            double a = i * Math.PI / 3;
+            points[i] = new Vector3(Math.cos(a), Math.sin(a), 1);
+        }
+        hexagon = new ConvexPolygon(points, VertexOrder.COUNTER_CLOCKWISE);
+        plane = Plane.fromPoints(v1, v2, v3);
+    }
+    
+    @Benchmark
+    public Triangle triangleFromVectors() {
+        return new Triangle(v1, v2, v3, VertexOrder.COUNTER_CLOCKWISE);
+    }
+    
+    @Benchmark
+    public Triangle triangleFromArray() {
+        return new Triangle(coordinates, VertexOrder.COUNTER_CLOCKWISE);
+    }
+    
+    @Benchmark
+    public Collection<Polygon> convexPolygonGetTriangles() {
+        return hexagon.getTriangles();
+    }
+    
+    @Benchmark
+    public double[] planeGetPlaneCoefficients() {
+        return plane.getPlaneCoefficients();
+    }
+    
+    @Benchmark
+    public double[] planeFromPointsCoefficients() {
+        return Plane.fromPoints(v1, v2, v3).getPlaneCoefficients();
+    }
+}
@@ -0,0 +1,88 @@
+package math3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for the bulk operations of Vector3Buffer on 4096 vectors,
+ * with the scalar code and with the Vector API (see Simd). The forked JVM is
+ * started with the jdk.incubator.vector module; if Simd.isAvailable() is
+ * still false, both versions run the scalar code.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class SimdBenchmarks {
+    private static final int SIZE = 4096;
+    
+    @Param({"false", "true"})
+    private boolean simd;
+    
+    private Vector3Buffer a = new Vector3Buffer(SIZE);
+    private Vector3Buffer b = new Vector3Buffer(SIZE);
+    private Vector3Buffer result = new Vector3Buffer(SIZE);
+    private double[] values = new double[SIZE];
+    private boolean[] inside = new boolean[SIZE];
+    private Rotation3 rotation = new Rotation3(0.3, -1.2, 2.5);
+    private Plane plane = Plane.at(new Vector3(0.5, 0.5, 0.5),
+            new Direction3(new Vector3(1, 2, 3).normalize()));
+    private Vector3 min = new Vector3(0.2, 0.2, 0.2);
+    private Vector3 max = new Vector3(0.8, 0.8, 0.8);
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        for(int i = 0; i < SIZE; i++) {
+            a.set(i, random.nextDouble(), random.nextDouble(),
+                    random.nextDouble());
+            b.set(i, random.nextDouble(), random.nextDouble(),
+                    random.nextDouble());
+        }
+        Simd.setEnabled(simd);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        Simd.setEnabled(true);
+    }
+    
+    @Benchmark
+    public double[] dot() {
+        a.dot(b, values);
+        return values;
+    }
+    
+    @Benchmark
+    public Vector3Buffer cross() {
+        a.cross(b, result);
+        return result;
+    }
+    
+    @Benchmark
+    public Vector3Buffer normalize() {
+        a.normalize(result);
+        return result;
+    }
+    
+    @Benchmark
+    public Vector3Buffer rotate() {
+        a.rotate(rotation, result);
+        return result;
+    }
+    
+    @Benchmark
+    public double[] planeDistance() {
+        a.planeDistance(plane, values);
+        return values;
+    }
+    
+    @Benchmark
+    public int insideBox() {
+        return a.insideBox(min, max, inside);
+    }
+}
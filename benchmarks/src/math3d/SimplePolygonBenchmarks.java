@@ -0,0 +1,43 @@
+package math3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for triangulating large concave SimplePolygons by ear
+ * clipping. The outline is star-like, with jagged edges, so about half the
+ * vertices are reflex.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimplePolygonBenchmarks {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+    
+    private Vector3[] outline;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        outline = new Vector3[size];
+        for(int i = 0; i < size; i++) {
+            double r = (i % 2 == 0 ? 10 : 8) + random.nextDouble();
+            double a = 2 * Math.PI * i / size;
+            outline[i] = new Vector3(r * Math.cos(a), r * Math.sin(a), 0);
+        }
+    }
+    
+    @Benchmark
+    public int triangulate() {
+        //triangles are cached, so make a new polygon every time
+        return new SimplePolygon(outline, VertexOrder.COUNTER_CLOCKWISE)
+                .getTriangleCount();
+    }
+}
@@ -0,0 +1,83 @@
+package math3d;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for reading a binary STL file with 500,000 triangles:
+ * mapping it, copying all the positions into packed arrays a chunk at a time,
+ * summing over Facet views in parallel, and creating Triangle objects for
+ * comparison.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StlFileBenchmarks {
+    private static final int TRIANGLES = 500000;
+    private static final int CHUNK = 65536;
+    
+    private Path path;
+    private StlFile file;
+    private float[] chunk = new float[CHUNK * 9];
+    private double[] v = new double[9];
+    
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(1);
+        float[] positions = new float[TRIANGLES * 9];
+        for(int i = 0; i < positions.length; i++)
+            positions[i] = random.nextFloat() * 1000;
+        path = Files.createTempFile("benchmark", ".stl");
+        StlFile.write(path, positions);
+        file = StlFile.read(path);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(path);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public StlFile open() throws IOException {
+        return StlFile.read(path);
+    }
+    
+    @Benchmark
+    public double packedChunks() {
+        double sum = 0;
+        for(int t = 0; t < TRIANGLES; t += CHUNK) {
+            int count = Math.min(CHUNK, TRIANGLES - t);
+            file.getPositions(t, count, chunk, 0);
+            for(int i = 0; i < count * 9; i++)
+                sum += chunk[i];
+        }
+        return sum;
+    }
+    
+    @Benchmark
+    public double facetNormals() {
+        return file.facets(true).mapToDouble(
+                f -> f.getNormal().getUnitVector().getZ()).sum();
+    }
+    
+    @Benchmark
+    public double triangles() {
+        double sum = 0;
+        for(int t = 0; t < TRIANGLES; t++) {
+            file.getPositions(t, 1, v, 0);
+            sum += new Triangle(v, VertexOrder.COUNTER_CLOCKWISE)
+                    .getNormal().getUnitVector().getZ();
+        }
+        return sum;
+    }
+}
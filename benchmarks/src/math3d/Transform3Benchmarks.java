@@ -0,0 +1,78 @@
+package math3d;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import math3d.Polygon.VertexOrder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for transforming 1 million points and 100,000 triangles:
+ * one Vector3 at a time with rotate() and add(), and with Transform3 on a
+ * packed array and on polygons, sequentially and in parallel.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Transform3Benchmarks {
+    private static final int POINTS = 1000000;
+    private static final int TRIANGLES = 100000;
+    
+    private double[] points;
+    private double[] dst;
+    private Vector3[] vectors;
+    private List<Polygon> triangles;
+    private Rotation3 rotation = new Rotation3(0.3, 0.5, 0.7);
+    private Vector3 translation = new Vector3(1, 2, 3);
+    private Transform3 transform = new Transform3(rotation, translation);
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        points = new double[POINTS * 3];
+        for(int i = 0; i < points.length; i++)
+            points[i] = random.nextDouble() * 100;
+        dst = new double[points.length];
+        vectors = new Vector3[POINTS];
+        for(int i = 0; i < POINTS; i++)
+            vectors[i] = new Vector3(points[i * 3], points[i * 3 + 1],
+                    points[i * 3 + 2]);
+        triangles = new ArrayList<>(TRIANGLES);
+        for(int i = 0; i < TRIANGLES; i++)
+            triangles.add(new Triangle(vectors[i * 3], vectors[i * 3 + 1],
+                    vectors[i * 3 + 2], VertexOrder.COUNTER_CLOCKWISE));
+    }
+    
+    @Benchmark
+    public Vector3[] vector3Rotate() {
+        Vector3[] moved = new Vector3[POINTS];
+        for(int i = 0; i < POINTS; i++)
+            moved[i] = vectors[i].rotate(rotation).add(translation);
+        return moved;
+    }
+    
+    @Benchmark
+    public double[] arraySequential() {
+        transform.transformAll(points, 0, dst, 0, POINTS, false);
+        return dst;
+    }
+    
+    @Benchmark
+    public double[] arrayParallel() {
+        transform.transformAll(points, 0, dst, 0, POINTS, true);
+        return dst;
+    }
+    
+    @Benchmark
+    public List<Polygon> polygonsSequential() {
+        return transform.transformAll(triangles, false);
+    }
+    
+    @Benchmark
+    public List<Polygon> polygonsParallel() {
+        return transform.transformAll(triangles, true);
+    }
+}
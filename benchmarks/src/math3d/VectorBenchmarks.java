@@ -0,0 +1,46 @@
+package math3d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for Vector3 and Vector2: rotation, normals of 3 points,
+ * 2d directions and angle wrapping.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmarks {
+    //fields, not constants, so the JIT can't fold the results
+    private Vector3 vector = new Vector3(1.5, -2.25, 3.125);
+    private Vector3 v1 = new Vector3(0.5, 1, 2);
+    private Vector3 v2 = new Vector3(3, 0.25, -1);
+    private Vector3 v3 = new Vector3(-2, 4, 0.75);
+    private Rotation3 rotation = new Rotation3(0.3, 0.5, 0.7);
+    private Vector2 vector2 = new Vector2(0.6, -1.3);
+    private double angle = 17.5;
+    
+    @Benchmark
+    public Vector3 vector3Rotate() {
+        return vector.rotate(rotation);
+    }
+    
+    @Benchmark
+    public Direction3 vector3Normal() {
+        return Vector3.normal(v1, v2, v3);
+    }
+    
+    @Benchmark
+    public double vector2Direction() {
+        return vector2.direction();
+    }
+    
+    @Benchmark
+    public double vector2FixRotation() {
+        return Vector2.fixRotation(angle);
+    }
+}
@@ -0,0 +1,52 @@
+package math3d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for welding the 1 million vertices of a grid of 250,000
+ * separate quads, with a little noise in each position, sequentially and in
+ * parallel.
+ * @author vanjac
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WeldedVerticesBenchmarks {
+    private static final int GRID = 501;
+    
+    private double[] positions;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        int quads = (GRID - 1) * (GRID - 1);
+        positions = new double[quads * 4 * 3];
+        int i = 0;
+        for(int y = 0; y < GRID - 1; y++) {
+            for(int x = 0; x < GRID - 1; x++) {
+                int[][] corners = {{x, y}, {x + 1, y}, {x + 1, y + 1},
+                    {x, y + 1}};
+                for(int[] c : corners) {
+                    positions[i++] = c[0] + random.nextGaussian() * 1E-7;
+                    positions[i++] = c[1] + random.nextGaussian() * 1E-7;
+                    positions[i++] = Math.sin(c[0] * 0.01) * 10;
+                }
+            }
+        }
+    }
+    
+    @Benchmark
+    public WeldedVertices weldSequential() {
+        return new WeldedVertices(positions, 1E-5, false);
+    }
+    
+    @Benchmark
+    public WeldedVertices weldParallel() {
+        return new WeldedVertices(positions, 1E-5, true);
+    }
+}
@@ -0,0 +1,118 @@
+package math3d;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector3fKernels using the JDK Vector API. Floats are half the size of
+ * doubles, so each loop handles twice as many vectors at once as
+ * SimdVector3Kernels.
+ * @author vanjac
+ */
+class SimdVector3fKernels extends Vector3fKernels {
+    private static final VectorSpecies<Float> SPECIES =
+            FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    
+    private static int loopEnd(int start, int end) {
+        return start + SPECIES.loopBound(end - start);
+    }
+    
+    private static FloatVector load(float[] a, int i) {
+        return FloatVector.fromArray(SPECIES, a, i);
+    }
+    
+    @Override
+    void dot(float[] ax, float[] ay, float[] az,
+            float[] bx, float[] by, float[] bz,
+            float[] dest, int start, int end) {
+        int i = start;
+        for(int bound = loopEnd(start, end); i < bound; i += LANES) {
+            load(ax, i).mul(load(bx, i))
+                    .add(load(ay, i).mul(load(by, i)))
+                    .add(load(az, i).mul(load(bz, i)))
+                    .intoArray(dest, i);
+        }
+        super.dot(ax, ay, az, bx, by, bz, dest, i, end);
+    }
+    
+    @Override
+    void cross(float[] ax, float[] ay, float[] az,
+            float[] bx, float[] by, float[] bz,
+            float[] dx, float[] dy, float[] dz, int start, int end) {
+        int i = start;
+        for(int bound = loopEnd(start, end); i < bound; i += LANES) {
+            FloatVector x1 = load(ax, i), y1 = load(ay, i), z1 = load(az, i);
+            FloatVector x2 = load(bx, i), y2 = load(by, i), z2 = load(bz, i);
+            y1.mul(z2).sub(z1.mul(y2)).intoArray(dx, i);
+            z1.mul(x2).sub(x1.mul(z2)).intoArray(dy, i);
+            x1.mul(y2).sub(y1.mul(x2)).intoArray(dz, i);
+        }
+        super.cross(ax, ay, az, bx, by, bz, dx, dy, dz, i, end);
+    }
+    
+    @Override
+    void normalize(float[] x, float[] y, float[] z,
+            float[] dx, float[] dy, float[] dz, int start, int end) {
+        int i = start;
+        for(int bound = loopEnd(start, end); i < bound; i += LANES) {
+            FloatVector vx = load(x, i), vy = load(y, i), vz = load(z, i);
+            FloatVector scale = FloatVector.broadcast(SPECIES, 1).div(
+                    vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz))
+                    .lanewise(VectorOperators.SQRT));
+            vx.mul(scale).intoArray(dx, i);
+            vy.mul(scale).intoArray(dy, i);
+            vz.mul(scale).intoArray(dz, i);
+        }
+        super.normalize(x, y, z, dx, dy, dz, i, end);
+    }
+    
+    @Override
+    void transform(float[] m, float[] x, float[] y, float[] z,
+            float[] dx, float[] dy, float[] dz, int start, int end) {
+        int i = start;
+        for(int bound = loopEnd(start, end); i < bound; i += LANES) {
+            FloatVector vx = load(x, i), vy = load(y, i), vz = load(z, i);
+            vx.mul(m[0]).add(vy.mul(m[1])).add(vz.mul(m[2])).intoArray(dx, i);
+            vx.mul(m[3]).add(vy.mul(m[4])).add(vz.mul(m[5])).intoArray(dy, i);
+            vx.mul(m[6]).add(vy.mul(m[7])).add(vz.mul(m[8])).intoArray(dz, i);
+        }
+        super.transform(m, x, y, z, dx, dy, dz, i, end);
+    }
+    
+    @Override
+    void planeDistance(float[] c, float[] x, float[] y, float[] z,
+            float[] dest, int start, int end) {
+        int i = start;
+        for(int bound = loopEnd(start, end); i < bound; i += LANES) {
+            load(x, i).mul(c[0]).add(load(y, i).mul(c[1]))
+                    .add(load(z, i).mul(c[2])).add(c[3])
+                    .intoArray(dest, i);
+        }
+        super.planeDistance(c, x, y, z, dest, i, end);
+    }
+    
+    @Override
+    int insideBox(float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ,
+            float[] x, float[] y, float[] z,
+            boolean[] dest, int start, int end) {
+        int count = 0;
+        int i = start;
+        for(int bound = loopEnd(start, end); i < bound; i += LANES) {
+            FloatVector vx = load(x, i), vy = load(y, i), vz = load(z, i);
+            VectorMask<Float> inside = vx.compare(VectorOperators.GE, minX)
+                    .and(vx.compare(VectorOperators.LE, maxX))
+                    .and(vy.compare(VectorOperators.GE, minY))
+                    .and(vy.compare(VectorOperators.LE, maxY))
+                    .and(vz.compare(VectorOperators.GE, minZ))
+                    .and(vz.compare(VectorOperators.LE, maxZ));
+            inside.intoArray(dest, i);
+            count += inside.trueCount();
+        }
+        return count + super.insideBox(minX, minY, minZ, maxX, maxY, maxZ,
+                x, y, z, dest, i, end);
+    }
+}
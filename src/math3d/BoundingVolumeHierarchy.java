@@ -0,0 +1,821 @@
+package math3d;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A bounding volume hierarchy (BVH) over a set of triangles, for quickly
+ * finding where a ray hits them. The triangles can come from a collection of
+ * Polygons, which are split with Polygon.triangulate(), or from an array of
+ * packed triangle coordinates.
+ *
+ * The tree is built with the surface area heuristic, using binning to choose
+ * each split, and large subtrees are built in parallel with fork/join. Once
+ * built, the BVH is immutable and can be queried from many threads at once.
+ * Queries don't allocate any objects; each thread should use its own Hit
+ * object to receive the results.
+ *
+ * Triangles are double-sided: a ray hits both the front and the back.
+ * @author vanjac
+ */
+public class BoundingVolumeHierarchy {
+    /**
+     * The result of a ray query. A Hit also holds the scratch space used by
+     * the query, so it should be reused instead of creating a new one for
+     * every ray, but it can't be shared between threads.
+     */
+    public static class Hit {
+        private final int[] stack = new int[MAX_DEPTH + 2];
+        private final double[] stackDistance = new double[MAX_DEPTH + 2];
+        
+        private BoundingVolumeHierarchy bvh;
+        private int triangle;
+        private double distance, u, v;
+        
+        /**
+         * Get the distance along the ray to the hit. This is in multiples of
+         * the length of the direction vector, so it's the actual distance if
+         * the direction is a unit vector.
+         * @return the distance
+         */
+        public double getDistance() {
+            return distance;
+        }
+        
+        /**
+         * Get the barycentric coordinate of the hit for the second vertex of
+         * the triangle.
+         * @return the weight of the second vertex
+         */
+        public double getU() {
+            return u;
+        }
+        
+        /**
+         * Get the barycentric coordinate of the hit for the third vertex of
+         * the triangle.
+         * @return the weight of the third vertex
+         */
+        public double getV() {
+            return v;
+        }
+        
+        /**
+         * Get the barycentric coordinate of the hit for the first vertex of
+         * the triangle.
+         * @return the weight of the first vertex, 1 - u - v
+         */
+        public double getW() {
+            return 1 - u - v;
+        }
+        
+        /**
+         * Get the index of the triangle that was hit, in the order the
+         * triangles were given to the BVH.
+         * @return the triangle index
+         */
+        public int getTriangleIndex() {
+            return bvh.triangleIds[triangle];
+        }
+        
+        /**
+         * Get the polygon that was hit.
+         * @return the polygon, or null if the BVH was built from an array
+         */
+        public Polygon getPolygon() {
+            if(bvh.polygons == null)
+                return null;
+            return bvh.polygons.get(bvh.polygonIds[triangle]);
+        }
+        
+        /**
+         * Get the index of the polygon that was hit, in the order of the
+         * collection the BVH was built from.
+         * @return the polygon index, or the triangle index if the BVH was
+         * built from an array
+         */
+        public int getPolygonIndex() {
+            if(bvh.polygons == null)
+                return getTriangleIndex();
+            return bvh.polygonIds[triangle];
+        }
+        
+        /**
+         * Get the index of one vertex of the triangle that was hit, in the
+         * vertex list of the polygon. The barycentric coordinates apply to
+         * these vertices, for example to interpolate normals.
+         * @param corner 0, 1 or 2
+         * @return the index of the vertex in Polygon.getVertices(), or corner
+         * if the BVH was built from an array
+         */
+        public int getVertexIndex(int corner) {
+            if(corner < 0 || corner > 2)
+                throw new IndexOutOfBoundsException("Corner " + corner);
+            if(bvh.polygons == null)
+                return corner;
+            return bvh.corners[triangle * 3 + corner];
+        }
+    }
+    
+    private static final int BINS = 16;
+    private static final int MAX_LEAF_SIZE = 4;
+    private static final int MAX_DEPTH = 64;
+    //subtrees with more triangles than this are built in a separate task
+    private static final int PARALLEL_THRESHOLD = 4096;
+    //cost of visiting a node, relative to intersecting a triangle
+    private static final double TRAVERSAL_COST = 1;
+    
+    private final List<Polygon> polygons; //null if built from an array
+    private final int triangleCount;
+    //for each triangle, in leaf order: the first vertex and the two edges
+    //from it (9 values)
+    private final double[] triangles;
+    private final int[] triangleIds;
+    private final int[] polygonIds;
+    private final int[] corners;
+    
+    //minimum x, y, z and maximum x, y, z of each node
+    private final double[] nodeBounds;
+    //for leaves, the first triangle; for other nodes, the index of the second
+    //child (the first child always comes right after its parent)
+    private final int[] nodeStart;
+    //the number of triangles in each leaf, 0 for other nodes
+    private final int[] nodeCount;
+    
+    /**
+     * Build a BVH over the triangles of a collection of polygons, in parallel.
+     * @param polygons the polygons
+     */
+    public BoundingVolumeHierarchy(Collection<? extends Polygon> polygons) {
+        this(polygons, true);
+    }
+    
+    /**
+     * Build a BVH over the triangles of a collection of polygons.
+     * @param polygons the polygons
+     * @param parallel true to build large subtrees in parallel, in the common
+     * ForkJoinPool
+     */
+    public BoundingVolumeHierarchy(Collection<? extends Polygon> polygons,
+            boolean parallel) {
+        this(new ArrayList<Polygon>(polygons), null, parallel);
+    }
+    
+    /**
+     * Build a BVH over an array of triangles, in parallel.
+     * @param triangles 9 values for each triangle: the x, y and z coordinates
+     * of each of its 3 vertices. The array isn't kept.
+     */
+    public BoundingVolumeHierarchy(double[] triangles) {
+        this(triangles, true);
+    }
+    
+    /**
+     * Build a BVH over an array of triangles.
+     * @param triangles 9 values for each triangle: the x, y and z coordinates
+     * of each of its 3 vertices. The array isn't kept.
+     * @param parallel true to build large subtrees in parallel, in the common
+     * ForkJoinPool
+     */
+    public BoundingVolumeHierarchy(double[] triangles, boolean parallel) {
+        this(null, checkLength(triangles), parallel);
+    }
+    
+    private BoundingVolumeHierarchy(List<Polygon> polygons, double[] vertices,
+            boolean parallel) {
+        this.polygons = polygons;
+        int[] tempPolygonIds = null;
+        int[] tempCorners = null;
+        if(polygons != null) {
+            int count = 0;
+            for(Polygon p : polygons)
+                count += p.getTriangleCount();
+            vertices = new double[count * 9];
+            tempPolygonIds = new int[count];
+            tempCorners = new int[count * 3];
+            readPolygons(polygons, vertices, tempPolygonIds, tempCorners);
+        }
+        triangleCount = vertices.length / 9;
+        
+        Builder builder = new Builder(vertices, triangleCount);
+        Node root = builder.root();
+        if(parallel && triangleCount > PARALLEL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(
+                    new BuildTask(builder, root, 0, triangleCount, 0));
+        else
+            builder.build(root, 0, triangleCount, 0, new Bins(), false);
+        
+        int nodes = root.size();
+        nodeBounds = new double[nodes * 6];
+        nodeStart = new int[nodes];
+        nodeCount = new int[nodes];
+        flatten(root, 0);
+        
+        //store the triangles in the order of the leaves
+        int[] order = builder.order;
+        triangles = new double[triangleCount * 9];
+        triangleIds = order;
+        polygonIds = tempPolygonIds == null ? null : new int[triangleCount];
+        corners = tempCorners == null ? null : new int[triangleCount * 3];
+        for(int i = 0; i < triangleCount; i++) {
+            int t = order[i];
+            int src = t * 9, dst = i * 9;
+            for(int j = 0; j < 3; j++) {
+                double v0 = vertices[src + j];
+                triangles[dst + j] = v0;
+                triangles[dst + 3 + j] = vertices[src + 3 + j] - v0;
+                triangles[dst + 6 + j] = vertices[src + 6 + j] - v0;
+            }
+            if(polygonIds != null) {
+                polygonIds[i] = tempPolygonIds[t];
+                System.arraycopy(tempCorners, t * 3, corners, i * 3, 3);
+            }
+        }
+    }
+    
+    private static double[] checkLength(double[] triangles) {
+        if(triangles.length % 9 != 0)
+            throw new IllegalArgumentException(
+                    "Array length must be a multiple of 9");
+        return triangles;
+    }
+    
+    private static void readPolygons(List<Polygon> polygons,
+            double[] vertices, int[] polygonIds, int[] corners) {
+        int[] t = {0};
+        for(int i = 0; i < polygons.size(); i++) {
+            int polygon = i;
+            List<Polygon.Vertex> polygonVertices = polygons.get(i).getVertices();
+            polygons.get(i).triangulate((i0, i1, i2) -> {
+                int n = t[0]++;
+                polygonIds[n] = polygon;
+                corners[n * 3] = i0;
+                corners[n * 3 + 1] = i1;
+                corners[n * 3 + 2] = i2;
+                putVector(vertices, n * 9, polygonVertices.get(i0));
+                putVector(vertices, n * 9 + 3, polygonVertices.get(i1));
+                putVector(vertices, n * 9 + 6, polygonVertices.get(i2));
+            });
+        }
+    }
+    
+    private static void putVector(double[] array, int i, Polygon.Vertex v) {
+        Vector3 position = v.getPosition();
+        array[i] = position.getX();
+        array[i + 1] = position.getY();
+        array[i + 2] = position.getZ();
+    }
+    
+    private int flatten(Node node, int index) {
+        System.arraycopy(node.bounds, 0, nodeBounds, index * 6, 6);
+        if(node.left == null) {
+            nodeStart[index] = node.start;
+            nodeCount[index] = node.count;
+            return index + 1;
+        }
+        int next = flatten(node.left, index + 1);
+        nodeStart[index] = next;
+        return flatten(node.right, next);
+    }
+    
+    /**
+     * Get the number of triangles in this BVH.
+     * @return the number of triangles
+     */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+    
+    /**
+     * Get the number of nodes in the tree, including leaves.
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount.length;
+    }
+    
+    /**
+     * Find the closest triangle that a ray hits.
+     * @param ray the ray
+     * @param maxDistance only look for hits closer than this
+     * @param hit receives the result if there is a hit
+     * @return true if the ray hits a triangle
+     */
+    public boolean closestHit(Ray ray, double maxDistance, Hit hit) {
+        return closestHit(ray.getOrigin(), ray.getDirection(), maxDistance,
+                hit);
+    }
+    
+    /**
+     * Find the closest triangle that a ray hits.
+     * @param origin the start of the ray
+     * @param direction the direction of the ray. It doesn't need to be a unit
+     * vector; distances are measured in multiples of its length.
+     * @param maxDistance only look for hits closer than this
+     * @param hit receives the result if there is a hit
+     * @return true if the ray hits a triangle
+     */
+    public boolean closestHit(Vector3 origin, Vector3 direction,
+            double maxDistance, Hit hit) {
+        return closestHit(origin.getX(), origin.getY(), origin.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(),
+                maxDistance, hit);
+    }
+    
+    /**
+     * Find the closest triangle that a ray hits.
+     * @param ox the x coordinate of the start of the ray
+     * @param oy the y coordinate of the start of the ray
+     * @param oz the z coordinate of the start of the ray
+     * @param dx the x coordinate of the direction of the ray
+     * @param dy the y coordinate of the direction of the ray
+     * @param dz the z coordinate of the direction of the ray
+     * @param maxDistance only look for hits closer than this, in multiples of
+     * the length of the direction
+     * @param hit receives the result if there is a hit
+     * @return true if the ray hits a triangle
+     */
+    public boolean closestHit(double ox, double oy, double oz,
+            double dx, double dy, double dz, double maxDistance, Hit hit) {
+        return traverse(ox, oy, oz, dx, dy, dz, maxDistance, hit, false);
+    }
+    
+    /**
+     * Check if a ray hits any triangle. See anyHit(Vector3, Vector3, double,
+     * Hit).
+     * @param ray the ray
+     * @param maxDistance only look for hits closer than this
+     * @param hit receives the result if there is a hit
+     * @return true if the ray hits a triangle
+     */
+    public boolean anyHit(Ray ray, double maxDistance, Hit hit) {
+        return anyHit(ray.getOrigin(), ray.getDirection(), maxDistance, hit);
+    }
+    
+    /**
+     * Check if a ray hits any triangle, for example to test line of sight.
+     * This stops at the first hit found, which isn't necessarily the closest.
+     * @param origin the start of the ray
+     * @param direction the direction of the ray. It doesn't need to be a unit
+     * vector; distances are measured in multiples of its length.
+     * @param maxDistance only look for hits closer than this
+     * @param hit receives the result if there is a hit
+     * @return true if the ray hits a triangle
+     */
+    public boolean anyHit(Vector3 origin, Vector3 direction,
+            double maxDistance, Hit hit) {
+        return anyHit(origin.getX(), origin.getY(), origin.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(),
+                maxDistance, hit);
+    }
+    
+    /**
+     * Check if a ray hits any triangle. See anyHit(Vector3, Vector3, double,
+     * Hit) and closestHit(double, double, double, double, double, double,
+     * double, Hit).
+     * @param ox the x coordinate of the start of the ray
+     * @param oy the y coordinate of the start of the ray
+     * @param oz the z coordinate of the start of the ray
+     * @param dx the x coordinate of the direction of the ray
+     * @param dy the y coordinate of the direction of the ray
+     * @param dz the z coordinate of the direction of the ray
+     * @param maxDistance only look for hits closer than this
+     * @param hit receives the result if there is a hit
+     * @return true if the ray hits a triangle
+     */
+    public boolean anyHit(double ox, double oy, double oz,
+            double dx, double dy, double dz, double maxDistance, Hit hit) {
+        return traverse(ox, oy, oz, dx, dy, dz, maxDistance, hit, true);
+    }
+    
+    private boolean traverse(double ox, double oy, double oz,
+            double dx, double dy, double dz, double maxDistance, Hit hit,
+            boolean any) {
+        if(triangleCount == 0)
+            return false;
+        double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+        int[] stack = hit.stack;
+        double[] stackDistance = hit.stackDistance;
+        int stackSize = 0;
+        
+        double closest = maxDistance;
+        int closestTriangle = -1;
+        double closestU = 0, closestV = 0;
+        
+        int node = 0;
+        if(enterBox(0, ox, oy, oz, ix, iy, iz, closest)
+                == Double.POSITIVE_INFINITY)
+            return false;
+        while(true) {
+            int count = nodeCount[node];
+            if(count != 0) {
+                int end = nodeStart[node] + count;
+                for(int t = nodeStart[node]; t < end; t++) {
+                    int i = t * 9;
+                    double e1x = triangles[i + 3];
+                    double e1y = triangles[i + 4];
+                    double e1z = triangles[i + 5];
+                    double e2x = triangles[i + 6];
+                    double e2y = triangles[i + 7];
+                    double e2z = triangles[i + 8];
+                    //Moller-Trumbore
+                    double px = dy * e2z - dz * e2y;
+                    double py = dz * e2x - dx * e2z;
+                    double pz = dx * e2y - dy * e2x;
+                    double det = e1x * px + e1y * py + e1z * pz;
+                    if(det == 0)
+                        continue; //parallel
+                    double inv = 1 / det;
+                    double sx = ox - triangles[i];
+                    double sy = oy - triangles[i + 1];
+                    double sz = oz - triangles[i + 2];
+                    double u = (sx * px + sy * py + sz * pz) * inv;
+                    if(u < 0 || u > 1)
+                        continue;
+                    double qx = sy * e1z - sz * e1y;
+                    double qy = sz * e1x - sx * e1z;
+                    double qz = sx * e1y - sy * e1x;
+                    double v = (dx * qx + dy * qy + dz * qz) * inv;
+                    if(v < 0 || u + v > 1)
+                        continue;
+                    double d = (e2x * qx + e2y * qy + e2z * qz) * inv;
+                    if(d > 0 && d < closest) {
+                        closest = d;
+                        closestTriangle = t;
+                        closestU = u;
+                        closestV = v;
+                        if(any)
+                            break;
+                    }
+                }
+                if(any && closestTriangle != -1)
+                    break;
+            } else {
+                int first = node + 1, second = nodeStart[node];
+                double d1 = enterBox(first, ox, oy, oz, ix, iy, iz, closest);
+                double d2 = enterBox(second, ox, oy, oz, ix, iy, iz, closest);
+                if(d1 != Double.POSITIVE_INFINITY) {
+                    if(d2 != Double.POSITIVE_INFINITY) {
+                        //visit the nearer child first
+                        if(d2 < d1) {
+                            stack[stackSize] = first;
+                            stackDistance[stackSize++] = d1;
+                            node = second;
+                        } else {
+                            stack[stackSize] = second;
+                            stackDistance[stackSize++] = d2;
+                            node = first;
+                        }
+                    } else {
+                        node = first;
+                    }
+                    continue;
+                } else if(d2 != Double.POSITIVE_INFINITY) {
+                    node = second;
+                    continue;
+                }
+            }
+            
+            //pop the next node that could still be closer than the best hit
+            do {
+                if(stackSize == 0) {
+                    node = -1;
+                    break;
+                }
+                node = stack[--stackSize];
+            } while(stackDistance[stackSize] >= closest);
+            if(node == -1)
+                break;
+        }
+        
+        if(closestTriangle == -1)
+            return false;
+        hit.bvh = this;
+        hit.triangle = closestTriangle;
+        hit.distance = closest;
+        hit.u = closestU;
+        hit.v = closestV;
+        return true;
+    }
+    
+    //the distance where the ray enters a node, or infinity if it misses. If
+    //the ray is parallel to an axis, that axis is skipped when the origin is
+    //between the bounds, since (bound - origin) * infinity can be NaN.
+    private double enterBox(int node, double ox, double oy, double oz,
+            double ix, double iy, double iz, double maxDistance) {
+        int b = node * 6;
+        double near = 0, far = maxDistance;
+        if(Double.isInfinite(ix)) {
+            if(ox < nodeBounds[b] || ox > nodeBounds[b + 3])
+                return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (nodeBounds[b] - ox) * ix;
+            double t2 = (nodeBounds[b + 3] - ox) * ix;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if(Double.isInfinite(iy)) {
+            if(oy < nodeBounds[b + 1] || oy > nodeBounds[b + 4])
+                return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (nodeBounds[b + 1] - oy) * iy;
+            double t2 = (nodeBounds[b + 4] - oy) * iy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if(Double.isInfinite(iz)) {
+            if(oz < nodeBounds[b + 2] || oz > nodeBounds[b + 5])
+                return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (nodeBounds[b + 2] - oz) * iz;
+            double t2 = (nodeBounds[b + 5] - oz) * iz;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+    
+    private static final class Node {
+        //bounds of the triangles, then bounds of their centroids
+        final double[] bounds = new double[12];
+        Node left, right;
+        int start, count;
+        
+        int size() {
+            return left == null ? 1 : 1 + left.size() + right.size();
+        }
+    }
+    
+    //scratch space for choosing a split, one for each thread
+    private static final class Bins {
+        final int[] counts = new int[3 * BINS];
+        final double[] bounds = new double[3 * BINS * 6];
+        final double[] rightArea = new double[BINS];
+        final double[] scale = new double[3];
+        final double[] sweep = new double[6];
+    }
+    
+    private static final class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Builder builder;
+        private final Node node;
+        private final int start, end, depth;
+        
+        BuildTask(Builder builder, Node node, int start, int end, int depth) {
+            this.builder = builder;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+        }
+        
+        @Override
+        protected void compute() {
+            builder.build(node, start, end, depth, new Bins(), true);
+        }
+    }
+    
+    private static final class Builder {
+        //triangle indices, rearranged so each node is a contiguous range
+        final int[] order;
+        //bounds and centroid of each triangle, rearranged along with order so
+        //they can be read in sequence
+        final double[] bounds;
+        final double[] centroids;
+        
+        Builder(double[] vertices, int count) {
+            order = new int[count];
+            bounds = new double[count * 6];
+            centroids = new double[count * 3];
+            for(int t = 0; t < count; t++) {
+                order[t] = t;
+                for(int j = 0; j < 3; j++) {
+                    double a = vertices[t * 9 + j];
+                    double b = vertices[t * 9 + 3 + j];
+                    double c = vertices[t * 9 + 6 + j];
+                    double min = Math.min(a, Math.min(b, c));
+                    double max = Math.max(a, Math.max(b, c));
+                    bounds[t * 6 + j] = min;
+                    bounds[t * 6 + 3 + j] = max;
+                    centroids[t * 3 + j] = (min + max) / 2;
+                }
+            }
+        }
+        
+        Node root() {
+            Node root = new Node();
+            calculateBounds(root, 0, order.length);
+            return root;
+        }
+        
+        void build(Node node, int start, int end, int depth, Bins bins,
+                boolean parallel) {
+            int count = end - start;
+            if(count <= 1 || depth >= MAX_DEPTH - 1) {
+                leaf(node, start, count);
+                return;
+            }
+            
+            Node left = new Node(), right = new Node();
+            int mid = split(node, start, end, bins, left, right);
+            if(mid == -1) {
+                if(count <= MAX_LEAF_SIZE) {
+                    leaf(node, start, count);
+                    return;
+                }
+                mid = (start + end) >>> 1; //no useful split; use any split
+                calculateBounds(left, start, mid);
+                calculateBounds(right, mid, end);
+            }
+            node.left = left;
+            node.right = right;
+            
+            if(parallel && count > PARALLEL_THRESHOLD) {
+                BuildTask task = new BuildTask(this, left, start, mid,
+                        depth + 1);
+                task.fork();
+                build(right, mid, end, depth + 1, bins, true);
+                task.join();
+            } else {
+                build(left, start, mid, depth + 1, bins, false);
+                build(right, mid, end, depth + 1, bins, false);
+            }
+        }
+        
+        private static void leaf(Node node, int start, int count) {
+            node.start = start;
+            node.count = count;
+        }
+        
+        private void calculateBounds(Node node, int start, int end) {
+            double[] b = node.bounds;
+            resetBounds(b, 0);
+            resetBounds(b, 6);
+            for(int i = start; i < end; i++) {
+                for(int j = 0; j < 3; j++) {
+                    b[j] = Math.min(b[j], bounds[i * 6 + j]);
+                    b[j + 3] = Math.max(b[j + 3], bounds[i * 6 + 3 + j]);
+                    b[j + 6] = Math.min(b[j + 6], centroids[i * 3 + j]);
+                    b[j + 9] = Math.max(b[j + 9], centroids[i * 3 + j]);
+                }
+            }
+        }
+        
+        //partition the range using the best split, fill in the bounds of the
+        //children, and return the index of the first triangle on the right.
+        //-1 if it would be better to make a leaf, or if the triangles can't
+        //be split.
+        private int split(Node node, int start, int end, Bins bins,
+                Node left, Node right) {
+            double[] b = node.bounds;
+            int[] counts = bins.counts;
+            double[] binBounds = bins.bounds;
+            double[] scale = bins.scale;
+            Arrays.fill(counts, 0);
+            for(int i = 0; i < 3 * BINS; i++)
+                resetBounds(binBounds, i * 6);
+            
+            for(int axis = 0; axis < 3; axis++) {
+                double extent = b[axis + 9] - b[axis + 6];
+                scale[axis] = extent > 0 ? BINS / extent : 0;
+            }
+            
+            for(int i = start; i < end; i++) {
+                for(int axis = 0; axis < 3; axis++) {
+                    int bin = axis * BINS + bin(i, axis, b, scale);
+                    counts[bin]++;
+                    int bb = bin * 6;
+                    for(int j = 0; j < 3; j++) {
+                        binBounds[bb + j] = Math.min(binBounds[bb + j],
+                                bounds[i * 6 + j]);
+                        binBounds[bb + 3 + j] = Math.max(binBounds[bb + 3 + j],
+                                bounds[i * 6 + 3 + j]);
+                    }
+                }
+            }
+            
+            int count = end - start;
+            double bestCost = count; //cost of a leaf
+            int bestAxis = -1, bestBin = 0;
+            double inverseArea = 1 / area(b, 0);
+            double[] rightArea = bins.rightArea;
+            double[] sweep = bins.sweep;
+            for(int axis = 0; axis < 3; axis++) {
+                if(scale[axis] == 0)
+                    continue;
+                int first = axis * BINS;
+                resetBounds(sweep, 0);
+                for(int i = BINS - 1; i > 0; i--) {
+                    grow(sweep, 0, binBounds, (first + i) * 6);
+                    rightArea[i] = area(sweep, 0);
+                }
+                resetBounds(sweep, 0);
+                int leftCount = 0;
+                for(int i = 1; i < BINS; i++) {
+                    grow(sweep, 0, binBounds, (first + i - 1) * 6);
+                    leftCount += counts[first + i - 1];
+                    int rightCount = count - leftCount;
+                    if(leftCount == 0 || rightCount == 0)
+                        continue;
+                    double cost = TRAVERSAL_COST + (area(sweep, 0) * leftCount
+                            + rightArea[i] * rightCount) * inverseArea;
+                    if(cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestBin = i;
+                    }
+                }
+            }
+            if(bestAxis == -1) {
+                //splitting isn't cheaper; still split large leaves if possible
+                if(count <= MAX_LEAF_SIZE)
+                    return -1;
+                for(int axis = 0; axis < 3; axis++) {
+                    if(scale[axis] > 0
+                            && (bestAxis == -1 || scale[axis] < scale[bestAxis]))
+                        bestAxis = axis; //the longest axis
+                }
+                if(bestAxis == -1)
+                    return -1;
+                bestBin = BINS / 2;
+            }
+            
+            double[] lb = left.bounds, rb = right.bounds;
+            resetBounds(lb, 0);
+            resetBounds(rb, 0);
+            for(int i = 0; i < BINS; i++)
+                grow(i < bestBin ? lb : rb, 0, binBounds,
+                        (bestAxis * BINS + i) * 6);
+            
+            //partition, and find the centroid bounds of each side
+            resetBounds(lb, 6);
+            resetBounds(rb, 6);
+            int i = start, j = end - 1;
+            while(i <= j) {
+                if(bin(i, bestAxis, b, scale) < bestBin) {
+                    growPoint(lb, i);
+                    i++;
+                } else {
+                    growPoint(rb, i);
+                    swap(i, j--);
+                }
+            }
+            if(i == start || i == end)
+                return -1;
+            return i;
+        }
+        
+        private int bin(int i, int axis, double[] b, double[] scale) {
+            int bin = (int)((centroids[i * 3 + axis] - b[axis + 6])
+                    * scale[axis]);
+            return Math.min(bin, BINS - 1);
+        }
+        
+        private void growPoint(double[] b, int i) {
+            for(int j = 0; j < 3; j++) {
+                b[j + 6] = Math.min(b[j + 6], centroids[i * 3 + j]);
+                b[j + 9] = Math.max(b[j + 9], centroids[i * 3 + j]);
+            }
+        }
+        
+        private void swap(int i, int j) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+            for(int k = 0; k < 6; k++) {
+                double d = bounds[i * 6 + k];
+                bounds[i * 6 + k] = bounds[j * 6 + k];
+                bounds[j * 6 + k] = d;
+            }
+            for(int k = 0; k < 3; k++) {
+                double d = centroids[i * 3 + k];
+                centroids[i * 3 + k] = centroids[j * 3 + k];
+                centroids[j * 3 + k] = d;
+            }
+        }
+        
+        private static void resetBounds(double[] b, int i) {
+            b[i] = b[i + 1] = b[i + 2] = Double.POSITIVE_INFINITY;
+            b[i + 3] = b[i + 4] = b[i + 5] = Double.NEGATIVE_INFINITY;
+        }
+        
+        private static void grow(double[] b, int i, double[] other, int o) {
+            for(int j = 0; j < 3; j++) {
+                b[i + j] = Math.min(b[i + j], other[o + j]);
+                b[i + j + 3] = Math.max(b[i + j + 3], other[o + 3 + j]);
+            }
+        }
+        
+        //half the surface area of a box, 0 if empty
+        private static double area(double[] b, int i) {
+            double x = b[i + 3] - b[i];
+            double y = b[i + 4] - b[i + 1];
+            double z = b[i + 5] - b[i + 2];
+            if(!(x >= 0))
+                return 0;
+            return x * y + y * z + z * x;
+        }
+    }
+}
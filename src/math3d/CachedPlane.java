@@ -0,0 +1,113 @@
+package math3d;
+
+import java.util.Arrays;
+
+/**
+ * The Plane implementation returned by Plane.at() and
+ * Plane.fromCoefficients(). The coefficients are calculated once, when the
+ * plane is created, and are always for a unit normal, so the signed distance
+ * from the plane to a point is [ ax + by + cz + d ].
+ * @author vanjac
+ */
+final class CachedPlane implements Plane {
+    private final Vector3 point;
+    private final Direction3 normal;
+    private final double[] coefficients;
+    
+    CachedPlane(Vector3 point, Direction3 normal) {
+        this.point = point;
+        this.normal = normal;
+        Vector3 unit = normal.getUnitVector();
+        coefficients = new double[] {
+            unit.getX(), unit.getY(), unit.getZ(),
+            -(unit.getX()*point.getX()
+                    + unit.getY()*point.getY()
+                    + unit.getZ()*point.getZ())
+        };
+    }
+    
+    CachedPlane(double[] c) {
+        if(c.length != 4)
+            throw new IllegalArgumentException(
+                    "Plane must have 4 coefficients: " + c.length);
+        double magnitude = Math.sqrt(c[0]*c[0] + c[1]*c[1] + c[2]*c[2]);
+        if(!(magnitude > 0) || Double.isInfinite(magnitude))
+            throw new IllegalArgumentException(
+                    "Plane normal can't be zero: " + Arrays.toString(c));
+        coefficients = new double[] {
+            c[0] / magnitude, c[1] / magnitude, c[2] / magnitude,
+            c[3] / magnitude
+        };
+        Vector3 unit = new Vector3(
+                coefficients[0], coefficients[1], coefficients[2]);
+        normal = new Direction3(unit);
+        //the point on the plane closest to the origin
+        point = unit.multiply(-coefficients[3]);
+    }
+    
+    @Override
+    public String toString() {
+        return "Plane " + Arrays.toString(coefficients);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(o == null)
+            return false;
+        if(!(o instanceof CachedPlane))
+            return false;
+        if(o == this)
+            return true;
+        
+        CachedPlane p = (CachedPlane)o;
+        return Arrays.equals(coefficients, p.coefficients);
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 59 * hash + Arrays.hashCode(this.coefficients);
+        return hash;
+    }
+    
+    @Override
+    public Direction3 getNormal() {
+        return normal;
+    }
+    
+    @Override
+    public Vector3 getPoint() {
+        return point;
+    }
+    
+    @Override
+    public double[] getPlaneCoefficients() {
+        return coefficients.clone();
+    }
+    
+    /**
+     * Get the coefficients of any plane, without copying them if the plane is
+     * a CachedPlane. The array may be shared, so it must not be modified.
+     * @param p the plane
+     * @return an array of the 4 coefficients, in the order { a, b, c, d }
+     */
+    static double[] coefficients(Plane p) {
+        if(p instanceof CachedPlane)
+            return ((CachedPlane)p).coefficients;
+        return p.getPlaneCoefficients();
+    }
+    
+    static Plane.Side side(double distance, double epsilon) {
+        if(distance > epsilon)
+            return Plane.Side.FRONT;
+        if(distance < -epsilon)
+            return Plane.Side.BACK;
+        return Plane.Side.ON;
+    }
+    
+    static void checkRange(int arrayLength, int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > arrayLength)
+            throw new IndexOutOfBoundsException("offset " + offset
+                    + ", length " + length + ", array length " + arrayLength);
+    }
+}
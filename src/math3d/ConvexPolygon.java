@@ -37,6 +37,21 @@ public class ConvexPolygon implements Polygon {
         type = calculateType();
     }
     
+    /**
+     * Create a ConvexPolygon from an ordered list of vertices, with a normal
+     * that is already known, such as the normal of a polygon it was clipped
+     * from.
+     * @param v the vertices
+     * @param order the order of the vertices
+     * @param normal the normal of the polygon
+     */
+    ConvexPolygon(List<Vertex> v, VertexOrder order, Direction3 normal) {
+        vertices = v;
+        this.order = order;
+        this.normal = normal;
+        type = calculateType();
+    }
+    
     /**
      * Create a ConvexPolygon from an array of vectors. Vertices will be
      * generated from the vectors, with the same normal as the polygon itself.
@@ -90,10 +105,7 @@ public class ConvexPolygon implements Polygon {
     }
     
     private Direction3 calculateNormal(Vector3 v1, Vector3 v2, Vector3 v3) {
-        Direction3 tempNormal = Vector3.normal(v1, v2, v3);
-        if(order == VertexOrder.CLOCKWISE)
-            tempNormal = tempNormal.inverse();
-        return tempNormal;
+        return NormalCache.normal(v1, v2, v3, order);
     }
     
     private PolygonType calculateType() {
@@ -124,6 +136,16 @@ public class ConvexPolygon implements Polygon {
         return new ArrayList<>(vertices);
     }
 
+    // package-private access to the vertices, without copying the list
+    
+    Vertex vertex(int i) {
+        return vertices.get(i);
+    }
+    
+    Vector3 position(int i) {
+        return vertices.get(i).getPosition();
+    }
+    
     @Override
     public short getVertexCount() {
         return (short)vertices.size();
@@ -143,13 +165,15 @@ public class ConvexPolygon implements Polygon {
         Vertex startVertex = vertices.get(0);
         Set<Polygon> triangles = new HashSet<>(verticesSize - 2);
         
-        //order will be preserved
+        //order will be preserved, and all triangles have the same normal as
+        //this polygon so it doesn't need to be calculated again
         for(int i = 2; i < verticesSize; i++) {
             Polygon p = new Triangle(
                     startVertex,
                     vertices.get(i-1),
                     vertices.get(i),
-                    order
+                    order,
+                    normal
             );
             triangles.add(p);
         }
@@ -8,12 +8,30 @@ public class Direction3 {
     public static final Vector3 BASE_ROTATION = new Vector3(1, 0, 0);
     public static final Direction3 ZERO = new Direction3(new Vector3(1, 0, 0));
     
-    private final boolean unitVectorCalculated;
+    /**
+     * The y and z rotation values of a direction, stored together so they can
+     * be calculated and set at the same time.
+     */
+    private static final class Orientation {
+        final double yRot;
+        final double zRot;
+        
+        Orientation(double yRot, double zRot) {
+            this.yRot = yRot;
+            this.zRot = zRot;
+        }
+    }
+    
+    //Only one of these is given to the constructor; the other is null.
     private final Vector3 unitVector;
+    private final Orientation orientation;
     
-    private final boolean orientationCalculated;
-    private final double yRot;
-    private final double zRot;
+    //The missing representation is calculated the first time it is needed
+    //and kept here. Both are immutable objects with only final fields, so
+    //they can be shared between threads without locking: at worst two threads
+    //both calculate the same value.
+    private Vector3 calculatedUnitVector;
+    private Orientation calculatedOrientation;
     
     /**
      * Create a new Direction3 from the y- and z-axis rotation values
@@ -21,11 +39,9 @@ public class Direction3 {
      * @param zRot rotation around z axis, in radians
      */
     public Direction3(double yRot, double zRot) {
-        this.yRot = Vector2.fixRotation(yRot);
-        this.zRot = Vector2.fixRotation(zRot);
+        orientation = new Orientation(
+                Vector2.fixRotation(yRot), Vector2.fixRotation(zRot));
         unitVector = null;
-        orientationCalculated = true;
-        unitVectorCalculated = false;
     }
     
     /**
@@ -35,9 +51,7 @@ public class Direction3 {
      */
     public Direction3(Vector3 unitVector) {
         this.unitVector = unitVector;
-        yRot = zRot = 0;
-        unitVectorCalculated = true;
-        orientationCalculated = false;
+        orientation = null;
     }
     
     @Override
@@ -56,7 +70,7 @@ public class Direction3 {
             return true;
         
         Direction3 d = (Direction3)o;
-        if(orientationCalculated)
+        if(orientation != null)
             return d.getYRotation() == getYRotation()
                     && d.getZRotation() == getZRotation();
         
@@ -69,7 +83,7 @@ public class Direction3 {
      * @return true if this Direction3 is zero
      */
     public boolean isZero() {
-        if(orientationCalculated)
+        if(orientation != null)
             return getYRotation() == 0 && getZRotation() == 0;
         return getUnitVector().normalize().equals(BASE_ROTATION);
     }
@@ -88,25 +102,51 @@ public class Direction3 {
      * @return a unit vector
      */
     public Vector3 getUnitVector() {
-        if(unitVectorCalculated)
+        if(unitVector != null)
             return unitVector;
-        
-        return BASE_ROTATION.rotate(new Rotation3(this, 0));
+        Vector3 v = calculatedUnitVector;
+        if(v == null) {
+            //BASE_ROTATION rotated by pitch, then yaw
+            double sinY, cosY, sinZ, cosZ;
+            if(FastAngles.isEnabled()) {
+                sinY = FastAngles.sin(orientation.yRot);
+                cosY = FastAngles.cos(orientation.yRot);
+                sinZ = FastAngles.sin(orientation.zRot);
+                cosZ = FastAngles.cos(orientation.zRot);
+            } else {
+                sinY = Math.sin(orientation.yRot);
+                cosY = Math.cos(orientation.yRot);
+                sinZ = Math.sin(orientation.zRot);
+                cosZ = Math.cos(orientation.zRot);
+            }
+            v = new Vector3(cosZ * cosY, sinZ * cosY, sinY);
+            calculatedUnitVector = v;
+        }
+        return v;
     }
     
     public double getYRotation() { //pitch
-        if(orientationCalculated)
-            return yRot;
-        Vector2 xy = new Vector2(unitVector.getX(), unitVector.getY());
-        Vector2 xyz = new Vector2(xy.magnitude(), unitVector.getZ());
-        return xyz.direction();
+        return getOrientation().yRot;
     }
     
     public double getZRotation() { //yaw
-        if(orientationCalculated)
-            return zRot;
-        Vector2 xy = new Vector2(unitVector.getX(), unitVector.getY());
-        return xy.direction();
+        return getOrientation().zRot;
+    }
+    
+    private Orientation getOrientation() {
+        if(orientation != null)
+            return orientation;
+        Orientation o = calculatedOrientation;
+        if(o == null) {
+            double xyMagnitude = Math.sqrt(unitVector.getX()*unitVector.getX()
+                    + unitVector.getY()*unitVector.getY());
+            o = new Orientation(
+                    Vector2.direction(xyMagnitude, unitVector.getZ()),
+                    Vector2.direction(unitVector.getX(), unitVector.getY())
+            );
+            calculatedOrientation = o;
+        }
+        return o;
     }
     
     /**
@@ -114,7 +154,7 @@ public class Direction3 {
      * @return the inverse of this direction
      */
     public Direction3 inverse() {
-        if(orientationCalculated) { //add 180 degrees to each angle
+        if(orientation != null) { //add 180 degrees to each angle
             double newY = getYRotation() + Math.PI;
             double newZ = getZRotation() + Math.PI;
             newY = Vector2.fixRotation(newY);
@@ -149,7 +189,7 @@ public class Direction3 {
         Vector3 a = this.getUnitVector();
         Vector3 b = d.getUnitVector();
         double result = Math.acos(
-                a.dot(b) / (a.magnitude() * b.magnitude())
+                a.dot(b) / Math.sqrt(a.magnitudeSquare() * b.magnitudeSquare())
         );
         //return Vector2.fixRotation(result);
         return result;
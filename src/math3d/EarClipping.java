@@ -0,0 +1,553 @@
+package math3d;
+
+import java.util.*;
+
+/**
+ * Triangulates a simple 2d polygon, with optional holes, by ear clipping.
+ * Used by SimplePolygon.
+ *
+ * The polygon is kept as a circular doubly linked list of nodes, stored in
+ * int arrays. Holes are joined to the outline with a pair of "bridge" edges,
+ * which turns the polygon with holes into one (weakly simple) outline. Ears
+ * are then clipped off one at a time. To check that no other vertex is inside
+ * a candidate ear, only reflex vertices need to be tested, so those are kept
+ * in a uniform grid and only the cells overlapping the ear are searched. This
+ * makes the whole triangulation close to O(n log n) for ordinary input,
+ * instead of O(n^2) or worse for naive ear clipping.
+ *
+ * If the input has problems (self-intersections, degenerate edges) and no
+ * ear can be found, the algorithm removes duplicate and collinear points,
+ * then fixes small local self-intersections, then as a last resort splits
+ * the polygon in two along a valid diagonal. This follows the approach of
+ * the "earcut" library.
+ * @author vanjac
+ */
+final class EarClipping {
+    private final double[] xs;
+    private final double[] ys;
+    
+    //nodes of the linked list
+    private int[] point;
+    private int[] prev;
+    private int[] next;
+    private int nodeCount;
+    
+    private int[] triangles;
+    private int triangleLength;
+    
+    //grid of reflex nodes
+    private int[] cellHead;
+    private int[] cellOf; //-1 if the node isn't in the grid
+    private int[] prevInCell;
+    private int[] nextInCell;
+    private int gridSize;
+    private double gridMinX, gridMinY, gridScaleX, gridScaleY;
+    
+    private EarClipping(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        int capacity = xs.length + 16;
+        point = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        cellOf = new int[capacity];
+        prevInCell = new int[capacity];
+        nextInCell = new int[capacity];
+        triangles = new int[Math.max(xs.length, 1) * 3];
+    }
+    
+    /**
+     * Triangulate a polygon.
+     * @param xs the x coordinates of all points: the outline, then each hole
+     * @param ys the y coordinates of all points
+     * @param holeStarts the index of the first point of each hole, in
+     * increasing order. The outline is every point before the first hole.
+     * @return the point indices of the triangles, 3 for each triangle. The
+     * triangles have the same winding (clockwise or counter-clockwise) as the
+     * outline.
+     */
+    static int[] triangulate(double[] xs, double[] ys, int[] holeStarts) {
+        EarClipping e = new EarClipping(xs, ys);
+        int outlineEnd = holeStarts.length > 0 ? holeStarts[0] : xs.length;
+        boolean counterClockwise = e.signedArea(0, outlineEnd) > 0;
+        
+        int outer = e.linkedList(0, outlineEnd, true);
+        if(outer == -1 || e.next[outer] == e.prev[outer])
+            return new int[0];
+        if(holeStarts.length > 0)
+            outer = e.eliminateHoles(holeStarts, outer);
+        e.earcutLinked(outer, 0);
+        
+        int[] result = Arrays.copyOf(e.triangles, e.triangleLength);
+        if(!counterClockwise) { //triangles are always counter-clockwise
+            for(int i = 0; i < result.length; i += 3) {
+                int t = result[i];
+                result[i] = result[i + 2];
+                result[i + 2] = t;
+            }
+        }
+        return result;
+    }
+    
+    private double x(int node) {
+        return xs[point[node]];
+    }
+    
+    private double y(int node) {
+        return ys[point[node]];
+    }
+    
+    private double signedArea(int start, int end) {
+        double sum = 0;
+        for(int i = start, j = end - 1; i < end; j = i++)
+            sum += (xs[j] - xs[i]) * (ys[i] + ys[j]);
+        return sum;
+    }
+    
+    //negative if p, q, r turn counter-clockwise
+    private double area(int p, int q, int r) {
+        return (y(q) - y(p)) * (x(r) - x(q)) - (x(q) - x(p)) * (y(r) - y(q));
+    }
+    
+    private boolean equals(int p, int q) {
+        return x(p) == x(q) && y(p) == y(q);
+    }
+    
+    private int newNode(int pointIndex) {
+        if(nodeCount == point.length) {
+            int capacity = point.length * 2;
+            point = Arrays.copyOf(point, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+            prevInCell = Arrays.copyOf(prevInCell, capacity);
+            nextInCell = Arrays.copyOf(nextInCell, capacity);
+        }
+        int node = nodeCount++;
+        point[node] = pointIndex;
+        cellOf[node] = -1;
+        return node;
+    }
+    
+    private int insertNode(int pointIndex, int last) {
+        int p = newNode(pointIndex);
+        if(last == -1) {
+            prev[p] = p;
+            next[p] = p;
+        } else {
+            next[p] = next[last];
+            prev[p] = last;
+            prev[next[last]] = p;
+            next[last] = p;
+        }
+        return p;
+    }
+    
+    private void removeNode(int p) {
+        prev[next[p]] = prev[p];
+        next[prev[p]] = next[p];
+        removeFromGrid(p);
+    }
+    
+    private void addTriangle(int a, int b, int c) {
+        if(triangleLength + 3 > triangles.length)
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+        triangles[triangleLength++] = point[a];
+        triangles[triangleLength++] = point[b];
+        triangles[triangleLength++] = point[c];
+    }
+    
+    private int linkedList(int start, int end, boolean counterClockwise) {
+        int last = -1;
+        if(counterClockwise == (signedArea(start, end) > 0)) {
+            for(int i = start; i < end; i++)
+                last = insertNode(i, last);
+        } else {
+            for(int i = end - 1; i >= start; i--)
+                last = insertNode(i, last);
+        }
+        if(last != -1 && equals(last, next[last])) {
+            removeNode(last);
+            last = next[last];
+        }
+        return last;
+    }
+    
+    //remove duplicate and collinear points
+    private int filterPoints(int start, int end) {
+        if(start == -1)
+            return start;
+        if(end == -1)
+            end = start;
+        int p = start;
+        boolean again;
+        do {
+            again = false;
+            if(equals(p, next[p]) || area(prev[p], p, next[p]) == 0) {
+                removeNode(p);
+                p = end = prev[p];
+                if(p == next[p])
+                    break;
+                again = true;
+            } else {
+                p = next[p];
+            }
+        } while(again || p != end);
+        return end;
+    }
+    
+    private void earcutLinked(int ear, int pass) {
+        if(ear == -1)
+            return;
+        buildIndex(ear);
+        
+        int stop = ear;
+        while(prev[ear] != next[ear]) {
+            int p = prev[ear];
+            int n = next[ear];
+            if(isEar(ear)) {
+                addTriangle(p, ear, n);
+                removeNode(ear);
+                //the neighbors might not be reflex anymore
+                if(cellOf[p] != -1 && area(prev[p], p, n) < 0)
+                    removeFromGrid(p);
+                if(cellOf[n] != -1 && area(p, n, next[n]) < 0)
+                    removeFromGrid(n);
+                ear = next[n];
+                stop = next[n];
+                continue;
+            }
+            ear = n;
+            if(ear == stop) {
+                //no ears left; try to fix the polygon
+                if(pass == 0) {
+                    earcutLinked(filterPoints(ear, -1), 1);
+                } else if(pass == 1) {
+                    ear = cureLocalIntersections(filterPoints(ear, -1));
+                    earcutLinked(ear, 2);
+                } else {
+                    splitEarcut(ear);
+                }
+                break;
+            }
+        }
+    }
+    
+    private void buildIndex(int start) {
+        double minX = Double.POSITIVE_INFINITY, minY = minX;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = maxX;
+        int reflexCount = 0;
+        int p = start;
+        do {
+            minX = Math.min(minX, x(p));
+            minY = Math.min(minY, y(p));
+            maxX = Math.max(maxX, x(p));
+            maxY = Math.max(maxY, y(p));
+            if(area(prev[p], p, next[p]) >= 0)
+                reflexCount++;
+            p = next[p];
+        } while(p != start);
+        
+        gridSize = Math.max(1, (int)Math.sqrt(reflexCount));
+        gridMinX = minX;
+        gridMinY = minY;
+        gridScaleX = maxX > minX ? gridSize / (maxX - minX) : 0;
+        gridScaleY = maxY > minY ? gridSize / (maxY - minY) : 0;
+        cellHead = new int[gridSize * gridSize];
+        Arrays.fill(cellHead, -1);
+        
+        //Ear clipping only makes angles smaller, so a vertex that isn't
+        //reflex now will never become reflex during this pass. Vertices are
+        //removed from the grid when they become convex.
+        do {
+            if(area(prev[p], p, next[p]) >= 0) {
+                int cell = cellY(y(p)) * gridSize + cellX(x(p));
+                int head = cellHead[cell];
+                cellOf[p] = cell;
+                prevInCell[p] = -1;
+                nextInCell[p] = head;
+                if(head != -1)
+                    prevInCell[head] = p;
+                cellHead[cell] = p;
+            } else {
+                cellOf[p] = -1;
+            }
+            p = next[p];
+        } while(p != start);
+    }
+    
+    private void removeFromGrid(int p) {
+        int cell = cellOf[p];
+        if(cell == -1)
+            return;
+        if(prevInCell[p] == -1)
+            cellHead[cell] = nextInCell[p];
+        else
+            nextInCell[prevInCell[p]] = nextInCell[p];
+        if(nextInCell[p] != -1)
+            prevInCell[nextInCell[p]] = prevInCell[p];
+        cellOf[p] = -1;
+    }
+    
+    private int cellX(double x) {
+        return Math.min(gridSize - 1, (int)((x - gridMinX) * gridScaleX));
+    }
+    
+    private int cellY(double y) {
+        return Math.min(gridSize - 1, (int)((y - gridMinY) * gridScaleY));
+    }
+    
+    private boolean isEar(int ear) {
+        int a = prev[ear], b = ear, c = next[ear];
+        if(area(a, b, c) >= 0)
+            return false; //reflex, can't be an ear
+        
+        double ax = x(a), bx = x(b), cx = x(c);
+        double ay = y(a), by = y(b), cy = y(c);
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+        
+        int cellX1 = cellX(x1), cellY1 = cellY(y1);
+        for(int cellY = cellY(y0); cellY <= cellY1; cellY++) {
+            for(int cellX = cellX(x0); cellX <= cellX1; cellX++) {
+                int p = cellHead[cellY * gridSize + cellX];
+                for(; p != -1; p = nextInCell[p]) {
+                    if(p == a || p == b || p == c)
+                        continue;
+                    double px = x(p), py = y(p);
+                    if(px >= x0 && px <= x1 && py >= y0 && py <= y1
+                            && !(px == ax && py == ay)
+                            && pointInTriangle(ax, ay, bx, by, cx, cy, px, py)
+                            && area(prev[p], p, next[p]) >= 0)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static boolean pointInTriangle(double ax, double ay,
+            double bx, double by, double cx, double cy, double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+                && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+                && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+    
+    //go through all polygon nodes and cure small local self-intersections
+    private int cureLocalIntersections(int start) {
+        int p = start;
+        do {
+            int a = prev[p], b = next[next[p]];
+            if(!equals(a, b) && intersects(a, p, next[p], b)
+                    && locallyInside(a, b) && locallyInside(b, a)) {
+                addTriangle(a, p, b);
+                removeNode(p);
+                removeNode(next[p]);
+                p = start = b;
+            }
+            p = next[p];
+        } while(p != start);
+        return filterPoints(p, -1);
+    }
+    
+    //try splitting the polygon into two and triangulate them independently
+    private void splitEarcut(int start) {
+        int a = start;
+        do {
+            int b = next[next[a]];
+            while(b != prev[a]) {
+                if(point[a] != point[b] && isValidDiagonal(a, b)) {
+                    int c = splitPolygon(a, b);
+                    a = filterPoints(a, next[a]);
+                    c = filterPoints(c, next[c]);
+                    earcutLinked(a, 0);
+                    earcutLinked(c, 0);
+                    return;
+                }
+                b = next[b];
+            }
+            a = next[a];
+        } while(a != start);
+    }
+    
+    private int eliminateHoles(int[] holeStarts, int outer) {
+        List<Integer> queue = new ArrayList<>(holeStarts.length);
+        for(int i = 0; i < holeStarts.length; i++) {
+            int start = holeStarts[i];
+            int end = i < holeStarts.length - 1 ? holeStarts[i + 1] : xs.length;
+            int list = linkedList(start, end, false);
+            if(list != -1 && list != next[list])
+                queue.add(getLeftmost(list));
+        }
+        queue.sort((a, b) -> Double.compare(x(a), x(b)));
+        for(int hole : queue)
+            outer = eliminateHole(hole, outer);
+        return outer;
+    }
+    
+    private int eliminateHole(int hole, int outer) {
+        int bridge = findHoleBridge(hole, outer);
+        if(bridge == -1)
+            return outer;
+        int bridgeReverse = splitPolygon(bridge, hole);
+        filterPoints(bridgeReverse, next[bridgeReverse]);
+        return filterPoints(bridge, next[bridge]);
+    }
+    
+    //find a vertex of the outline that can be connected to the hole
+    private int findHoleBridge(int hole, int outer) {
+        int p = outer;
+        double hx = x(hole), hy = y(hole);
+        double qx = Double.NEGATIVE_INFINITY;
+        int m = -1;
+        
+        //find the segment of the outline just left of the hole point
+        do {
+            int n = next[p];
+            if(hy <= y(p) && hy >= y(n) && y(n) != y(p)) {
+                double x = x(p) + (hy - y(p)) * (x(n) - x(p)) / (y(n) - y(p));
+                if(x <= hx && x > qx) {
+                    qx = x;
+                    m = x(p) < x(n) ? p : n;
+                    if(x == hx)
+                        return m; //the hole touches the outline
+                }
+            }
+            p = n;
+        } while(p != outer);
+        if(m == -1)
+            return -1;
+        
+        //look for points inside the triangle of the hole point, the segment
+        //intersection and the endpoint. If there are any, connect to the one
+        //with the smallest angle from the ray instead.
+        int stop = m;
+        double mx = x(m), my = y(m);
+        double tanMin = Double.POSITIVE_INFINITY;
+        p = m;
+        do {
+            double px = x(p), py = y(p);
+            if(hx >= px && px >= mx && hx != px && pointInTriangle(
+                    hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy,
+                    px, py)) {
+                double tan = Math.abs(hy - py) / (hx - px);
+                if(locallyInside(p, hole) && (tan < tanMin || (tan == tanMin
+                        && (px > x(m) || (px == x(m)
+                        && sectorContainsSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = next[p];
+        } while(p != stop);
+        return m;
+    }
+    
+    private boolean sectorContainsSector(int m, int p) {
+        return area(prev[m], m, prev[p]) < 0 && area(next[p], m, next[m]) < 0;
+    }
+    
+    private int getLeftmost(int start) {
+        int p = start, leftmost = start;
+        do {
+            if(x(p) < x(leftmost) || (x(p) == x(leftmost) && y(p) < y(leftmost)))
+                leftmost = p;
+            p = next[p];
+        } while(p != start);
+        return leftmost;
+    }
+    
+    private boolean isValidDiagonal(int a, int b) {
+        return point[next[a]] != point[b] && point[prev[a]] != point[b]
+                && !intersectsPolygon(a, b)
+                && ((locallyInside(a, b) && locallyInside(b, a)
+                        && middleInside(a, b)
+                        //doesn't create opposite-facing sectors
+                        && (area(prev[a], a, prev[b]) != 0
+                            || area(a, prev[b], b) != 0))
+                    //special zero-length case
+                    || (equals(a, b) && area(prev[a], a, next[a]) > 0
+                        && area(prev[b], b, next[b]) > 0));
+    }
+    
+    private boolean intersects(int p1, int q1, int p2, int q2) {
+        double o1 = Math.signum(area(p1, q1, p2));
+        double o2 = Math.signum(area(p1, q1, q2));
+        double o3 = Math.signum(area(p2, q2, p1));
+        double o4 = Math.signum(area(p2, q2, q1));
+        
+        if(o1 != o2 && o3 != o4)
+            return true;
+        if(o1 == 0 && onSegment(p1, p2, q1))
+            return true;
+        if(o2 == 0 && onSegment(p1, q2, q1))
+            return true;
+        if(o3 == 0 && onSegment(p2, p1, q2))
+            return true;
+        return o4 == 0 && onSegment(p2, q1, q2);
+    }
+    
+    //for collinear points p, q, r, check if q is on segment pr
+    private boolean onSegment(int p, int q, int r) {
+        return x(q) <= Math.max(x(p), x(r)) && x(q) >= Math.min(x(p), x(r))
+                && y(q) <= Math.max(y(p), y(r)) && y(q) >= Math.min(y(p), y(r));
+    }
+    
+    private boolean intersectsPolygon(int a, int b) {
+        int p = a;
+        do {
+            int n = next[p];
+            if(point[p] != point[a] && point[n] != point[a]
+                    && point[p] != point[b] && point[n] != point[b]
+                    && intersects(p, n, a, b))
+                return true;
+            p = n;
+        } while(p != a);
+        return false;
+    }
+    
+    private boolean locallyInside(int a, int b) {
+        return area(prev[a], a, next[a]) < 0
+                ? area(a, b, next[a]) >= 0 && area(a, prev[a], b) >= 0
+                : area(a, b, prev[a]) < 0 || area(a, next[a], b) < 0;
+    }
+    
+    private boolean middleInside(int a, int b) {
+        int p = a;
+        boolean inside = false;
+        double px = (x(a) + x(b)) / 2, py = (y(a) + y(b)) / 2;
+        do {
+            int n = next[p];
+            if(((y(p) > py) != (y(n) > py)) && y(n) != y(p)
+                    && (px < (x(n) - x(p)) * (py - y(p)) / (y(n) - y(p)) + x(p)))
+                inside = !inside;
+            p = n;
+        } while(p != a);
+        return inside;
+    }
+    
+    //link two vertices with a bridge. If they are in the same ring, this
+    //splits the polygon in two; if one is in a hole, it joins them.
+    private int splitPolygon(int a, int b) {
+        int a2 = newNode(point[a]);
+        int b2 = newNode(point[b]);
+        int an = next[a];
+        int bp = prev[b];
+        
+        next[a] = b;
+        prev[b] = a;
+        
+        next[a2] = an;
+        prev[an] = a2;
+        
+        next[b2] = a2;
+        prev[a2] = b2;
+        
+        next[bp] = b2;
+        prev[b2] = bp;
+        
+        return b2;
+    }
+}
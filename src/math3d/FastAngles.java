@@ -0,0 +1,216 @@
+package math3d;
+
+/**
+ * Faster, approximate versions of the angle calculations used by Vector2 and
+ * Direction3. The methods can be called directly, or the whole library can be
+ * switched to them with setEnabled(true); by default java.lang.Math is used.
+ *
+ * Maximum errors, compared to java.lang.Math:
+ *  -direction(): 3E-8 radians
+ *  -sin(), cos(): 1E-10, for angles between -MAX_FAST_ANGLE and
+ *   MAX_FAST_ANGLE. Larger angles use java.lang.Math.
+ *  -fixRotation(): the same as Vector2.fixRotation(), except for values
+ *   within about 1E-15 of a multiple of 2*pi
+ * @author vanjac
+ */
+public final class FastAngles {
+    /**
+     * sin() and cos() are only approximated for angles smaller than this.
+     */
+    public static final double MAX_FAST_ANGLE = 1E6;
+    
+    private static final double CIRCLE = Vector2.CIRCLE;
+    private static final double INVERSE_CIRCLE = 1 / CIRCLE;
+    private static final double HALF_PI = Math.PI / 2;
+    private static final double TWO_OVER_PI = 2 / Math.PI;
+    
+    //pi/2 split into two parts, so k * PI_OVER_2_HI is exact for the values
+    //of k used by sin() and cos() (from fdlibm)
+    private static final double PI_OVER_2_HI = 1.57079632673412561417e+00;
+    private static final double PI_OVER_2_LO = 6.07710050650619224932e-11;
+    
+    //Taylor series for sin and cos, accurate to about 7E-12 on [-pi/4, pi/4]
+    private static final double S3 = -1.0 / 6;
+    private static final double S5 = 1.0 / 120;
+    private static final double S7 = -1.0 / 5040;
+    private static final double S9 = 1.0 / 362880;
+    private static final double S11 = -1.0 / 39916800;
+    private static final double C2 = -1.0 / 2;
+    private static final double C4 = 1.0 / 24;
+    private static final double C6 = -1.0 / 720;
+    private static final double C8 = 1.0 / 40320;
+    private static final double C10 = -1.0 / 3628800;
+    private static final double C12 = 1.0 / 479001600;
+    
+    //polynomial for atan(x)/x on [0, 1], from Abramowitz and Stegun 4.4.49
+    private static final double A2 = -0.3333314528;
+    private static final double A4 = 0.1999355085;
+    private static final double A6 = -0.1420889944;
+    private static final double A8 = 0.1065626393;
+    private static final double A10 = -0.0752896400;
+    private static final double A12 = 0.0429096138;
+    private static final double A14 = -0.0161657367;
+    private static final double A16 = 0.0028662257;
+    
+    private static volatile boolean enabled = false;
+    
+    private FastAngles() { }
+    
+    /**
+     * Switch Vector2, MutableVector2 and Direction3 between the approximations
+     * in this class and the exact java.lang.Math functions. This should be set
+     * once, before any calculations whose results need to be consistent.
+     * @param fast true to use the approximations, false to use java.lang.Math
+     */
+    public static void setEnabled(boolean fast) {
+        enabled = fast;
+    }
+    
+    /**
+     * Check whether the library is using the approximations in this class.
+     * @return true if approximations are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Approximate the direction of a vector. This gives the same results as
+     * Vector2.direction(), within 3E-8 radians.
+     * @param x the x coordinate of the vector
+     * @param y the y coordinate of the vector
+     * @return the direction, between 0 and 2*pi
+     */
+    public static double direction(double x, double y) {
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        if(ax == 0 && ay == 0)
+            return HALF_PI; //same as Vector2.direction()
+        
+        //reduce to the first octant, where atan(t) has 0 <= t <= 1
+        boolean steep = ay > ax;
+        double t = steep ? ax / ay : ay / ax;
+        double t2 = t * t;
+        double a = t * (1 + t2 * (A2 + t2 * (A4 + t2 * (A6 + t2 * (A8
+                + t2 * (A10 + t2 * (A12 + t2 * (A14 + t2 * A16))))))));
+        
+        if(steep)
+            a = HALF_PI - a;
+        if(x < 0)
+            a = Math.PI - a;
+        if(y < 0)
+            a = CIRCLE - a;
+        return a;
+    }
+    
+    /**
+     * Approximate sin(a), within 1E-10.
+     * @param a an angle, in radians
+     * @return the sine of the angle
+     */
+    public static double sin(double a) {
+        if(!(Math.abs(a) <= MAX_FAST_ANGLE)) //also catches NaN
+            return Math.sin(a);
+        double k = Math.rint(a * TWO_OVER_PI);
+        double r = (a - k * PI_OVER_2_HI) - k * PI_OVER_2_LO;
+        switch((int)k & 3) {
+            case 0:
+                return sinPolynomial(r);
+            case 1:
+                return cosPolynomial(r);
+            case 2:
+                return -sinPolynomial(r);
+            default:
+                return -cosPolynomial(r);
+        }
+    }
+    
+    /**
+     * Approximate cos(a), within 1E-10.
+     * @param a an angle, in radians
+     * @return the cosine of the angle
+     */
+    public static double cos(double a) {
+        if(!(Math.abs(a) <= MAX_FAST_ANGLE))
+            return Math.cos(a);
+        double k = Math.rint(a * TWO_OVER_PI);
+        double r = (a - k * PI_OVER_2_HI) - k * PI_OVER_2_LO;
+        switch((int)k & 3) {
+            case 0:
+                return cosPolynomial(r);
+            case 1:
+                return -sinPolynomial(r);
+            case 2:
+                return -cosPolynomial(r);
+            default:
+                return sinPolynomial(r);
+        }
+    }
+    
+    /**
+     * Rotate a vector, using sin() and cos() from this class. The angle only
+     * has to be reduced once for both.
+     * @param x the x coordinate of the vector
+     * @param y the y coordinate of the vector
+     * @param amount the angle to rotate, in radians
+     * @param dest the vector to store the result in
+     * @return dest
+     */
+    public static MutableVector2 rotate(double x, double y, double amount,
+            MutableVector2 dest) {
+        double sin, cos;
+        if(!(Math.abs(amount) <= MAX_FAST_ANGLE)) {
+            sin = Math.sin(amount);
+            cos = Math.cos(amount);
+        } else {
+            double k = Math.rint(amount * TWO_OVER_PI);
+            double r = (amount - k * PI_OVER_2_HI) - k * PI_OVER_2_LO;
+            double s = sinPolynomial(r);
+            double c = cosPolynomial(r);
+            switch((int)k & 3) {
+                case 0:
+                    sin = s;
+                    cos = c;
+                    break;
+                case 1:
+                    sin = c;
+                    cos = -s;
+                    break;
+                case 2:
+                    sin = -s;
+                    cos = -c;
+                    break;
+                default:
+                    sin = -c;
+                    cos = s;
+                    break;
+            }
+        }
+        return dest.set(x * cos - y * sin, y * cos + x * sin);
+    }
+    
+    /**
+     * Limits a rotation to be between 0 and 2*pi, without a loop or a
+     * floating-point remainder. See Vector2.fixRotation().
+     * @param rot the rotation to fix
+     * @return a new, equivalent rotation between 0 and 2*pi.
+     */
+    public static double fixRotation(double rot) {
+        double r = rot - CIRCLE * Math.floor(rot * INVERSE_CIRCLE);
+        //rounding can leave r just outside the range
+        r = r < 0 ? r + CIRCLE : r;
+        return r < CIRCLE ? r : r - CIRCLE;
+    }
+    
+    private static double sinPolynomial(double r) {
+        double r2 = r * r;
+        return r + r * r2 * (S3 + r2 * (S5 + r2 * (S7 + r2 * (S9
+                + r2 * S11))));
+    }
+    
+    private static double cosPolynomial(double r) {
+        double r2 = r * r;
+        return 1 + r2 * (C2 + r2 * (C4 + r2 * (C6 + r2 * (C8
+                + r2 * (C10 + r2 * C12)))));
+    }
+}
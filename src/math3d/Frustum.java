@@ -0,0 +1,321 @@
+package math3d;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An immutable view frustum: the space between six planes whose normals all
+ * point inwards. Points, spheres, axis-aligned boxes and polygons can be
+ * tested against it to find which objects might be visible.
+ *
+ * The plane coefficients are copied into one array when the frustum is
+ * created, so none of the tests allocate. Tests that take a hints array use
+ * plane coherency: when an object is outside, the index of the plane that
+ * rejected it is stored in the array, and that plane is tested first the next
+ * time. An object that was outside one frame is usually rejected by the same
+ * plane the next frame, after a single plane test.
+ * @author vanjac
+ */
+public class Frustum {
+    /**
+     * The result of testing an object against a Frustum.
+     */
+    public enum Containment {
+        /**
+         * Completely inside the frustum.
+         */
+        INSIDE,
+        /**
+         * Completely outside the frustum.
+         */
+        OUTSIDE,
+        /**
+         * Partly inside. The tests are conservative: some objects close to
+         * the corners of the frustum are reported as INTERSECTING when they
+         * are actually outside.
+         */
+        INTERSECTING
+    }
+    
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int BOTTOM = 2;
+    public static final int TOP = 3;
+    public static final int NEAR = 4;
+    public static final int FAR = 5;
+    
+    private static final int PLANES = 6;
+    
+    private final Plane[] planes;
+    //a, b, c, d of each plane, scaled to a unit normal
+    private final double[] coefficients;
+    
+    /**
+     * Create a new Frustum from six planes.
+     * @param planes the planes in the order LEFT, RIGHT, BOTTOM, TOP, NEAR,
+     * FAR. The normal of each plane must point into the frustum.
+     */
+    public Frustum(Plane[] planes) {
+        if(planes.length != PLANES)
+            throw new IllegalArgumentException(
+                    "Frustum must have 6 planes: " + planes.length);
+        this.planes = planes.clone();
+        coefficients = new double[PLANES * 4];
+        for(int i = 0; i < PLANES; i++) {
+            double[] c = CachedPlane.coefficients(planes[i]);
+            double scale = 1 / Math.sqrt(c[0]*c[0] + c[1]*c[1] + c[2]*c[2]);
+            for(int j = 0; j < 4; j++)
+                coefficients[i * 4 + j] = c[j] * scale;
+        }
+    }
+    
+    /**
+     * Create a new Frustum for a perspective camera. With no rotation the
+     * camera looks along the positive x axis (like Direction3.BASE_ROTATION)
+     * with the positive z axis up.
+     * @param position the position of the camera
+     * @param rotation the rotation of the camera
+     * @param fov the vertical field of view, in radians
+     * @param aspect the width of the view divided by its height
+     * @param near the distance to the near plane
+     * @param far the distance to the far plane
+     */
+    public Frustum(Vector3 position, Rotation3 rotation, double fov,
+            double aspect, double near, double far) {
+        this(cameraPlanes(position, rotation, fov, aspect, near, far));
+    }
+    
+    private static Plane[] cameraPlanes(Vector3 position, Rotation3 rotation,
+            double fov, double aspect, double near, double far) {
+        if(!(fov > 0 && fov < Math.PI))
+            throw new IllegalArgumentException("Invalid field of view: " + fov);
+        if(!(near >= 0 && far > near))
+            throw new IllegalArgumentException(
+                    "Invalid near and far distances: " + near + ", " + far);
+        //the columns of the matrix are the rotated x, y and z axes
+        double[] m = rotation.matrix();
+        Vector3 forward = new Vector3(m[0], m[3], m[6]);
+        //facing +x with +z up, +y is to the left
+        Vector3 left = new Vector3(m[1], m[4], m[7]);
+        Vector3 up = new Vector3(m[2], m[5], m[8]);
+        double tanV = Math.tan(fov / 2);
+        double tanH = tanV * aspect;
+        
+        Plane[] planes = new Plane[PLANES];
+        planes[LEFT] = Plane.at(position,
+                forward.multiply(tanH).subtract(left).direction());
+        planes[RIGHT] = Plane.at(position,
+                forward.multiply(tanH).add(left).direction());
+        planes[BOTTOM] = Plane.at(position,
+                forward.multiply(tanV).add(up).direction());
+        planes[TOP] = Plane.at(position,
+                forward.multiply(tanV).subtract(up).direction());
+        planes[NEAR] = Plane.at(position.add(forward.multiply(near)),
+                new Direction3(forward));
+        planes[FAR] = Plane.at(position.add(forward.multiply(far)),
+                new Direction3(forward.multiply(-1)));
+        return planes;
+    }
+    
+    /**
+     * Get one of the planes of this frustum.
+     * @param i LEFT, RIGHT, BOTTOM, TOP, NEAR or FAR
+     * @return the plane
+     */
+    public Plane getPlane(int i) {
+        return planes[i];
+    }
+    
+    /**
+     * Test whether a point is inside this frustum. Points on the surface count
+     * as inside.
+     * @param point the point
+     * @return INSIDE or OUTSIDE
+     */
+    public Containment test(Vector3 point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        double[] c = coefficients;
+        for(int i = 0; i < PLANES * 4; i += 4) {
+            if(c[i] * x + c[i + 1] * y + c[i + 2] * z + c[i + 3] < 0)
+                return Containment.OUTSIDE;
+        }
+        return Containment.INSIDE;
+    }
+    
+    /**
+     * Test a sphere against this frustum.
+     * @param center the center of the sphere
+     * @param radius the radius of the sphere
+     * @return whether the sphere is inside, outside or intersecting
+     */
+    public Containment testSphere(Vector3 center, double radius) {
+        return testSphere(center.getX(), center.getY(), center.getZ(), radius,
+                null, 0);
+    }
+    
+    /**
+     * Test a sphere against this frustum, using plane coherency.
+     * @param x the x coordinate of the center of the sphere
+     * @param y the y coordinate of the center of the sphere
+     * @param z the z coordinate of the center of the sphere
+     * @param radius the radius of the sphere
+     * @param hints the plane to test first for each object, which is updated
+     * if the sphere is outside. Initially all 0. Can be null.
+     * @param object the index in hints for this sphere
+     * @return whether the sphere is inside, outside or intersecting
+     */
+    public Containment testSphere(double x, double y, double z, double radius,
+            int[] hints, int object) {
+        double[] c = coefficients;
+        int first = hints == null ? 0 : hints[object];
+        boolean intersecting = false;
+        for(int n = 0; n < PLANES; n++) {
+            int plane = first + n < PLANES ? first + n : first + n - PLANES;
+            int i = plane * 4;
+            double d = c[i] * x + c[i + 1] * y + c[i + 2] * z + c[i + 3];
+            if(d < -radius) {
+                if(hints != null)
+                    hints[object] = plane;
+                return Containment.OUTSIDE;
+            }
+            if(d < radius)
+                intersecting = true;
+        }
+        return intersecting ? Containment.INTERSECTING : Containment.INSIDE;
+    }
+    
+    /**
+     * Test an axis-aligned box against this frustum.
+     * @param min the corner of the box with the lowest coordinates
+     * @param max the corner of the box with the highest coordinates
+     * @return whether the box is inside, outside or intersecting
+     */
+    public Containment testBox(Vector3 min, Vector3 max) {
+        return testBox(min.getX(), min.getY(), min.getZ(),
+                max.getX(), max.getY(), max.getZ(), null, 0);
+    }
+    
+    /**
+     * Test an axis-aligned box against this frustum, using plane coherency.
+     * @param minX the lowest x coordinate of the box
+     * @param minY the lowest y coordinate of the box
+     * @param minZ the lowest z coordinate of the box
+     * @param maxX the highest x coordinate of the box
+     * @param maxY the highest y coordinate of the box
+     * @param maxZ the highest z coordinate of the box
+     * @param hints the plane to test first for each object, which is updated
+     * if the box is outside. Initially all 0. Can be null.
+     * @param object the index in hints for this box
+     * @return whether the box is inside, outside or intersecting
+     */
+    public Containment testBox(double minX, double minY, double minZ,
+            double maxX, double maxY, double maxZ, int[] hints, int object) {
+        //center and half-size
+        double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2;
+        double cz = (minZ + maxZ) / 2;
+        double ex = maxX - cx, ey = maxY - cy, ez = maxZ - cz;
+        double[] c = coefficients;
+        int first = hints == null ? 0 : hints[object];
+        boolean intersecting = false;
+        for(int n = 0; n < PLANES; n++) {
+            int plane = first + n < PLANES ? first + n : first + n - PLANES;
+            int i = plane * 4;
+            double a = c[i], b = c[i + 1], cc = c[i + 2];
+            double d = a * cx + b * cy + cc * cz + c[i + 3];
+            //distance from the center to the corner furthest along the normal
+            double r = ex * Math.abs(a) + ey * Math.abs(b) + ez * Math.abs(cc);
+            if(d < -r) {
+                if(hints != null)
+                    hints[object] = plane;
+                return Containment.OUTSIDE;
+            }
+            if(d < r)
+                intersecting = true;
+        }
+        return intersecting ? Containment.INTERSECTING : Containment.INSIDE;
+    }
+    
+    /**
+     * Test a polygon against this frustum. The polygon is OUTSIDE if all of
+     * its vertices are behind the same plane.
+     * @param p the polygon
+     * @return whether the polygon is inside, outside or intersecting
+     */
+    public Containment test(Polygon p) {
+        List<Polygon.Vertex> vertices = p.getVertices();
+        double[] c = coefficients;
+        boolean intersecting = false;
+        for(int i = 0; i < PLANES * 4; i += 4) {
+            int outside = 0;
+            for(Polygon.Vertex v : vertices) {
+                Vector3 pos = v.getPosition();
+                if(c[i] * pos.getX() + c[i + 1] * pos.getY()
+                        + c[i + 2] * pos.getZ() + c[i + 3] < 0)
+                    outside++;
+            }
+            if(outside == vertices.size())
+                return Containment.OUTSIDE;
+            if(outside != 0)
+                intersecting = true;
+        }
+        return intersecting ? Containment.INTERSECTING : Containment.INSIDE;
+    }
+    
+    /**
+     * Cull an array of axis-aligned boxes.
+     * @param boxes 6 values for each box: the x, y and z coordinates of its
+     * lowest corner, then of its highest corner
+     * @param offset the index in boxes of the first box
+     * @param count the number of boxes
+     * @param hints the plane to test first for each box, as in testBox().
+     * Must have a length of at least count, or be null.
+     * @param dest receives a set bit for each box that is at least partly
+     * inside the frustum, and a clear bit for each box outside. Bits past
+     * count are unchanged. If null, a new BitSet is created.
+     * @return dest, or the new BitSet
+     */
+    public BitSet cullBoxes(double[] boxes, int offset, int count,
+            int[] hints, BitSet dest) {
+        CachedPlane.checkRange(boxes.length, offset, count * 6);
+        if(hints != null)
+            CachedPlane.checkRange(hints.length, 0, count);
+        if(dest == null)
+            dest = new BitSet(count);
+        for(int b = 0; b < count; b++) {
+            int i = offset + b * 6;
+            Containment result = testBox(boxes[i], boxes[i + 1], boxes[i + 2],
+                    boxes[i + 3], boxes[i + 4], boxes[i + 5], hints, b);
+            dest.set(b, result != Containment.OUTSIDE);
+        }
+        return dest;
+    }
+    
+    /**
+     * Cull an array of spheres.
+     * @param spheres 4 values for each sphere: the x, y and z coordinates of
+     * its center, then its radius
+     * @param offset the index in spheres of the first sphere
+     * @param count the number of spheres
+     * @param hints the plane to test first for each sphere, as in
+     * testSphere(). Must have a length of at least count, or be null.
+     * @param dest receives a set bit for each sphere that is at least partly
+     * inside the frustum, and a clear bit for each sphere outside. Bits past
+     * count are unchanged. If null, a new BitSet is created.
+     * @return dest, or the new BitSet
+     */
+    public BitSet cullSpheres(double[] spheres, int offset, int count,
+            int[] hints, BitSet dest) {
+        CachedPlane.checkRange(spheres.length, offset, count * 4);
+        if(hints != null)
+            CachedPlane.checkRange(hints.length, 0, count);
+        if(dest == null)
+            dest = new BitSet(count);
+        for(int s = 0; s < count; s++) {
+            int i = offset + s * 4;
+            Containment result = testSphere(spheres[i], spheres[i + 1],
+                    spheres[i + 2], spheres[i + 3], hints, s);
+            dest.set(s, result != Containment.OUTSIDE);
+        }
+        return dest;
+    }
+}
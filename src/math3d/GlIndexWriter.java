@@ -0,0 +1,180 @@
+package math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+
+/**
+ * Writes the triangle indices for the vertices written by a GlVertexWriter
+ * directly into an IntBuffer or ByteBuffer, for glDrawElements() with
+ * GL_TRIANGLES. Polygons are split with triangulate(), and every triangle is
+ * written counter-clockwise (OpenGL's default front face), so clockwise
+ * polygons have their triangles reversed.
+ *
+ * Like GlVertexWriter, a writer remembers where it stopped, so the indices
+ * can be uploaded in chunks. Only whole triangles are written.
+ * @author vanjac
+ */
+public class GlIndexWriter {
+    private final Collection<? extends Polygon> polygons;
+    private final IndexedMesh mesh;
+    private final int indexCount;
+    
+    private Iterator<? extends Polygon> iterator;
+    private int face; //the next face of the mesh
+    private int base; //the first vertex of the next polygon
+    //the indices of the current polygon, and the next one to write
+    private int[] faceIndices = new int[48];
+    private int faceLength, facePosition;
+    private int next;
+    
+    /**
+     * Create a writer for the triangles of a collection of polygons. The
+     * indices match the vertices from GlVertexWriter.forPolygons(), so the
+     * collection must not change while it is being written.
+     * @param polygons the polygons to write
+     */
+    public GlIndexWriter(Collection<? extends Polygon> polygons) {
+        this.polygons = polygons;
+        mesh = null;
+        long count = 0;
+        for(Polygon p : polygons)
+            count += p.getTriangleCount() * 3;
+        if(count > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many indices");
+        indexCount = (int)count;
+        iterator = polygons.iterator();
+    }
+    
+    /**
+     * Create a writer for the triangles of an IndexedMesh. The indices are
+     * the mesh's vertex indices, which match GlVertexWriter.forMesh().
+     * @param mesh the mesh to write
+     */
+    public GlIndexWriter(IndexedMesh mesh) {
+        polygons = null;
+        this.mesh = mesh;
+        indexCount = mesh.getTriangleCount() * 3;
+    }
+    
+    @Override
+    public String toString() {
+        return "GlIndexWriter [ " + next + " of " + indexCount
+                + " indices ]";
+    }
+    
+    /**
+     * Get the total number of indices this writer writes, 3 per triangle.
+     * @return the number of indices
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+    
+    /**
+     * Get the number of indices that haven't been written yet.
+     * @return the number of remaining indices
+     */
+    public int getRemaining() {
+        return indexCount - next;
+    }
+    
+    /**
+     * Check if there are more indices to write.
+     * @return true if not every index has been written
+     */
+    public boolean hasRemaining() {
+        return next < indexCount;
+    }
+    
+    /**
+     * Go back to the first triangle, to write all of them again.
+     */
+    public void reset() {
+        next = 0;
+        face = 0;
+        base = 0;
+        faceLength = 0;
+        facePosition = 0;
+        if(polygons != null)
+            iterator = polygons.iterator();
+    }
+    
+    /**
+     * Write as many of the remaining triangles as fit in a buffer, starting
+     * at its current position. The position is moved past the indices
+     * written.
+     * @param dest the buffer to write to
+     * @return the number of indices written; always a multiple of 3
+     */
+    public int write(IntBuffer dest) {
+        int count = Math.min(getRemaining(), dest.remaining() / 3 * 3);
+        for(int written = 0; written < count; ) {
+            if(facePosition == faceLength)
+                nextFace();
+            int n = Math.min(count - written, faceLength - facePosition);
+            dest.put(faceIndices, facePosition, n);
+            facePosition += n;
+            written += n;
+        }
+        next += count;
+        return count;
+    }
+    
+    /**
+     * Write as many of the remaining triangles as fit in a buffer, starting
+     * at its current position, as ints in the byte order of the buffer. The
+     * position is moved past the indices written.
+     * @param dest the buffer to write to. For OpenGL this should be a direct
+     * buffer in ByteOrder.nativeOrder().
+     * @return the number of indices written; always a multiple of 3
+     */
+    public int write(ByteBuffer dest) {
+        IntBuffer ints = dest.asIntBuffer();
+        int count = write(ints);
+        dest.position(dest.position() + ints.position() * Integer.BYTES);
+        return count;
+    }
+    
+    //triangulate the next polygon or face into faceIndices
+    private void nextFace() {
+        VertexOrder order;
+        if(mesh != null) {
+            int start = mesh.getFaceOffset(face);
+            int size = mesh.getFaceSize(face);
+            order = mesh.getFaceOrder(face);
+            face++;
+            faceLength = (size - 2) * 3;
+            growFaceIndices();
+            int[] indices = mesh.indexArray();
+            int first = indices[start];
+            for(int i = 2, j = 0; i < size; i++, j += 3) {
+                faceIndices[j] = first;
+                faceIndices[j + 1] = indices[start + i - 1];
+                faceIndices[j + 2] = indices[start + i];
+            }
+        } else {
+            Polygon p = iterator.next();
+            order = p.getVertexOrder();
+            faceLength = p.getTriangleCount() * 3;
+            growFaceIndices();
+            p.triangulate(faceIndices, 0, base);
+            base += p.getVertices().size();
+        }
+        if(order == VertexOrder.CLOCKWISE) {
+            for(int j = 0; j < faceLength; j += 3) {
+                int swap = faceIndices[j + 1];
+                faceIndices[j + 1] = faceIndices[j + 2];
+                faceIndices[j + 2] = swap;
+            }
+        }
+        facePosition = 0;
+    }
+    
+    private void growFaceIndices() {
+        if(faceLength > faceIndices.length)
+            faceIndices = new int[Math.max(faceLength,
+                    faceIndices.length * 2)];
+    }
+}
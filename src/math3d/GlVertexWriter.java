@@ -0,0 +1,289 @@
+package math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.*;
+import math3d.Polygon.Vertex;
+
+/**
+ * Writes vertex data for OpenGL directly into a FloatBuffer or ByteBuffer,
+ * without creating an array for every vertex like Vector3.toGlArray(). Each
+ * vertex is interleaved as the position, then the normal (if the source has
+ * normals), then the texture coordinates u, v (if they are given). Positions
+ * and normals are in the y, z, x order of toGlArray().
+ *
+ * A writer remembers where it stopped, so a large source can be uploaded in
+ * chunks: each call to write() continues after the last vertex written by
+ * the previous call, and writes as many whole vertices as fit in the buffer.
+ * GlIndexWriter writes the matching indices.
+ * @author vanjac
+ */
+public abstract class GlVertexWriter {
+    //vertices converted at a time, before a bulk put into the buffer
+    private static final int CHUNK = 1024;
+    
+    private final int vertexCount;
+    private final int floatsPerVertex;
+    private final float[] texCoords;
+    private float[] chunk;
+    private int next;
+    
+    private GlVertexWriter(int vertexCount, boolean normals,
+            float[] texCoords) {
+        if(texCoords != null && texCoords.length != vertexCount * 2)
+            throw new IllegalArgumentException("Expected "
+                    + vertexCount * 2 + " texture coordinates, not "
+                    + texCoords.length);
+        this.vertexCount = vertexCount;
+        this.texCoords = texCoords;
+        floatsPerVertex = (normals ? 6 : 3) + (texCoords != null ? 2 : 0);
+    }
+    
+    /**
+     * Create a writer for the vertices of a collection of polygons, with
+     * positions and normals. The vertices of each polygon are written in the
+     * order of getVertices(), one polygon after another in iteration order.
+     * The collection must not change while it is being written.
+     * @param polygons the polygons to write
+     * @param texCoords u, v for every vertex, or null to leave them out
+     * @return a new writer
+     */
+    public static GlVertexWriter forPolygons(
+            Collection<? extends Polygon> polygons, float[] texCoords) {
+        return new PolygonWriter(polygons, texCoords);
+    }
+    
+    /**
+     * Create a writer for the vertices of an IndexedMesh, with positions and
+     * normals, in the order of the mesh's vertex indices.
+     * @param mesh the mesh to write
+     * @param texCoords u, v for every vertex, or null to leave them out
+     * @return a new writer
+     */
+    public static GlVertexWriter forMesh(IndexedMesh mesh, float[] texCoords) {
+        return new ArrayWriter(mesh.positionArray(), mesh.normalArray(),
+                texCoords);
+    }
+    
+    /**
+     * Create a writer for an array of positions, with no normals.
+     * @param positions the positions to write
+     * @param texCoords u, v for every vertex, or null to leave them out
+     * @return a new writer
+     */
+    public static GlVertexWriter forPositions(Vector3[] positions,
+            float[] texCoords) {
+        return new VectorWriter(positions, texCoords);
+    }
+    
+    @Override
+    public String toString() {
+        return "GlVertexWriter [ " + next + " of " + vertexCount
+                + " vertices, " + floatsPerVertex + " floats each ]";
+    }
+    
+    /**
+     * Get the total number of vertices this writer writes.
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+    
+    /**
+     * Get the number of floats in each vertex: 3 for the position, 3 for the
+     * normal if there is one, and 2 for the texture coordinates if there are
+     * any.
+     * @return the number of floats per vertex
+     */
+    public int getFloatsPerVertex() {
+        return floatsPerVertex;
+    }
+    
+    /**
+     * Get the size of each vertex in bytes, for glVertexAttribPointer().
+     * @return the stride of the vertex data
+     */
+    public int getStride() {
+        return floatsPerVertex * Float.BYTES;
+    }
+    
+    /**
+     * Get the number of vertices that haven't been written yet.
+     * @return the number of remaining vertices
+     */
+    public int getRemaining() {
+        return vertexCount - next;
+    }
+    
+    /**
+     * Check if there are more vertices to write.
+     * @return true if not every vertex has been written
+     */
+    public boolean hasRemaining() {
+        return next < vertexCount;
+    }
+    
+    /**
+     * Go back to the first vertex, to write all of them again.
+     */
+    public void reset() {
+        next = 0;
+        restart();
+    }
+    
+    /**
+     * Write as many of the remaining vertices as fit in a buffer, starting at
+     * its current position. The position is moved past the vertices written.
+     * @param dest the buffer to write to. Direct buffers are fastest.
+     * @return the number of vertices written; 0 if there are none left or
+     * there isn't room for a whole vertex
+     */
+    public int write(FloatBuffer dest) {
+        int count = Math.min(getRemaining(),
+                dest.remaining() / floatsPerVertex);
+        if(count > 0 && chunk == null)
+            chunk = new float[Math.min(vertexCount, CHUNK) * floatsPerVertex];
+        for(int written = 0; written < count; ) {
+            int n = Math.min(count - written, CHUNK);
+            fill(chunk, n, floatsPerVertex);
+            if(texCoords != null) {
+                for(int i = 0, j = floatsPerVertex - 2, t = next * 2; i < n;
+                        i++, j += floatsPerVertex, t += 2) {
+                    chunk[j] = texCoords[t];
+                    chunk[j + 1] = texCoords[t + 1];
+                }
+            }
+            dest.put(chunk, 0, n * floatsPerVertex);
+            next += n;
+            written += n;
+        }
+        return count;
+    }
+    
+    /**
+     * Write as many of the remaining vertices as fit in a buffer, starting at
+     * its current position, as floats in the byte order of the buffer. The
+     * position is moved past the vertices written.
+     * @param dest the buffer to write to. For OpenGL this should be a direct
+     * buffer in ByteOrder.nativeOrder().
+     * @return the number of vertices written
+     */
+    public int write(ByteBuffer dest) {
+        FloatBuffer floats = dest.asFloatBuffer();
+        int count = write(floats);
+        dest.position(dest.position() + floats.position() * Float.BYTES);
+        return count;
+    }
+    
+    /**
+     * Convert the next vertices, starting with vertex getVertexCount() -
+     * getRemaining(), to floats. Texture coordinates are added afterwards.
+     * @param dest the array to write to
+     * @param count the number of vertices to convert
+     * @param stride the number of floats between vertices in dest
+     */
+    abstract void fill(float[] dest, int count, int stride);
+    
+    /**
+     * Called by reset(), for sources that keep their own position.
+     */
+    void restart() { }
+    
+    int next() {
+        return next;
+    }
+    
+    private static final class PolygonWriter extends GlVertexWriter {
+        private final Collection<? extends Polygon> polygons;
+        private Iterator<? extends Polygon> iterator;
+        private List<Vertex> vertices = Collections.emptyList();
+        private int vertex;
+        
+        PolygonWriter(Collection<? extends Polygon> polygons,
+                float[] texCoords) {
+            super(countVertices(polygons), true, texCoords);
+            this.polygons = polygons;
+            iterator = polygons.iterator();
+        }
+        
+        private static int countVertices(
+                Collection<? extends Polygon> polygons) {
+            long count = 0;
+            for(Polygon p : polygons)
+                count += p.getVertices().size();
+            if(count > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Too many vertices");
+            return (int)count;
+        }
+        
+        @Override
+        void fill(float[] dest, int count, int stride) {
+            for(int i = 0, j = 0; i < count; i++, j += stride) {
+                while(vertex == vertices.size()) {
+                    vertices = iterator.next().getVertices();
+                    vertex = 0;
+                }
+                Vertex v = vertices.get(vertex++);
+                Vector3 p = v.getPosition();
+                Vector3 n = v.getNormal().getUnitVector();
+                dest[j] = (float)p.getY();
+                dest[j + 1] = (float)p.getZ();
+                dest[j + 2] = (float)p.getX();
+                dest[j + 3] = (float)n.getY();
+                dest[j + 4] = (float)n.getZ();
+                dest[j + 5] = (float)n.getX();
+            }
+        }
+        
+        @Override
+        void restart() {
+            iterator = polygons.iterator();
+            vertices = Collections.emptyList();
+            vertex = 0;
+        }
+    }
+    
+    private static final class ArrayWriter extends GlVertexWriter {
+        private final double[] positions, normals;
+        
+        ArrayWriter(double[] positions, double[] normals, float[] texCoords) {
+            super(positions.length / 3, true, texCoords);
+            this.positions = positions;
+            this.normals = normals;
+        }
+        
+        @Override
+        void fill(float[] dest, int count, int stride) {
+            for(int i = 0, j = 0, k = next() * 3; i < count;
+                    i++, j += stride, k += 3) {
+                dest[j] = (float)positions[k + 1];
+                dest[j + 1] = (float)positions[k + 2];
+                dest[j + 2] = (float)positions[k];
+                dest[j + 3] = (float)normals[k + 1];
+                dest[j + 4] = (float)normals[k + 2];
+                dest[j + 5] = (float)normals[k];
+            }
+        }
+    }
+    
+    private static final class VectorWriter extends GlVertexWriter {
+        private final Vector3[] positions;
+        
+        VectorWriter(Vector3[] positions, float[] texCoords) {
+            super(positions.length, false, texCoords);
+            this.positions = positions;
+        }
+        
+        @Override
+        void fill(float[] dest, int count, int stride) {
+            for(int i = 0, j = 0, k = next(); i < count;
+                    i++, j += stride, k++) {
+                Vector3 p = positions[k];
+                dest[j] = (float)p.getY();
+                dest[j + 1] = (float)p.getZ();
+                dest[j + 2] = (float)p.getX();
+            }
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.PolygonType;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+
+/**
+ * An immutable mesh of polygons that share vertices. Vertex positions and
+ * normals are stored once each, in arrays of coordinates, and each face is a
+ * range of indices into those arrays. Faces can have any number of vertices,
+ * so a mesh can mix triangles, quads and larger polygons.
+ *
+ * Faces are accessed as lightweight Polygon views (see Face) which are
+ * created on demand and don't copy any vertex data.
+ * @author vanjac
+ */
+public class IndexedMesh {
+    private final double[] positions;
+    private final double[] normals;
+    private final int[] indices;
+    private final int[] faceOffsets;
+    private final double[] faceNormals;
+    private final VertexOrder order;
+    private final byte[] faceOrders; //null unless order is MIXED
+    private final PolygonType type;
+    
+    /**
+     * Create an IndexedMesh from arrays of vertex data. The arrays are used
+     * directly, not copied, so they must not be changed afterwards. Each face
+     * follows the same rules as ConvexPolygon.
+     * @param positions the vertex positions, as x, y, z for each vertex
+     * @param normals the vertex normals, as the x, y, z of a unit vector for
+     * each vertex. Must be the same length as positions.
+     * @param indices the vertex indices of every face, one face after another
+     * @param faceSizes the number of vertices in each face. These must add up
+     * to the length of indices, and each must be at least 3.
+     * @param order the order of the vertices in every face. Can't be MIXED.
+     */
+    public IndexedMesh(double[] positions, double[] normals, int[] indices,
+            int[] faceSizes, VertexOrder order) {
+        this(positions, normals, indices, offsetsFromSizes(faceSizes),
+                order, null);
+    }
+    
+    private IndexedMesh(double[] positions, double[] normals, int[] indices,
+            int[] faceOffsets, VertexOrder order, byte[] faceOrders) {
+        if(positions.length % 3 != 0 || normals.length != positions.length)
+            throw new IllegalArgumentException(
+                    "positions and normals must be the same multiple of 3");
+        if(faceOffsets[faceOffsets.length - 1] != indices.length)
+            throw new IllegalArgumentException(
+                    "Face sizes don't match the number of indices");
+        if(order == VertexOrder.MIXED && faceOrders == null)
+            throw new IllegalArgumentException(
+                    "Can't create a mesh with a MIXED order for every face");
+        int vertexCount = positions.length / 3;
+        for(int i : indices)
+            if(i < 0 || i >= vertexCount)
+                throw new IndexOutOfBoundsException("Vertex index " + i);
+        
+        this.positions = positions;
+        this.normals = normals;
+        this.indices = indices;
+        this.faceOffsets = faceOffsets;
+        this.order = order;
+        this.faceOrders = faceOrders;
+        faceNormals = calculateFaceNormals();
+        type = calculateType();
+    }
+    
+    /**
+     * Create an IndexedMesh from a collection of polygons. Vertices that are
+     * equal (same position and normal) are only stored once.
+     * @param polygons the polygons to copy
+     * @return a new IndexedMesh with one face for each polygon, in iteration
+     * order. A SimplePolygon can be concave or have holes, so it is split
+     * into one face for each of its triangles.
+     */
+    public static IndexedMesh fromPolygons(
+            Collection<? extends Polygon> polygons) {
+        List<Polygon> faces = new ArrayList<>(polygons.size());
+        for(Polygon p : polygons) {
+            if(p instanceof SimplePolygon)
+                faces.addAll(p.getTriangles());
+            else
+                faces.add(p);
+        }
+        
+        int faceCount = faces.size();
+        int[] faceOffsets = new int[faceCount + 1];
+        byte[] faceOrders = new byte[faceCount];
+        VertexOrder commonOrder = null;
+        
+        int f = 0;
+        for(Polygon p : faces) {
+            faceOffsets[f + 1] = faceOffsets[f] + p.getVertices().size();
+            VertexOrder o = p.getVertexOrder();
+            faceOrders[f] = (byte)o.ordinal();
+            if(commonOrder == null)
+                commonOrder = o;
+            else if(commonOrder != o)
+                commonOrder = VertexOrder.MIXED;
+            f++;
+        }
+        if(commonOrder == null) //no polygons
+            commonOrder = VertexOrder.COUNTER_CLOCKWISE;
+        
+        int[] indices = new int[faceOffsets[faceCount]];
+        Map<Vertex, Integer> vertexIndices = new HashMap<>();
+        double[] positions = new double[Math.max(indices.length, 1) * 3];
+        double[] normals = new double[positions.length];
+        int i = 0;
+        for(Polygon p : faces) {
+            for(Vertex v : p.getVertices()) {
+                Integer index = vertexIndices.get(v);
+                if(index == null) {
+                    index = vertexIndices.size();
+                    vertexIndices.put(v, index);
+                    Vector3 position = v.getPosition();
+                    Vector3 normal = v.getNormal().getUnitVector();
+                    positions[index * 3] = position.getX();
+                    positions[index * 3 + 1] = position.getY();
+                    positions[index * 3 + 2] = position.getZ();
+                    normals[index * 3] = normal.getX();
+                    normals[index * 3 + 1] = normal.getY();
+                    normals[index * 3 + 2] = normal.getZ();
+                }
+                indices[i++] = index;
+            }
+        }
+        
+        int vertexCount = vertexIndices.size();
+        return new IndexedMesh(
+                Arrays.copyOf(positions, vertexCount * 3),
+                Arrays.copyOf(normals, vertexCount * 3),
+                indices, faceOffsets, commonOrder,
+                commonOrder == VertexOrder.MIXED ? faceOrders : null);
+    }
+    
+    private static int[] offsetsFromSizes(int[] faceSizes) {
+        int[] offsets = new int[faceSizes.length + 1];
+        for(int f = 0; f < faceSizes.length; f++) {
+            if(faceSizes[f] < 3)
+                throw new IllegalArgumentException(
+                        "Face " + f + " has less than 3 vertices");
+            offsets[f + 1] = offsets[f] + faceSizes[f];
+        }
+        return offsets;
+    }
+    
+    private double[] calculateFaceNormals() {
+        //the same as Vector3.normal() on the first 3 vertices of each face
+        int faceCount = getFaceCount();
+        double[] n = new double[faceCount * 3];
+        for(int f = 0; f < faceCount; f++) {
+            int start = faceOffsets[f];
+            int i1 = indices[start] * 3;
+            int i2 = indices[start + 1] * 3;
+            int i3 = indices[start + 2] * 3;
+            double ax = positions[i2] - positions[i1];
+            double ay = positions[i2 + 1] - positions[i1 + 1];
+            double az = positions[i2 + 2] - positions[i1 + 2];
+            double bx = positions[i3] - positions[i1];
+            double by = positions[i3 + 1] - positions[i1 + 1];
+            double bz = positions[i3 + 2] - positions[i1 + 2];
+            double nx = ay * bz - az * by;
+            double ny = az * bx - ax * bz;
+            double nz = ax * by - ay * bx;
+            double scale = 1 / Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if(getFaceOrder(f) == VertexOrder.CLOCKWISE)
+                scale = -scale;
+            n[f * 3] = nx * scale;
+            n[f * 3 + 1] = ny * scale;
+            n[f * 3 + 2] = nz * scale;
+        }
+        return n;
+    }
+    
+    private PolygonType calculateType() {
+        PolygonType t = null;
+        for(int f = 0; f < getFaceCount(); f++) {
+            PolygonType faceType = typeForSize(getFaceSize(f));
+            if(t == null)
+                t = faceType;
+            else if(t != faceType)
+                return PolygonType.MIXED;
+        }
+        return t == null ? PolygonType.MIXED : t;
+    }
+    
+    private static PolygonType typeForSize(int size) {
+        switch(size) {
+            case 3:
+                return PolygonType.TRI;
+            case 4:
+                return PolygonType.QUAD;
+            default:
+                return PolygonType.POLY;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "IndexedMesh [ " + getVertexCount() + " vertices, "
+                + getFaceCount() + " faces ]";
+    }
+    
+    /**
+     * Get the type of polygons in this mesh.
+     * @return TRI, QUAD or POLY if every face has that type, otherwise MIXED
+     */
+    public PolygonType getType() {
+        return type;
+    }
+    
+    /**
+     * Get the order of the vertices in the faces of this mesh.
+     * @return the VertexOrder of every face, or MIXED if they are different
+     */
+    public VertexOrder getVertexOrder() {
+        return order;
+    }
+    
+    /**
+     * Get the number of unique vertices in this mesh.
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+    
+    /**
+     * Get the number of faces in this mesh.
+     * @return the number of faces
+     */
+    public int getFaceCount() {
+        return faceOffsets.length - 1;
+    }
+    
+    /**
+     * Get the total number of indices in all faces of this mesh.
+     * @return the length of the index array
+     */
+    public int getIndexCount() {
+        return indices.length;
+    }
+    
+    public Vector3 getPosition(int vertex) {
+        return new Vector3(positions[vertex * 3],
+                positions[vertex * 3 + 1], positions[vertex * 3 + 2]);
+    }
+    
+    public Direction3 getNormal(int vertex) {
+        return new Direction3(new Vector3(normals[vertex * 3],
+                normals[vertex * 3 + 1], normals[vertex * 3 + 2]));
+    }
+    
+    /**
+     * Get a copy of the vertex positions of this mesh.
+     * @return an array of x, y, z coordinates for each vertex
+     */
+    public double[] getPositions() {
+        return positions.clone();
+    }
+    
+    /**
+     * Get a copy of the vertex normals of this mesh.
+     * @return an array of x, y, z unit vector coordinates for each vertex
+     */
+    public double[] getNormals() {
+        return normals.clone();
+    }
+    
+    /**
+     * Get a copy of the index array of this mesh.
+     * @return the vertex indices of every face, one face after another
+     */
+    public int[] getIndices() {
+        return indices.clone();
+    }
+    
+    /**
+     * Get the number of vertices in a face.
+     * @param face the index of the face
+     * @return the number of vertices
+     */
+    public int getFaceSize(int face) {
+        return faceOffsets[face + 1] - faceOffsets[face];
+    }
+    
+    /**
+     * Get the position in the index array where a face starts.
+     * @param face the index of the face
+     * @return the index of the face's first vertex index
+     */
+    public int getFaceOffset(int face) {
+        return faceOffsets[face];
+    }
+    
+    /**
+     * Get the vertex order of one face.
+     * @param face the index of the face
+     * @return the VertexOrder of the face; never MIXED
+     */
+    public VertexOrder getFaceOrder(int face) {
+        if(faceOrders == null)
+            return order;
+        return VertexOrder.values()[faceOrders[face]];
+    }
+    
+    /**
+     * Get a face of this mesh as a Polygon.
+     * @param face the index of the face
+     * @return a view of the face
+     */
+    public Face getFace(int face) {
+        if(face < 0 || face >= getFaceCount())
+            throw new IndexOutOfBoundsException("Face " + face);
+        return new Face(face);
+    }
+    
+    /**
+     * Get all faces of this mesh. The list is a view, and faces are created
+     * as they are accessed.
+     * @return an unmodifiable list of faces, in order
+     */
+    public List<Polygon> getFaces() {
+        return new AbstractList<Polygon>() {
+            @Override
+            public Polygon get(int index) {
+                return getFace(index);
+            }
+            
+            @Override
+            public int size() {
+                return getFaceCount();
+            }
+        };
+    }
+    
+    /**
+     * Get the total number of triangles in all faces of this mesh.
+     * @return the number of triangles triangulate() produces
+     */
+    public int getTriangleCount() {
+        return getIndexCount() - 2 * getFaceCount();
+    }
+    
+    /**
+     * Divide every face of this mesh into triangles, without creating any
+     * objects. Each triangle is given to the consumer as 3 vertex indices of
+     * this mesh, in the VertexOrder of its face.
+     * @param consumer receives each triangle
+     */
+    public void triangulate(Polygon.TriangleConsumer consumer) {
+        int faceCount = getFaceCount();
+        for(int f = 0; f < faceCount; f++) {
+            int start = faceOffsets[f];
+            int first = indices[start];
+            for(int i = start + 2; i < faceOffsets[f + 1]; i++)
+                consumer.accept(first, indices[i - 1], indices[i]);
+        }
+    }
+    
+    /**
+     * Divide every face of this mesh into triangles, and write the vertex
+     * indices of each triangle to an array.
+     * @param dest the array to write to. Must have room for
+     * 3 * getTriangleCount() indices after offset.
+     * @param offset the position in dest to write the first index
+     * @return the number of indices written
+     */
+    public int triangulate(int[] dest, int offset) {
+        int length = getTriangleCount() * 3;
+        if(offset < 0 || offset + length > dest.length)
+            throw new IndexOutOfBoundsException("offset " + offset
+                    + ", length " + length + ", array length " + dest.length);
+        int p = offset;
+        int faceCount = getFaceCount();
+        for(int f = 0; f < faceCount; f++) {
+            int start = faceOffsets[f];
+            int first = indices[start];
+            for(int i = start + 2; i < faceOffsets[f + 1]; i++) {
+                dest[p] = first;
+                dest[p + 1] = indices[i - 1];
+                dest[p + 2] = indices[i];
+                p += 3;
+            }
+        }
+        return length;
+    }
+    
+    // package-private access to the arrays, for bulk operations
+    
+    double[] positionArray() {
+        return positions;
+    }
+    
+    double[] normalArray() {
+        return normals;
+    }
+    
+    int[] indexArray() {
+        return indices;
+    }
+    
+    double[] faceNormalArray() {
+        return faceNormals;
+    }
+    
+    /**
+     * A view of one face of an IndexedMesh. This stores only the mesh and the
+     * index of the face; vertices are created when they are requested.
+     */
+    public class Face implements Polygon {
+        private final int face;
+        
+        private Face(int face) {
+            this.face = face;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder stringValue = new StringBuilder("Face [ ");
+            for(int i = 0; i < getFaceSize(face); i++) {
+                stringValue.append("(");
+                stringValue.append(getPosition(getVertexIndex(i)).toString());
+                stringValue.append(") ");
+            }
+            stringValue.append("]");
+            return stringValue.toString();
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if(o == null)
+                return false;
+            if(!(o instanceof Face))
+                return false;
+            if(o == this)
+                return true;
+            
+            Face f = (Face)o;
+            return f.getMesh() == getMesh() && f.getIndex() == getIndex();
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = 3;
+            hash = 41 * hash + System.identityHashCode(getMesh());
+            hash = 41 * hash + face;
+            return hash;
+        }
+        
+        /**
+         * Get the mesh this face belongs to.
+         * @return the mesh
+         */
+        public IndexedMesh getMesh() {
+            return IndexedMesh.this;
+        }
+        
+        /**
+         * Get the index of this face in its mesh.
+         * @return the face index
+         */
+        public int getIndex() {
+            return face;
+        }
+        
+        /**
+         * Get the mesh vertex index of one of this face's vertices.
+         * @param i the vertex number in this face, from 0 to
+         * getFaceSize()-1
+         * @return the index of the vertex in the mesh
+         */
+        public int getVertexIndex(int i) {
+            return indices[faceOffsets[face] + i];
+        }
+        
+        @Override
+        public PolygonType getType() {
+            return typeForSize(getFaceSize(face));
+        }
+        
+        @Override
+        public VertexOrder getVertexOrder() {
+            return getFaceOrder(face);
+        }
+        
+        @Override
+        public List<Vertex> getVertices() {
+            int size = getFaceSize(face);
+            List<Vertex> vertices = new ArrayList<>(size);
+            for(int i = 0; i < size; i++) {
+                int v = getVertexIndex(i);
+                vertices.add(new Vertex(getPosition(v),
+                        IndexedMesh.this.getNormal(v)));
+            }
+            return vertices;
+        }
+        
+        //wraps around for faces with more than Short.MAX_VALUE vertices, so
+        //the other methods use getFaceSize()
+        @Override
+        public short getVertexCount() {
+            return (short)getFaceSize(face);
+        }
+        
+        @Override
+        public Direction3 getNormal() {
+            return new Direction3(new Vector3(faceNormals[face * 3],
+                    faceNormals[face * 3 + 1], faceNormals[face * 3 + 2]));
+        }
+        
+        @Override
+        public int getTriangleCount() {
+            return getFaceSize(face) - 2;
+        }
+        
+        @Override
+        public void triangulate(TriangleConsumer consumer) {
+            int size = getFaceSize(face);
+            for(int i = 2; i < size; i++)
+                consumer.accept(0, i - 1, i);
+        }
+        
+        @Override
+        public Collection<Polygon> getTriangles() {
+            List<Vertex> vertices = getVertices();
+            Direction3 normal = getNormal();
+            VertexOrder faceOrder = getVertexOrder();
+            Set<Polygon> triangles = new HashSet<>(getTriangleCount());
+            triangulate((i0, i1, i2) -> triangles.add(new Triangle(
+                    vertices.get(i0), vertices.get(i1), vertices.get(i2),
+                    faceOrder, normal)));
+            return triangles;
+        }
+    }
+}
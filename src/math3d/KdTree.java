@@ -0,0 +1,522 @@
+package math3d;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A k-d tree over a fixed set of points, for finding the points nearest to a
+ * position. The points can come from an array of Vector3s or from an array of
+ * packed coordinates.
+ *
+ * The tree is balanced: each node splits its points at the median, along the
+ * axis where they are most spread out. It is stored implicitly, with the
+ * points rearranged so that every subtree is a contiguous range and its
+ * splitting point is in the middle, so the only other data is one byte per
+ * point for the axis. Large subtrees are built in parallel with fork/join.
+ * Once built, the tree is immutable and can be queried from many threads at
+ * once.
+ *
+ * Queries don't allocate any objects. The k-nearest and radius queries write
+ * their results into a Neighbors object, which should be reused for every
+ * query on a thread.
+ * @author vanjac
+ */
+public class KdTree {
+    /**
+     * The results of a k-nearest or radius query. The arrays grow as needed,
+     * so after the first few queries no more memory is allocated. A Neighbors
+     * object can't be shared between threads.
+     */
+    public static class Neighbors {
+        private int[] indices = new int[16];
+        private double[] distanceSquares = new double[16];
+        private int size;
+        
+        /**
+         * Get the number of points found by the last query.
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+        
+        /**
+         * Get the index of a point found by the last query, in the order the
+         * points were given to the tree.
+         * @param i the result number, from 0 to size() - 1
+         * @return the point index
+         */
+        public int getIndex(int i) {
+            checkResult(i);
+            return indices[i];
+        }
+        
+        /**
+         * Get the distance from the query position to a point found by the
+         * last query.
+         * @param i the result number, from 0 to size() - 1
+         * @return the distance
+         */
+        public double getDistance(int i) {
+            checkResult(i);
+            return Math.sqrt(distanceSquares[i]);
+        }
+        
+        /**
+         * Get the square of the distance from the query position to a point
+         * found by the last query.
+         * @param i the result number, from 0 to size() - 1
+         * @return the distance squared
+         */
+        public double getDistanceSquare(int i) {
+            checkResult(i);
+            return distanceSquares[i];
+        }
+        
+        private void checkResult(int i) {
+            if(i < 0 || i >= size)
+                throw new IndexOutOfBoundsException(
+                        "Result " + i + ", size " + size);
+        }
+        
+        private void reset(int capacity) {
+            size = 0;
+            if(indices.length < capacity) {
+                indices = new int[capacity];
+                distanceSquares = new double[capacity];
+            }
+        }
+        
+        private void add(int index, double distanceSquare) {
+            if(size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                distanceSquares = Arrays.copyOf(distanceSquares, size * 2);
+            }
+            indices[size] = index;
+            distanceSquares[size] = distanceSquare;
+            size++;
+        }
+        
+        //the results as a max-heap on distance, for k-nearest queries
+        
+        private void heapAdd(int index, double distanceSquare) {
+            int i = size++;
+            while(i > 0) {
+                int parent = (i - 1) >>> 1;
+                if(distanceSquares[parent] >= distanceSquare)
+                    break;
+                indices[i] = indices[parent];
+                distanceSquares[i] = distanceSquares[parent];
+                i = parent;
+            }
+            indices[i] = index;
+            distanceSquares[i] = distanceSquare;
+        }
+        
+        private void heapReplaceTop(int index, double distanceSquare) {
+            siftDown(0, size, index, distanceSquare);
+        }
+        
+        private void siftDown(int i, int n, int index, double distanceSquare) {
+            while(true) {
+                int child = i * 2 + 1;
+                if(child >= n)
+                    break;
+                if(child + 1 < n
+                        && distanceSquares[child + 1] > distanceSquares[child])
+                    child++;
+                if(distanceSquares[child] <= distanceSquare)
+                    break;
+                indices[i] = indices[child];
+                distanceSquares[i] = distanceSquares[child];
+                i = child;
+            }
+            indices[i] = index;
+            distanceSquares[i] = distanceSquare;
+        }
+        
+        //heapsort, so the results are nearest first
+        private void heapSort() {
+            for(int n = size - 1; n > 0; n--) {
+                int index = indices[n];
+                double distanceSquare = distanceSquares[n];
+                indices[n] = indices[0];
+                distanceSquares[n] = distanceSquares[0];
+                siftDown(0, n, index, distanceSquare);
+            }
+        }
+    }
+    
+    //ranges with this many points or fewer are searched linearly
+    private static final int LEAF_SIZE = 8;
+    //subtrees with more points than this are built in a separate task
+    private static final int PARALLEL_THRESHOLD = 4096;
+    
+    private final int size;
+    //x, y, z of each point, in tree order
+    private final double[] coordinates;
+    //the original index of each point, in tree order
+    private final int[] ids;
+    //the split axis of the node at each position (the middle of its range)
+    private final byte[] axes;
+    
+    /**
+     * Build a k-d tree over an array of points, in parallel.
+     * @param points the points
+     */
+    public KdTree(Vector3[] points) {
+        this(points, true);
+    }
+    
+    /**
+     * Build a k-d tree over an array of points.
+     * @param points the points
+     * @param parallel true to build large subtrees in parallel, in the common
+     * ForkJoinPool
+     */
+    public KdTree(Vector3[] points, boolean parallel) {
+        this(toArray(points), parallel);
+    }
+    
+    /**
+     * Build a k-d tree over an array of packed coordinates.
+     * @param points 3 values for each point: its x, y and z coordinates, in
+     * the same layout as Vector3.toArray(). The array is copied, not kept.
+     * @param parallel true to build large subtrees in parallel, in the common
+     * ForkJoinPool
+     */
+    public KdTree(double[] points, boolean parallel) {
+        if(points.length % 3 != 0)
+            throw new IllegalArgumentException(
+                    "Array length is not a multiple of 3: " + points.length);
+        size = points.length / 3;
+        coordinates = points.clone();
+        ids = new int[size];
+        for(int i = 0; i < size; i++)
+            ids[i] = i;
+        axes = new byte[size];
+        if(parallel && size > PARALLEL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(new BuildTask(this, 0, size));
+        else
+            build(0, size, false);
+    }
+    
+    private static double[] toArray(Vector3[] points) {
+        double[] a = new double[points.length * 3];
+        for(int i = 0; i < points.length; i++) {
+            a[i * 3] = points[i].getX();
+            a[i * 3 + 1] = points[i].getY();
+            a[i * 3 + 2] = points[i].getZ();
+        }
+        return a;
+    }
+    
+    @Override
+    public String toString() {
+        return "KdTree [ " + size + " points ]";
+    }
+    
+    /**
+     * Get the number of points in the tree.
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+    
+    private static final class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final KdTree tree;
+        private final int start, end;
+        
+        BuildTask(KdTree tree, int start, int end) {
+            this.tree = tree;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute() {
+            tree.build(start, end, true);
+        }
+    }
+    
+    private void build(int start, int end, boolean parallel) {
+        int count = end - start;
+        if(count <= LEAF_SIZE)
+            return;
+        //split along the axis with the largest extent
+        double[] c = coordinates;
+        double minX = c[start * 3], minY = c[start * 3 + 1];
+        double minZ = c[start * 3 + 2];
+        double maxX = minX, maxY = minY, maxZ = minZ;
+        for(int i = start + 1; i < end; i++) {
+            double x = c[i * 3], y = c[i * 3 + 1], z = c[i * 3 + 2];
+            if(x < minX) minX = x;
+            if(x > maxX) maxX = x;
+            if(y < minY) minY = y;
+            if(y > maxY) maxY = y;
+            if(z < minZ) minZ = z;
+            if(z > maxZ) maxZ = z;
+        }
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        int axis = dx >= dy && dx >= dz ? 0 : (dy >= dz ? 1 : 2);
+        
+        int mid = (start + end) >>> 1;
+        select(start, end, mid, axis);
+        axes[mid] = (byte)axis;
+        
+        if(parallel && count > PARALLEL_THRESHOLD) {
+            BuildTask task = new BuildTask(this, start, mid);
+            task.fork();
+            build(mid + 1, end, true);
+            task.join();
+        } else {
+            build(start, mid, false);
+            build(mid + 1, end, false);
+        }
+    }
+    
+    //rearrange the points from start to end so the point at k has the k-th
+    //smallest coordinate on an axis, with no larger points before it and no
+    //smaller points after it
+    private void select(int start, int end, int k, int axis) {
+        double[] c = coordinates;
+        int lo = start, hi = end - 1;
+        while(hi > lo) {
+            //median of three pivot
+            int m = (lo + hi) >>> 1;
+            if(c[m * 3 + axis] < c[lo * 3 + axis])
+                swap(m, lo);
+            if(c[hi * 3 + axis] < c[lo * 3 + axis])
+                swap(hi, lo);
+            if(c[hi * 3 + axis] < c[m * 3 + axis])
+                swap(hi, m);
+            double pivot = c[m * 3 + axis];
+            int i = lo, j = hi;
+            while(i <= j) {
+                while(c[i * 3 + axis] < pivot)
+                    i++;
+                while(c[j * 3 + axis] > pivot)
+                    j--;
+                if(i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if(k <= j)
+                hi = j;
+            else if(k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+    
+    private void swap(int a, int b) {
+        double[] c = coordinates;
+        for(int j = 0; j < 3; j++) {
+            double t = c[a * 3 + j];
+            c[a * 3 + j] = c[b * 3 + j];
+            c[b * 3 + j] = t;
+        }
+        int t = ids[a];
+        ids[a] = ids[b];
+        ids[b] = t;
+    }
+    
+    /**
+     * Find the point nearest to a position.
+     * @param v the position
+     * @return the index of the nearest point, or -1 if the tree is empty
+     */
+    public int nearest(Vector3 v) {
+        return nearest(v.getX(), v.getY(), v.getZ(), Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Find the point nearest to a position, if it is within a maximum
+     * distance.
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @param maxDistance the maximum distance to search
+     * @return the index of the nearest point, or -1 if there are no points
+     * within maxDistance
+     */
+    public int nearest(double x, double y, double z, double maxDistance) {
+        int best = nearest(0, size, x, y, z, -1,
+                maxDistance * maxDistance);
+        return best == -1 ? -1 : ids[best];
+    }
+    
+    //returns the position of the nearest point closer than bestSquare, or
+    //best if there are none
+    private int nearest(int start, int end, double x, double y, double z,
+            int best, double bestSquare) {
+        double[] c = coordinates;
+        if(end - start <= LEAF_SIZE) {
+            for(int i = start; i < end; i++) {
+                double d = distanceSquare(i, x, y, z);
+                if(d <= bestSquare) {
+                    best = i;
+                    bestSquare = d;
+                }
+            }
+            return best;
+        }
+        int mid = (start + end) >>> 1;
+        int axis = axes[mid];
+        double d = distanceSquare(mid, x, y, z);
+        if(d <= bestSquare) {
+            best = mid;
+            bestSquare = d;
+        }
+        double offset = (axis == 0 ? x : axis == 1 ? y : z) - c[mid * 3 + axis];
+        int newBest;
+        if(offset < 0) {
+            newBest = nearest(start, mid, x, y, z, best, bestSquare);
+        } else {
+            newBest = nearest(mid + 1, end, x, y, z, best, bestSquare);
+        }
+        if(newBest != best) {
+            best = newBest;
+            bestSquare = distanceSquare(best, x, y, z);
+        }
+        if(offset * offset <= bestSquare) {
+            if(offset < 0)
+                best = nearest(mid + 1, end, x, y, z, best, bestSquare);
+            else
+                best = nearest(start, mid, x, y, z, best, bestSquare);
+        }
+        return best;
+    }
+    
+    /**
+     * Find the k points nearest to a position.
+     * @param v the position
+     * @param k the number of points to find
+     * @param dest receives the points, nearest first
+     */
+    public void nearest(Vector3 v, int k, Neighbors dest) {
+        nearest(v.getX(), v.getY(), v.getZ(), k, Double.POSITIVE_INFINITY,
+                dest);
+    }
+    
+    /**
+     * Find the k points nearest to a position, within a maximum distance.
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @param k the maximum number of points to find
+     * @param maxDistance the maximum distance to search
+     * @param dest receives the points, nearest first. There are fewer than k
+     * if the tree has fewer than k points within maxDistance.
+     */
+    public void nearest(double x, double y, double z, int k,
+            double maxDistance, Neighbors dest) {
+        if(k < 0)
+            throw new IllegalArgumentException("Negative k: " + k);
+        dest.reset(Math.min(k, size));
+        if(k > 0)
+            nearest(0, size, x, y, z, k, maxDistance * maxDistance, dest);
+        for(int i = 0; i < dest.size; i++)
+            dest.indices[i] = ids[dest.indices[i]];
+        dest.heapSort();
+    }
+    
+    private void nearest(int start, int end, double x, double y, double z,
+            int k, double maxSquare, Neighbors dest) {
+        if(end - start <= LEAF_SIZE) {
+            for(int i = start; i < end; i++)
+                offer(i, distanceSquare(i, x, y, z), k, maxSquare, dest);
+            return;
+        }
+        int mid = (start + end) >>> 1;
+        int axis = axes[mid];
+        offer(mid, distanceSquare(mid, x, y, z), k, maxSquare, dest);
+        double offset = (axis == 0 ? x : axis == 1 ? y : z)
+                - coordinates[mid * 3 + axis];
+        if(offset < 0)
+            nearest(start, mid, x, y, z, k, maxSquare, dest);
+        else
+            nearest(mid + 1, end, x, y, z, k, maxSquare, dest);
+        double bound = dest.size == k ? dest.distanceSquares[0] : maxSquare;
+        if(offset * offset <= bound) {
+            if(offset < 0)
+                nearest(mid + 1, end, x, y, z, k, maxSquare, dest);
+            else
+                nearest(start, mid, x, y, z, k, maxSquare, dest);
+        }
+    }
+    
+    private static void offer(int i, double d, int k, double maxSquare,
+            Neighbors dest) {
+        if(dest.size < k) {
+            if(d <= maxSquare)
+                dest.heapAdd(i, d);
+        } else if(d < dest.distanceSquares[0]) {
+            dest.heapReplaceTop(i, d);
+        }
+    }
+    
+    /**
+     * Find all the points within a distance of a position.
+     * @param v the position
+     * @param radius the distance
+     * @param dest receives the points, in no particular order
+     * @return the number of points found
+     */
+    public int withinRadius(Vector3 v, double radius, Neighbors dest) {
+        return withinRadius(v.getX(), v.getY(), v.getZ(), radius, dest);
+    }
+    
+    /**
+     * Find all the points within a distance of a position.
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     * @param z the z coordinate of the position
+     * @param radius the distance
+     * @param dest receives the points, in no particular order
+     * @return the number of points found
+     */
+    public int withinRadius(double x, double y, double z, double radius,
+            Neighbors dest) {
+        dest.reset(0);
+        withinRadius(0, size, x, y, z, radius * radius, dest);
+        return dest.size;
+    }
+    
+    private void withinRadius(int start, int end, double x, double y,
+            double z, double radiusSquare, Neighbors dest) {
+        if(end - start <= LEAF_SIZE) {
+            for(int i = start; i < end; i++) {
+                double d = distanceSquare(i, x, y, z);
+                if(d <= radiusSquare)
+                    dest.add(ids[i], d);
+            }
+            return;
+        }
+        int mid = (start + end) >>> 1;
+        int axis = axes[mid];
+        double d = distanceSquare(mid, x, y, z);
+        if(d <= radiusSquare)
+            dest.add(ids[mid], d);
+        double offset = (axis == 0 ? x : axis == 1 ? y : z)
+                - coordinates[mid * 3 + axis];
+        if(offset <= 0 || offset * offset <= radiusSquare)
+            withinRadius(start, mid, x, y, z, radiusSquare, dest);
+        if(offset >= 0 || offset * offset <= radiusSquare)
+            withinRadius(mid + 1, end, x, y, z, radiusSquare, dest);
+    }
+    
+    private double distanceSquare(int i, double x, double y, double z) {
+        double dx = coordinates[i * 3] - x;
+        double dy = coordinates[i * 3 + 1] - y;
+        double dz = coordinates[i * 3 + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
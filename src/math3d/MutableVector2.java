@@ -0,0 +1,271 @@
+package math3d;
+
+/**
+ * A mutable 2-dimensional vector. This has the same operations as Vector2,
+ * but instead of creating a new vector each one changes this vector and
+ * returns it, so operations can be chained without allocating any objects.
+ * Use toVector2() to get an immutable Vector2 for anything that is stored or
+ * shared. Because the value can change, equals() and hashCode() are not
+ * overridden.
+ * @author vanjac
+ */
+public class MutableVector2 {
+    private double x;
+    private double y;
+    
+    /**
+     * Create a new MutableVector2 with both coordinates set to zero.
+     */
+    public MutableVector2() {
+        this(0, 0);
+    }
+    
+    /**
+     * Create a new MutableVector2 from the x and y coordinates.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public MutableVector2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+    
+    /**
+     * Create a new MutableVector2 with the same coordinates as a Vector2.
+     * @param v the vector to copy
+     */
+    public MutableVector2(Vector2 v) {
+        this(v.getX(), v.getY());
+    }
+    
+    @Override
+    public String toString() {
+        return Double.toString(x) + ", " + Double.toString(y);
+    }
+    
+    /**
+     * Create an immutable Vector2 with the current value of this vector.
+     * @return a new Vector2
+     */
+    public Vector2 toVector2() {
+        return new Vector2(x, y);
+    }
+    
+    /**
+     * Check if this vector has the same coordinates as an immutable vector.
+     * @param v the other vector
+     * @return true if both coordinates are equal
+     */
+    public boolean equalsVector(Vector2 v) {
+        return x == v.getX() && y == v.getY();
+    }
+    
+    /**
+     * Check if all coordinates of this vector are 0.
+     * @return true if this is a zero vector
+     */
+    public boolean isZero() {
+        return x == 0 && y == 0;
+    }
+    
+    public double getX() {
+        return x;
+    }
+    
+    public double getY() {
+        return y;
+    }
+    
+    public MutableVector2 setX(double newX) {
+        x = newX;
+        return this;
+    }
+    
+    public MutableVector2 setY(double newY) {
+        y = newY;
+        return this;
+    }
+    
+    public MutableVector2 set(double newX, double newY) {
+        x = newX;
+        y = newY;
+        return this;
+    }
+    
+    public MutableVector2 set(Vector2 v) {
+        return set(v.getX(), v.getY());
+    }
+    
+    public MutableVector2 set(MutableVector2 v) {
+        return set(v.x, v.y);
+    }
+    
+    public MutableVector2 inverse() {
+        return set(-x, -y);
+    }
+    
+    public MutableVector2 add(double vx, double vy) {
+        return set(x + vx, y + vy);
+    }
+    
+    public MutableVector2 add(Vector2 v) {
+        return add(v.getX(), v.getY());
+    }
+    
+    public MutableVector2 add(MutableVector2 v) {
+        return add(v.x, v.y);
+    }
+    
+    public MutableVector2 subtract(double vx, double vy) {
+        return set(x - vx, y - vy);
+    }
+    
+    public MutableVector2 subtract(Vector2 v) {
+        return subtract(v.getX(), v.getY());
+    }
+    
+    public MutableVector2 subtract(MutableVector2 v) {
+        return subtract(v.x, v.y);
+    }
+    
+    public MutableVector2 multiply(double n) {
+        return set(x * n, y * n);
+    }
+    
+    public MutableVector2 divide(double n) {
+        return set(x / n, y / n);
+    }
+    
+    /**
+     * Returns the dot product of this vector and another vector
+     * @param v the other vector
+     * @return the dot product of the two
+     */
+    public double dot(Vector2 v) {
+        return x*v.getX() + y*v.getY();
+    }
+    
+    /**
+     * Returns the dot product of this vector and another vector
+     * @param v the other vector
+     * @return the dot product of the two
+     */
+    public double dot(MutableVector2 v) {
+        return x*v.x + y*v.y;
+    }
+    
+    /**
+     * Returns true if this vector is orthogonal (at a right angle to) another
+     * vector.
+     * @param v the other vector
+     * @return true if the vectors are orthogonal
+     */
+    public boolean orthogonal(Vector2 v) {
+        return dot(v) == 0;
+    }
+    
+    /**
+     * Linear interpolation between this vector and another. See
+     * Vector2.lerp().
+     * @param v the other vector
+     * @param amount amount to move between vectors
+     * @return this vector
+     */
+    public MutableVector2 lerp(Vector2 v, double amount) {
+        return set(
+                x + (v.getX() - x) * amount,
+                y + (v.getY() - y) * amount
+        );
+    }
+    
+    /**
+     * Get the magnitude or length of a vector
+     * @return the magnitude of the vector
+     */
+    public double magnitude() {
+        return Math.sqrt(magnitudeSquare());
+    }
+    
+    /**
+     * Get the square of the magnitude of a vector. This is a faster
+     * calculation, and is useful when the actual values don't matter.
+     * @return the squared magnitude of the vector
+     */
+    public double magnitudeSquare() {
+        return x*x + y*y;
+    }
+    
+    /**
+     * Keep the same direction and change the magnitude.
+     * @param magnitude the magnitude to set
+     * @return this vector
+     */
+    public MutableVector2 setMagnitude(double magnitude) {
+        double current = magnitude();
+        return multiply(magnitude / current);
+    }
+    
+    /**
+     * If the magnitude is greater than max, set the magnitude to max.
+     * @param max the maximum magnitude
+     * @return this vector
+     */
+    public MutableVector2 limitMagnitude(double max) {
+        if(magnitudeSquare() > max*max) { //square for faster calculation
+            return setMagnitude(max);
+        }
+        return this;
+    }
+    
+    /**
+     * Make this a "unit vector" with the same direction and a magnitude of 1.
+     * @return this vector
+     */
+    public MutableVector2 normalize() {
+        return setMagnitude(1);
+    }
+    
+    /**
+     * Get the direction of this vector. See Vector2.direction().
+     * @return the direction, between 0 and 2*pi
+     */
+    public double direction() {
+        return Vector2.direction(x, y);
+    }
+    
+    /**
+     * Find the angle between this vector and another.
+     * @param v the other vector
+     * @return the angle between the vectors, in radians
+     */
+    public double angleBetween(Vector2 v) {
+        return Math.acos((dot(v) / (magnitude() * v.magnitude())));
+    }
+    
+    public double distanceTo(Vector2 v) {
+        double x1 = x - v.getX();
+        double y1 = y - v.getY();
+        
+        return Math.sqrt(x1 * x1 + y1 * y1);
+    }
+    
+    public MutableVector2 rotate(double amount) {
+        if(FastAngles.isEnabled())
+            return FastAngles.rotate(x, y, amount, this);
+        double sinX = Math.sin(amount);
+        double cosX = Math.cos(amount);
+        return set(
+                x * cosX - y * sinX,
+                y * cosX + x * sinX
+        );
+    }
+    
+    public MutableVector2 rotateAround(double amount, Vector2 center) {
+        return subtract(center).rotate(amount).add(center);
+    }
+    
+    public MutableVector2 move(double direction, Vector2 amount) {
+        double oldX = x, oldY = y;
+        return set(amount).rotate(direction).add(oldX, oldY);
+    }
+}
@@ -0,0 +1,305 @@
+package math3d;
+
+/**
+ * A mutable 3-dimensional vector. This has the same operations as Vector3,
+ * but instead of creating a new vector each one changes this vector and
+ * returns it, so operations can be chained without allocating any objects:
+ * <pre>
+ * v.set(point).subtract(center).rotate(amount).add(center);
+ * </pre>
+ * MutableVector3 is meant for temporary values in inner loops. Use
+ * toVector3() to get an immutable Vector3 for anything that is stored or
+ * shared. Because the value can change, equals() and hashCode() are not
+ * overridden.
+ * @author vanjac
+ */
+public class MutableVector3 {
+    private double x;
+    private double y;
+    private double z;
+    
+    /**
+     * Create a new MutableVector3 with all coordinates set to zero.
+     */
+    public MutableVector3() {
+        this(0, 0, 0);
+    }
+    
+    /**
+     * Create a new MutableVector3 from the x, y, and z coordinates.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     */
+    public MutableVector3(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+    
+    /**
+     * Create a new MutableVector3 with the same coordinates as a Vector3.
+     * @param v the vector to copy
+     */
+    public MutableVector3(Vector3 v) {
+        this(v.getX(), v.getY(), v.getZ());
+    }
+    
+    @Override
+    public String toString() {
+        return Double.toString(x) + ", " +
+                Double.toString(y) + ", " +
+                Double.toString(z);
+    }
+    
+    /**
+     * Create an immutable Vector3 with the current value of this vector.
+     * @return a new Vector3
+     */
+    public Vector3 toVector3() {
+        return new Vector3(x, y, z);
+    }
+    
+    /**
+     * Check if this vector has the same coordinates as an immutable vector.
+     * @param v the other vector
+     * @return true if all coordinates are equal
+     */
+    public boolean equalsVector(Vector3 v) {
+        return x == v.getX() && y == v.getY() && z == v.getZ();
+    }
+    
+    /**
+     * Check if all coordinates of this vector are 0.
+     * @return true if this is a zero vector
+     */
+    public boolean isZero() {
+        return x == 0 && y == 0 && z == 0;
+    }
+    
+    public double getX() {
+        return x;
+    }
+    
+    public double getY() {
+        return y;
+    }
+    
+    public double getZ() {
+        return z;
+    }
+    
+    public MutableVector3 setX(double newX) {
+        x = newX;
+        return this;
+    }
+    
+    public MutableVector3 setY(double newY) {
+        y = newY;
+        return this;
+    }
+    
+    public MutableVector3 setZ(double newZ) {
+        z = newZ;
+        return this;
+    }
+    
+    public MutableVector3 set(double newX, double newY, double newZ) {
+        x = newX;
+        y = newY;
+        z = newZ;
+        return this;
+    }
+    
+    public MutableVector3 set(Vector3 v) {
+        return set(v.getX(), v.getY(), v.getZ());
+    }
+    
+    public MutableVector3 set(MutableVector3 v) {
+        return set(v.x, v.y, v.z);
+    }
+    
+    public MutableVector3 inverse() {
+        return set(-x, -y, -z);
+    }
+    
+    public MutableVector3 add(double vx, double vy, double vz) {
+        return set(x + vx, y + vy, z + vz);
+    }
+    
+    public MutableVector3 add(Vector3 v) {
+        return add(v.getX(), v.getY(), v.getZ());
+    }
+    
+    public MutableVector3 add(MutableVector3 v) {
+        return add(v.x, v.y, v.z);
+    }
+    
+    public MutableVector3 subtract(double vx, double vy, double vz) {
+        return set(x - vx, y - vy, z - vz);
+    }
+    
+    public MutableVector3 subtract(Vector3 v) {
+        return subtract(v.getX(), v.getY(), v.getZ());
+    }
+    
+    public MutableVector3 subtract(MutableVector3 v) {
+        return subtract(v.x, v.y, v.z);
+    }
+    
+    public MutableVector3 multiply(double n) {
+        return set(x * n, y * n, z * n);
+    }
+    
+    public MutableVector3 divide(double n) {
+        return set(x / n, y / n, z / n);
+    }
+    
+    /**
+     * Returns the dot product of this vector and another vector
+     * @param v the other vector
+     * @return the dot product of the two
+     */
+    public double dot(Vector3 v) {
+        return x*v.getX() + y*v.getY() + z*v.getZ();
+    }
+    
+    /**
+     * Returns the dot product of this vector and another vector
+     * @param v the other vector
+     * @return the dot product of the two
+     */
+    public double dot(MutableVector3 v) {
+        return x*v.x + y*v.y + z*v.z;
+    }
+    
+    /**
+     * Returns true if this vector is orthogonal (at a right angle to) another
+     * vector.
+     * @param v the other vector
+     * @return true if the vectors are orthogonal
+     */
+    public boolean orthogonal(Vector3 v) {
+        return dot(v) == 0;
+    }
+    
+    /**
+     * Set this vector to the cross product of itself and another vector.
+     * @param vx the x coordinate of the other vector
+     * @param vy the y coordinate of the other vector
+     * @param vz the z coordinate of the other vector
+     * @return this vector
+     */
+    public MutableVector3 cross(double vx, double vy, double vz) {
+        return set(
+                y * vz - z * vy,
+                z * vx - x * vz,
+                x * vy - y * vx
+        );
+    }
+    
+    /**
+     * Set this vector to the cross product of itself and another vector.
+     * @param v the other vector
+     * @return this vector
+     */
+    public MutableVector3 cross(Vector3 v) {
+        return cross(v.getX(), v.getY(), v.getZ());
+    }
+    
+    /**
+     * Set this vector to the cross product of itself and another vector.
+     * @param v the other vector
+     * @return this vector
+     */
+    public MutableVector3 cross(MutableVector3 v) {
+        return cross(v.x, v.y, v.z);
+    }
+    
+    /**
+     * Linear interpolation between this vector and another. See
+     * Vector3.lerp().
+     * @param v the other vector
+     * @param amount amount to move between vectors
+     * @return this vector
+     */
+    public MutableVector3 lerp(Vector3 v, double amount) {
+        return set(
+                x + (v.getX() - x) * amount,
+                y + (v.getY() - y) * amount,
+                z + (v.getZ() - z) * amount
+        );
+    }
+    
+    /**
+     * Get the magnitude or length of a vector
+     * @return the magnitude of the vector
+     */
+    public double magnitude() {
+        return Math.sqrt(magnitudeSquare());
+    }
+    
+    /**
+     * Get the square of the magnitude of a vector. This is a faster
+     * calculation, and is useful when the actual values don't matter.
+     * @return the squared magnitude of the vector
+     */
+    public double magnitudeSquare() {
+        return x*x + y*y + z*z;
+    }
+    
+    /**
+     * Keep the same direction and change the magnitude.
+     * @param magnitude the magnitude to set
+     * @return this vector
+     */
+    public MutableVector3 setMagnitude(double magnitude) {
+        double current = magnitude();
+        return multiply(magnitude / current);
+    }
+    
+    /**
+     * If the magnitude is greater than max, set the magnitude to max.
+     * @param max the maximum magnitude
+     * @return this vector
+     */
+    public MutableVector3 limitMagnitude(double max) {
+        if(magnitudeSquare() > max*max) { //square for faster calculation
+            return setMagnitude(max);
+        }
+        return this;
+    }
+    
+    /**
+     * Make this a "unit vector" with the same direction and a magnitude of 1.
+     * @return this vector
+     */
+    public MutableVector3 normalize() {
+        return setMagnitude(1);
+    }
+    
+    public double distanceTo(Vector3 v) {
+        double dx = v.getX() - x;
+        double dy = v.getY() - y;
+        double dz = v.getZ() - z;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    
+    public MutableVector3 rotate(Rotation3 amount) {
+        double[] m = amount.matrix();
+        return set(
+                m[0] * x + m[1] * y + m[2] * z,
+                m[3] * x + m[4] * y + m[5] * z,
+                m[6] * x + m[7] * y + m[8] * z
+        );
+    }
+    
+    public MutableVector3 rotateAround(Rotation3 amount, Vector3 center) {
+        return subtract(center).rotate(amount).add(center);
+    }
+    
+    public MutableVector3 move(Rotation3 direction, Vector3 amount) {
+        double oldX = x, oldY = y, oldZ = z;
+        return set(amount).rotate(direction).add(oldX, oldY, oldZ);
+    }
+}
@@ -0,0 +1,402 @@
+package math3d;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import math3d.Polygon.VertexOrder;
+
+/**
+ * A bounded cache of Direction3 normals, so that polygons facing the same way
+ * can share one Direction3 instead of each having their own. Meshes such as
+ * buildings have millions of faces but only a few distinct orientations, so
+ * this saves a lot of memory.
+ *
+ * Normals are looked up by their unit vector, rounded to a multiple of the
+ * resolution. The first normal cached for a rounded key is returned for every
+ * later normal with the same key, so results can differ from the exact normal
+ * by up to the resolution. When the cache is full, a normal that hasn't been
+ * used recently is evicted.
+ *
+ * A cache can be used from many threads at once. Lookups of normals that are
+ * already cached don't lock. Counts of hits, misses and evictions are kept for
+ * tuning the size of the cache.
+ *
+ * Triangle and ConvexPolygon constructors intern their normals in the shared
+ * cache, if one is set with setShared(). By default there isn't one.
+ * @author vanjac
+ */
+public class NormalCache {
+    /**
+     * The default resolution: normals this close together are considered the
+     * same.
+     */
+    public static final double DEFAULT_RESOLUTION = 1E-10;
+    
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 8;
+    
+    private static volatile NormalCache shared;
+    
+    /**
+     * An immutable cached normal, so it can be read from the table without
+     * locking.
+     */
+    private static final class Entry {
+        final long qx, qy, qz;
+        final int hash;
+        final Direction3 normal;
+        //set when the normal is used, cleared when the eviction hand passes.
+        //Races only affect which normal is evicted.
+        boolean used;
+        
+        Entry(long qx, long qy, long qz, int hash, Direction3 normal) {
+            this.qx = qx;
+            this.qy = qy;
+            this.qz = qz;
+            this.hash = hash;
+            this.normal = normal;
+        }
+    }
+    
+    /**
+     * An open-addressing hash table with a fixed capacity, for part of the
+     * keys. Changes are made while locking the segment; lookups that miss
+     * lock and try again.
+     */
+    private final class Segment {
+        final Entry[] table;
+        final int maxSize;
+        int size;
+        int hand;
+        
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+            //keep the table at most half full
+            table = new Entry[Integer.highestOneBit(maxSize) * 4];
+        }
+        
+        Entry find(long qx, long qy, long qz, int hash) {
+            Entry[] t = table;
+            int mask = t.length - 1;
+            for(int i = hash & mask; ; i = (i + 1) & mask) {
+                Entry e = t[i];
+                if(e == null)
+                    return null;
+                if(e.hash == hash && e.qx == qx && e.qy == qy && e.qz == qz)
+                    return e;
+            }
+        }
+        
+        synchronized Direction3 add(long qx, long qy, long qz, int hash,
+                double x, double y, double z) {
+            Entry e = find(qx, qy, qz, hash);
+            if(e != null) { //added by another thread
+                e.used = true;
+                hits.increment();
+                return e.normal;
+            }
+            misses.increment();
+            if(size == maxSize)
+                evict();
+            e = new Entry(qx, qy, qz, hash,
+                    new Direction3(new Vector3(x, y, z)));
+            int mask = table.length - 1;
+            int i = hash & mask;
+            while(table[i] != null)
+                i = (i + 1) & mask;
+            table[i] = e;
+            size++;
+            return e.normal;
+        }
+        
+        //the "clock" algorithm: skip entries used since the hand last passed
+        void evict() {
+            int mask = table.length - 1;
+            while(true) {
+                int i = hand;
+                hand = (hand + 1) & mask;
+                Entry e = table[i];
+                if(e == null)
+                    continue;
+                if(e.used) {
+                    e.used = false;
+                    continue;
+                }
+                remove(i);
+                evictions.increment();
+                return;
+            }
+        }
+        
+        //remove the entry at i, and move later entries back to fill the gap
+        void remove(int i) {
+            int mask = table.length - 1;
+            int j = i;
+            while(true) {
+                j = (j + 1) & mask;
+                Entry e = table[j];
+                if(e == null)
+                    break;
+                int home = e.hash & mask;
+                //move it unless its home slot is between i and j
+                if(((j - home) & mask) >= ((j - i) & mask)) {
+                    table[i] = e;
+                    i = j;
+                }
+            }
+            table[i] = null;
+            size--;
+        }
+        
+        synchronized void clear() {
+            Arrays.fill(table, null);
+            size = 0;
+            hand = 0;
+        }
+        
+        synchronized int size() {
+            return size;
+        }
+    }
+    
+    private final int maxSize;
+    private final double resolution;
+    private final double scale;
+    private final Segment[] segments;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * Create a cache with the default resolution.
+     * @param maxSize the maximum number of normals to keep
+     */
+    public NormalCache(int maxSize) {
+        this(maxSize, DEFAULT_RESOLUTION);
+    }
+    
+    /**
+     * Create a cache.
+     * @param maxSize the maximum number of normals to keep
+     * @param resolution the spacing of the grid that unit vectors are rounded
+     * to. Normals that round to the same point are shared.
+     */
+    public NormalCache(int maxSize, double resolution) {
+        if(maxSize < 1)
+            throw new IllegalArgumentException(
+                    "Maximum size must be positive: " + maxSize);
+        if(!(resolution > 0) || !Double.isFinite(1 / resolution))
+            throw new IllegalArgumentException(
+                    "Invalid resolution: " + resolution);
+        this.maxSize = maxSize;
+        this.resolution = resolution;
+        scale = 1 / resolution;
+        
+        //split into segments to reduce locking between threads, but keep
+        //enough normals in each one for eviction to work well
+        int segmentCount = Math.min(maxSize / MIN_SEGMENT_SIZE, MAX_SEGMENTS);
+        segmentCount = Integer.highestOneBit(Math.max(segmentCount, 1));
+        segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++) {
+            //divide maxSize as evenly as possible
+            int size = maxSize / segmentCount
+                    + (i < maxSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(size);
+        }
+    }
+    
+    /**
+     * Set the cache used by the constructors of Triangle and ConvexPolygon
+     * that calculate a normal.
+     * @param cache the cache to use, or null to give every polygon its own
+     * normal (the default)
+     */
+    public static void setShared(NormalCache cache) {
+        shared = cache;
+    }
+    
+    /**
+     * Get the cache used by the constructors of Triangle and ConvexPolygon.
+     * @return the cache, or null if there isn't one
+     */
+    public static NormalCache getShared() {
+        return shared;
+    }
+    
+    @Override
+    public String toString() {
+        return "NormalCache [ " + size() + "/" + maxSize + ", hit rate "
+                + getHitRate() + " ]";
+    }
+    
+    /**
+     * Get the cached normal for a unit vector, adding it to the cache if there
+     * isn't one.
+     * @param x the x coordinate of the unit vector
+     * @param y the y coordinate of the unit vector
+     * @param z the z coordinate of the unit vector
+     * @return a Direction3 within the resolution of the unit vector
+     */
+    public Direction3 intern(double x, double y, double z) {
+        if(!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(z))
+            //the normal of a degenerate polygon; don't mix them up with others
+            return new Direction3(new Vector3(x, y, z));
+        long qx = Math.round(x * scale);
+        long qy = Math.round(y * scale);
+        long qz = Math.round(z * scale);
+        int hash = hash(qx, qy, qz);
+        Segment segment = segments[(hash >>> 28) & (segments.length - 1)];
+        Entry e = segment.find(qx, qy, qz, hash);
+        if(e != null) {
+            e.used = true;
+            hits.increment();
+            return e.normal;
+        }
+        return segment.add(qx, qy, qz, hash, x, y, z);
+    }
+    
+    /**
+     * Get the cached normal for a direction, adding it to the cache if there
+     * isn't one.
+     * @param normal the direction
+     * @return a Direction3 within the resolution of the direction
+     */
+    public Direction3 intern(Direction3 normal) {
+        Vector3 unit = normal.getUnitVector();
+        return intern(unit.getX(), unit.getY(), unit.getZ());
+    }
+    
+    /**
+     * Remove all normals from the cache. The statistics are not reset.
+     */
+    public void clear() {
+        for(Segment s : segments)
+            s.clear();
+    }
+    
+    /**
+     * Set the hit, miss and eviction counts back to 0.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+    
+    /**
+     * Get the number of normals in the cache.
+     * @return the number of normals
+     */
+    public int size() {
+        int size = 0;
+        for(Segment s : segments)
+            size += s.size();
+        return size;
+    }
+    
+    /**
+     * Get the maximum number of normals the cache will keep.
+     * @return the maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Get the spacing of the grid that unit vectors are rounded to.
+     * @return the resolution
+     */
+    public double getResolution() {
+        return resolution;
+    }
+    
+    /**
+     * Get the number of lookups that found a cached normal.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    /**
+     * Get the number of lookups that added a new normal.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    /**
+     * Get the number of normals removed to make room for new ones.
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Get the fraction of lookups that found a cached normal.
+     * @return the hit rate, from 0 to 1. 0 if there haven't been any lookups.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double)h / total;
+    }
+    
+    /**
+     * Calculate the normal of a polygon from 3 of its vertices, in the same
+     * way as Vector3.normal() but without the intermediate vectors, and
+     * intern it in the shared cache if there is one.
+     * @param v1 the first vertex
+     * @param v2 the second vertex
+     * @param v3 the third vertex
+     * @param order the order of the vertices
+     * @return the normal
+     */
+    static Direction3 normal(Vector3 v1, Vector3 v2, Vector3 v3,
+            VertexOrder order) {
+        double ax = v2.getX() - v1.getX();
+        double ay = v2.getY() - v1.getY();
+        double az = v2.getZ() - v1.getZ();
+        double bx = v3.getX() - v1.getX();
+        double by = v3.getY() - v1.getY();
+        double bz = v3.getZ() - v1.getZ();
+        double cx = ay * bz - az * by;
+        double cy = az * bx - ax * bz;
+        double cz = ax * by - ay * bx;
+        if(order == VertexOrder.CLOCKWISE)
+            return direction(-cx, -cy, -cz);
+        return direction(cx, cy, cz);
+    }
+    
+    /**
+     * Normalize a vector and intern its direction in the shared cache if
+     * there is one.
+     * @param x the x coordinate of the vector
+     * @param y the y coordinate of the vector
+     * @param z the z coordinate of the vector
+     * @return the direction of the vector
+     */
+    static Direction3 direction(double x, double y, double z) {
+        double s = 1 / Math.sqrt(x*x + y*y + z*z);
+        x *= s;
+        y *= s;
+        z *= s;
+        NormalCache cache = shared;
+        if(cache == null)
+            return new Direction3(new Vector3(x, y, z));
+        return cache.intern(x, y, z);
+    }
+    
+    private static int hash(long qx, long qy, long qz) {
+        long key = qx * 0x9E3779B97F4A7C15L ^ qy * 0xC2B2AE3D27D4EB4FL ^ qz;
+        //the finalizer of MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb3f99f5a2d3dL;
+        key ^= key >>> 33;
+        return (int)key;
+    }
+}
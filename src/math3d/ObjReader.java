@@ -0,0 +1,549 @@
+package math3d;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+
+/**
+ * Reads the faces of a Wavefront OBJ file one at a time, so files with far
+ * more faces than fit in memory can be processed. Vertex positions ("v") and
+ * normals ("vn") are kept, since faces can refer to any earlier vertex, but
+ * each face ("f") is created as it is reached and can be discarded after it
+ * is used. All other records (texture coordinates, groups, materials...) are
+ * skipped.
+ *
+ * Faces with 3 vertices are Triangles, and larger faces are ConvexPolygons,
+ * with counter-clockwise vertices. Vertices without a normal in the file get
+ * the normal of the face. Normals are interned in the shared NormalCache if
+ * there is one.
+ *
+ * Numbers are parsed directly from the bytes of the file, without creating
+ * Strings. In parallel mode, the file is split into chunks at line
+ * boundaries: first the vertices of all the chunks are read in parallel, then
+ * the faces of each chunk are created in parallel.
+ *
+ * Errors in the file are thrown as UncheckedIOExceptions from the stream.
+ * @author vanjac
+ */
+public final class ObjReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    //the smallest chunk a file is split into in parallel mode
+    private static final int MIN_CHUNK = 1 << 20;
+    //powers of 10 that are exactly representable as doubles
+    private static final double[] POWERS_OF_10 = new double[23];
+    
+    static {
+        POWERS_OF_10[0] = 1;
+        for(int i = 1; i < POWERS_OF_10.length; i++)
+            POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10;
+    }
+    
+    private ObjReader() { }
+    
+    /**
+     * Read the faces of an OBJ file from a stream, lazily. The stream is read
+     * as the faces are requested; it isn't closed.
+     * @param in the OBJ data
+     * @return a sequential stream of faces, in file order
+     */
+    public static Stream<Polygon> faces(InputStream in) {
+        return StreamSupport.stream(new FaceSpliterator(in), false);
+    }
+    
+    /**
+     * Read the faces of an OBJ file. The returned stream should be closed,
+     * with try-with-resources, to close the file.
+     * @param path the file to read
+     * @param parallel true to split the file into chunks which are read in
+     * parallel. The faces are still in file order if the stream is ordered.
+     * @return a stream of faces, in file order
+     * @throws IOException if the file can't be opened
+     */
+    public static Stream<Polygon> faces(Path path, boolean parallel)
+            throws IOException {
+        if(parallel)
+            return new ParallelReader(path).faces();
+        InputStream in = Files.newInputStream(path);
+        return faces(in).onClose(() -> {
+            try {
+                in.close();
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /**
+     * A growable array of doubles.
+     */
+    private static final class DoubleList {
+        double[] values = new double[48];
+        int size;
+        
+        void add(double a, double b, double c) {
+            if(size + 3 > values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[size] = a;
+            values[size + 1] = b;
+            values[size + 2] = c;
+            size += 3;
+        }
+        
+        void addAll(DoubleList list) {
+            if(size + list.size > values.length)
+                values = Arrays.copyOf(values,
+                        Math.max(values.length * 2, size + list.size));
+            System.arraycopy(list.values, 0, values, size, list.size);
+            size += list.size;
+        }
+    }
+    
+    /**
+     * Parses the records of an OBJ file, one line at a time.
+     */
+    private static final class LineParser {
+        //the positions and normals read so far, or all of them
+        final DoubleList positions;
+        final DoubleList normals;
+        //the vertex counts at the start of this part of the file, for relative
+        //indices in parallel mode
+        int positionCount, normalCount;
+        
+        //the current line, and the position in it
+        byte[] line;
+        int pos, end;
+        long lineOffset;
+        
+        //indices of the current face
+        int[] faceIndices = new int[8];
+        int[] normalIndices = new int[8];
+        
+        LineParser(DoubleList positions, DoubleList normals) {
+            this.positions = positions;
+            this.normals = normals;
+        }
+        
+        /**
+         * Parse a line. Vertices are added to the lists if readVertices is
+         * true, and counted otherwise.
+         * @return a face, or null if the line isn't a face or faces aren't
+         * being read
+         */
+        Polygon parse(byte[] buffer, int start, int lineEnd, long offset,
+                boolean readVertices, boolean readFaces) {
+            line = buffer;
+            pos = start;
+            end = lineEnd;
+            lineOffset = offset;
+            skipSpaces();
+            if(pos + 1 >= end)
+                return null;
+            byte b0 = line[pos], b1 = line[pos + 1];
+            if(b0 == 'v' && isSpace(b1)) {
+                positionCount++;
+                if(readVertices) {
+                    pos++;
+                    positions.add(nextDouble(), nextDouble(), nextDouble());
+                }
+            } else if(b0 == 'v' && b1 == 'n' && pos + 2 < end
+                    && isSpace(line[pos + 2])) {
+                normalCount++;
+                if(readVertices) {
+                    pos += 2;
+                    normals.add(nextDouble(), nextDouble(), nextDouble());
+                }
+            } else if(b0 == 'f' && isSpace(b1) && readFaces) {
+                pos++;
+                return face();
+            }
+            return null;
+        }
+        
+        Polygon face() {
+            int count = 0;
+            while(true) {
+                skipSpaces();
+                if(pos >= end || line[pos] == '#')
+                    break;
+                if(count == faceIndices.length) {
+                    faceIndices = Arrays.copyOf(faceIndices, count * 2);
+                    normalIndices = Arrays.copyOf(normalIndices, count * 2);
+                }
+                faceIndices[count] = index(nextInt(), positionCount);
+                normalIndices[count] = -1;
+                if(pos < end && line[pos] == '/') {
+                    pos++;
+                    if(pos < end && line[pos] != '/' && !isSpace(line[pos]))
+                        nextInt(); //texture coordinate
+                    if(pos < end && line[pos] == '/') {
+                        pos++;
+                        normalIndices[count] = index(nextInt(), normalCount);
+                    }
+                }
+                if(pos < end && !isSpace(line[pos]) && line[pos] != '#')
+                    throw error("Invalid face vertex");
+                count++;
+            }
+            if(count < 3)
+                throw error("Face has fewer than 3 vertices");
+            
+            Vector3[] points = new Vector3[count];
+            for(int i = 0; i < count; i++) {
+                int p = faceIndices[i] * 3;
+                double[] v = positions.values;
+                points[i] = new Vector3(v[p], v[p + 1], v[p + 2]);
+            }
+            VertexOrder order = VertexOrder.COUNTER_CLOCKWISE;
+            Direction3 faceNormal = NormalCache.normal(points[0], points[1],
+                    points[2], order);
+            List<Vertex> vertices = new ArrayList<>(count);
+            for(int i = 0; i < count; i++) {
+                Direction3 normal = faceNormal;
+                if(normalIndices[i] != -1) {
+                    int n = normalIndices[i] * 3;
+                    double[] v = normals.values;
+                    //normals in OBJ files aren't always unit vectors
+                    normal = NormalCache.direction(v[n], v[n + 1], v[n + 2]);
+                }
+                vertices.add(new Vertex(points[i], normal));
+            }
+            if(count == 3)
+                return new Triangle(vertices.get(0), vertices.get(1),
+                        vertices.get(2), order, faceNormal);
+            return new ConvexPolygon(vertices, order, faceNormal);
+        }
+        
+        //convert a 1-based or negative (relative) OBJ index to an array index
+        int index(int i, int count) {
+            int index = i > 0 ? i - 1 : count + i;
+            if(i == 0 || index < 0 || index >= count)
+                throw error("Vertex index out of range: " + i);
+            return index;
+        }
+        
+        void skipSpaces() {
+            while(pos < end && isSpace(line[pos]))
+                pos++;
+        }
+        
+        int nextInt() {
+            boolean negative = false;
+            if(pos < end && (line[pos] == '-' || line[pos] == '+'))
+                negative = line[pos++] == '-';
+            int start = pos;
+            long value = 0;
+            while(pos < end && isDigit(line[pos])) {
+                value = value * 10 + (line[pos++] - '0');
+                if(value > Integer.MAX_VALUE)
+                    throw error("Index too large");
+            }
+            if(pos == start)
+                throw error("Expected an index");
+            return (int)(negative ? -value : value);
+        }
+        
+        double nextDouble() {
+            skipSpaces();
+            int start = pos;
+            boolean negative = false;
+            if(pos < end && (line[pos] == '-' || line[pos] == '+'))
+                negative = line[pos++] == '-';
+            long mantissa = 0;
+            int digits = 0; //significant digits in the mantissa
+            int exponent = 0;
+            boolean any = false;
+            while(pos < end && isDigit(line[pos])) {
+                any = true;
+                if(digits < 18) {
+                    mantissa = mantissa * 10 + (line[pos] - '0');
+                    if(mantissa != 0)
+                        digits++;
+                } else {
+                    exponent++;
+                }
+                pos++;
+            }
+            if(pos < end && line[pos] == '.') {
+                pos++;
+                while(pos < end && isDigit(line[pos])) {
+                    any = true;
+                    if(digits < 18) {
+                        mantissa = mantissa * 10 + (line[pos] - '0');
+                        if(mantissa != 0)
+                            digits++;
+                        exponent--;
+                    }
+                    pos++;
+                }
+            }
+            if(!any)
+                throw error("Expected a number");
+            if(pos < end && (line[pos] == 'e' || line[pos] == 'E')) {
+                pos++;
+                boolean negativeExponent = false;
+                if(pos < end && (line[pos] == '-' || line[pos] == '+'))
+                    negativeExponent = line[pos++] == '-';
+                if(pos >= end || !isDigit(line[pos]))
+                    throw error("Expected an exponent");
+                int e = 0;
+                while(pos < end && isDigit(line[pos])) {
+                    if(e < 100000)
+                        e = e * 10 + (line[pos] - '0');
+                    pos++;
+                }
+                exponent += negativeExponent ? -e : e;
+            }
+            if(pos < end && !isSpace(line[pos]))
+                throw error("Invalid number");
+            
+            double value;
+            //with at most 15 digits, the mantissa and the power of 10 are
+            //both exact, so one multiply or divide rounds correctly
+            if(digits <= 15 && exponent >= -22 && exponent <= 22) {
+                value = exponent < 0 ? mantissa / POWERS_OF_10[-exponent]
+                        : mantissa * POWERS_OF_10[exponent];
+                return negative ? -value : value;
+            }
+            return Double.parseDouble(new String(line, start, pos - start,
+                    StandardCharsets.ISO_8859_1));
+        }
+        
+        UncheckedIOException error(String message) {
+            return new UncheckedIOException(new IOException(message
+                    + " in OBJ line at byte " + lineOffset));
+        }
+    }
+    
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+    
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+    
+    /**
+     * Reads lines from a stream into a buffer, and parses each one until a
+     * face is found.
+     */
+    private static final class FaceSpliterator
+            implements Spliterator<Polygon> {
+        final InputStream in;
+        final LineParser parser = new LineParser(new DoubleList(),
+                new DoubleList());
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int start, limit;
+        long bufferOffset; //the file offset of the start of the buffer
+        boolean eof;
+        
+        FaceSpliterator(InputStream in) {
+            this.in = in;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Polygon> action) {
+            while(true) {
+                int lineEnd = findLineEnd();
+                if(lineEnd == -1)
+                    return false;
+                Polygon face = parser.parse(buffer, start, lineEnd,
+                        bufferOffset + start, true, true);
+                start = lineEnd + 1;
+                if(face != null) {
+                    action.accept(face);
+                    return true;
+                }
+            }
+        }
+        
+        //find the end of the line at start, reading more of the stream if
+        //needed. Returns -1 at the end of the stream.
+        int findLineEnd() {
+            int searched = start;
+            while(true) {
+                for(int i = searched; i < limit; i++)
+                    if(buffer[i] == '\n')
+                        return i;
+                searched = limit;
+                if(eof) {
+                    if(start >= limit)
+                        return -1;
+                    //the last line has no newline; add one
+                    if(limit == buffer.length)
+                        buffer = Arrays.copyOf(buffer, buffer.length + 1);
+                    buffer[limit] = '\n';
+                    return limit++;
+                }
+                //move the partial line to the start, and grow for long lines
+                if(start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, limit - start);
+                    bufferOffset += start;
+                    searched -= start;
+                    limit -= start;
+                    start = 0;
+                } else if(limit == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                try {
+                    int read = in.read(buffer, limit, buffer.length - limit);
+                    if(read < 0)
+                        eof = true;
+                    else
+                        limit += read;
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        
+        @Override
+        public Spliterator<Polygon> trySplit() {
+            return null;
+        }
+        
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+        
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+    
+    /**
+     * Reads a file in chunks that end at line boundaries: first the vertices
+     * of every chunk in parallel, then the faces.
+     */
+    private static final class ParallelReader {
+        final Path path;
+        final long[] chunkStarts; //and the file size at the end
+        final DoubleList positions = new DoubleList();
+        final DoubleList normals = new DoubleList();
+        //the vertex counts before each chunk
+        final int[] positionCounts, normalCounts;
+        
+        ParallelReader(Path path) throws IOException {
+            this.path = path;
+            try(FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.READ)) {
+                chunkStarts = splitLines(channel);
+            }
+            int chunks = chunkStarts.length - 1;
+            positionCounts = new int[chunks];
+            normalCounts = new int[chunks];
+            LineParser[] parsers = new LineParser[chunks];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                LineParser parser = new LineParser(new DoubleList(),
+                        new DoubleList());
+                readChunk(c, parser, true, null);
+                parsers[c] = parser;
+            });
+            for(int c = 0; c < chunks; c++) {
+                positionCounts[c] = positions.size / 3;
+                normalCounts[c] = normals.size / 3;
+                positions.addAll(parsers[c].positions);
+                normals.addAll(parsers[c].normals);
+                parsers[c] = null;
+            }
+        }
+        
+        long[] splitLines(FileChannel channel) throws IOException {
+            long size = channel.size();
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            long chunkSize = Math.max(MIN_CHUNK, size / (parallelism * 4));
+            List<Long> starts = new ArrayList<>();
+            starts.add(0L);
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long next = chunkSize;
+            while(next < size) {
+                //move forward to the start of the next line
+                long position = next;
+                boolean found = false;
+                while(!found && position < size) {
+                    buffer.clear();
+                    int read = channel.read(buffer, position);
+                    if(read <= 0)
+                        break;
+                    for(int i = 0; i < read; i++) {
+                        if(buffer.get(i) == '\n') {
+                            position += i + 1;
+                            found = true;
+                            break;
+                        }
+                    }
+                    if(!found)
+                        position += read;
+                }
+                if(position >= size)
+                    break;
+                starts.add(position);
+                next = position + chunkSize;
+            }
+            starts.add(size);
+            long[] a = new long[starts.size()];
+            for(int i = 0; i < a.length; i++)
+                a[i] = starts.get(i);
+            return a;
+        }
+        
+        //parse every line of a chunk
+        void readChunk(int c, LineParser parser, boolean readVertices,
+                List<Polygon> faces) {
+            long chunkStart = chunkStarts[c];
+            long length = chunkStarts[c + 1] - chunkStart;
+            if(length > Integer.MAX_VALUE - 1)
+                throw new UncheckedIOException(
+                        new IOException("Line too long in " + path));
+            byte[] bytes = new byte[(int)length + 1];
+            try(FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int)length);
+                while(buffer.hasRemaining())
+                    if(channel.read(buffer, chunkStart + buffer.position())
+                            < 0)
+                        throw new IOException("File changed: " + path);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bytes[(int)length] = '\n'; //in case the last line has none
+            int start = 0;
+            for(int i = 0; i <= length; i++) {
+                if(bytes[i] != '\n')
+                    continue;
+                Polygon face = parser.parse(bytes, start, i,
+                        chunkStart + start, readVertices, faces != null);
+                if(face != null)
+                    faces.add(face);
+                start = i + 1;
+            }
+        }
+        
+        Stream<Polygon> faces() {
+            return IntStream.range(0, chunkStarts.length - 1).parallel()
+                    .boxed().flatMap(c -> {
+                        LineParser parser = new LineParser(positions,
+                                normals);
+                        parser.positionCount = positionCounts[c];
+                        parser.normalCount = normalCounts[c];
+                        List<Polygon> faces = new ArrayList<>();
+                        readChunk(c, parser, false, faces);
+                        return faces.stream();
+                    });
+        }
+    }
+}
@@ -6,59 +6,45 @@ package math3d;
  * @author vanjac
  */
 public interface Plane {
+    /**
+     * Which side of a plane a point is on.
+     */
+    public enum Side {
+        /**
+         * The side the normal points to.
+         */
+        FRONT,
+        /**
+         * The side opposite the normal.
+         */
+        BACK,
+        /**
+         * On the plane, within some epsilon.
+         */
+        ON
+    }
+    
     public static Plane at(final Vector3 point, final Direction3 normal) {
-        return new Plane() {
-            
-            @Override
-            public Direction3 getNormal() {
-                return normal;
-            }
-            
-            @Override
-            public Vector3 getPoint() {
-                return point;
-            }
-            
-            @Override
-            public double[] getPlaneCoefficients() {
-                double[] c = new double[4];
-                Vector3 unit = normal.getUnitVector();
-                c[0] = unit.getX();
-                c[1] = unit.getY();
-                c[2] = unit.getZ();
-                c[3] = -(unit.getX()*point.getX()
-                        + unit.getY()*point.getY()
-                        + unit.getZ()*point.getZ());
-                return c;
-            }
-            
-        };
+        return new CachedPlane(point, normal);
     }
     
     public static Plane fromPoints(Vector3 v1, Vector3 v2, Vector3 v3) {
         return at(v1, Vector3.normal(v1, v2, v3));
     }
     
-//    public static Plane fromCoefficients(double[] c) {
-//        return new Plane() {
-//
-//            @Override
-//            public Direction3 getNormal() {
-//                return new Direction3(new Vector3(c[0], c[1], c[2]));
-//            }
-//
-//            @Override
-//            public Vector3 getPoint() {
-//                
-//            }
-//
-//            @Override
-//            public double[] getPlaneCoefficients() {
-//                return c;
-//            }
-//            
-//        };
-//    }
+    /**
+     * Create a plane from the coefficients of its equation
+     * [ ax + by + cz + d = 0 ]. The coefficients are scaled so that (a, b, c)
+     * is a unit vector; getPlaneCoefficients() returns the scaled values.
+     * @param c an array of the 4 coefficients, in the order { a, b, c, d }.
+     * It is copied, not kept.
+     * @return the plane
+     * @throws IllegalArgumentException if the array doesn't have 4 values, or
+     * if a, b and c are all zero
+     */
+    public static Plane fromCoefficients(double[] c) {
+        return new CachedPlane(c);
+    }
     
     public Direction3 getNormal();
     
@@ -74,4 +60,77 @@ public interface Plane {
      * @return an array of the 4 coefficients, in the order { a, b, c, d }
      */
     public double[] getPlaneCoefficients();
+    
+    /**
+     * Find the signed distance from this plane to a point. The distance is
+     * positive on the side the normal points to.
+     * @param v the point
+     * @return the signed distance
+     */
+    public default double signedDistance(Vector3 v) {
+        double[] c = CachedPlane.coefficients(this);
+        return c[0] * v.getX() + c[1] * v.getY() + c[2] * v.getZ() + c[3];
+    }
+    
+    /**
+     * Find which side of this plane a point is on.
+     * @param v the point
+     * @param epsilon points closer to the plane than this are ON it
+     * @return the side of the plane
+     */
+    public default Side classify(Vector3 v, double epsilon) {
+        return CachedPlane.side(signedDistance(v), epsilon);
+    }
+    
+    /**
+     * Find the signed distance from this plane to each point in an array.
+     * @param points 3 values for each point: its x, y and z coordinates, in
+     * the same layout as Vector3.toArray()
+     * @param offset the index in points of the first point
+     * @param count the number of points
+     * @param dest receives the signed distance to each point
+     * @param destOffset the index in dest for the first distance
+     */
+    public default void signedDistances(double[] points, int offset,
+            int count, double[] dest, int destOffset) {
+        CachedPlane.checkRange(points.length, offset, count * 3);
+        CachedPlane.checkRange(dest.length, destOffset, count);
+        double[] c = CachedPlane.coefficients(this);
+        double a = c[0], b = c[1], cc = c[2], d = c[3];
+        for(int p = 0; p < count; p++) {
+            int i = offset + p * 3;
+            dest[destOffset + p] =
+                    a * points[i] + b * points[i + 1] + cc * points[i + 2] + d;
+        }
+    }
+    
+    /**
+     * Find which side of this plane each point in an array is on.
+     * @param points 3 values for each point: its x, y and z coordinates, in
+     * the same layout as Vector3.toArray()
+     * @param offset the index in points of the first point
+     * @param count the number of points
+     * @param epsilon points closer to the plane than this are ON it
+     * @param dest receives the side of the plane for each point
+     * @param destOffset the index in dest for the first side
+     * @return the number of points in FRONT of the plane
+     */
+    public default int classify(double[] points, int offset, int count,
+            double epsilon, Side[] dest, int destOffset) {
+        CachedPlane.checkRange(points.length, offset, count * 3);
+        CachedPlane.checkRange(dest.length, destOffset, count);
+        double[] c = CachedPlane.coefficients(this);
+        double a = c[0], b = c[1], cc = c[2], d = c[3];
+        int front = 0;
+        for(int p = 0; p < count; p++) {
+            int i = offset + p * 3;
+            Side side = CachedPlane.side(
+                    a * points[i] + b * points[i + 1] + cc * points[i + 2] + d,
+                    epsilon);
+            dest[destOffset + p] = side;
+            if(side == Side.FRONT)
+                front++;
+        }
+        return front;
+    }
 }
@@ -1,5 +1,6 @@
 package math3d;
 
+import java.nio.IntBuffer;
 import java.util.*;
 
 /**
@@ -55,6 +56,22 @@ public interface Polygon {
         }
     }
     
+    /**
+     * Receives the triangles of a polygon from triangulate(), as indices of
+     * vertices instead of new Polygon objects.
+     */
+    @FunctionalInterface
+    public interface TriangleConsumer {
+        /**
+         * Accept one triangle. The vertices are given in the same
+         * VertexOrder as the polygon.
+         * @param i0 the index of the first vertex
+         * @param i1 the index of the second vertex
+         * @param i2 the index of the third vertex
+         */
+        public void accept(int i0, int i1, int i2);
+    }
+    
     /**
      * Specifies the number of sides of the polygon. Some types are easier to
      * draw than others.
@@ -125,4 +142,72 @@ public interface Polygon {
      * particular order
      */
     public Collection<Polygon> getTriangles();
+    
+    /**
+     * Get the number of triangles that triangulate() produces.
+     * @return the number of triangles
+     */
+    public default int getTriangleCount() {
+        return getVertexCount() - 2;
+    }
+    
+    /**
+     * Divide this polygon into triangles without creating any objects. Each
+     * triangle is given to the consumer as 3 indices into the list returned
+     * by getVertices(), in this polygon's VertexOrder. Every triangle has the
+     * same normal as this polygon.
+     * 
+     * The default implementation draws diagonals from the first vertex, which
+     * only works for convex polygons.
+     * @param consumer receives each triangle
+     */
+    public default void triangulate(TriangleConsumer consumer) {
+        int count = getVertexCount();
+        for(int i = 2; i < count; i++)
+            consumer.accept(0, i - 1, i);
+    }
+    
+    /**
+     * Divide this polygon into triangles, and write the vertex indices of
+     * each triangle to an array. See triangulate(TriangleConsumer).
+     * @param dest the array to write to. Must have room for
+     * 3 * getTriangleCount() indices after offset.
+     * @param offset the position in dest to write the first index
+     * @param base a number added to every index, so the indices of many
+     * polygons can be written to the same array
+     * @return the number of indices written
+     */
+    public default int triangulate(int[] dest, int offset, int base) {
+        int length = getTriangleCount() * 3;
+        if(offset < 0 || offset + length > dest.length)
+            throw new IndexOutOfBoundsException("offset " + offset
+                    + ", length " + length + ", array length " + dest.length);
+        int[] position = {offset};
+        triangulate((i0, i1, i2) -> {
+            int p = position[0];
+            dest[p] = i0 + base;
+            dest[p + 1] = i1 + base;
+            dest[p + 2] = i2 + base;
+            position[0] = p + 3;
+        });
+        return length;
+    }
+    
+    /**
+     * Divide this polygon into triangles, and put the vertex indices of each
+     * triangle in a buffer, starting at its current position. See
+     * triangulate(TriangleConsumer).
+     * @param dest the buffer to write to
+     * @param base a number added to every index
+     * @return the number of indices written
+     */
+    public default int triangulate(IntBuffer dest, int base) {
+        int start = dest.position();
+        triangulate((i0, i1, i2) -> {
+            dest.put(i0 + base);
+            dest.put(i1 + base);
+            dest.put(i2 + base);
+        });
+        return dest.position() - start;
+    }
 }
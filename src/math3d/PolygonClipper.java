@@ -0,0 +1,309 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.Vertex;
+
+/**
+ * Clips convex polygons against planes, using the Sutherland-Hodgman
+ * algorithm. Polygons can be clipped to the part in front of a plane (the side
+ * its normal points to), to the part in front of several planes, or split into
+ * front and back parts. The results are ConvexPolygons with the same
+ * VertexOrder and normal as the original polygon. Where an edge crosses the
+ * plane, a new vertex is created with a normal interpolated between the
+ * normals at the ends of the edge.
+ *
+ * The intermediate polygons are kept in scratch buffers that are reused for
+ * every polygon, so the only objects created are the resulting polygons and
+ * their new vertices. Polygons that don't need to be clipped are returned
+ * as-is if they are already ConvexPolygons. A PolygonClipper isn't thread
+ * safe; use one for each thread.
+ *
+ * Vertices closer to a plane than the epsilon are counted as on the plane, so
+ * a polygon that only touches a plane isn't cut into a sliver and a tiny
+ * extra part.
+ * @author vanjac
+ */
+public class PolygonClipper {
+    public static final double DEFAULT_EPSILON = 1E-9;
+    
+    //which side of a plane a whole polygon is on
+    private static final int FRONT = 0;
+    private static final int BACK = 1;
+    private static final int ON = 2;
+    private static final int SPANNING = 3;
+    
+    /**
+     * A list of polygon vertices in separate arrays, which grow as needed.
+     */
+    private static final class Scratch {
+        double[] x = new double[8], y = new double[8], z = new double[8];
+        Direction3[] normal = new Direction3[8];
+        //the vertex of the original polygon, or null for new vertices
+        Vertex[] original = new Vertex[8];
+        int size;
+        
+        void add(double vx, double vy, double vz, Direction3 n, Vertex v) {
+            if(size == x.length) {
+                int capacity = size * 2;
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                z = Arrays.copyOf(z, capacity);
+                normal = Arrays.copyOf(normal, capacity);
+                original = Arrays.copyOf(original, capacity);
+            }
+            x[size] = vx;
+            y[size] = vy;
+            z[size] = vz;
+            normal[size] = n;
+            original[size] = v;
+            size++;
+        }
+        
+        void add(Vertex v) {
+            Vector3 p = v.getPosition();
+            add(p.getX(), p.getY(), p.getZ(), v.getNormal(), v);
+        }
+    }
+    
+    private final double epsilon;
+    private Scratch current = new Scratch();
+    private Scratch next = new Scratch();
+    private Scratch behind = new Scratch();
+    private double[] distances = new double[8];
+    //whether current is different from the loaded polygon
+    private boolean clipped;
+    
+    /**
+     * Create a new PolygonClipper with the DEFAULT_EPSILON.
+     */
+    public PolygonClipper() {
+        this(DEFAULT_EPSILON);
+    }
+    
+    /**
+     * Create a new PolygonClipper.
+     * @param epsilon vertices closer to a plane than this are counted as on
+     * the plane
+     */
+    public PolygonClipper(double epsilon) {
+        if(!(epsilon >= 0))
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        this.epsilon = epsilon;
+    }
+    
+    public double getEpsilon() {
+        return epsilon;
+    }
+    
+    /**
+     * Clip a polygon to the part in front of a plane. If the polygon is in
+     * the plane, it is kept.
+     * @param p the polygon. Must be convex, like a ConvexPolygon or Triangle.
+     * @param plane the plane
+     * @return the clipped polygon, or null if no part of it is in front of
+     * the plane
+     */
+    public ConvexPolygon clip(Polygon p, Plane plane) {
+        load(p);
+        if(!clipCurrent(CachedPlane.coefficients(plane)))
+            return null;
+        return result(p);
+    }
+    
+    /**
+     * Clip a polygon to the part in front of all of several planes, such as
+     * the planes of a Frustum or a portal.
+     * @param p the polygon. Must be convex, like a ConvexPolygon or Triangle.
+     * @param planes the planes
+     * @return the clipped polygon, or null if no part of it is in front of
+     * all the planes
+     */
+    public ConvexPolygon clip(Polygon p, Plane[] planes) {
+        load(p);
+        for(Plane plane : planes) {
+            if(!clipCurrent(CachedPlane.coefficients(plane)))
+                return null;
+        }
+        return result(p);
+    }
+    
+    /**
+     * Split a polygon into the parts in front of and behind a plane. A
+     * polygon in the plane goes to the front if it faces the same way as the
+     * plane, otherwise to the back.
+     * @param p the polygon. Must be convex, like a ConvexPolygon or Triangle.
+     * @param plane the plane
+     * @param front receives the part in front of the plane, if there is one
+     * @param back receives the part behind the plane, if there is one
+     */
+    public void split(Polygon p, Plane plane,
+            Collection<? super ConvexPolygon> front,
+            Collection<? super ConvexPolygon> back) {
+        load(p);
+        double[] c = CachedPlane.coefficients(plane);
+        int side = measure(current, c);
+        if(side == ON) {
+            Vector3 n = p.getNormal().getUnitVector();
+            side = n.getX() * c[0] + n.getY() * c[1] + n.getZ() * c[2] >= 0
+                    ? FRONT : BACK;
+        }
+        switch(side) {
+            case FRONT:
+                front.add(unchanged(p));
+                break;
+            case BACK:
+                back.add(unchanged(p));
+                break;
+            default:
+                clip(current, next, 1);
+                clip(current, behind, -1);
+                front.add(build(next, p));
+                back.add(build(behind, p));
+        }
+    }
+    
+    /**
+     * Clip every polygon in a collection against several planes, and add the
+     * parts in front of all the planes to dest. See clip(Polygon, Plane[]).
+     * @param polygons the polygons. Must be convex.
+     * @param planes the planes
+     * @param dest receives the clipped polygons
+     * @return the number of polygons added to dest
+     */
+    public int clipAll(Iterable<? extends Polygon> polygons, Plane[] planes,
+            Collection<? super ConvexPolygon> dest) {
+        int count = 0;
+        for(Polygon p : polygons) {
+            ConvexPolygon part = clip(p, planes);
+            if(part != null) {
+                dest.add(part);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Split every polygon in a collection by a plane. See split().
+     * @param polygons the polygons. Must be convex.
+     * @param plane the plane
+     * @param front receives the parts in front of the plane
+     * @param back receives the parts behind the plane
+     */
+    public void splitAll(Iterable<? extends Polygon> polygons, Plane plane,
+            Collection<? super ConvexPolygon> front,
+            Collection<? super ConvexPolygon> back) {
+        for(Polygon p : polygons)
+            split(p, plane, front, back);
+    }
+    
+    private void load(Polygon p) {
+        current.size = 0;
+        clipped = false;
+        if(p instanceof ConvexPolygon) {
+            ConvexPolygon convex = (ConvexPolygon)p;
+            for(int i = 0, n = convex.getVertexCount(); i < n; i++)
+                current.add(convex.vertex(i));
+        } else if(p instanceof Triangle) {
+            Triangle triangle = (Triangle)p;
+            for(int i = 0; i < 3; i++)
+                current.add(triangle.vertex(i));
+        } else {
+            for(Vertex v : p.getVertices())
+                current.add(v);
+        }
+    }
+    
+    //keep the part of current in front of a plane. Returns false if there is
+    //nothing left.
+    private boolean clipCurrent(double[] c) {
+        int side = measure(current, c);
+        if(side == BACK)
+            return false;
+        if(side == SPANNING) {
+            clip(current, next, 1);
+            Scratch temp = current;
+            current = next;
+            next = temp;
+            clipped = true;
+        }
+        return true;
+    }
+    
+    //find the distance to each vertex, and which side the polygon is on
+    private int measure(Scratch s, double[] c) {
+        if(distances.length < s.size)
+            distances = new double[Math.max(s.size, distances.length * 2)];
+        boolean anyFront = false, anyBack = false;
+        for(int i = 0; i < s.size; i++) {
+            double d = c[0] * s.x[i] + c[1] * s.y[i] + c[2] * s.z[i] + c[3];
+            distances[i] = d;
+            if(d > epsilon)
+                anyFront = true;
+            else if(d < -epsilon)
+                anyBack = true;
+        }
+        if(anyFront)
+            return anyBack ? SPANNING : FRONT;
+        return anyBack ? BACK : ON;
+    }
+    
+    //keep the part of in on one side of the plane measured last: 1 for the
+    //front, -1 for the back
+    private void clip(Scratch in, Scratch out, int sign) {
+        out.size = 0;
+        int n = in.size;
+        for(int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            double da = distances[i], db = distances[j];
+            if(sign * da >= -epsilon)
+                out.add(in.x[i], in.y[i], in.z[i], in.normal[i],
+                        in.original[i]);
+            if((da > epsilon && db < -epsilon)
+                    || (da < -epsilon && db > epsilon)) {
+                double t = da / (da - db);
+                out.add(in.x[i] + (in.x[j] - in.x[i]) * t,
+                        in.y[i] + (in.y[j] - in.y[i]) * t,
+                        in.z[i] + (in.z[j] - in.z[i]) * t,
+                        interpolate(in.normal[i], in.normal[j], t), null);
+            }
+        }
+    }
+    
+    private static Direction3 interpolate(Direction3 a, Direction3 b,
+            double t) {
+        if(a == b || a.equals(b))
+            return a;
+        Vector3 va = a.getUnitVector(), vb = b.getUnitVector();
+        Vector3 v = va.lerp(vb, t);
+        double magnitude = v.magnitude();
+        if(magnitude == 0)
+            return t < 0.5 ? a : b; //opposite normals
+        return new Direction3(v.multiply(1 / magnitude));
+    }
+    
+    private ConvexPolygon build(Scratch s, Polygon source) {
+        if(s.size < 3)
+            return null;
+        List<Vertex> vertices = new ArrayList<>(s.size);
+        for(int i = 0; i < s.size; i++) {
+            Vertex v = s.original[i];
+            if(v == null)
+                v = new Vertex(new Vector3(s.x[i], s.y[i], s.z[i]),
+                        s.normal[i]);
+            vertices.add(v);
+        }
+        return new ConvexPolygon(vertices, source.getVertexOrder(),
+                source.getNormal());
+    }
+    
+    private ConvexPolygon result(Polygon p) {
+        return clipped ? build(current, p) : unchanged(p);
+    }
+    
+    private ConvexPolygon unchanged(Polygon p) {
+        if(p instanceof ConvexPolygon)
+            return (ConvexPolygon)p;
+        return build(current, p);
+    }
+}
@@ -0,0 +1,321 @@
+package math3d;
+
+/**
+ * A quaternion, used to represent a rotation in 3d space. Unlike Rotation3,
+ * quaternions can be combined with a multiplication instead of adding angles,
+ * and can rotate vectors without any trigonometry. All of the rotation
+ * methods assume the quaternion is a unit quaternion (see normalize()).
+ * @author vanjac
+ */
+public class Quaternion {
+    public static final Quaternion IDENTITY = new Quaternion(1, 0, 0, 0);
+    
+    //above this dot product, slerp() uses nlerp() instead
+    private static final double SLERP_THRESHOLD = 0.9995;
+    
+    private final double w;
+    private final double x;
+    private final double y;
+    private final double z;
+    
+    /**
+     * Create a new Quaternion from its 4 components.
+     * @param w the real (scalar) component
+     * @param x the i component
+     * @param y the j component
+     * @param z the k component
+     */
+    public Quaternion(double w, double x, double y, double z) {
+        this.w = w;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+    
+    /**
+     * Create a unit Quaternion that rotates vectors the same way as a
+     * Rotation3.
+     * @param r the rotation to convert
+     */
+    public Quaternion(Rotation3 r) {
+        //Vector3.rotate applies roll (x), then pitch (y), then yaw (z).
+        //Pitch rotates z towards x, which is the opposite of the right-handed
+        //rotation around y, so its angle is negated.
+        double hx = r.getXRotation() / 2;
+        double hy = -r.getYRotation() / 2;
+        double hz = r.getZRotation() / 2;
+        double sx = Math.sin(hx), cx = Math.cos(hx);
+        double sy = Math.sin(hy), cy = Math.cos(hy);
+        double sz = Math.sin(hz), cz = Math.cos(hz);
+        
+        //z * y * x
+        w = cz * cy * cx + sz * sy * sx;
+        x = cz * cy * sx - sz * sy * cx;
+        y = cz * sy * cx + sz * cy * sx;
+        z = sz * cy * cx - cz * sy * sx;
+    }
+    
+    /**
+     * Create a unit Quaternion that rotates Direction3.BASE_ROTATION to point
+     * in a direction, with no roll.
+     * @param d the direction to convert
+     */
+    public Quaternion(Direction3 d) {
+        this(new Rotation3(d, 0));
+    }
+    
+    /**
+     * Create a unit Quaternion that rotates around an axis.
+     * @param axis the axis to rotate around. Must be a vector of magnitude 1;
+     * this will not be checked, but it is assumed
+     * @param angle the angle to rotate, in radians. Positive angles are
+     * counter-clockwise when looking towards the origin from the axis.
+     * @return a new Quaternion
+     */
+    public static Quaternion fromAxisAngle(Vector3 axis, double angle) {
+        double s = Math.sin(angle / 2);
+        return new Quaternion(Math.cos(angle / 2),
+                axis.getX() * s, axis.getY() * s, axis.getZ() * s);
+    }
+    
+    @Override
+    public String toString() {
+        return Double.toString(w) + ", " +
+                Double.toString(x) + ", " +
+                Double.toString(y) + ", " +
+                Double.toString(z);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(o == null)
+            return false;
+        if(!(o instanceof Quaternion))
+            return false;
+        if(o == this)
+            return true;
+        
+        Quaternion q = (Quaternion)o;
+        return getW() == q.getW()
+                && getX() == q.getX()
+                && getY() == q.getY()
+                && getZ() == q.getZ();
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 53 * hash + (int) (Double.doubleToLongBits(this.w) ^ (Double.doubleToLongBits(this.w) >>> 32));
+        hash = 53 * hash + (int) (Double.doubleToLongBits(this.x) ^ (Double.doubleToLongBits(this.x) >>> 32));
+        hash = 53 * hash + (int) (Double.doubleToLongBits(this.y) ^ (Double.doubleToLongBits(this.y) >>> 32));
+        hash = 53 * hash + (int) (Double.doubleToLongBits(this.z) ^ (Double.doubleToLongBits(this.z) >>> 32));
+        return hash;
+    }
+    
+    public double getW() {
+        return w;
+    }
+    
+    public double getX() {
+        return x;
+    }
+    
+    public double getY() {
+        return y;
+    }
+    
+    public double getZ() {
+        return z;
+    }
+    
+    /**
+     * Get the 3x3 rotation matrix for this quaternion, in the same row-major
+     * layout as Rotation3.getMatrix().
+     * @return a new array of 9 values
+     */
+    public double[] getMatrix() {
+        double xx = x * x, yy = y * y, zz = z * z;
+        double xy = x * y, xz = x * z, yz = y * z;
+        double wx = w * x, wy = w * y, wz = w * z;
+        return new double[] {
+            1 - 2 * (yy + zz), 2 * (xy - wz),     2 * (xz + wy),
+            2 * (xy + wz),     1 - 2 * (xx + zz), 2 * (yz - wx),
+            2 * (xz - wy),     2 * (yz + wx),     1 - 2 * (xx + yy)
+        };
+    }
+    
+    /**
+     * Convert this quaternion to an equivalent Rotation3.
+     * @return a new Rotation3
+     */
+    public Rotation3 toRotation3() {
+        //see Rotation3.calculateMatrix() for the layout of the matrix
+        double m20 = 2 * (x * z - w * y);
+        double yRot = Math.asin(Math.max(-1, Math.min(1, m20)));
+        double xRot, zRot;
+        if(Math.abs(m20) < 1 - 1E-12) {
+            xRot = Math.atan2(2 * (y * z + w * x), 1 - 2 * (x * x + y * y));
+            zRot = Math.atan2(2 * (x * y + w * z), 1 - 2 * (y * y + z * z));
+        } else {
+            //gimbal lock: roll and yaw are around the same axis
+            xRot = 0;
+            zRot = Math.atan2(-2 * (x * y - w * z), 1 - 2 * (x * x + z * z));
+        }
+        return new Rotation3(Vector2.fixRotation(xRot), yRot, zRot);
+    }
+    
+    /**
+     * Get the direction that Direction3.BASE_ROTATION points after being
+     * rotated by this quaternion.
+     * @return a new Direction3
+     */
+    public Direction3 toDirection3() {
+        //the first column of the rotation matrix
+        return new Direction3(new Vector3(
+                1 - 2 * (y * y + z * z),
+                2 * (x * y + w * z),
+                2 * (x * z - w * y)
+        ));
+    }
+    
+    /**
+     * Combine this rotation with another. The result rotates vectors by q
+     * first, then by this quaternion.
+     * @param q the other quaternion
+     * @return the product of the two
+     */
+    public Quaternion multiply(Quaternion q) {
+        return new Quaternion(
+                w * q.w - x * q.x - y * q.y - z * q.z,
+                w * q.x + x * q.w + y * q.z - z * q.y,
+                w * q.y - x * q.z + y * q.w + z * q.x,
+                w * q.z + x * q.y - y * q.x + z * q.w
+        );
+    }
+    
+    /**
+     * Get the conjugate of this quaternion. For a unit quaternion this is the
+     * opposite rotation.
+     * @return the conjugate
+     */
+    public Quaternion conjugate() {
+        return new Quaternion(w, -x, -y, -z);
+    }
+    
+    /**
+     * Get the multiplicative inverse of this quaternion. This works for
+     * quaternions that aren't normalized; for unit quaternions conjugate() is
+     * faster.
+     * @return the inverse
+     */
+    public Quaternion inverse() {
+        double n = magnitudeSquare();
+        return new Quaternion(w / n, -x / n, -y / n, -z / n);
+    }
+    
+    /**
+     * Returns the dot product of this quaternion and another quaternion
+     * @param q the other quaternion
+     * @return the dot product of the two
+     */
+    public double dot(Quaternion q) {
+        return w * q.w + x * q.x + y * q.y + z * q.z;
+    }
+    
+    public double magnitude() {
+        return Math.sqrt(magnitudeSquare());
+    }
+    
+    public double magnitudeSquare() {
+        return w * w + x * x + y * y + z * z;
+    }
+    
+    /**
+     * Return a new unit quaternion representing the same rotation. Rounding
+     * errors build up when many quaternions are multiplied together, so this
+     * should be used every so often.
+     * @return a unit quaternion
+     */
+    public Quaternion normalize() {
+        double scale = 1 / magnitude();
+        return new Quaternion(w * scale, x * scale, y * scale, z * scale);
+    }
+    
+    /**
+     * Rotate a vector by this quaternion.
+     * @param v the vector to rotate
+     * @return a new, rotated vector
+     */
+    public Vector3 rotate(Vector3 v) {
+        return rotate(new MutableVector3(v)).toVector3();
+    }
+    
+    /**
+     * Rotate a mutable vector by this quaternion, without any allocation.
+     * @param v the vector to rotate. It will be changed.
+     * @return v
+     */
+    public MutableVector3 rotate(MutableVector3 v) {
+        //v + w*t + cross(q, t), where t = 2*cross(q, v)
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        double tx = 2 * (y * vz - z * vy);
+        double ty = 2 * (z * vx - x * vz);
+        double tz = 2 * (x * vy - y * vx);
+        return v.set(
+                vx + w * tx + (y * tz - z * ty),
+                vy + w * ty + (z * tx - x * tz),
+                vz + w * tz + (x * ty - y * tx)
+        );
+    }
+    
+    /**
+     * Normalized linear interpolation between this quaternion and another.
+     * This is faster than slerp() but doesn't rotate at a constant speed.
+     * @param q the other quaternion
+     * @param amount amount to move between rotations. 0 returns this rotation.
+     * 1 returns the other rotation.
+     * @return a new unit quaternion between the two
+     */
+    public Quaternion nlerp(Quaternion q, double amount) {
+        //take the shortest path
+        double sign = dot(q) < 0 ? -1 : 1;
+        double a = 1 - amount;
+        double b = amount * sign;
+        return new Quaternion(
+                w * a + q.w * b,
+                x * a + q.x * b,
+                y * a + q.y * b,
+                z * a + q.z * b
+        ).normalize();
+    }
+    
+    /**
+     * Spherical linear interpolation between this quaternion and another.
+     * The rotation moves at a constant angular speed along the shortest path.
+     * @param q the other quaternion
+     * @param amount amount to move between rotations. 0 returns this rotation.
+     * 1 returns the other rotation.
+     * @return a new unit quaternion between the two
+     */
+    public Quaternion slerp(Quaternion q, double amount) {
+        double d = dot(q);
+        double sign = 1;
+        if(d < 0) { //take the shortest path
+            d = -d;
+            sign = -1;
+        }
+        if(d > SLERP_THRESHOLD) //too close to divide by sin(theta)
+            return nlerp(q, amount);
+        
+        double theta = Math.acos(d);
+        double sinTheta = Math.sin(theta);
+        double a = Math.sin((1 - amount) * theta) / sinTheta;
+        double b = Math.sin(amount * theta) / sinTheta * sign;
+        return new Quaternion(
+                w * a + q.w * b,
+                x * a + q.x * b,
+                y * a + q.y * b,
+                z * a + q.z * b
+        );
+    }
+}
@@ -0,0 +1,279 @@
+package math3d;
+
+import java.util.Objects;
+
+/**
+ * An immutable ray in 3d space: a starting point and a direction. The
+ * direction doesn't have to be a unit vector; all distances are measured in
+ * multiples of its length, so they are actual distances only if it is.
+ *
+ * Intersections use the Moller-Trumbore algorithm and don't allocate any
+ * objects. Triangles and polygons are double-sided, and only hits in front of
+ * the origin (at a distance greater than 0) count. A miss is returned as a
+ * distance of Double.POSITIVE_INFINITY, so the closest of several hits can be
+ * found with Math.min().
+ * @author vanjac
+ */
+public class Ray {
+    private final Vector3 origin;
+    private final Vector3 direction;
+    
+    /**
+     * Create a new Ray from a starting point and a direction vector.
+     * @param origin the start of the ray
+     * @param direction the direction of the ray. Doesn't need to be a unit
+     * vector.
+     */
+    public Ray(Vector3 origin, Vector3 direction) {
+        this.origin = origin;
+        this.direction = direction;
+    }
+    
+    /**
+     * Create a new Ray from a starting point and a Direction3. Distances along
+     * the ray will be actual distances.
+     * @param origin the start of the ray
+     * @param direction the direction of the ray
+     */
+    public Ray(Vector3 origin, Direction3 direction) {
+        this(origin, direction.getUnitVector());
+    }
+    
+    @Override
+    public String toString() {
+        return "Ray [ (" + origin.toString() + ") (" + direction.toString()
+                + ") ]";
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(o == null)
+            return false;
+        if(!(o instanceof Ray))
+            return false;
+        if(o == this)
+            return true;
+        
+        Ray r = (Ray)o;
+        return origin.equals(r.getOrigin())
+                && direction.equals(r.getDirection());
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 41 * hash + Objects.hashCode(this.origin);
+        hash = 41 * hash + Objects.hashCode(this.direction);
+        return hash;
+    }
+    
+    public Vector3 getOrigin() {
+        return origin;
+    }
+    
+    public Vector3 getDirection() {
+        return direction;
+    }
+    
+    /**
+     * Get the point at a distance along this ray.
+     * @param distance the distance, in multiples of the direction's length
+     * @return origin + direction * distance
+     */
+    public Vector3 getPoint(double distance) {
+        return new Vector3(
+                origin.getX() + direction.getX() * distance,
+                origin.getY() + direction.getY() * distance,
+                origin.getZ() + direction.getZ() * distance
+        );
+    }
+    
+    /**
+     * Find where this ray hits a triangle.
+     * @param t the triangle
+     * @return the distance to the hit, or Double.POSITIVE_INFINITY if the ray
+     * misses
+     */
+    public double intersect(Triangle t) {
+        return intersect(t.position(0), t.position(1), t.position(2));
+    }
+    
+    /**
+     * Find where this ray hits a convex polygon.
+     * @param p the polygon
+     * @return the distance to the hit, or Double.POSITIVE_INFINITY if the ray
+     * misses
+     */
+    public double intersect(ConvexPolygon p) {
+        //test each triangle in the fan from the first vertex. They are all in
+        //the same plane, so the first hit is the only one.
+        Vector3 first = p.position(0);
+        int count = p.getVertexCount();
+        for(int i = 2; i < count; i++) {
+            double d = intersect(first, p.position(i - 1), p.position(i));
+            if(d != Double.POSITIVE_INFINITY)
+                return d;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Find where this ray hits a plane.
+     * @param p the plane
+     * @return the distance to the hit, or Double.POSITIVE_INFINITY if the ray
+     * is parallel to the plane or points away from it
+     */
+    public double intersect(Plane p) {
+        double[] c = CachedPlane.coefficients(p);
+        double denominator = c[0] * direction.getX() + c[1] * direction.getY()
+                + c[2] * direction.getZ();
+        if(denominator == 0)
+            return Double.POSITIVE_INFINITY;
+        double d = -(c[0] * origin.getX() + c[1] * origin.getY()
+                + c[2] * origin.getZ() + c[3]) / denominator;
+        return d > 0 ? d : Double.POSITIVE_INFINITY;
+    }
+    
+    private double intersect(Vector3 a, Vector3 b, Vector3 c) {
+        return intersectTriangle(
+                origin.getX(), origin.getY(), origin.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(),
+                a.getX(), a.getY(), a.getZ(),
+                b.getX(), b.getY(), b.getZ(),
+                c.getX(), c.getY(), c.getZ());
+    }
+    
+    /**
+     * Find where this ray hits each triangle in an array.
+     * @param triangles 9 values for each triangle: the x, y and z coordinates
+     * of each of its 3 vertices
+     * @param offset the index in triangles of the first triangle
+     * @param count the number of triangles
+     * @param dest receives the distance to each triangle, or
+     * Double.POSITIVE_INFINITY for triangles that the ray misses
+     * @param destOffset the index in dest for the first distance
+     * @return the index of the closest triangle that was hit (0 for the
+     * first triangle), or -1 if none were hit
+     */
+    public int intersectAll(double[] triangles, int offset, int count,
+            double[] dest, int destOffset) {
+        checkRange(triangles, offset, count * 9);
+        checkRange(dest, destOffset, count);
+        double ox = origin.getX(), oy = origin.getY(), oz = origin.getZ();
+        double dx = direction.getX(), dy = direction.getY();
+        double dz = direction.getZ();
+        int closest = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for(int t = 0; t < count; t++) {
+            int i = offset + t * 9;
+            double d = intersectTriangle(ox, oy, oz, dx, dy, dz,
+                    triangles[i], triangles[i + 1], triangles[i + 2],
+                    triangles[i + 3], triangles[i + 4], triangles[i + 5],
+                    triangles[i + 6], triangles[i + 7], triangles[i + 8]);
+            dest[destOffset + t] = d;
+            if(d < closestDistance) {
+                closestDistance = d;
+                closest = t;
+            }
+        }
+        return closest;
+    }
+    
+    /**
+     * Find where each ray in an array hits one triangle.
+     * @param rays 6 values for each ray: the x, y and z coordinates of the
+     * origin, then of the direction
+     * @param offset the index in rays of the first ray
+     * @param count the number of rays
+     * @param t the triangle
+     * @param dest receives the distance along each ray, or
+     * Double.POSITIVE_INFINITY for rays that miss the triangle
+     * @param destOffset the index in dest for the first distance
+     * @return the number of rays that hit the triangle
+     */
+    public static int intersectAll(double[] rays, int offset, int count,
+            Triangle t, double[] dest, int destOffset) {
+        checkRange(rays, offset, count * 6);
+        checkRange(dest, destOffset, count);
+        Vector3 a = t.position(0), b = t.position(1), c = t.position(2);
+        double ax = a.getX(), ay = a.getY(), az = a.getZ();
+        //the edges are the same for every ray
+        double e1x = b.getX() - ax, e1y = b.getY() - ay, e1z = b.getZ() - az;
+        double e2x = c.getX() - ax, e2y = c.getY() - ay, e2z = c.getZ() - az;
+        int hits = 0;
+        for(int r = 0; r < count; r++) {
+            int i = offset + r * 6;
+            double d = intersectEdges(rays[i], rays[i + 1], rays[i + 2],
+                    rays[i + 3], rays[i + 4], rays[i + 5],
+                    ax, ay, az, e1x, e1y, e1z, e2x, e2y, e2z);
+            dest[destOffset + r] = d;
+            if(d != Double.POSITIVE_INFINITY)
+                hits++;
+        }
+        return hits;
+    }
+    
+    /**
+     * Find where a ray hits a triangle, from the coordinates of both.
+     * @param ox the x coordinate of the origin of the ray
+     * @param oy the y coordinate of the origin of the ray
+     * @param oz the z coordinate of the origin of the ray
+     * @param dx the x coordinate of the direction of the ray
+     * @param dy etc.
+     * @param dz
+     * @param ax the x coordinate of the first vertex of the triangle
+     * @param ay
+     * @param az
+     * @param bx the x coordinate of the second vertex of the triangle
+     * @param by
+     * @param bz
+     * @param cx the x coordinate of the third vertex of the triangle
+     * @param cy
+     * @param cz
+     * @return the distance to the hit, or Double.POSITIVE_INFINITY if the ray
+     * misses
+     */
+    public static double intersectTriangle(
+            double ox, double oy, double oz,
+            double dx, double dy, double dz,
+            double ax, double ay, double az,
+            double bx, double by, double bz,
+            double cx, double cy, double cz) {
+        return intersectEdges(ox, oy, oz, dx, dy, dz, ax, ay, az,
+                bx - ax, by - ay, bz - az, cx - ax, cy - ay, cz - az);
+    }
+    
+    //Moller-Trumbore, with the edges from the first vertex already calculated
+    private static double intersectEdges(
+            double ox, double oy, double oz,
+            double dx, double dy, double dz,
+            double ax, double ay, double az,
+            double e1x, double e1y, double e1z,
+            double e2x, double e2y, double e2z) {
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if(det == 0)
+            return Double.POSITIVE_INFINITY; //parallel
+        double inv = 1 / det;
+        double sx = ox - ax, sy = oy - ay, sz = oz - az;
+        double u = (sx * px + sy * py + sz * pz) * inv;
+        if(u < 0 || u > 1)
+            return Double.POSITIVE_INFINITY;
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = (dx * qx + dy * qy + dz * qz) * inv;
+        if(v < 0 || u + v > 1)
+            return Double.POSITIVE_INFINITY;
+        double d = (e2x * qx + e2y * qy + e2z * qz) * inv;
+        return d > 0 ? d : Double.POSITIVE_INFINITY;
+    }
+    
+    private static void checkRange(double[] array, int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > array.length)
+            throw new IndexOutOfBoundsException("offset " + offset
+                    + ", length " + length + ", array length " + array.length);
+    }
+}
@@ -12,6 +12,10 @@ public class Rotation3 {
     private final Direction3 direction;
     private final double roll;
     
+    //calculated the first time it is needed. Assigned only after the array is
+    //filled, so other threads either see null or the complete matrix.
+    private volatile double[] matrix;
+    
     /**
      * Create a new Rotation3 from x-, y-, and z-axis rotation values.
      * @param xRot rotation around x axis, in radians
@@ -117,6 +121,96 @@ public class Rotation3 {
         return direction;
     }
     
+    /**
+     * Get the 3x3 matrix for this rotation, in row-major order. Multiplying
+     * the matrix by a vector rotates it the same way as Vector3.rotate().
+     * @return a new array of 9 values
+     */
+    public double[] getMatrix() {
+        return matrix().clone();
+    }
+    
+    /**
+     * Get the cached rotation matrix, calculating it if this is the first
+     * time. The array is shared, so it must not be modified.
+     * @return an array of 9 values, in row-major order
+     */
+    double[] matrix() {
+        double[] m = matrix;
+        if(m == null) {
+            m = calculateMatrix();
+            matrix = m;
+        }
+        return m;
+    }
+    
+    private double[] calculateMatrix() {
+        //same order as Vector3.rotate: roll (x), then pitch (y), then yaw (z)
+        double sx = Math.sin(getXRotation()), cx = Math.cos(getXRotation());
+        double sy = Math.sin(getYRotation()), cy = Math.cos(getYRotation());
+        double sz = Math.sin(getZRotation()), cz = Math.cos(getZRotation());
+        
+        return new double[] {
+            cz * cy, -cz * sy * sx - sz * cx, -cz * sy * cx + sz * sx,
+            sz * cy, -sz * sy * sx + cz * cx, -sz * sy * cx - cz * sx,
+            sy,      cy * sx,                 cy * cx
+        };
+    }
+    
+    /**
+     * Rotate many vectors stored in an array, in the same layout as
+     * Vector3.toArray(): x, y, z, then the next vector's x, y, z, and so on.
+     * No objects are created for the vectors.
+     * @param src the array of vectors to rotate
+     * @param srcOff the index in src of the first vector's x coordinate
+     * @param dst the array to store the rotated vectors in. Can be src; if
+     * src and dst are the same array, dstOff must be equal to srcOff or the
+     * ranges must not overlap.
+     * @param dstOff the index in dst to store the first rotated vector
+     * @param count the number of vectors to rotate
+     */
+    public void rotateAll(double[] src, int srcOff,
+            double[] dst, int dstOff, int count) {
+        rotateAll(src, srcOff, dst, dstOff, count, 0, 1, 2);
+    }
+    
+    /**
+     * Rotate many vectors stored in an array, in the same layout as
+     * Vector3.toGlArray(): y, z, x, then the next vector's y, z, x, and so on.
+     * Otherwise the same as rotateAll().
+     * @param src the array of vectors to rotate
+     * @param srcOff the index in src of the first vector's y coordinate
+     * @param dst the array to store the rotated vectors in. Can be src.
+     * @param dstOff the index in dst to store the first rotated vector
+     * @param count the number of vectors to rotate
+     */
+    public void rotateAllGl(double[] src, int srcOff,
+            double[] dst, int dstOff, int count) {
+        rotateAll(src, srcOff, dst, dstOff, count, 2, 0, 1);
+    }
+    
+    private void rotateAll(double[] src, int srcOff,
+            double[] dst, int dstOff, int count, int xi, int yi, int zi) {
+        if(count < 0 || srcOff < 0 || dstOff < 0
+                || srcOff + count * 3 > src.length
+                || dstOff + count * 3 > dst.length)
+            throw new IndexOutOfBoundsException("count " + count
+                    + ", srcOff " + srcOff + ", src length " + src.length
+                    + ", dstOff " + dstOff + ", dst length " + dst.length);
+        
+        double[] m = matrix();
+        double m00 = m[0], m01 = m[1], m02 = m[2];
+        double m10 = m[3], m11 = m[4], m12 = m[5];
+        double m20 = m[6], m21 = m[7], m22 = m[8];
+        int end = srcOff + count * 3;
+        for(int i = srcOff, j = dstOff; i < end; i += 3, j += 3) {
+            double x = src[i + xi], y = src[i + yi], z = src[i + zi];
+            dst[j + xi] = m00 * x + m01 * y + m02 * z;
+            dst[j + yi] = m10 * x + m11 * y + m12 * z;
+            dst[j + zi] = m20 * x + m21 * y + m22 * z;
+        }
+    }
+    
     public Rotation3 add(Rotation3 r) {
         Direction3 newDir = direction.add(r.getDirection());
         double newRoll = getXRotation() + r.getXRotation();
@@ -0,0 +1,71 @@
+package math3d;
+
+/**
+ * Controls whether the bulk operations of Vector3Buffer and Vector3fBuffer use
+ * the JDK Vector API (the jdk.incubator.vector module) to process several
+ * vectors at once with SIMD instructions.
+ *
+ * The SIMD code is compiled separately (it's in the simd source directory)
+ * and loaded when this class is first used. It's only available if those
+ * classes are on the classpath and the JVM was started with
+ * "--add-modules jdk.incubator.vector"; otherwise the plain scalar code is
+ * used. SIMD is enabled by default when it is available. Both versions give
+ * identical results.
+ * @author vanjac
+ */
+public final class Simd {
+    private static final Vector3Kernels SCALAR = new Vector3Kernels();
+    private static final Vector3Kernels VECTOR =
+            load("math3d.SimdVector3Kernels", Vector3Kernels.class);
+    private static final Vector3fKernels FLOAT_SCALAR = new Vector3fKernels();
+    private static final Vector3fKernels FLOAT_VECTOR =
+            load("math3d.SimdVector3fKernels", Vector3fKernels.class);
+    
+    private static volatile boolean enabled = true;
+    
+    private Simd() { }
+    
+    private static <T> T load(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className)
+                    .getDeclaredConstructor().newInstance());
+        } catch(ReflectiveOperationException | LinkageError e) {
+            //not compiled, or the module is missing
+            return null;
+        }
+    }
+    
+    /**
+     * Check whether the SIMD implementation could be loaded.
+     * @return true if SIMD can be used
+     */
+    public static boolean isAvailable() {
+        return VECTOR != null;
+    }
+    
+    /**
+     * Switch between the SIMD and scalar implementations. If SIMD isn't
+     * available, the scalar implementation is always used.
+     * @param simd true to use SIMD when it's available, false to always use
+     * scalar code
+     */
+    public static void setEnabled(boolean simd) {
+        enabled = simd;
+    }
+    
+    /**
+     * Check whether the bulk operations are currently using SIMD.
+     * @return true if SIMD is enabled and available
+     */
+    public static boolean isEnabled() {
+        return enabled && VECTOR != null;
+    }
+    
+    static Vector3Kernels kernels() {
+        return isEnabled() ? VECTOR : SCALAR;
+    }
+    
+    static Vector3fKernels floatKernels() {
+        return enabled && FLOAT_VECTOR != null ? FLOAT_VECTOR : FLOAT_SCALAR;
+    }
+}
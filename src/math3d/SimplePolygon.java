@@ -0,0 +1,334 @@
+package math3d;
+
+import java.util.*;
+import static math3d.Polygon.PolygonType.*;
+
+/**
+ * A polygon implementation for simple polygons, which can be concave and can
+ * have holes. All SimplePolygon constructors expect that:
+ *  -all vertices are coplanar
+ *  -the outline and holes don't intersect themselves or each other
+ *  -the holes are inside the outline
+ *  -the outline vertices are given in the order matching the specified
+ *   VertexOrder. Holes can be given in either order.
+ * The polygon is triangulated by ear clipping (see getTriangles()).
+ *
+ * getVertices() returns the vertices of the outline, followed by the vertices
+ * of each hole. The vertex indices given by triangulate() refer to this list.
+ * Because getVertexCount() returns a short, it wraps around for polygons
+ * with more than Short.MAX_VALUE vertices, so the rest of the library counts
+ * vertices with getVertices().size().
+ * @author vanjac
+ */
+public class SimplePolygon implements Polygon {
+    private final List<Vertex> vertices;
+    //index in vertices of the first vertex of each hole
+    private final int[] holeStarts;
+    private final Direction3 normal;
+    private final VertexOrder order;
+    private final PolygonType type;
+    
+    //calculated the first time they are needed
+    private volatile int[] triangleIndices;
+    
+    /**
+     * Create a SimplePolygon from an ordered list of vertices, with no holes.
+     * @param outline the vertices
+     * @param order the order of the vertices
+     */
+    public SimplePolygon(List<Vertex> outline, VertexOrder order) {
+        this(outline, Collections.<List<Vertex>>emptyList(), order);
+    }
+    
+    /**
+     * Create a SimplePolygon with holes from ordered lists of vertices.
+     * @param outline the vertices of the outline
+     * @param holes the vertices of each hole. Each hole must have at least 3
+     * vertices.
+     * @param order the order of the outline vertices
+     */
+    public SimplePolygon(List<Vertex> outline, List<List<Vertex>> holes,
+            VertexOrder order) {
+        if(outline.size() < 3)
+            throw new IllegalArgumentException(
+                    "Polygon needs at least 3 vertices");
+        this.order = order;
+        
+        int size = outline.size();
+        holeStarts = new int[holes.size()];
+        for(int i = 0; i < holeStarts.length; i++) {
+            holeStarts[i] = size;
+            size += checkHoleSize(holes.get(i).size());
+        }
+        
+        vertices = new ArrayList<>(size);
+        vertices.addAll(outline);
+        for(List<Vertex> hole : holes)
+            vertices.addAll(hole);
+        
+        Vector3[] positions = new Vector3[outline.size()];
+        for(int i = 0; i < positions.length; i++)
+            positions[i] = outline.get(i).getPosition();
+        normal = calculateNormal(positions);
+        
+        type = calculateType();
+    }
+    
+    /**
+     * Create a SimplePolygon from an array of vectors, with no holes.
+     * Vertices will be generated from the vectors, with the same normal as
+     * the polygon itself.
+     * @param outline the vectors
+     * @param order the order of the vectors
+     */
+    public SimplePolygon(Vector3[] outline, VertexOrder order) {
+        this(outline, Collections.<Vector3[]>emptyList(), order);
+    }
+    
+    /**
+     * Create a SimplePolygon with holes from arrays of vectors. Vertices will
+     * be generated from the vectors, with the same normal as the polygon
+     * itself.
+     * @param outline the vectors of the outline
+     * @param holes the vectors of each hole. Each hole must have at least 3
+     * vectors.
+     * @param order the order of the outline vectors
+     */
+    public SimplePolygon(Vector3[] outline, List<Vector3[]> holes,
+            VertexOrder order) {
+        if(outline.length < 3)
+            throw new IllegalArgumentException(
+                    "Polygon needs at least 3 vertices");
+        this.order = order;
+        normal = calculateNormal(outline);
+        
+        int size = outline.length;
+        holeStarts = new int[holes.size()];
+        for(int i = 0; i < holeStarts.length; i++) {
+            holeStarts[i] = size;
+            size += checkHoleSize(holes.get(i).length);
+        }
+        
+        vertices = new ArrayList<>(size);
+        for(Vector3 v : outline)
+            vertices.add(new Vertex(v, normal));
+        for(Vector3[] hole : holes) {
+            for(Vector3 v : hole)
+                vertices.add(new Vertex(v, normal));
+        }
+        
+        type = calculateType();
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder stringValue = new StringBuilder("Polygon [ ");
+        for(Vertex v : vertices) {
+            stringValue.append("(");
+            stringValue.append(v.toString());
+            stringValue.append(") ");
+        }
+        stringValue.append("]");
+        return stringValue.toString();
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(o == null)
+            return false;
+        if(!(o instanceof SimplePolygon))
+            return false;
+        if(o == this)
+            return true;
+        
+        SimplePolygon p = (SimplePolygon)o;
+        return vertices.equals(p.vertices)
+                && Arrays.equals(holeStarts, p.holeStarts)
+                && p.getNormal().equals(getNormal());
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 37 * hash + Objects.hashCode(this.vertices);
+        hash = 37 * hash + Arrays.hashCode(this.holeStarts);
+        hash = 37 * hash + Objects.hashCode(this.normal);
+        return hash;
+    }
+    
+    private static int checkHoleSize(int size) {
+        if(size < 3)
+            throw new IllegalArgumentException(
+                    "Hole needs at least 3 vertices");
+        return size;
+    }
+    
+    private Direction3 calculateNormal(Vector3[] outline) {
+        //Newell's method, which works for concave polygons (the cross product
+        //of the first 3 vertices could be at a reflex vertex)
+        double nx = 0, ny = 0, nz = 0;
+        for(int i = 0, j = outline.length - 1; i < outline.length; j = i++) {
+            Vector3 a = outline[j];
+            Vector3 b = outline[i];
+            nx += (a.getY() - b.getY()) * (a.getZ() + b.getZ());
+            ny += (a.getZ() - b.getZ()) * (a.getX() + b.getX());
+            nz += (a.getX() - b.getX()) * (a.getY() + b.getY());
+        }
+        Direction3 tempNormal = new Direction3(
+                new Vector3(nx, ny, nz).normalize());
+        if(order == VertexOrder.CLOCKWISE)
+            tempNormal = tempNormal.inverse();
+        return tempNormal;
+    }
+    
+    private PolygonType calculateType() {
+        if(holeStarts.length != 0)
+            return POLY;
+        switch(vertices.size()) {
+            case 3:
+                return TRI;
+            case 4:
+                return QUAD;
+            default:
+                return POLY;
+        }
+    }
+    
+    /**
+     * Get the number of holes in this polygon.
+     * @return the number of holes
+     */
+    public int getHoleCount() {
+        return holeStarts.length;
+    }
+    
+    /**
+     * Get the vertices of the outline of this polygon, not including holes.
+     * @return a new list of vertices
+     */
+    public List<Vertex> getOutline() {
+        int end = holeStarts.length == 0 ? vertices.size() : holeStarts[0];
+        return new ArrayList<>(vertices.subList(0, end));
+    }
+    
+    /**
+     * Get the vertices of one hole of this polygon.
+     * @param hole the index of the hole
+     * @return a new list of vertices
+     */
+    public List<Vertex> getHole(int hole) {
+        int end = hole == holeStarts.length - 1 ? vertices.size()
+                : holeStarts[hole + 1];
+        return new ArrayList<>(vertices.subList(holeStarts[hole], end));
+    }
+    
+    @Override
+    public PolygonType getType() {
+        return type;
+    }
+    
+    @Override
+    public VertexOrder getVertexOrder() {
+        return order;
+    }
+    
+    @Override
+    public List<Vertex> getVertices() {
+        return new ArrayList<>(vertices);
+    }
+    
+    @Override
+    public short getVertexCount() {
+        return (short)vertices.size();
+    }
+    
+    @Override
+    public Direction3 getNormal() {
+        return normal;
+    }
+    
+    /**
+     * Split this polygon into triangles by ear clipping. The triangulation is
+     * calculated once and reused. Each hole adds 2 triangles, connecting it to
+     * the outline. If the polygon doesn't follow the rules for a
+     * SimplePolygon, some triangles may be missing.
+     * @return a new collection of Triangles
+     */
+    @Override
+    public Collection<Polygon> getTriangles() {
+        int[] indices = triangleIndices();
+        List<Polygon> triangles = new ArrayList<>(indices.length / 3);
+        //all triangles have the same normal as this polygon so it doesn't need
+        //to be calculated again
+        for(int i = 0; i < indices.length; i += 3) {
+            triangles.add(new Triangle(
+                    vertices.get(indices[i]),
+                    vertices.get(indices[i + 1]),
+                    vertices.get(indices[i + 2]),
+                    order,
+                    normal
+            ));
+        }
+        return triangles;
+    }
+    
+    @Override
+    public int getTriangleCount() {
+        return triangleIndices().length / 3;
+    }
+    
+    @Override
+    public void triangulate(TriangleConsumer consumer) {
+        int[] indices = triangleIndices();
+        for(int i = 0; i < indices.length; i += 3)
+            consumer.accept(indices[i], indices[i + 1], indices[i + 2]);
+    }
+    
+    @Override
+    public int triangulate(int[] dest, int offset, int base) {
+        int[] indices = triangleIndices();
+        if(offset < 0 || offset + indices.length > dest.length)
+            throw new IndexOutOfBoundsException("offset " + offset
+                    + ", length " + indices.length
+                    + ", array length " + dest.length);
+        for(int i = 0; i < indices.length; i++)
+            dest[offset + i] = indices[i] + base;
+        return indices.length;
+    }
+    
+    private int[] triangleIndices() {
+        int[] indices = triangleIndices;
+        if(indices == null) {
+            indices = calculateTriangles();
+            triangleIndices = indices;
+        }
+        return indices;
+    }
+    
+    private int[] calculateTriangles() {
+        //project onto the plane of the two axes that are closest to the
+        //polygon. The winding of the triangles is preserved either way.
+        Vector3 n = normal.getUnitVector();
+        double ax = Math.abs(n.getX());
+        double ay = Math.abs(n.getY());
+        double az = Math.abs(n.getZ());
+        
+        int size = vertices.size();
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        for(int i = 0; i < size; i++) {
+            Vector3 v = vertices.get(i).getPosition();
+            if(az >= ax && az >= ay) {
+                xs[i] = v.getX();
+                ys[i] = v.getY();
+            } else if(ax >= ay) {
+                xs[i] = v.getY();
+                ys[i] = v.getZ();
+            } else {
+                xs[i] = v.getZ();
+                ys[i] = v.getX();
+            }
+        }
+        return EarClipping.triangulate(xs, ys, holeStarts);
+    }
+}
@@ -0,0 +1,509 @@
+package math3d;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+
+/**
+ * A binary STL file, memory-mapped for reading. The triangles are read
+ * directly from the mapped file when they are requested, so opening even a
+ * very large file is fast and uses almost no heap. Files are mapped in
+ * windows of up to about 2 GB, so they can be larger than one
+ * MappedByteBuffer.
+ *
+ * Triangles can be copied into packed float or double arrays, or accessed as
+ * lightweight Polygon views (see Facet), individually or as a Stream which
+ * can be processed in parallel. The mapping stays valid until the StlFile is
+ * garbage collected.
+ *
+ * The static write() methods create binary STL files from polygons or packed
+ * positions.
+ * @author vanjac
+ */
+public class StlFile {
+    private static final int HEADER_SIZE = 80;
+    //header, then the triangle count
+    private static final int DATA_OFFSET = HEADER_SIZE + 4;
+    //normal, 3 vertices, and a 2 byte attribute
+    private static final int RECORD_SIZE = 50;
+    //the most triangles that fit in one mapped buffer
+    private static final int MAX_WINDOW = Integer.MAX_VALUE / RECORD_SIZE;
+    //triangles written at a time
+    private static final int WRITE_CHUNK = 4096;
+    
+    private final byte[] header;
+    private final int triangleCount;
+    private final int windowSize;
+    private final ByteBuffer[] windows;
+    
+    private StlFile(byte[] header, int triangleCount, int windowSize,
+            ByteBuffer[] windows) {
+        this.header = header;
+        this.triangleCount = triangleCount;
+        this.windowSize = windowSize;
+        this.windows = windows;
+    }
+    
+    /**
+     * Open and map a binary STL file.
+     * @param path the file to read
+     * @return the mapped file
+     * @throws IOException if the file can't be read, or isn't a binary STL
+     * file
+     */
+    public static StlFile read(Path path) throws IOException {
+        return read(path, MAX_WINDOW);
+    }
+    
+    //windowSize is a parameter so that tests can use several small windows
+    static StlFile read(Path path, int windowSize) throws IOException {
+        try(FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if(fileSize < DATA_OFFSET)
+                throw new IOException("Not a binary STL file: " + path);
+            ByteBuffer start = ByteBuffer.allocate(DATA_OFFSET)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while(start.hasRemaining())
+                if(channel.read(start, start.position()) < 0)
+                    throw new IOException("Unexpected end of file: " + path);
+            byte[] header = new byte[HEADER_SIZE];
+            start.get(0, header);
+            long count = start.getInt(HEADER_SIZE) & 0xFFFFFFFFL;
+            //ASCII STL files start with "solid", but so do some binary ones,
+            //so the size is the real check
+            if(fileSize != DATA_OFFSET + count * RECORD_SIZE)
+                throw new IOException("Not a binary STL file, or truncated: "
+                        + path + " (" + count + " triangles, " + fileSize
+                        + " bytes)");
+            if(count > Integer.MAX_VALUE)
+                throw new IOException("Too many triangles: " + count);
+            
+            int windowCount = (int)((count + windowSize - 1) / windowSize);
+            ByteBuffer[] windows = new ByteBuffer[windowCount];
+            for(int w = 0; w < windowCount; w++) {
+                long first = (long)w * windowSize;
+                long size = Math.min(windowSize, count - first);
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        DATA_OFFSET + first * RECORD_SIZE, size * RECORD_SIZE);
+                windows[w] = buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            //the mappings stay valid after the channel is closed
+            return new StlFile(header, (int)count, windowSize, windows);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "StlFile [ " + triangleCount + " triangles ]";
+    }
+    
+    /**
+     * Get the 80 byte header at the start of the file.
+     * @return a copy of the header
+     */
+    public byte[] getHeader() {
+        return header.clone();
+    }
+    
+    /**
+     * Get the number of triangles in the file.
+     * @return the number of triangles
+     */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+    
+    private void checkRange(int first, int count) {
+        if(first < 0 || count < 0 || first > triangleCount - count)
+            throw new IndexOutOfBoundsException("first " + first + ", count "
+                    + count + ", triangle count " + triangleCount);
+    }
+    
+    //the value at a byte offset in a triangle's record
+    private float value(int triangle, int offset) {
+        return windows[triangle / windowSize].getFloat(
+                (triangle % windowSize) * RECORD_SIZE + offset);
+    }
+    
+    /**
+     * Get the position of a vertex of a triangle.
+     * @param triangle the index of the triangle
+     * @param vertex the vertex number, 0 to 2
+     * @return the position
+     */
+    public Vector3 getPosition(int triangle, int vertex) {
+        checkRange(triangle, 1);
+        if(vertex < 0 || vertex > 2)
+            throw new IndexOutOfBoundsException("Vertex " + vertex);
+        int offset = 12 + vertex * 12;
+        return new Vector3(value(triangle, offset),
+                value(triangle, offset + 4), value(triangle, offset + 8));
+    }
+    
+    /**
+     * Get the normal stored in the file for a triangle. Many programs write a
+     * zero vector here instead of the real normal, so Facet.getNormal()
+     * calculates it from the vertices instead.
+     * @param triangle the index of the triangle
+     * @return the stored normal
+     */
+    public Vector3 getStoredNormal(int triangle) {
+        checkRange(triangle, 1);
+        return new Vector3(value(triangle, 0), value(triangle, 4),
+                value(triangle, 8));
+    }
+    
+    /**
+     * Get the 16 bit "attribute byte count" of a triangle, which some programs
+     * use to store a color.
+     * @param triangle the index of the triangle
+     * @return the attribute, from 0 to 65535
+     */
+    public int getAttribute(int triangle) {
+        checkRange(triangle, 1);
+        return windows[triangle / windowSize].getShort(
+                (triangle % windowSize) * RECORD_SIZE + 48) & 0xFFFF;
+    }
+    
+    /**
+     * Copy the vertex positions of a range of triangles into an array.
+     * @param first the index of the first triangle
+     * @param count the number of triangles
+     * @param dest receives x, y, z for each of the 3 vertices of each
+     * triangle: 9 values per triangle
+     * @param offset the index in dest of the first value
+     */
+    public void getPositions(int first, int count, float[] dest, int offset) {
+        checkRange(first, count);
+        CachedPlane.checkRange(dest.length, offset, count * 9);
+        for(int t = first; t < first + count; t++) {
+            ByteBuffer window = windows[t / windowSize];
+            int record = (t % windowSize) * RECORD_SIZE;
+            for(int i = 12; i < 48; i += 4)
+                dest[offset++] = window.getFloat(record + i);
+        }
+    }
+    
+    /**
+     * Copy the vertex positions of a range of triangles into an array, in the
+     * layout used by the Triangle(double[], VertexOrder) constructor.
+     * @param first the index of the first triangle
+     * @param count the number of triangles
+     * @param dest receives x, y, z for each of the 3 vertices of each
+     * triangle: 9 values per triangle
+     * @param offset the index in dest of the first value
+     */
+    public void getPositions(int first, int count, double[] dest, int offset) {
+        checkRange(first, count);
+        CachedPlane.checkRange(dest.length, offset, count * 9);
+        for(int t = first; t < first + count; t++) {
+            ByteBuffer window = windows[t / windowSize];
+            int record = (t % windowSize) * RECORD_SIZE;
+            for(int i = 12; i < 48; i += 4)
+                dest[offset++] = window.getFloat(record + i);
+        }
+    }
+    
+    /**
+     * Copy the vertex positions of every triangle into a new array.
+     * @return x, y, z for each of the 3 vertices of each triangle
+     */
+    public float[] getPositions() {
+        if(triangleCount > Integer.MAX_VALUE / 9)
+            throw new IllegalStateException(
+                    "Too many triangles for one array: " + triangleCount);
+        float[] positions = new float[triangleCount * 9];
+        getPositions(0, triangleCount, positions, 0);
+        return positions;
+    }
+    
+    /**
+     * Get a view of a triangle in the file.
+     * @param triangle the index of the triangle
+     * @return a Facet for the triangle
+     */
+    public Facet getFacet(int triangle) {
+        checkRange(triangle, 1);
+        return new Facet(triangle);
+    }
+    
+    /**
+     * Get a list of views of every triangle. Facets are created as they are
+     * requested.
+     * @return an unmodifiable list of Facets
+     */
+    public List<Facet> getFacets() {
+        return new FacetList();
+    }
+    
+    /**
+     * Get a stream of views of every triangle. The stream splits into ranges
+     * of triangles, so it can be processed in parallel.
+     * @param parallel true for a parallel stream
+     * @return a stream of Facets, in file order
+     */
+    public Stream<Facet> facets(boolean parallel) {
+        return StreamSupport.stream(getFacets().spliterator(), parallel);
+    }
+    
+    private class FacetList extends AbstractList<Facet>
+            implements RandomAccess {
+        @Override
+        public Facet get(int index) {
+            return getFacet(index);
+        }
+        
+        @Override
+        public int size() {
+            return triangleCount;
+        }
+    }
+    
+    /**
+     * A view of one triangle of an StlFile. This stores only the file and the
+     * index of the triangle; vertices are read from the file when they are
+     * requested. The vertices are counter-clockwise, as STL requires.
+     */
+    public class Facet implements Polygon {
+        private final int triangle;
+        
+        private Facet(int triangle) {
+            this.triangle = triangle;
+        }
+        
+        @Override
+        public String toString() {
+            return "Facet [ (" + getPosition(triangle, 0) + ") ("
+                    + getPosition(triangle, 1) + ") ("
+                    + getPosition(triangle, 2) + ") ]";
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if(o == null)
+                return false;
+            if(!(o instanceof Facet))
+                return false;
+            if(o == this)
+                return true;
+            
+            Facet f = (Facet)o;
+            return f.getFile() == getFile() && f.getIndex() == getIndex();
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = 3;
+            hash = 41 * hash + System.identityHashCode(getFile());
+            hash = 41 * hash + triangle;
+            return hash;
+        }
+        
+        /**
+         * Get the file this triangle belongs to.
+         * @return the file
+         */
+        public StlFile getFile() {
+            return StlFile.this;
+        }
+        
+        /**
+         * Get the index of this triangle in its file.
+         * @return the triangle index
+         */
+        public int getIndex() {
+            return triangle;
+        }
+        
+        /**
+         * Create a Triangle with the same vertices as this view, which no
+         * longer depends on the file.
+         * @return a new Triangle
+         */
+        public Triangle toTriangle() {
+            double[] v = new double[9];
+            getPositions(triangle, 1, v, 0);
+            return new Triangle(v, VertexOrder.COUNTER_CLOCKWISE);
+        }
+        
+        @Override
+        public PolygonType getType() {
+            return PolygonType.TRI;
+        }
+        
+        @Override
+        public VertexOrder getVertexOrder() {
+            return VertexOrder.COUNTER_CLOCKWISE;
+        }
+        
+        @Override
+        public List<Vertex> getVertices() {
+            Direction3 normal = getNormal();
+            List<Vertex> vertices = new ArrayList<>(3);
+            for(int i = 0; i < 3; i++)
+                vertices.add(new Vertex(getPosition(triangle, i), normal));
+            return vertices;
+        }
+        
+        @Override
+        public short getVertexCount() {
+            return 3;
+        }
+        
+        @Override
+        public Direction3 getNormal() {
+            return NormalCache.normal(getPosition(triangle, 0),
+                    getPosition(triangle, 1), getPosition(triangle, 2),
+                    VertexOrder.COUNTER_CLOCKWISE);
+        }
+        
+        @Override
+        public Collection<Polygon> getTriangles() {
+            Set<Polygon> set = new HashSet<>(1);
+            set.add(this);
+            return set;
+        }
+    }
+    
+    /**
+     * Write polygons to a binary STL file. Polygons with more than 3 vertices
+     * are split into triangles, and clockwise polygons are reversed, since
+     * STL triangles are always counter-clockwise.
+     * @param path the file to write. It is replaced if it exists.
+     * @param polygons the polygons to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, Collection<? extends Polygon> polygons)
+            throws IOException {
+        long count = 0;
+        for(Polygon p : polygons)
+            count += p.getTriangleCount();
+        try(Writer writer = new Writer(path, count)) {
+            for(Polygon p : polygons)
+                writePolygon(writer, p);
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private static void writePolygon(Writer writer, Polygon p) {
+        List<Vertex> vertices = p.getVertices();
+        Vector3 normal = p.getNormal().getUnitVector();
+        boolean reverse = p.getVertexOrder() == VertexOrder.CLOCKWISE;
+        p.triangulate((i0, i1, i2) -> {
+            Vector3 a = vertices.get(i0).getPosition();
+            Vector3 b = vertices.get(reverse ? i2 : i1).getPosition();
+            Vector3 c = vertices.get(reverse ? i1 : i2).getPosition();
+            writer.write(normal.getX(), normal.getY(), normal.getZ(),
+                    a.getX(), a.getY(), a.getZ(),
+                    b.getX(), b.getY(), b.getZ(),
+                    c.getX(), c.getY(), c.getZ());
+        });
+    }
+    
+    /**
+     * Write packed triangle positions to a binary STL file. The normal of each
+     * triangle is calculated from its vertices.
+     * @param path the file to write. It is replaced if it exists.
+     * @param positions x, y, z for each of the 3 counter-clockwise vertices of
+     * each triangle: 9 values per triangle, like getPositions()
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, float[] positions) throws IOException {
+        if(positions.length % 9 != 0)
+            throw new IllegalArgumentException(
+                    "Array length is not a multiple of 9: " + positions.length);
+        try(Writer writer = new Writer(path, positions.length / 9)) {
+            float[] v = positions;
+            for(int i = 0; i < positions.length; i += 9) {
+                double ax = v[i + 3] - v[i], ay = v[i + 4] - v[i + 1];
+                double az = v[i + 5] - v[i + 2];
+                double bx = v[i + 6] - v[i], by = v[i + 7] - v[i + 1];
+                double bz = v[i + 8] - v[i + 2];
+                double nx = ay * bz - az * by, ny = az * bx - ax * bz;
+                double nz = ax * by - ay * bx;
+                double scale = 1 / Math.sqrt(nx * nx + ny * ny + nz * nz);
+                writer.write(nx * scale, ny * scale, nz * scale,
+                        v[i], v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5],
+                        v[i + 6], v[i + 7], v[i + 8]);
+            }
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Writes triangle records through a direct buffer, a chunk at a time.
+     */
+    private static final class Writer implements AutoCloseable {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(
+                WRITE_CHUNK * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        
+        Writer(Path path, long count) throws IOException {
+            if(count > 0xFFFFFFFFL)
+                throw new IllegalArgumentException(
+                        "Too many triangles for STL: " + count);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            //not starting with "solid", which would look like ASCII STL
+            byte[] header = Arrays.copyOf(
+                    "Binary STL".getBytes(StandardCharsets.US_ASCII),
+                    HEADER_SIZE);
+            buffer.put(header).putInt((int)count);
+        }
+        
+        //called from a TriangleConsumer, so IOExceptions are wrapped
+        void write(double nx, double ny, double nz,
+                double ax, double ay, double az,
+                double bx, double by, double bz,
+                double cx, double cy, double cz) {
+            if(buffer.remaining() < RECORD_SIZE)
+                flush();
+            buffer.putFloat((float)nx).putFloat((float)ny).putFloat((float)nz)
+                    .putFloat((float)ax).putFloat((float)ay)
+                    .putFloat((float)az)
+                    .putFloat((float)bx).putFloat((float)by)
+                    .putFloat((float)bz)
+                    .putFloat((float)cx).putFloat((float)cy)
+                    .putFloat((float)cz)
+                    .putShort((short)0);
+        }
+        
+        void flush() {
+            buffer.flip();
+            try {
+                while(buffer.hasRemaining())
+                    channel.write(buffer);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package math3d;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+
+/**
+ * An immutable combination of a scale, a rotation and a translation, applied
+ * in that order, for moving large sets of vertices at once. The scale can be
+ * different on each axis, and negative to mirror.
+ *
+ * The transform is stored as one 3x4 matrix. Packed arrays of coordinates
+ * can be transformed in place, and polygons are transformed into new
+ * polygons of the same kind, with their normals transformed too. Large
+ * inputs can be split into ranges which are transformed in parallel, in the
+ * common ForkJoinPool.
+ * @author vanjac
+ */
+public class Transform3 {
+    public static final Transform3 IDENTITY =
+            new Transform3(Rotation3.ZERO, Vector3.ZERO);
+    
+    //vectors (or polygons) transformed by one fork/join task
+    private static final int PARALLEL_THRESHOLD = 4096;
+    
+    private final Rotation3 rotation;
+    private final Vector3 translation;
+    private final Vector3 scale;
+    //the rotation matrix times the scale, row-major, and the translation
+    private final double[] m;
+    //the rotation matrix divided by the scale, for normals
+    private final double[] n;
+    private final boolean mirror;
+    
+    /**
+     * Create a transform that rotates, then translates.
+     * @param rotation the rotation
+     * @param translation the translation, applied after the rotation
+     */
+    public Transform3(Rotation3 rotation, Vector3 translation) {
+        this(rotation, translation, new Vector3(1));
+    }
+    
+    /**
+     * Create a transform that scales, rotates, then translates.
+     * @param rotation the rotation
+     * @param translation the translation, applied after the rotation
+     * @param scale the scale of every axis, applied first. Can't be 0.
+     */
+    public Transform3(Rotation3 rotation, Vector3 translation, double scale) {
+        this(rotation, translation, new Vector3(scale));
+    }
+    
+    /**
+     * Create a transform that scales, rotates, then translates.
+     * @param rotation the rotation
+     * @param translation the translation, applied after the rotation
+     * @param scale the scale of each axis, applied first. None of them can be
+     * 0. An odd number of negative scales mirrors, which reverses the vertex
+     * order of polygons.
+     */
+    public Transform3(Rotation3 rotation, Vector3 translation, Vector3 scale) {
+        if(scale.getX() == 0 || scale.getY() == 0 || scale.getZ() == 0)
+            throw new IllegalArgumentException("Scale can't be 0: " + scale);
+        this.rotation = rotation;
+        this.translation = translation;
+        this.scale = scale;
+        double[] r = rotation.matrix();
+        double[] s = scale.toArray();
+        m = new double[12];
+        n = new double[9];
+        for(int row = 0; row < 3; row++) {
+            for(int col = 0; col < 3; col++) {
+                m[row * 4 + col] = r[row * 3 + col] * s[col];
+                n[row * 3 + col] = r[row * 3 + col] / s[col];
+            }
+        }
+        m[3] = translation.getX();
+        m[7] = translation.getY();
+        m[11] = translation.getZ();
+        mirror = s[0] * s[1] * s[2] < 0;
+    }
+    
+    /**
+     * Create a transform that rotates around a point, like
+     * Vector3.rotateAround().
+     * @param rotation the rotation
+     * @param center the point to rotate around
+     * @return the new transform
+     */
+    public static Transform3 around(Rotation3 rotation, Vector3 center) {
+        return new Transform3(rotation,
+                center.subtract(center.rotate(rotation)));
+    }
+    
+    @Override
+    public String toString() {
+        return "Transform3 [ scale " + scale + ", rotation " + rotation
+                + ", translation " + translation + " ]";
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(o == null)
+            return false;
+        if(!(o instanceof Transform3))
+            return false;
+        if(o == this)
+            return true;
+        
+        Transform3 t = (Transform3)o;
+        return Arrays.equals(m, t.m);
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 41 * hash + Arrays.hashCode(m);
+        return hash;
+    }
+    
+    public Rotation3 getRotation() {
+        return rotation;
+    }
+    
+    public Vector3 getTranslation() {
+        return translation;
+    }
+    
+    public Vector3 getScale() {
+        return scale;
+    }
+    
+    /**
+     * Check if this transform mirrors, so the vertex order of polygons is
+     * reversed.
+     * @return true if an odd number of axes have a negative scale
+     */
+    public boolean isMirror() {
+        return mirror;
+    }
+    
+    /**
+     * Transform a point.
+     * @param v the point
+     * @return the scaled, rotated and translated point
+     */
+    public Vector3 transform(Vector3 v) {
+        double x = v.getX(), y = v.getY(), z = v.getZ();
+        return new Vector3(
+                m[0] * x + m[1] * y + m[2] * z + m[3],
+                m[4] * x + m[5] * y + m[6] * z + m[7],
+                m[8] * x + m[9] * y + m[10] * z + m[11]);
+    }
+    
+    /**
+     * Transform a surface normal. It's rotated, and divided by the scale so
+     * it stays perpendicular to the transformed surface. The translation
+     * doesn't affect it.
+     * @param normal the normal
+     * @return the transformed normal
+     */
+    public Direction3 transform(Direction3 normal) {
+        Vector3 u = normal.getUnitVector();
+        double x = u.getX(), y = u.getY(), z = u.getZ();
+        return NormalCache.direction(
+                n[0] * x + n[1] * y + n[2] * z,
+                n[3] * x + n[4] * y + n[5] * z,
+                n[6] * x + n[7] * y + n[8] * z);
+    }
+    
+    /**
+     * Transform a polygon into a new Triangle, a new SimplePolygon with the
+     * same holes if it is a SimplePolygon, or otherwise a new ConvexPolygon.
+     * The positions and normals of the vertices, and the normal of the
+     * polygon, are transformed. If this transform mirrors, the new polygon
+     * has the opposite VertexOrder, so it faces the same way as its
+     * transformed normal.
+     * @param p the polygon
+     * @return the transformed polygon
+     */
+    public Polygon transform(Polygon p) {
+        VertexOrder order = p.getVertexOrder();
+        if(mirror && order == VertexOrder.CLOCKWISE)
+            order = VertexOrder.COUNTER_CLOCKWISE;
+        else if(mirror && order == VertexOrder.COUNTER_CLOCKWISE)
+            order = VertexOrder.CLOCKWISE;
+        if(p instanceof SimplePolygon) {
+            //keep the holes, and the triangulation of a concave outline
+            SimplePolygon simple = (SimplePolygon)p;
+            List<List<Vertex>> holes =
+                    new ArrayList<>(simple.getHoleCount());
+            for(int i = 0; i < simple.getHoleCount(); i++)
+                holes.add(transformVertices(simple.getHole(i)));
+            return new SimplePolygon(transformVertices(simple.getOutline()),
+                    holes, order);
+        }
+        List<Vertex> transformed = transformVertices(p.getVertices());
+        Direction3 normal = transform(p.getNormal());
+        if(transformed.size() == 3)
+            return new Triangle(transformed.get(0), transformed.get(1),
+                    transformed.get(2), order, normal);
+        return new ConvexPolygon(transformed, order, normal);
+    }
+    
+    private List<Vertex> transformVertices(List<Vertex> vertices) {
+        List<Vertex> transformed = new ArrayList<>(vertices.size());
+        for(Vertex v : vertices)
+            transformed.add(new Vertex(transform(v.getPosition()),
+                    transform(v.getNormal())));
+        return transformed;
+    }
+    
+    /**
+     * Transform many polygons. See transform(Polygon).
+     * @param polygons the polygons to transform
+     * @param parallel true to transform large collections in parallel
+     * @return a list of the transformed polygons, in iteration order
+     */
+    public List<Polygon> transformAll(Collection<? extends Polygon> polygons,
+            boolean parallel) {
+        Polygon[] src = polygons.toArray(new Polygon[0]);
+        Polygon[] dst = new Polygon[src.length];
+        run(parallel, src.length, (start, end) -> {
+            for(int i = start; i < end; i++)
+                dst[i] = transform(src[i]);
+        });
+        return Arrays.asList(dst);
+    }
+    
+    /**
+     * Transform many points stored in an array in the layout of
+     * Vector3.toArray(), without creating Vector3 objects.
+     * @param src the array of points to transform
+     * @param srcOff the index in src of the first point
+     * @param dst the array to store the transformed points in. Can be src, to
+     * transform in place, but only with the same offset.
+     * @param dstOff the index in dst to store the first transformed point
+     * @param count the number of points to transform
+     * @param parallel true to split large arrays into ranges which are
+     * transformed in parallel
+     */
+    public void transformAll(double[] src, int srcOff, double[] dst,
+            int dstOff, int count, boolean parallel) {
+        checkRange(src.length, srcOff, dst.length, dstOff, count);
+        run(parallel, count, (start, end) -> {
+            double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+            double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+            double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+            int i = srcOff + start * 3, j = dstOff + start * 3;
+            for(int v = start; v < end; v++, i += 3, j += 3) {
+                double x = src[i], y = src[i + 1], z = src[i + 2];
+                dst[j] = m00 * x + m01 * y + m02 * z + m03;
+                dst[j + 1] = m10 * x + m11 * y + m12 * z + m13;
+                dst[j + 2] = m20 * x + m21 * y + m22 * z + m23;
+            }
+        });
+    }
+    
+    /**
+     * Transform many points stored in a float array in the layout of
+     * Vector3f.toArray(), such as StlFile.getPositions(). The arithmetic is
+     * done in double precision and rounded once. Otherwise the same as the
+     * double version.
+     * @param src the array of points to transform
+     * @param srcOff the index in src of the first point
+     * @param dst the array to store the transformed points in. Can be src, to
+     * transform in place, but only with the same offset.
+     * @param dstOff the index in dst to store the first transformed point
+     * @param count the number of points to transform
+     * @param parallel true to split large arrays into ranges which are
+     * transformed in parallel
+     */
+    public void transformAll(float[] src, int srcOff, float[] dst,
+            int dstOff, int count, boolean parallel) {
+        checkRange(src.length, srcOff, dst.length, dstOff, count);
+        run(parallel, count, (start, end) -> {
+            double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+            double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+            double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+            int i = srcOff + start * 3, j = dstOff + start * 3;
+            for(int v = start; v < end; v++, i += 3, j += 3) {
+                double x = src[i], y = src[i + 1], z = src[i + 2];
+                dst[j] = (float)(m00 * x + m01 * y + m02 * z + m03);
+                dst[j + 1] = (float)(m10 * x + m11 * y + m12 * z + m13);
+                dst[j + 2] = (float)(m20 * x + m21 * y + m22 * z + m23);
+            }
+        });
+    }
+    
+    /**
+     * Transform many unit normals stored in an array in the layout of
+     * Vector3.toArray(), such as IndexedMesh.getNormals(). See
+     * transform(Direction3); the results are normalized again.
+     * @param src the array of normals to transform
+     * @param srcOff the index in src of the first normal
+     * @param dst the array to store the transformed normals in. Can be src,
+     * to transform in place, but only with the same offset.
+     * @param dstOff the index in dst to store the first transformed normal
+     * @param count the number of normals to transform
+     * @param parallel true to split large arrays into ranges which are
+     * transformed in parallel
+     */
+    public void transformNormals(double[] src, int srcOff, double[] dst,
+            int dstOff, int count, boolean parallel) {
+        checkRange(src.length, srcOff, dst.length, dstOff, count);
+        run(parallel, count, (start, end) -> {
+            double n00 = n[0], n01 = n[1], n02 = n[2];
+            double n10 = n[3], n11 = n[4], n12 = n[5];
+            double n20 = n[6], n21 = n[7], n22 = n[8];
+            int i = srcOff + start * 3, j = dstOff + start * 3;
+            for(int v = start; v < end; v++, i += 3, j += 3) {
+                double x = src[i], y = src[i + 1], z = src[i + 2];
+                double nx = n00 * x + n01 * y + n02 * z;
+                double ny = n10 * x + n11 * y + n12 * z;
+                double nz = n20 * x + n21 * y + n22 * z;
+                double s = 1 / Math.sqrt(nx*nx + ny*ny + nz*nz);
+                dst[j] = nx * s;
+                dst[j + 1] = ny * s;
+                dst[j + 2] = nz * s;
+            }
+        });
+    }
+    
+    private static void checkRange(int srcLength, int srcOff, int dstLength,
+            int dstOff, int count) {
+        if(count < 0 || srcOff < 0 || dstOff < 0
+                || srcOff + (long)count * 3 > srcLength
+                || dstOff + (long)count * 3 > dstLength)
+            throw new IndexOutOfBoundsException("count " + count
+                    + ", srcOff " + srcOff + ", src length " + srcLength
+                    + ", dstOff " + dstOff + ", dst length " + dstLength);
+    }
+    
+    /**
+     * Transforms a range of items, from start (inclusive) to end (exclusive).
+     */
+    @FunctionalInterface
+    private interface RangeAction {
+        void run(int start, int end);
+    }
+    
+    private static void run(boolean parallel, int count, RangeAction action) {
+        if(parallel && count > PARALLEL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(
+                    new TransformTask(action, 0, count));
+        else
+            action.run(0, count);
+    }
+    
+    private static final class TransformTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final RangeAction action;
+        private final int start, end;
+        
+        TransformTask(RangeAction action, int start, int end) {
+            this.action = action;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute() {
+            if(end - start <= PARALLEL_THRESHOLD) {
+                action.run(start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            TransformTask task = new TransformTask(action, start, mid);
+            task.fork();
+            new TransformTask(action, mid, end).compute();
+            task.join();
+        }
+    }
+}
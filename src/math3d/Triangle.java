@@ -32,6 +32,26 @@ public class Triangle implements Polygon {
         );
     }
     
+    /**
+     * Create a triangle from 3 vertices, with a normal that is already known,
+     * such as the normal of a polygon the triangle was split from.
+     * @param v1 the first vertex
+     * @param v2 the second vertex
+     * @param v3 the third vertex
+     * @param order the order of the vertices
+     * @param normal the normal of the triangle
+     */
+    Triangle(Vertex v1, Vertex v2, Vertex v3, VertexOrder order,
+            Direction3 normal) {
+        vertices = new ArrayList<>(3);
+        vertices.add(v1);
+        vertices.add(v2);
+        vertices.add(v3);
+        
+        this.order = order;
+        this.normal = normal;
+    }
+    
     /**
      * Create a triangle from 3 vectors. Vertices will be generated from the
      * vectors, with the same normal as the triangle itself.
@@ -138,10 +158,7 @@ public class Triangle implements Polygon {
     }
     
     private Direction3 calculateNormal(Vector3 v1, Vector3 v2, Vector3 v3) {
-        Direction3 tempNormal = Vector3.normal(v1, v2, v3);
-        if(order == VertexOrder.CLOCKWISE)
-            tempNormal = tempNormal.inverse();
-        return tempNormal;
+        return NormalCache.normal(v1, v2, v3, order);
     }
 
     @Override
@@ -159,6 +176,16 @@ public class Triangle implements Polygon {
         return new ArrayList<>(vertices);
     }
 
+    // package-private access to the vertices, without copying the list
+    
+    Vertex vertex(int i) {
+        return vertices.get(i);
+    }
+    
+    Vector3 position(int i) {
+        return vertices.get(i).getPosition();
+    }
+    
     @Override
     public short getVertexCount() {
         return 3;
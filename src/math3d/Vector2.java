@@ -213,16 +213,31 @@ public class Vector2 {
     }
     
     public double direction() {
-        if (getX() == 0) {
-            if (getY() >= 0) {
+        return direction(getX(), getY());
+    }
+    
+    /**
+     * Get the direction of a vector from its coordinates, without creating a
+     * Vector2.
+     * @param x the x coordinate of the vector
+     * @param y the y coordinate of the vector
+     * @return the direction, between 0 and 2*pi
+     */
+    public static double direction(double x, double y) {
+        if (FastAngles.isEnabled()) {
+            return FastAngles.direction(x, y);
+        }
+        
+        if (x == 0) {
+            if (y >= 0) {
                 return Math.PI/2;
             } else {
                 return CIRCLE - Math.PI/2;
             }
         }
         
-        double n = Math.atan(getY() / getX());
-        if (getX() < 0) {
+        double n = Math.atan(y / x);
+        if (x < 0) {
             n = n - Math.PI;
         }
         
@@ -236,6 +251,8 @@ public class Vector2 {
      * @return a new, equivalent rotation between 0 and 2*pi.
      */
     public static double fixRotation(double rot) {
+        if(FastAngles.isEnabled())
+            return FastAngles.fixRotation(rot);
         if(rot < 0) {
             double circles = Math.ceil(-rot / CIRCLE);
             rot += circles * CIRCLE;
@@ -274,8 +291,14 @@ public class Vector2 {
     }
     
     public Vector2 rotate(double amount) {
-        double sinX = Math.sin(amount);
-        double cosX = Math.cos(amount);
+        double sinX, cosX;
+        if(FastAngles.isEnabled()) {
+            sinX = FastAngles.sin(amount);
+            cosX = FastAngles.cos(amount);
+        } else {
+            sinX = Math.sin(amount);
+            cosX = Math.cos(amount);
+        }
         Vector2 v = new Vector2(
                 getX() * cosX - getY() * sinX,
                 getY() * cosX + getX() * sinX
@@ -284,11 +307,11 @@ public class Vector2 {
     }
     
     public Vector2 rotateAround(double amount, Vector2 center) {
-        return subtract(center).rotate(amount).add(center);
+        return new MutableVector2(this)
+                .rotateAround(amount, center).toVector2();
     }
     
     public Vector2 move(double direction, Vector2 amount) {
-        amount = amount.rotate(direction);
-        return add(amount);
+        return new MutableVector2(this).move(direction, amount).toVector2();
     }
 }
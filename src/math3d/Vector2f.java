@@ -0,0 +1,276 @@
+package math3d;
+
+/**
+ * A 2-dimensional vector with single-precision (float) coordinates. It has the
+ * same operations as Vector2, but takes about half the memory. Conversions to
+ * and from Vector2 are explicit: use the Vector2f(Vector2) constructor and
+ * toVector2(). Angles are still doubles, like in Vector2.
+ * @author vanjac
+ */
+public class Vector2f {
+    public static final Vector2f ZERO = new Vector2f(0, 0);
+    public static final Vector2f BASE_ROTATION = new Vector2f(1, 0);
+    
+    private final float x;
+    private final float y;
+    
+    /**
+     * Create a new Vector2f from the x, and y coordinates.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public Vector2f(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+    
+    /**
+     * Create a new Vector2f with all of the coordinates equal
+     * @param n the value of both the x and y coordinates
+     */
+    public Vector2f(float n) {
+        x = n;
+        y = n;
+    }
+    
+    /**
+     * Create a vector from an array. x should be at index 0, and y at index 1.
+     * Missing coordinates are 0.
+     * @param a the array of coordinates
+     */
+    public Vector2f(float[] a) {
+        x = a.length > 0 ? a[0] : 0;
+        y = a.length > 1 ? a[1] : 0;
+    }
+    
+    /**
+     * Create a Vector2f with the coordinates of a Vector2, rounded to the
+     * nearest float.
+     * @param v the vector to convert
+     */
+    public Vector2f(Vector2 v) {
+        x = (float)v.getX();
+        y = (float)v.getY();
+    }
+    
+    @Override
+    public String toString() {
+        return Float.toString(x) + ", " + Float.toString(y);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(o == null)
+            return false;
+        if(!(o instanceof Vector2f))
+            return false;
+        if(o == this)
+            return true;
+        
+        Vector2f v = (Vector2f)o;
+        return getX() == v.getX() && getY() == v.getY();
+    }
+    
+    /**
+     * Check if all coordinates of this vector are 0.
+     * @return true if this is a zero vector
+     */
+    public boolean isZero() {
+        return getX() == 0 && getY() == 0;
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 13 * hash + Float.floatToIntBits(this.x);
+        hash = 13 * hash + Float.floatToIntBits(this.y);
+        return hash;
+    }
+    
+    /**
+     * Convert this vector to a double-precision Vector2. This is exact.
+     * @return a Vector2 with the same coordinates
+     */
+    public Vector2 toVector2() {
+        return new Vector2(x, y);
+    }
+    
+    /**
+     * Get an array representation of this vector, with the x coordinate at
+     * index 0 and the y coordinate at index 1.
+     * @return an array representation of this vector
+     */
+    public float[] toArray() {
+        return new float[] {x, y};
+    }
+    
+    public float getX() {
+        return x;
+    }
+    
+    public float getY() {
+        return y;
+    }
+    
+    public Vector2f setX(float newX) {
+        return new Vector2f(newX, getY());
+    }
+    
+    public Vector2f setY(float newY) {
+        return new Vector2f(getX(), newY);
+    }
+    
+    public Vector2f inverse() {
+        return new Vector2f(-getX(), -getY());
+    }
+    
+    public Vector2f add(Vector2f v) {
+        return new Vector2f(getX() + v.getX(), getY() + v.getY());
+    }
+    
+    public Vector2f subtract(Vector2f v) {
+        return new Vector2f(getX() - v.getX(), getY() - v.getY());
+    }
+    
+    public Vector2f multiply(float n) {
+        return new Vector2f(getX() * n, getY() * n);
+    }
+    
+    public Vector2f divide(float n) {
+        return new Vector2f(getX() / n, getY() / n);
+    }
+    
+    /**
+     * Returns the dot product of this vector and another vector
+     * @param v the other vector
+     * @return the dot product of the two
+     */
+    public float dot(Vector2f v) {
+        return getX()*v.getX() + getY()*v.getY();
+    }
+    
+    /**
+     * Returns true if this vector is orthogonal (at a right angle to) another
+     * vector.
+     * @param v the other vector
+     * @return true if the vectors are orthogonal
+     */
+    public boolean orthogonal(Vector2f v) {
+        return dot(v) == 0;
+    }
+    
+    /**
+     * Linear interpolation between this vector and another
+     * @param v the other vector
+     * @param amount amount to move between vectors. See Vector2.lerp().
+     * @return a new vector between this vector and another
+     */
+    public Vector2f lerp(Vector2f v, float amount) {
+        Vector2f difference = v.subtract(this);
+        return add(difference.multiply(amount));
+    }
+    
+    /**
+     * Get the magnitude or length of a vector
+     * @return the magnitude of the vector
+     */
+    public float magnitude() {
+        return (float)Math.sqrt(magnitudeSquare());
+    }
+    
+    /**
+     * Get the square of the magnitude of a vector. This is a faster
+     * calculation, and is useful when the actual values don't matter.
+     * @return the squared magnitude of the vector
+     */
+    public float magnitudeSquare() {
+        return getX()*getX() + getY()*getY();
+    }
+    
+    /**
+     * Return a new vector with the same direction and a different magnitude
+     * @param magnitude the magnitude to set
+     * @return a new vector with the specified magnitude
+     */
+    public Vector2f setMagnitude(float magnitude) {
+        float current = magnitude();
+        return multiply(magnitude / current);
+    }
+    
+    /**
+     * If the magnitude is greater than max, return a new vector with max as the
+     * magnitude. Otherwise, return this vector
+     * @param max the maximum magnitude
+     * @return a vector with its magnitude limited
+     */
+    public Vector2f limitMagnitude(float max) {
+        if(magnitudeSquare() > max*max) { //square for faster calculation
+            return setMagnitude(max);
+        }
+        return this;
+    }
+    
+    /**
+     * Return a new, "unit vector" with the same direction and a magnitude of 1.
+     * @return a unit vector
+     */
+    public Vector2f normalize() {
+        return setMagnitude(1);
+    }
+    
+    public double direction() {
+        return Vector2.direction(getX(), getY());
+    }
+    
+    /**
+     * Create a unit vector with the specified direction.
+     * @param direction the direction of the vector
+     * @return the new unit vector
+     */
+    public static Vector2f unitVector(double direction) {
+        return BASE_ROTATION.rotate(direction);
+    }
+    
+    /**
+     * Find the angle between this vector and another.
+     * @param v the other vector
+     * @return the angle between the vectors, in radians
+     */
+    public double angleBetween(Vector2f v) {
+        return Math.acos((this.dot(v) / (this.magnitude() * v.magnitude())));
+    }
+    
+    public float distanceTo(Vector2f v) {
+        float x1 = getX() - v.getX();
+        float y1 = getY() - v.getY();
+        
+        return (float)Math.sqrt(x1 * x1 + y1 * y1);
+    }
+    
+    public double directionTowards(Vector2f v) {
+        return v.subtract(this).direction();
+    }
+    
+    public Vector2f rotate(double amount) {
+        double sinX, cosX;
+        if(FastAngles.isEnabled()) {
+            sinX = FastAngles.sin(amount);
+            cosX = FastAngles.cos(amount);
+        } else {
+            sinX = Math.sin(amount);
+            cosX = Math.cos(amount);
+        }
+        return new Vector2f(
+                (float)(getX() * cosX - getY() * sinX),
+                (float)(getY() * cosX + getX() * sinX)
+        );
+    }
+    
+    public Vector2f rotateAround(double amount, Vector2f center) {
+        return subtract(center).rotate(amount).add(center);
+    }
+    
+    public Vector2f move(double direction, Vector2f amount) {
+        return add(amount.rotate(direction));
+    }
+}
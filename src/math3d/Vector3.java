@@ -308,32 +308,56 @@ public class Vector3 {
     }
     
     public Vector3 rotate(Rotation3 amount) {
-        Vector3 v = this;
-
-        // roll (x)
-        Vector2 xRot = new Vector2(v.getY(), v.getZ());
-        xRot = xRot.rotate(amount.getXRotation());
-        v = new Vector3(v.getX(), xRot.getX(), xRot.getY());
+        //roll (x), pitch (y), then yaw (z), combined into one matrix which is
+        //cached by the Rotation3
+        double[] m = amount.matrix();
+        return new Vector3(
+                m[0] * getX() + m[1] * getY() + m[2] * getZ(),
+                m[3] * getX() + m[4] * getY() + m[5] * getZ(),
+                m[6] * getX() + m[7] * getY() + m[8] * getZ()
+        );
+    }
 
-        // pitch (y)
-        Vector2 yRot = new Vector2(v.getX(), v.getZ());
-        yRot = yRot.rotate(amount.getYRotation());
-        v = new Vector3(yRot.getX(), v.getY(), yRot.getY());
+    public Vector3 rotate(Quaternion amount) {
+        return amount.rotate(this);
+    }
 
-        // yaw (z)
-        Vector2 zRot = new Vector2(v.getX(), v.getY());
-        zRot = zRot.rotate(amount.getZRotation());
-        v = new Vector3(zRot.getX(), zRot.getY(), v.getZ());
+    /**
+     * Rotate many vectors stored in an array in the layout of toArray(),
+     * without creating Vector3 objects. See Rotation3.rotateAll().
+     * @param amount the rotation
+     * @param src the array of vectors to rotate
+     * @param srcOff the index in src of the first vector
+     * @param dst the array to store the rotated vectors in. Can be src.
+     * @param dstOff the index in dst to store the first rotated vector
+     * @param count the number of vectors to rotate
+     */
+    public static void rotateAll(Rotation3 amount, double[] src, int srcOff,
+            double[] dst, int dstOff, int count) {
+        amount.rotateAll(src, srcOff, dst, dstOff, count);
+    }
 
-        return v;
+    /**
+     * Rotate many vectors stored in an array in the layout of toGlArray(),
+     * without creating Vector3 objects. See Rotation3.rotateAllGl().
+     * @param amount the rotation
+     * @param src the array of vectors to rotate
+     * @param srcOff the index in src of the first vector
+     * @param dst the array to store the rotated vectors in. Can be src.
+     * @param dstOff the index in dst to store the first rotated vector
+     * @param count the number of vectors to rotate
+     */
+    public static void rotateAllGl(Rotation3 amount, double[] src, int srcOff,
+            double[] dst, int dstOff, int count) {
+        amount.rotateAllGl(src, srcOff, dst, dstOff, count);
     }
 
     public Vector3 rotateAround(Rotation3 amount, Vector3 center) {
-        return subtract(center).rotate(amount).add(center);
+        return new MutableVector3(this)
+                .rotateAround(amount, center).toVector3();
     }
 
     public Vector3 move(Rotation3 direction, Vector3 amount) {
-        amount = amount.rotate(direction);
-        return add(amount);
+        return new MutableVector3(this).move(direction, amount).toVector3();
     }
 }
@@ -0,0 +1,438 @@
+package math3d;
+
+import java.nio.BufferOverflowException;
+import java.nio.FloatBuffer;
+
+/**
+ * A fixed-size buffer of 3-dimensional vectors, stored as three separate
+ * arrays of x, y, and z coordinates. Unlike Vector3, a Vector3Buffer is
+ * mutable. The bulk operations write their results into a destination buffer
+ * (which may be the same as one of the inputs) instead of creating new
+ * objects, so large numbers of vectors can be processed without allocation.
+ * Some of the operations can use SIMD instructions; see the Simd class.
+ * @author vanjac
+ */
+public class Vector3Buffer {
+    //vectors converted at a time by putGl()
+    private static final int GL_CHUNK = 1024;
+    
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final int size;
+    
+    /**
+     * Create a new Vector3Buffer with all vectors set to zero.
+     * @param size the number of vectors in the buffer
+     */
+    public Vector3Buffer(int size) {
+        if(size < 0)
+            throw new IllegalArgumentException("Negative size: " + size);
+        this.size = size;
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+    }
+    
+    /**
+     * Create a new Vector3Buffer containing the values of an array of vectors.
+     * @param vectors the vectors to copy
+     */
+    public Vector3Buffer(Vector3[] vectors) {
+        this(vectors.length);
+        for(int i = 0; i < size; i++)
+            set(i, vectors[i]);
+    }
+    
+    /**
+     * Create a new Vector3Buffer from an interleaved array of coordinates, in
+     * the same layout as Vector3.toArray(): x at index 0, y at index 1, z at
+     * index 2, then the next vector starting at index 3, and so on.
+     * @param a the array of coordinates. Its length must be a multiple of 3.
+     */
+    public Vector3Buffer(double[] a) {
+        this(checkInterleavedLength(a.length) / 3);
+        for(int i = 0, j = 0; i < size; i++, j += 3) {
+            x[i] = a[j];
+            y[i] = a[j + 1];
+            z[i] = a[j + 2];
+        }
+    }
+    
+    private static int checkInterleavedLength(int length) {
+        if(length % 3 != 0)
+            throw new IllegalArgumentException(
+                    "Array length is not a multiple of 3: " + length);
+        return length;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder stringValue = new StringBuilder("Vector3Buffer [ ");
+        for(int i = 0; i < size; i++) {
+            stringValue.append("(");
+            stringValue.append(get(i).toString());
+            stringValue.append(") ");
+        }
+        stringValue.append("]");
+        return stringValue.toString();
+    }
+    
+    /**
+     * Get the number of vectors in this buffer.
+     * @return the size of the buffer
+     */
+    public int size() {
+        return size;
+    }
+    
+    public double getX(int i) {
+        return x[i];
+    }
+    
+    public double getY(int i) {
+        return y[i];
+    }
+    
+    public double getZ(int i) {
+        return z[i];
+    }
+    
+    /**
+     * Get a vector in this buffer as a new, immutable Vector3.
+     * @param i the index of the vector
+     * @return a Vector3 with the same coordinates
+     */
+    public Vector3 get(int i) {
+        return new Vector3(x[i], y[i], z[i]);
+    }
+    
+    public void set(int i, double newX, double newY, double newZ) {
+        x[i] = newX;
+        y[i] = newY;
+        z[i] = newZ;
+    }
+    
+    public void set(int i, Vector3 v) {
+        set(i, v.getX(), v.getY(), v.getZ());
+    }
+    
+    /**
+     * Get the array that stores the x coordinates of this buffer. This is the
+     * backing array, not a copy, so changes to it will change the buffer.
+     * @return the x coordinate array
+     */
+    public double[] getXArray() {
+        return x;
+    }
+    
+    /**
+     * Get the array that stores the y coordinates of this buffer. This is the
+     * backing array, not a copy, so changes to it will change the buffer.
+     * @return the y coordinate array
+     */
+    public double[] getYArray() {
+        return y;
+    }
+    
+    /**
+     * Get the array that stores the z coordinates of this buffer. This is the
+     * backing array, not a copy, so changes to it will change the buffer.
+     * @return the z coordinate array
+     */
+    public double[] getZArray() {
+        return z;
+    }
+    
+    /**
+     * Create an array of new Vector3 objects with the values in this buffer.
+     * @return an array of vectors
+     */
+    public Vector3[] toVectors() {
+        Vector3[] vectors = new Vector3[size];
+        for(int i = 0; i < size; i++)
+            vectors[i] = get(i);
+        return vectors;
+    }
+    
+    /**
+     * Get an interleaved array representation of this buffer, in the same
+     * layout as Vector3.toArray() for each vector.
+     * @return an array of 3 * size() coordinates
+     */
+    public double[] toArray() {
+        double[] a = new double[size * 3];
+        for(int i = 0, j = 0; i < size; i++, j += 3) {
+            a[j] = x[i];
+            a[j + 1] = y[i];
+            a[j + 2] = z[i];
+        }
+        return a;
+    }
+    
+    /**
+     * Special version of toArray() for OpenGL. The x, y and z values of each
+     * vector are rearranged, like Vector3.toGlArray().
+     * @return an array of 3 * size() coordinates, in the order y, z, x
+     */
+    public double[] toGlArray() {
+        double[] a = new double[size * 3];
+        for(int i = 0, j = 0; i < size; i++, j += 3) {
+            a[j] = y[i];
+            a[j + 1] = z[i];
+            a[j + 2] = x[i];
+        }
+        return a;
+    }
+    
+    /**
+     * Write every vector in this buffer to a FloatBuffer, rounded to float
+     * precision, in the same order as toGlArray(): y, z, x for each vector.
+     * The values are written at the current position of the FloatBuffer,
+     * which is advanced past them.
+     * @param dest the buffer to write to
+     * @throws BufferOverflowException if dest doesn't have room for
+     * 3 * size() values. Nothing is written in that case.
+     */
+    public void putGl(FloatBuffer dest) {
+        if(dest.remaining() < size * 3)
+            throw new BufferOverflowException();
+        float[] chunk = new float[Math.min(size, GL_CHUNK) * 3];
+        for(int start = 0; start < size; start += GL_CHUNK) {
+            int end = Math.min(start + GL_CHUNK, size);
+            for(int i = start, j = 0; i < end; i++, j += 3) {
+                chunk[j] = (float)y[i];
+                chunk[j + 1] = (float)z[i];
+                chunk[j + 2] = (float)x[i];
+            }
+            dest.put(chunk, 0, (end - start) * 3);
+        }
+    }
+    
+    private void checkSize(Vector3Buffer b) {
+        if(b.size != size)
+            throw new IllegalArgumentException(
+                    "Buffer sizes don't match: " + size + ", " + b.size);
+    }
+    
+    private void checkSize(double[] a) {
+        if(a.length < size)
+            throw new IllegalArgumentException(
+                    "Array is too small: " + a.length + " < " + size);
+    }
+    
+    /**
+     * Add each vector in another buffer to the vector at the same index in
+     * this buffer.
+     * @param b the other buffer
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void add(Vector3Buffer b, Vector3Buffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] + b.x[i];
+            dest.y[i] = y[i] + b.y[i];
+            dest.z[i] = z[i] + b.z[i];
+        }
+    }
+    
+    /**
+     * Add the same vector to every vector in this buffer.
+     * @param v the vector to add
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void add(Vector3 v, Vector3Buffer dest) {
+        checkSize(dest);
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] + vx;
+            dest.y[i] = y[i] + vy;
+            dest.z[i] = z[i] + vz;
+        }
+    }
+    
+    /**
+     * Subtract each vector in another buffer from the vector at the same index
+     * in this buffer.
+     * @param b the other buffer
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void subtract(Vector3Buffer b, Vector3Buffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] - b.x[i];
+            dest.y[i] = y[i] - b.y[i];
+            dest.z[i] = z[i] - b.z[i];
+        }
+    }
+    
+    /**
+     * Subtract the same vector from every vector in this buffer.
+     * @param v the vector to subtract
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void subtract(Vector3 v, Vector3Buffer dest) {
+        checkSize(dest);
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] - vx;
+            dest.y[i] = y[i] - vy;
+            dest.z[i] = z[i] - vz;
+        }
+    }
+    
+    /**
+     * Multiply every vector in this buffer by a number.
+     * @param n the number to multiply by
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void scale(double n, Vector3Buffer dest) {
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] * n;
+            dest.y[i] = y[i] * n;
+            dest.z[i] = z[i] * n;
+        }
+    }
+    
+    /**
+     * Find the dot product of each vector in this buffer and the vector at the
+     * same index in another buffer.
+     * @param b the other buffer
+     * @param dest the array to store the dot products in. Must have a length
+     * of at least size().
+     */
+    public void dot(Vector3Buffer b, double[] dest) {
+        checkSize(b);
+        checkSize(dest);
+        Simd.kernels().dot(x, y, z, b.x, b.y, b.z, dest, 0, size);
+    }
+    
+    /**
+     * Find the cross product of each vector in this buffer and the vector at
+     * the same index in another buffer.
+     * @param b the other buffer
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void cross(Vector3Buffer b, Vector3Buffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        Simd.kernels().cross(x, y, z, b.x, b.y, b.z,
+                dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Make every vector in this buffer a unit vector, with the same direction
+     * and a magnitude of 1.
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void normalize(Vector3Buffer dest) {
+        checkSize(dest);
+        Simd.kernels().normalize(x, y, z, dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Linear interpolation between each vector in this buffer and the vector
+     * at the same index in another buffer.
+     * @param b the other buffer
+     * @param amount amount to move between vectors. See Vector3.lerp().
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void lerp(Vector3Buffer b, double amount, Vector3Buffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] + (b.x[i] - x[i]) * amount;
+            dest.y[i] = y[i] + (b.y[i] - y[i]) * amount;
+            dest.z[i] = z[i] + (b.z[i] - z[i]) * amount;
+        }
+    }
+    
+    /**
+     * Rotate every vector in this buffer. See Vector3.rotate().
+     * @param amount the rotation
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void rotate(Rotation3 amount, Vector3Buffer dest) {
+        checkSize(dest);
+        Simd.kernels().transform(amount.matrix(), x, y, z,
+                dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Rotate every vector in this buffer by a quaternion. See
+     * Quaternion.rotate().
+     * @param q the rotation. Should be a unit quaternion.
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void rotate(Quaternion q, Vector3Buffer dest) {
+        transform(q.getMatrix(), dest);
+    }
+    
+    /**
+     * Multiply every vector in this buffer by a 3x3 matrix.
+     * @param matrix 9 values in row-major order, the same layout as
+     * Rotation3.getMatrix()
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void transform(double[] matrix, Vector3Buffer dest) {
+        if(matrix.length != 9)
+            throw new IllegalArgumentException(
+                    "Matrix must have 9 values: " + matrix.length);
+        checkSize(dest);
+        Simd.kernels().transform(matrix, x, y, z,
+                dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Find the signed distance from a plane to each point in this buffer. The
+     * distance is positive on the side the plane's normal points to.
+     * @param p the plane
+     * @param dest the array to store the distances in. Must have a length of
+     * at least size().
+     */
+    public void planeDistance(Plane p, double[] dest) {
+        checkSize(dest);
+        Simd.kernels().planeDistance(CachedPlane.coefficients(p), x, y, z,
+                dest, 0, size);
+    }
+    
+    /**
+     * Check which points in this buffer are inside an axis-aligned box.
+     * Points on the surface of the box count as inside.
+     * @param min the corner of the box with the lowest coordinates
+     * @param max the corner of the box with the highest coordinates
+     * @param dest the array to store the results in: true for each point
+     * inside the box. Must have a length of at least size().
+     * @return the number of points inside the box
+     */
+    public int insideBox(Vector3 min, Vector3 max, boolean[] dest) {
+        if(dest.length < size)
+            throw new IllegalArgumentException(
+                    "Array is too small: " + dest.length + " < " + size);
+        return Simd.kernels().insideBox(
+                min.getX(), min.getY(), min.getZ(),
+                max.getX(), max.getY(), max.getZ(),
+                x, y, z, dest, 0, size);
+    }
+    
+    /**
+     * Find the distance between each vector in this buffer and the vector at
+     * the same index in another buffer.
+     * @param b the other buffer
+     * @param dest the array to store the distances in. Must have a length of
+     * at least size().
+     */
+    public void distance(Vector3Buffer b, double[] dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            double dx = b.x[i] - x[i];
+            double dy = b.y[i] - y[i];
+            double dz = b.z[i] - z[i];
+            dest[i] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package math3d;
+
+/**
+ * The loops behind the bulk operations of Vector3Buffer, over separate arrays
+ * of x, y and z coordinates. This class is the plain scalar version; Simd
+ * chooses between it and a subclass that uses the JDK Vector API.
+ *
+ * Each method processes the indices from start (inclusive) to end
+ * (exclusive). Subclasses must do the arithmetic in the same order, without
+ * fused multiply-add, so that every implementation gives identical results.
+ * The destination arrays may be the same as the source arrays.
+ * @author vanjac
+ */
+class Vector3Kernels {
+    void dot(double[] ax, double[] ay, double[] az,
+            double[] bx, double[] by, double[] bz,
+            double[] dest, int start, int end) {
+        for(int i = start; i < end; i++)
+            dest[i] = ax[i]*bx[i] + ay[i]*by[i] + az[i]*bz[i];
+    }
+    
+    void cross(double[] ax, double[] ay, double[] az,
+            double[] bx, double[] by, double[] bz,
+            double[] dx, double[] dy, double[] dz, int start, int end) {
+        for(int i = start; i < end; i++) {
+            double x1 = ax[i], y1 = ay[i], z1 = az[i];
+            double x2 = bx[i], y2 = by[i], z2 = bz[i];
+            dx[i] = y1 * z2 - z1 * y2;
+            dy[i] = z1 * x2 - x1 * z2;
+            dz[i] = x1 * y2 - y1 * x2;
+        }
+    }
+    
+    void normalize(double[] x, double[] y, double[] z,
+            double[] dx, double[] dy, double[] dz, int start, int end) {
+        for(int i = start; i < end; i++) {
+            double scale = 1 / Math.sqrt(x[i]*x[i] + y[i]*y[i] + z[i]*z[i]);
+            dx[i] = x[i] * scale;
+            dy[i] = y[i] * scale;
+            dz[i] = z[i] * scale;
+        }
+    }
+    
+    //m is a row-major 3x3 matrix, like Rotation3.getMatrix()
+    void transform(double[] m, double[] x, double[] y, double[] z,
+            double[] dx, double[] dy, double[] dz, int start, int end) {
+        for(int i = start; i < end; i++) {
+            double vx = x[i], vy = y[i], vz = z[i];
+            dx[i] = m[0] * vx + m[1] * vy + m[2] * vz;
+            dy[i] = m[3] * vx + m[4] * vy + m[5] * vz;
+            dz[i] = m[6] * vx + m[7] * vy + m[8] * vz;
+        }
+    }
+    
+    //c is the plane coefficients { a, b, c, d }
+    void planeDistance(double[] c, double[] x, double[] y, double[] z,
+            double[] dest, int start, int end) {
+        double a = c[0], b = c[1], cc = c[2], d = c[3];
+        for(int i = start; i < end; i++)
+            dest[i] = a * x[i] + b * y[i] + cc * z[i] + d;
+    }
+    
+    //returns the number of points inside
+    int insideBox(double minX, double minY, double minZ,
+            double maxX, double maxY, double maxZ,
+            double[] x, double[] y, double[] z,
+            boolean[] dest, int start, int end) {
+        int count = 0;
+        for(int i = start; i < end; i++) {
+            boolean inside = x[i] >= minX && x[i] <= maxX
+                    && y[i] >= minY && y[i] <= maxY
+                    && z[i] >= minZ && z[i] <= maxZ;
+            dest[i] = inside;
+            if(inside)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,487 @@
+package math3d;
+
+import java.nio.BufferOverflowException;
+import java.nio.FloatBuffer;
+
+/**
+ * The single-precision version of Vector3Buffer, storing float coordinates in
+ * three separate arrays. It has the same operations, with the arithmetic done
+ * in float precision. It takes half the memory of a Vector3Buffer, and the
+ * operations that use SIMD instructions process twice as many vectors at
+ * once. Conversions to and from Vector3Buffer and Vector3f are explicit.
+ * @author vanjac
+ */
+public class Vector3fBuffer {
+    //vectors written to a direct FloatBuffer at a time by putGl()
+    private static final int GL_CHUNK = 1024;
+    
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+    private final int size;
+    
+    /**
+     * Create a new Vector3fBuffer with all vectors set to zero.
+     * @param size the number of vectors in the buffer
+     */
+    public Vector3fBuffer(int size) {
+        if(size < 0)
+            throw new IllegalArgumentException("Negative size: " + size);
+        this.size = size;
+        x = new float[size];
+        y = new float[size];
+        z = new float[size];
+    }
+    
+    /**
+     * Create a new Vector3fBuffer containing the values of an array of vectors.
+     * @param vectors the vectors to copy
+     */
+    public Vector3fBuffer(Vector3f[] vectors) {
+        this(vectors.length);
+        for(int i = 0; i < size; i++)
+            set(i, vectors[i]);
+    }
+    
+    /**
+     * Create a new Vector3fBuffer from an interleaved array of coordinates, in
+     * the same layout as Vector3f.toArray(): x at index 0, y at index 1, z at
+     * index 2, then the next vector starting at index 3, and so on.
+     * @param a the array of coordinates. Its length must be a multiple of 3.
+     */
+    public Vector3fBuffer(float[] a) {
+        this(checkInterleavedLength(a.length) / 3);
+        for(int i = 0, j = 0; i < size; i++, j += 3) {
+            x[i] = a[j];
+            y[i] = a[j + 1];
+            z[i] = a[j + 2];
+        }
+    }
+    
+    /**
+     * Create a new Vector3fBuffer with the values of a Vector3Buffer, rounded
+     * to the nearest float.
+     * @param b the buffer to convert
+     */
+    public Vector3fBuffer(Vector3Buffer b) {
+        this(b.size());
+        double[] bx = b.getXArray(), by = b.getYArray(), bz = b.getZArray();
+        for(int i = 0; i < size; i++) {
+            x[i] = (float)bx[i];
+            y[i] = (float)by[i];
+            z[i] = (float)bz[i];
+        }
+    }
+    
+    private static int checkInterleavedLength(int length) {
+        if(length % 3 != 0)
+            throw new IllegalArgumentException(
+                    "Array length is not a multiple of 3: " + length);
+        return length;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder stringValue = new StringBuilder("Vector3fBuffer [ ");
+        for(int i = 0; i < size; i++) {
+            stringValue.append("(");
+            stringValue.append(get(i).toString());
+            stringValue.append(") ");
+        }
+        stringValue.append("]");
+        return stringValue.toString();
+    }
+    
+    /**
+     * Get the number of vectors in this buffer.
+     * @return the size of the buffer
+     */
+    public int size() {
+        return size;
+    }
+    
+    public float getX(int i) {
+        return x[i];
+    }
+    
+    public float getY(int i) {
+        return y[i];
+    }
+    
+    public float getZ(int i) {
+        return z[i];
+    }
+    
+    /**
+     * Get a vector in this buffer as a new, immutable Vector3f.
+     * @param i the index of the vector
+     * @return a Vector3f with the same coordinates
+     */
+    public Vector3f get(int i) {
+        return new Vector3f(x[i], y[i], z[i]);
+    }
+    
+    public void set(int i, float newX, float newY, float newZ) {
+        x[i] = newX;
+        y[i] = newY;
+        z[i] = newZ;
+    }
+    
+    public void set(int i, Vector3f v) {
+        set(i, v.getX(), v.getY(), v.getZ());
+    }
+    
+    /**
+     * Get the array that stores the x coordinates of this buffer. This is the
+     * backing array, not a copy, so changes to it will change the buffer.
+     * @return the x coordinate array
+     */
+    public float[] getXArray() {
+        return x;
+    }
+    
+    /**
+     * Get the array that stores the y coordinates of this buffer. This is the
+     * backing array, not a copy, so changes to it will change the buffer.
+     * @return the y coordinate array
+     */
+    public float[] getYArray() {
+        return y;
+    }
+    
+    /**
+     * Get the array that stores the z coordinates of this buffer. This is the
+     * backing array, not a copy, so changes to it will change the buffer.
+     * @return the z coordinate array
+     */
+    public float[] getZArray() {
+        return z;
+    }
+    
+    /**
+     * Create an array of new Vector3f objects with the values in this buffer.
+     * @return an array of vectors
+     */
+    public Vector3f[] toVectors() {
+        Vector3f[] vectors = new Vector3f[size];
+        for(int i = 0; i < size; i++)
+            vectors[i] = get(i);
+        return vectors;
+    }
+    
+    /**
+     * Get an interleaved array representation of this buffer, in the same
+     * layout as Vector3f.toArray() for each vector.
+     * @return an array of 3 * size() coordinates
+     */
+    public float[] toArray() {
+        float[] a = new float[size * 3];
+        for(int i = 0, j = 0; i < size; i++, j += 3) {
+            a[j] = x[i];
+            a[j + 1] = y[i];
+            a[j + 2] = z[i];
+        }
+        return a;
+    }
+    
+    /**
+     * Special version of toArray() for OpenGL. The x, y and z values of each
+     * vector are rearranged, like Vector3f.toGlArray().
+     * @return an array of 3 * size() coordinates, in the order y, z, x
+     */
+    public float[] toGlArray() {
+        float[] a = new float[size * 3];
+        for(int i = 0, j = 0; i < size; i++, j += 3) {
+            a[j] = y[i];
+            a[j + 1] = z[i];
+            a[j + 2] = x[i];
+        }
+        return a;
+    }
+    
+    /**
+     * Convert this buffer to a double-precision Vector3Buffer. This is exact.
+     * @return a new Vector3Buffer with the same values
+     */
+    public Vector3Buffer toVector3Buffer() {
+        Vector3Buffer b = new Vector3Buffer(size);
+        double[] bx = b.getXArray(), by = b.getYArray(), bz = b.getZArray();
+        for(int i = 0; i < size; i++) {
+            bx[i] = x[i];
+            by[i] = y[i];
+            bz[i] = z[i];
+        }
+        return b;
+    }
+    
+    /**
+     * Write every vector in this buffer to a FloatBuffer, in the same order
+     * as toGlArray(): y, z, x for each vector. The values are written at the
+     * current position of the FloatBuffer, which is advanced past them. This
+     * works well with direct buffers that are passed to OpenGL.
+     * @param dest the buffer to write to
+     * @throws BufferOverflowException if dest doesn't have room for
+     * 3 * size() values. Nothing is written in that case.
+     */
+    public void putGl(FloatBuffer dest) {
+        if(dest.remaining() < size * 3)
+            throw new BufferOverflowException();
+        if(dest.hasArray()) {
+            float[] a = dest.array();
+            int j = dest.arrayOffset() + dest.position();
+            for(int i = 0; i < size; i++, j += 3) {
+                a[j] = y[i];
+                a[j + 1] = z[i];
+                a[j + 2] = x[i];
+            }
+            dest.position(dest.position() + size * 3);
+            return;
+        }
+        //a direct buffer: bulk put is much faster than one value at a time
+        float[] chunk = new float[Math.min(size, GL_CHUNK) * 3];
+        for(int start = 0; start < size; start += GL_CHUNK) {
+            int end = Math.min(start + GL_CHUNK, size);
+            for(int i = start, j = 0; i < end; i++, j += 3) {
+                chunk[j] = y[i];
+                chunk[j + 1] = z[i];
+                chunk[j + 2] = x[i];
+            }
+            dest.put(chunk, 0, (end - start) * 3);
+        }
+    }
+    
+    private static float[] toFloats(double[] a) {
+        float[] f = new float[a.length];
+        for(int i = 0; i < a.length; i++)
+            f[i] = (float)a[i];
+        return f;
+    }
+    
+    private void checkSize(Vector3fBuffer b) {
+        if(b.size != size)
+            throw new IllegalArgumentException(
+                    "Buffer sizes don't match: " + size + ", " + b.size);
+    }
+    
+    private void checkSize(float[] a) {
+        if(a.length < size)
+            throw new IllegalArgumentException(
+                    "Array is too small: " + a.length + " < " + size);
+    }
+    
+    /**
+     * Add each vector in another buffer to the vector at the same index in
+     * this buffer.
+     * @param b the other buffer
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void add(Vector3fBuffer b, Vector3fBuffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] + b.x[i];
+            dest.y[i] = y[i] + b.y[i];
+            dest.z[i] = z[i] + b.z[i];
+        }
+    }
+    
+    /**
+     * Add the same vector to every vector in this buffer.
+     * @param v the vector to add
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void add(Vector3f v, Vector3fBuffer dest) {
+        checkSize(dest);
+        float vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] + vx;
+            dest.y[i] = y[i] + vy;
+            dest.z[i] = z[i] + vz;
+        }
+    }
+    
+    /**
+     * Subtract each vector in another buffer from the vector at the same index
+     * in this buffer.
+     * @param b the other buffer
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void subtract(Vector3fBuffer b, Vector3fBuffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] - b.x[i];
+            dest.y[i] = y[i] - b.y[i];
+            dest.z[i] = z[i] - b.z[i];
+        }
+    }
+    
+    /**
+     * Subtract the same vector from every vector in this buffer.
+     * @param v the vector to subtract
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void subtract(Vector3f v, Vector3fBuffer dest) {
+        checkSize(dest);
+        float vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] - vx;
+            dest.y[i] = y[i] - vy;
+            dest.z[i] = z[i] - vz;
+        }
+    }
+    
+    /**
+     * Multiply every vector in this buffer by a number.
+     * @param n the number to multiply by
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void scale(float n, Vector3fBuffer dest) {
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] * n;
+            dest.y[i] = y[i] * n;
+            dest.z[i] = z[i] * n;
+        }
+    }
+    
+    /**
+     * Find the dot product of each vector in this buffer and the vector at the
+     * same index in another buffer.
+     * @param b the other buffer
+     * @param dest the array to store the dot products in. Must have a length
+     * of at least size().
+     */
+    public void dot(Vector3fBuffer b, float[] dest) {
+        checkSize(b);
+        checkSize(dest);
+        Simd.floatKernels().dot(x, y, z, b.x, b.y, b.z, dest, 0, size);
+    }
+    
+    /**
+     * Find the cross product of each vector in this buffer and the vector at
+     * the same index in another buffer.
+     * @param b the other buffer
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void cross(Vector3fBuffer b, Vector3fBuffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        Simd.floatKernels().cross(x, y, z, b.x, b.y, b.z,
+                dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Make every vector in this buffer a unit vector, with the same direction
+     * and a magnitude of 1.
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void normalize(Vector3fBuffer dest) {
+        checkSize(dest);
+        Simd.floatKernels().normalize(x, y, z, dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Linear interpolation between each vector in this buffer and the vector
+     * at the same index in another buffer.
+     * @param b the other buffer
+     * @param amount amount to move between vectors. See Vector3.lerp().
+     * @param dest the buffer to store the results in. Can be this buffer or b.
+     */
+    public void lerp(Vector3fBuffer b, float amount, Vector3fBuffer dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            dest.x[i] = x[i] + (b.x[i] - x[i]) * amount;
+            dest.y[i] = y[i] + (b.y[i] - y[i]) * amount;
+            dest.z[i] = z[i] + (b.z[i] - z[i]) * amount;
+        }
+    }
+    
+    /**
+     * Rotate every vector in this buffer. See Vector3.rotate(). The rotation
+     * matrix is rounded to float precision.
+     * @param amount the rotation
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void rotate(Rotation3 amount, Vector3fBuffer dest) {
+        checkSize(dest);
+        Simd.floatKernels().transform(toFloats(amount.matrix()), x, y, z,
+                dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Rotate every vector in this buffer by a quaternion. See
+     * Quaternion.rotate().
+     * @param q the rotation. Should be a unit quaternion.
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void rotate(Quaternion q, Vector3fBuffer dest) {
+        transform(toFloats(q.getMatrix()), dest);
+    }
+    
+    /**
+     * Multiply every vector in this buffer by a 3x3 matrix.
+     * @param matrix 9 values in row-major order, the same layout as
+     * Rotation3.getMatrix()
+     * @param dest the buffer to store the results in. Can be this buffer.
+     */
+    public void transform(float[] matrix, Vector3fBuffer dest) {
+        if(matrix.length != 9)
+            throw new IllegalArgumentException(
+                    "Matrix must have 9 values: " + matrix.length);
+        checkSize(dest);
+        Simd.floatKernels().transform(matrix, x, y, z,
+                dest.x, dest.y, dest.z, 0, size);
+    }
+    
+    /**
+     * Find the signed distance from a plane to each point in this buffer. The
+     * distance is positive on the side the plane's normal points to.
+     * @param p the plane
+     * @param dest the array to store the distances in. Must have a length of
+     * at least size().
+     */
+    public void planeDistance(Plane p, float[] dest) {
+        checkSize(dest);
+        Simd.floatKernels().planeDistance(
+                toFloats(CachedPlane.coefficients(p)), x, y, z, dest, 0, size);
+    }
+    
+    /**
+     * Check which points in this buffer are inside an axis-aligned box.
+     * Points on the surface of the box count as inside.
+     * @param min the corner of the box with the lowest coordinates
+     * @param max the corner of the box with the highest coordinates
+     * @param dest the array to store the results in: true for each point
+     * inside the box. Must have a length of at least size().
+     * @return the number of points inside the box
+     */
+    public int insideBox(Vector3f min, Vector3f max, boolean[] dest) {
+        if(dest.length < size)
+            throw new IllegalArgumentException(
+                    "Array is too small: " + dest.length + " < " + size);
+        return Simd.floatKernels().insideBox(
+                min.getX(), min.getY(), min.getZ(),
+                max.getX(), max.getY(), max.getZ(),
+                x, y, z, dest, 0, size);
+    }
+    
+    /**
+     * Find the distance between each vector in this buffer and the vector at
+     * the same index in another buffer.
+     * @param b the other buffer
+     * @param dest the array to store the distances in. Must have a length of
+     * at least size().
+     */
+    public void distance(Vector3fBuffer b, float[] dest) {
+        checkSize(b);
+        checkSize(dest);
+        for(int i = 0; i < size; i++) {
+            float dx = b.x[i] - x[i];
+            float dy = b.y[i] - y[i];
+            float dz = b.z[i] - z[i];
+            dest[i] = (float)Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+}
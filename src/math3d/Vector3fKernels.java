@@ -0,0 +1,77 @@
+package math3d;
+
+/**
+ * The loops behind the bulk operations of Vector3fBuffer, the float versions
+ * of Vector3Kernels. The same rules apply: each method processes the indices
+ * from start (inclusive) to end (exclusive), and subclasses must do the
+ * arithmetic in the same order, in float precision, so that every
+ * implementation gives identical results.
+ * @author vanjac
+ */
+class Vector3fKernels {
+    void dot(float[] ax, float[] ay, float[] az,
+            float[] bx, float[] by, float[] bz,
+            float[] dest, int start, int end) {
+        for(int i = start; i < end; i++)
+            dest[i] = ax[i]*bx[i] + ay[i]*by[i] + az[i]*bz[i];
+    }
+    
+    void cross(float[] ax, float[] ay, float[] az,
+            float[] bx, float[] by, float[] bz,
+            float[] dx, float[] dy, float[] dz, int start, int end) {
+        for(int i = start; i < end; i++) {
+            float x1 = ax[i], y1 = ay[i], z1 = az[i];
+            float x2 = bx[i], y2 = by[i], z2 = bz[i];
+            dx[i] = y1 * z2 - z1 * y2;
+            dy[i] = z1 * x2 - x1 * z2;
+            dz[i] = x1 * y2 - y1 * x2;
+        }
+    }
+    
+    void normalize(float[] x, float[] y, float[] z,
+            float[] dx, float[] dy, float[] dz, int start, int end) {
+        for(int i = start; i < end; i++) {
+            float scale = 1 / (float)Math.sqrt(
+                    x[i]*x[i] + y[i]*y[i] + z[i]*z[i]);
+            dx[i] = x[i] * scale;
+            dy[i] = y[i] * scale;
+            dz[i] = z[i] * scale;
+        }
+    }
+    
+    //m is a row-major 3x3 matrix, like Rotation3.getMatrix()
+    void transform(float[] m, float[] x, float[] y, float[] z,
+            float[] dx, float[] dy, float[] dz, int start, int end) {
+        for(int i = start; i < end; i++) {
+            float vx = x[i], vy = y[i], vz = z[i];
+            dx[i] = m[0] * vx + m[1] * vy + m[2] * vz;
+            dy[i] = m[3] * vx + m[4] * vy + m[5] * vz;
+            dz[i] = m[6] * vx + m[7] * vy + m[8] * vz;
+        }
+    }
+    
+    //c is the plane coefficients { a, b, c, d }
+    void planeDistance(float[] c, float[] x, float[] y, float[] z,
+            float[] dest, int start, int end) {
+        float a = c[0], b = c[1], cc = c[2], d = c[3];
+        for(int i = start; i < end; i++)
+            dest[i] = a * x[i] + b * y[i] + cc * z[i] + d;
+    }
+    
+    //returns the number of points inside
+    int insideBox(float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ,
+            float[] x, float[] y, float[] z,
+            boolean[] dest, int start, int end) {
+        int count = 0;
+        for(int i = start; i < end; i++) {
+            boolean inside = x[i] >= minX && x[i] <= maxX
+                    && y[i] >= minY && y[i] <= maxY
+                    && z[i] >= minZ && z[i] <= maxZ;
+            dest[i] = inside;
+            if(inside)
+                count++;
+        }
+        return count;
+    }
+}
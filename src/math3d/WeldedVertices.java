@@ -0,0 +1,389 @@
+package math3d;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The result of welding vertices: merging vertices whose positions are within
+ * an epsilon of each other, such as the duplicated corners of polygons in an
+ * imported mesh, which can differ by rounding errors. Each input vertex is
+ * mapped to the index of a unique vertex, and the unique positions are
+ * stored in a packed array.
+ *
+ * Welding is greedy, in the order the vertices are given: a vertex is merged
+ * into an earlier unique vertex within the epsilon if there is one, otherwise
+ * it becomes a new unique vertex. So every vertex is within the epsilon of the
+ * unique vertex it maps to, and no two unique vertices are within the epsilon
+ * of each other. The position of a unique vertex is the position of one of the
+ * vertices merged into it (its source vertex), which is the first one in a
+ * sequential weld.
+ *
+ * Nearby vertices are found with a hashed uniform grid, using cells twice the
+ * size of the epsilon and primitive long keys, so no objects are created per
+ * vertex. In parallel, space is divided into slabs which are welded at the
+ * same time, then the vertices on the boundaries between slabs are welded. A
+ * parallel weld follows the same rules, but vertices close to a slab boundary
+ * may be merged into a different unique vertex than a sequential weld would
+ * choose.
+ * @author vanjac
+ */
+public class WeldedVertices {
+    private static final int PARALLEL_THRESHOLD = 65536;
+    //the minimum width of a slab, in cells
+    private static final int MIN_SLAB_WIDTH = 4;
+    
+    private final int[] indices;
+    private final int[] sourceVertices;
+    private final double[] positions;
+    
+    /**
+     * Weld an array of vertex positions.
+     * @param positions 3 values for each vertex: its x, y and z coordinates,
+     * in the same layout as Vector3.toArray()
+     * @param epsilon vertices at most this far apart may be merged. Must be
+     * greater than 0.
+     * @param parallel true to use multiple threads for large arrays
+     */
+    public WeldedVertices(double[] positions, double epsilon,
+            boolean parallel) {
+        if(positions.length % 3 != 0)
+            throw new IllegalArgumentException(
+                    "Array length is not a multiple of 3: "
+                    + positions.length);
+        if(!(epsilon > 0) || Double.isInfinite(epsilon))
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        int count = positions.length / 3;
+        int[] representative = new Welder(positions, count, epsilon)
+                .weld(parallel && count > PARALLEL_THRESHOLD);
+        
+        //number the unique vertices in order
+        int[] unique = new int[count];
+        int uniqueCount = 0;
+        for(int v = 0; v < count; v++) {
+            if(representative[v] == v)
+                unique[v] = uniqueCount++;
+        }
+        indices = new int[count];
+        sourceVertices = new int[uniqueCount];
+        this.positions = new double[uniqueCount * 3];
+        for(int v = 0; v < count; v++) {
+            int u = unique[representative[v]];
+            indices[v] = u;
+            if(representative[v] == v) {
+                sourceVertices[u] = v;
+                System.arraycopy(positions, v * 3, this.positions, u * 3, 3);
+            }
+        }
+    }
+    
+    /**
+     * Weld the vertices of a collection of polygons. The input vertices are
+     * the vertices of each polygon in the order of getVertices(), one polygon
+     * after another in iteration order. Only positions are compared; normals
+     * are ignored.
+     * @param polygons the polygons
+     * @param epsilon vertices at most this far apart may be merged. Must be
+     * greater than 0.
+     * @param parallel true to use multiple threads for large meshes
+     */
+    public WeldedVertices(Collection<? extends Polygon> polygons,
+            double epsilon, boolean parallel) {
+        this(polygonPositions(polygons), epsilon, parallel);
+    }
+    
+    private static double[] polygonPositions(
+            Collection<? extends Polygon> polygons) {
+        int count = 0;
+        for(Polygon p : polygons)
+            count += p.getVertices().size();
+        double[] positions = new double[count * 3];
+        int i = 0;
+        for(Polygon p : polygons) {
+            for(Polygon.Vertex v : p.getVertices()) {
+                Vector3 position = v.getPosition();
+                positions[i++] = position.getX();
+                positions[i++] = position.getY();
+                positions[i++] = position.getZ();
+            }
+        }
+        return positions;
+    }
+    
+    @Override
+    public String toString() {
+        return "WeldedVertices [ " + indices.length + " -> "
+                + sourceVertices.length + " ]";
+    }
+    
+    /**
+     * Get the number of vertices before welding.
+     * @return the number of input vertices
+     */
+    public int getInputCount() {
+        return indices.length;
+    }
+    
+    /**
+     * Get the number of unique vertices after welding.
+     * @return the number of unique vertices
+     */
+    public int getVertexCount() {
+        return sourceVertices.length;
+    }
+    
+    /**
+     * Get the unique vertex that an input vertex was merged into.
+     * @param vertex the index of the input vertex
+     * @return the index of the unique vertex
+     */
+    public int getIndex(int vertex) {
+        return indices[vertex];
+    }
+    
+    /**
+     * Get the index of the unique vertex for every input vertex.
+     * @return a new array with one index for each input vertex
+     */
+    public int[] getIndices() {
+        return indices.clone();
+    }
+    
+    /**
+     * Get the input vertex that a unique vertex takes its position from.
+     * @param vertex the index of the unique vertex
+     * @return the index of the input vertex
+     */
+    public int getSourceVertex(int vertex) {
+        return sourceVertices[vertex];
+    }
+    
+    public Vector3 getPosition(int vertex) {
+        return new Vector3(positions[vertex * 3], positions[vertex * 3 + 1],
+                positions[vertex * 3 + 2]);
+    }
+    
+    /**
+     * Get the positions of the unique vertices.
+     * @return a new array of 3 values for each unique vertex
+     */
+    public double[] getPositions() {
+        return positions.clone();
+    }
+    
+    /**
+     * Finds the representative of each vertex: the source vertex of the
+     * unique vertex it is merged into.
+     */
+    private static final class Welder {
+        final double[] positions;
+        final int count;
+        final double epsilonSquare;
+        final double cellsPerUnit;
+        final int[] representative;
+        //links vertices in the same table entry. Each vertex is only in one
+        //table, so the tables can share this array.
+        final int[] next;
+        
+        Welder(double[] positions, int count, double epsilon) {
+            this.positions = positions;
+            this.count = count;
+            epsilonSquare = epsilon * epsilon;
+            cellsPerUnit = 1 / (epsilon * 2);
+            representative = new int[count];
+            next = new int[count];
+        }
+        
+        int[] weld(boolean parallel) {
+            int slabs = parallel
+                    ? ForkJoinPool.getCommonPoolParallelism() * 4 : 1;
+            if(slabs > 1)
+                weldSlabs(slabs);
+            else
+                weldRange(null, 0, count, new CellTable(), null, null);
+            return representative;
+        }
+        
+        void weldSlabs(int maxSlabs) {
+            //divide the x axis into slabs of whole cells. The first column of
+            //cells in every slab after the first is a boundary, which keeps
+            //the other columns of neighboring slabs more than epsilon apart.
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+            for(int v = 0; v < count; v++) {
+                long column = cell(positions[v * 3]);
+                min = Math.min(min, column);
+                max = Math.max(max, column);
+            }
+            long columns = max - min + 1;
+            int slabs = (int)Math.min(maxSlabs, columns / MIN_SLAB_WIDTH);
+            if(slabs < 2) {
+                weldRange(null, 0, count, new CellTable(), null, null);
+                return;
+            }
+            long width = (columns + slabs - 1) / slabs;
+            
+            //group the vertices: slab s is group s, and the boundary at the
+            //start of slab s is group slabs + s
+            int groups = slabs * 2;
+            int[] group = new int[count];
+            int[] groupStart = new int[groups + 1];
+            for(int v = 0; v < count; v++) {
+                long column = cell(positions[v * 3]) - min;
+                int s = (int)(column / width);
+                int g = (s > 0 && column % width == 0) ? slabs + s : s;
+                group[v] = g;
+                groupStart[g + 1]++;
+            }
+            for(int g = 0; g < groups; g++)
+                groupStart[g + 1] += groupStart[g];
+            int[] order = new int[count];
+            int[] fill = Arrays.copyOf(groupStart, groups);
+            for(int v = 0; v < count; v++)
+                order[fill[group[v]]++] = v;
+            
+            CellTable[] tables = new CellTable[slabs];
+            IntStream.range(0, slabs).parallel().forEach(s -> {
+                tables[s] = new CellTable();
+                weldRange(order, groupStart[s], groupStart[s + 1], tables[s],
+                        null, null);
+            });
+            //boundaries are at least MIN_SLAB_WIDTH - 1 columns apart, so
+            //they can be welded at the same time
+            IntStream.range(1, slabs).parallel().forEach(s -> {
+                int g = slabs + s;
+                weldRange(order, groupStart[g], groupStart[g + 1],
+                        new CellTable(), tables[s - 1], tables[s]);
+            });
+        }
+        
+        //weld the vertices order[start..end) (or start..end if order is
+        //null), in order, into table. They are also merged into vertices
+        //already in the other tables, which can be null.
+        void weldRange(int[] order, int start, int end, CellTable table,
+                CellTable other1, CellTable other2) {
+            for(int i = start; i < end; i++) {
+                int v = order == null ? i : order[i];
+                double x = positions[v * 3] * cellsPerUnit;
+                double y = positions[v * 3 + 1] * cellsPerUnit;
+                double z = positions[v * 3 + 2] * cellsPerUnit;
+                long cx = (long)Math.floor(x);
+                long cy = (long)Math.floor(y);
+                long cz = (long)Math.floor(z);
+                //a vertex within epsilon (half a cell) can only be in this
+                //cell or the neighbor on the closer side, on each axis
+                long nx = x - cx < 0.5 ? cx - 1 : cx + 1;
+                long ny = y - cy < 0.5 ? cy - 1 : cy + 1;
+                long nz = z - cz < 0.5 ? cz - 1 : cz + 1;
+                int found = -1;
+                for(int n = 0; n < 8 && found == -1; n++) {
+                    long key = key((n & 1) == 0 ? cx : nx,
+                            (n & 2) == 0 ? cy : ny, (n & 4) == 0 ? cz : nz);
+                    found = find(table, key, v);
+                    if(found == -1 && other1 != null)
+                        found = find(other1, key, v);
+                    if(found == -1 && other2 != null)
+                        found = find(other2, key, v);
+                }
+                if(found == -1) {
+                    representative[v] = v;
+                    table.add(key(cx, cy, cz), v, next);
+                } else {
+                    representative[v] = found;
+                }
+            }
+        }
+        
+        //find a representative in a cell within epsilon of vertex v
+        int find(CellTable table, long key, int v) {
+            double x = positions[v * 3], y = positions[v * 3 + 1];
+            double z = positions[v * 3 + 2];
+            for(int r = table.get(key); r != -1; r = next[r]) {
+                double dx = positions[r * 3] - x;
+                double dy = positions[r * 3 + 1] - y;
+                double dz = positions[r * 3 + 2] - z;
+                if(dx * dx + dy * dy + dz * dz <= epsilonSquare)
+                    return r;
+            }
+            return -1;
+        }
+        
+        long cell(double coordinate) {
+            return (long)Math.floor(coordinate * cellsPerUnit);
+        }
+        
+        //21 bits of each cell coordinate. Cells far apart can have the same
+        //key, but that only means a few extra distance checks.
+        static long key(long cx, long cy, long cz) {
+            return ((cx & 0x1FFFFF) << 42) | ((cy & 0x1FFFFF) << 21)
+                    | (cz & 0x1FFFFF);
+        }
+    }
+    
+    /**
+     * An open-addressing hash table from cell keys to the first vertex in a
+     * linked list of vertices in that cell.
+     */
+    private static final class CellTable {
+        long[] keys;
+        int[] heads;
+        int size;
+        
+        CellTable() {
+            keys = new long[1024];
+            heads = new int[1024];
+            Arrays.fill(heads, -1);
+        }
+        
+        int get(long key) {
+            int mask = heads.length - 1;
+            for(int i = hash(key) & mask; heads[i] != -1; i = (i + 1) & mask) {
+                if(keys[i] == key)
+                    return heads[i];
+            }
+            return -1;
+        }
+        
+        void add(long key, int vertex, int[] next) {
+            int mask = heads.length - 1;
+            int i = hash(key) & mask;
+            while(heads[i] != -1 && keys[i] != key)
+                i = (i + 1) & mask;
+            if(heads[i] == -1) {
+                keys[i] = key;
+                size++;
+            }
+            next[vertex] = heads[i];
+            heads[i] = vertex;
+            if(size * 2 > heads.length)
+                grow();
+        }
+        
+        void grow() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[oldHeads.length * 2];
+            Arrays.fill(heads, -1);
+            int mask = heads.length - 1;
+            for(int j = 0; j < oldHeads.length; j++) {
+                if(oldHeads[j] == -1)
+                    continue;
+                int i = hash(oldKeys[j]) & mask;
+                while(heads[i] != -1)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                heads[i] = oldHeads[j];
+            }
+        }
+        
+        static int hash(long key) {
+            //the finalizer of MurmurHash3, to spread grid-aligned keys
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb3f99f5a2d3dL;
+            key ^= key >>> 33;
+            return (int)key;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class BoundingVolumeHierarchyTest {
+    
+    public BoundingVolumeHierarchyTest() { }
+    
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(3);
+        int count = 3000;
+        double[] triangles = new double[count * 9];
+        for(int t = 0; t < count; t++) {
+            double cx = random.nextDouble() * 20 - 10;
+            double cy = random.nextDouble() * 20 - 10;
+            double cz = random.nextDouble() * 20 - 10;
+            for(int i = 0; i < 9; i += 3) {
+                triangles[t * 9 + i] = cx + random.nextDouble() - 0.5;
+                triangles[t * 9 + i + 1] = cy + random.nextDouble() - 0.5;
+                triangles[t * 9 + i + 2] = cz + random.nextDouble() - 0.5;
+            }
+        }
+        
+        BoundingVolumeHierarchy parallel =
+                new BoundingVolumeHierarchy(triangles, true);
+        BoundingVolumeHierarchy sequential =
+                new BoundingVolumeHierarchy(triangles, false);
+        assertEquals(count, parallel.getTriangleCount());
+        BoundingVolumeHierarchy.Hit hit = new BoundingVolumeHierarchy.Hit();
+        
+        int hits = 0;
+        for(int r = 0; r < 2000; r++) {
+            Vector3 origin = new Vector3(random.nextDouble() * 30 - 15,
+                    random.nextDouble() * 30 - 15, random.nextDouble() * 30 - 15);
+            Vector3 direction = new Vector3(random.nextGaussian(),
+                    random.nextGaussian(), random.nextGaussian());
+            double maxDistance = r % 2 == 0 ? Double.POSITIVE_INFINITY : 5;
+            
+            double[] expected = bruteForce(triangles, origin, direction,
+                    maxDistance);
+            for(BoundingVolumeHierarchy bvh : new BoundingVolumeHierarchy[] {
+                    parallel, sequential }) {
+                boolean found = bvh.closestHit(origin, direction, maxDistance,
+                        hit);
+                assertEquals(expected != null, found);
+                assertEquals(found, bvh.anyHit(origin, direction,
+                        maxDistance, new BoundingVolumeHierarchy.Hit()));
+                if(found) {
+                    assertEquals((int)expected[0], hit.getTriangleIndex());
+                    assertTrue(approximatelyEqual(expected[1],
+                            hit.getDistance()));
+                    assertTrue(approximatelyEqual(expected[2], hit.getU()));
+                    assertTrue(approximatelyEqual(expected[3], hit.getV()));
+                    assertNull(hit.getPolygon());
+                }
+            }
+            if(expected != null)
+                hits++;
+        }
+        assertTrue(hits > 100); //make sure the test means something
+    }
+    
+    @Test
+    public void testAxisParallelRays() {
+        //a flat grid of squares, each split into 2 triangles. Rays straight
+        //down onto grid lines start exactly on the bounds of some nodes.
+        int size = 16;
+        double[] triangles = new double[size * size * 18];
+        int i = 0;
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                double[] square = {x, y, 0, x + 1, y, 0, x + 1, y + 1, 0,
+                    x, y, 0, x + 1, y + 1, 0, x, y + 1, 0};
+                System.arraycopy(square, 0, triangles, i, 18);
+                i += 18;
+            }
+        }
+        BoundingVolumeHierarchy bvh =
+                new BoundingVolumeHierarchy(triangles, false);
+        BoundingVolumeHierarchy.Hit hit = new BoundingVolumeHierarchy.Hit();
+        Vector3 down = new Vector3(0, 0, -1);
+        for(int y = 0; y <= size * 2; y++) {
+            for(int x = 0; x <= size * 2; x++) {
+                Vector3 origin = new Vector3(x / 2.0, y / 2.0, 5);
+                assertTrue(origin.toString(), bvh.closestHit(origin, down,
+                        Double.POSITIVE_INFINITY, hit));
+                assertEquals(5, hit.getDistance(), 0);
+                assertTrue(bvh.anyHit(origin, down, Double.POSITIVE_INFINITY,
+                        hit));
+            }
+        }
+        //along the surface, and just outside the edge
+        assertFalse(bvh.closestHit(new Vector3(-1, 3, 0),
+                new Vector3(1, 0, 0), Double.POSITIVE_INFINITY, hit));
+        assertFalse(bvh.closestHit(new Vector3(size + 1E-9, 3, 5), down,
+                Double.POSITIVE_INFINITY, hit));
+    }
+    
+    @Test
+    public void testPolygons() {
+        List<Polygon> polygons = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            polygons.add(new ConvexPolygon(new Vector3[] {
+                new Vector3(0, 0, i), new Vector3(2, 0, i),
+                new Vector3(2, 2, i), new Vector3(0, 2, i)
+            }, VertexOrder.COUNTER_CLOCKWISE));
+        }
+        BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(polygons);
+        assertEquals(20, bvh.getTriangleCount());
+        BoundingVolumeHierarchy.Hit hit = new BoundingVolumeHierarchy.Hit();
+        
+        //from above, pointing down: hits the top quad
+        assertTrue(bvh.closestHit(new Vector3(1.5, 0.5, 20),
+                new Vector3(0, 0, -1), Double.POSITIVE_INFINITY, hit));
+        assertTrue(hit.getPolygon() == polygons.get(9));
+        assertEquals(9, hit.getPolygonIndex());
+        assertTrue(approximatelyEqual(11, hit.getDistance()));
+        //interpolating the vertex positions gives the hit point
+        List<Polygon.Vertex> vertices = hit.getPolygon().getVertices();
+        Vector3 point = vertices.get(hit.getVertexIndex(0)).getPosition()
+                .multiply(hit.getW())
+                .add(vertices.get(hit.getVertexIndex(1)).getPosition()
+                        .multiply(hit.getU()))
+                .add(vertices.get(hit.getVertexIndex(2)).getPosition()
+                        .multiply(hit.getV()));
+        assertTrue(approximatelyEqual(new Vector3(1.5, 0.5, 9), point));
+        
+        //from in between, pointing up
+        assertTrue(bvh.closestHit(new Vector3(1, 1, 4.5),
+                new Vector3(0, 0, 2), Double.POSITIVE_INFINITY, hit));
+        assertEquals(5, hit.getPolygonIndex());
+        assertTrue(approximatelyEqual(0.25, hit.getDistance()));
+        assertFalse(bvh.closestHit(new Vector3(1, 1, 4.5),
+                new Vector3(0, 0, 2), 0.2, hit));
+        
+        //misses to the side
+        assertFalse(bvh.anyHit(new Vector3(3, 1, 20),
+                new Vector3(0, 0, -1), Double.POSITIVE_INFINITY, hit));
+    }
+    
+    //index, distance, u, v of the closest hit, or null
+    private double[] bruteForce(double[] triangles, Vector3 origin,
+            Vector3 direction, double maxDistance) {
+        double[] closest = null;
+        for(int t = 0; t < triangles.length / 9; t++) {
+            Vector3 v0 = new Vector3(triangles[t * 9], triangles[t * 9 + 1],
+                    triangles[t * 9 + 2]);
+            Vector3 e1 = new Vector3(triangles[t * 9 + 3],
+                    triangles[t * 9 + 4], triangles[t * 9 + 5]).subtract(v0);
+            Vector3 e2 = new Vector3(triangles[t * 9 + 6],
+                    triangles[t * 9 + 7], triangles[t * 9 + 8]).subtract(v0);
+            Vector3 p = direction.cross(e2);
+            double det = e1.dot(p);
+            Vector3 s = origin.subtract(v0);
+            double u = s.dot(p) / det;
+            Vector3 q = s.cross(e1);
+            double v = direction.dot(q) / det;
+            double d = e2.dot(q) / det;
+            if(u >= 0 && v >= 0 && u + v <= 1 && d > 0 && d < maxDistance
+                    && (closest == null || d < closest[1]))
+                closest = new double[] {t, d, u, v};
+        }
+        return closest;
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
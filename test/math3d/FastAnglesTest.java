@@ -0,0 +1,97 @@
+package math3d;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class FastAnglesTest {
+    
+    public FastAnglesTest() { }
+    
+    @After
+    public void tearDown() {
+        FastAngles.setEnabled(false);
+    }
+    
+    @Test
+    public void testDirectionAccuracy() {
+        Random r = new Random();
+        double maxError = 0;
+        for(int i = 0; i < 100000; i++) {
+            double x = r.nextGaussian() * 100;
+            double y = r.nextGaussian() * 100;
+            maxError = Math.max(maxError, angleError(
+                    Vector2.direction(x, y), FastAngles.direction(x, y)));
+        }
+        assertTrue("max error " + maxError, maxError < 3E-8);
+        
+        //axes and diagonals
+        for(int i = 0; i < 8; i++) {
+            Vector2 v = Vector2.unitVector(i * Math.PI / 4).multiply(3);
+            double exact = Vector2.direction(v.getX(), v.getY());
+            double fast = FastAngles.direction(v.getX(), v.getY());
+            assertTrue(fast >= 0 && fast < Vector2.CIRCLE);
+            assertTrue(angleError(exact, fast) < 3E-8);
+        }
+        assertTrue(FastAngles.direction(0, 0) == Vector2.direction(0, 0));
+    }
+    
+    @Test
+    public void testSinCosAccuracy() {
+        Random r = new Random();
+        double maxError = 0;
+        for(int i = 0; i < 100000; i++) {
+            double a = (r.nextDouble() - 0.5) * 2 * Math.pow(10, r.nextInt(7));
+            maxError = Math.max(maxError,
+                    Math.abs(Math.sin(a) - FastAngles.sin(a)));
+            maxError = Math.max(maxError,
+                    Math.abs(Math.cos(a) - FastAngles.cos(a)));
+            
+            MutableVector2 v = FastAngles.rotate(1, 0, a, new MutableVector2());
+            maxError = Math.max(maxError, Math.abs(Math.cos(a) - v.getX()));
+            maxError = Math.max(maxError, Math.abs(Math.sin(a) - v.getY()));
+        }
+        assertTrue("max error " + maxError, maxError < 1E-10);
+        assertTrue(FastAngles.sin(1E9) == Math.sin(1E9));
+        assertTrue(Double.isNaN(FastAngles.cos(Double.NaN)));
+    }
+    
+    @Test
+    public void testFixRotation() {
+        Random r = new Random();
+        for(int i = 0; i < 100000; i++) {
+            double rotation = (r.nextDouble() - 0.5) * 2000;
+            double exact = Vector2.fixRotation(rotation);
+            double fast = FastAngles.fixRotation(rotation);
+            assertTrue(fast >= 0 && fast < Vector2.CIRCLE);
+            assertTrue(angleError(exact, fast) < 1E-12);
+        }
+        assertTrue(FastAngles.fixRotation(-1E-18) < Vector2.CIRCLE);
+        assertTrue(FastAngles.fixRotation(Vector2.CIRCLE) == 0);
+    }
+    
+    @Test
+    public void testEnabled() {
+        Vector2 v = new Vector2(3, -4);
+        double exact = v.direction();
+        Direction3 d = new Direction3(0.3, 1.9);
+        Vector3 exactUnit = d.getUnitVector();
+        
+        FastAngles.setEnabled(true);
+        assertTrue(angleError(exact, v.direction()) < 3E-8);
+        Direction3 fastD = new Direction3(0.3, 1.9);
+        assertTrue(exactUnit.distanceTo(fastD.getUnitVector()) < 1E-9);
+        assertTrue(v.rotate(1).distanceTo(
+                new MutableVector2(v).rotate(1).toVector2()) < 1E-12);
+    }
+    
+    private double angleError(double a, double b) {
+        double difference = Math.abs(a - b);
+        return Math.min(difference, Vector2.CIRCLE - difference);
+    }
+}
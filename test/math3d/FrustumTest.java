@@ -0,0 +1,193 @@
+package math3d;
+
+import java.util.*;
+import math3d.Frustum.Containment;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class FrustumTest {
+    //looking along x, 90 degrees each way, from 1 to 100
+    private final Frustum frustum = new Frustum(new Vector3(0, 0, 0),
+            Rotation3.ZERO, Math.PI / 2, 1, 1, 100);
+    
+    public FrustumTest() { }
+    
+    @Test
+    public void testPoints() {
+        assertEquals(Containment.INSIDE, frustum.test(new Vector3(10, 0, 0)));
+        assertEquals(Containment.INSIDE, frustum.test(new Vector3(10, 9, -9)));
+        assertEquals(Containment.OUTSIDE,
+                frustum.test(new Vector3(10, 11, 0)));
+        assertEquals(Containment.OUTSIDE,
+                frustum.test(new Vector3(10, 0, -11)));
+        assertEquals(Containment.OUTSIDE,
+                frustum.test(new Vector3(0.5, 0, 0)));
+        assertEquals(Containment.OUTSIDE,
+                frustum.test(new Vector3(101, 0, 0)));
+        assertEquals(Containment.OUTSIDE,
+                frustum.test(new Vector3(-10, 0, 0)));
+        
+        //looking along y, and wider than it is tall
+        Frustum turned = new Frustum(new Vector3(5, 5, 5),
+                new Rotation3(new Vector3(0, 1, 0), 0), Math.PI / 2, 2, 1, 100);
+        assertEquals(Containment.INSIDE,
+                turned.test(new Vector3(5, 15, 5)));
+        assertEquals(Containment.INSIDE,
+                turned.test(new Vector3(20, 15, 5)));
+        assertEquals(Containment.OUTSIDE,
+                turned.test(new Vector3(5, 15, 20)));
+        assertEquals(Containment.OUTSIDE,
+                turned.test(new Vector3(5, -15, 5)));
+    }
+    
+    @Test
+    public void testPlaneSides() {
+        //each point is only outside the plane on its own side. Looking along
+        //+x with +z up, +y is to the left.
+        Vector3[] outside = new Vector3[6];
+        outside[Frustum.LEFT] = new Vector3(10, 100, 0);
+        outside[Frustum.RIGHT] = new Vector3(10, -100, 0);
+        outside[Frustum.BOTTOM] = new Vector3(10, 0, -100);
+        outside[Frustum.TOP] = new Vector3(10, 0, 100);
+        outside[Frustum.NEAR] = new Vector3(0.5, 0, 0);
+        outside[Frustum.FAR] = new Vector3(101, 0, 0);
+        for(int i = 0; i < 6; i++) {
+            for(int j = 0; j < 6; j++) {
+                double d = frustum.getPlane(j).signedDistance(outside[i]);
+                assertEquals("point " + i + ", plane " + j, i == j, d < 0);
+            }
+        }
+    }
+    
+    @Test
+    public void testFromPlanes() {
+        //the same frustum, from planes
+        Plane[] planes = new Plane[6];
+        for(int i = 0; i < 6; i++)
+            planes[i] = Plane.fromCoefficients(
+                    frustum.getPlane(i).getPlaneCoefficients());
+        Frustum copy = new Frustum(planes);
+        Random random = new Random(15);
+        for(int i = 0; i < 1000; i++) {
+            Vector3 v = new Vector3(random.nextDouble() * 120 - 10,
+                    random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100);
+            assertEquals(frustum.test(v), copy.test(v));
+        }
+    }
+    
+    @Test
+    public void testSpheres() {
+        assertEquals(Containment.INSIDE,
+                frustum.testSphere(new Vector3(50, 0, 0), 10));
+        assertEquals(Containment.INTERSECTING,
+                frustum.testSphere(new Vector3(50, 50, 0), 10));
+        assertEquals(Containment.INTERSECTING,
+                frustum.testSphere(new Vector3(0, 0, 0), 2));
+        assertEquals(Containment.OUTSIDE,
+                frustum.testSphere(new Vector3(50, 70, 0), 10));
+        assertEquals(Containment.OUTSIDE,
+                frustum.testSphere(new Vector3(-5, 0, 0), 2));
+    }
+    
+    @Test
+    public void testBoxes() {
+        assertEquals(Containment.INSIDE, frustum.testBox(
+                new Vector3(10, -1, -1), new Vector3(12, 1, 1)));
+        assertEquals(Containment.INTERSECTING, frustum.testBox(
+                new Vector3(90, -1, -1), new Vector3(110, 1, 1)));
+        assertEquals(Containment.OUTSIDE, frustum.testBox(
+                new Vector3(10, 20, -1), new Vector3(12, 22, 1)));
+        
+        //compare with the corners of random boxes
+        Random random = new Random(16);
+        for(int n = 0; n < 2000; n++) {
+            Vector3 min = new Vector3(random.nextDouble() * 120 - 10,
+                    random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 200 - 100);
+            Vector3 max = min.add(new Vector3(random.nextDouble() * 20,
+                    random.nextDouble() * 20, random.nextDouble() * 20));
+            int inside = 0;
+            for(int corner = 0; corner < 8; corner++) {
+                Vector3 v = new Vector3(
+                        (corner & 1) == 0 ? min.getX() : max.getX(),
+                        (corner & 2) == 0 ? min.getY() : max.getY(),
+                        (corner & 4) == 0 ? min.getZ() : max.getZ());
+                if(frustum.test(v) == Containment.INSIDE)
+                    inside++;
+            }
+            Containment result = frustum.testBox(min, max);
+            if(inside == 8)
+                assertEquals(Containment.INSIDE, result);
+            else if(inside > 0)
+                assertEquals(Containment.INTERSECTING, result);
+            else
+                assertNotEquals(Containment.INSIDE, result);
+        }
+    }
+    
+    @Test
+    public void testPolygons() {
+        Triangle inside = new Triangle(new Vector3(10, 0, 0),
+                new Vector3(10, 1, 0), new Vector3(10, 0, 1),
+                VertexOrder.COUNTER_CLOCKWISE);
+        Triangle crossing = new Triangle(new Vector3(10, 0, 0),
+                new Vector3(10, 20, 0), new Vector3(10, 0, 1),
+                VertexOrder.COUNTER_CLOCKWISE);
+        Triangle outside = new Triangle(new Vector3(10, 20, 0),
+                new Vector3(10, 21, 0), new Vector3(10, 20, 1),
+                VertexOrder.COUNTER_CLOCKWISE);
+        assertEquals(Containment.INSIDE, frustum.test(inside));
+        assertEquals(Containment.INTERSECTING, frustum.test(crossing));
+        assertEquals(Containment.OUTSIDE, frustum.test(outside));
+    }
+    
+    @Test
+    public void testCulling() {
+        Random random = new Random(17);
+        int count = 500;
+        double[] boxes = new double[count * 6];
+        double[] spheres = new double[count * 4];
+        for(int b = 0; b < count; b++) {
+            for(int j = 0; j < 3; j++) {
+                double v = random.nextDouble() * 300 - 150;
+                boxes[b * 6 + j] = v;
+                boxes[b * 6 + j + 3] = v + random.nextDouble() * 10;
+                spheres[b * 4 + j] = v;
+            }
+            spheres[b * 4 + 3] = random.nextDouble() * 10;
+        }
+        
+        int[] hints = new int[count];
+        BitSet visible = frustum.cullBoxes(boxes, 0, count, hints, null);
+        BitSet noHints = frustum.cullBoxes(boxes, 0, count, null, null);
+        assertEquals(noHints, visible);
+        assertTrue(visible.cardinality() > 0);
+        for(int b = 0; b < count; b++) {
+            Containment result = frustum.testBox(
+                    new Vector3(boxes[b * 6], boxes[b * 6 + 1],
+                            boxes[b * 6 + 2]),
+                    new Vector3(boxes[b * 6 + 3], boxes[b * 6 + 4],
+                            boxes[b * 6 + 5]));
+            assertEquals(result != Containment.OUTSIDE, visible.get(b));
+        }
+        //the second pass starts with the plane that rejected each box
+        assertNotEquals(0, Arrays.stream(hints).max().getAsInt());
+        assertEquals(visible,
+                frustum.cullBoxes(boxes, 0, count, hints, new BitSet()));
+        
+        BitSet sphereVisible = frustum.cullSpheres(spheres, 0, count,
+                hints, null);
+        for(int s = 0; s < count; s++) {
+            Containment result = frustum.testSphere(
+                    new Vector3(spheres[s * 4], spheres[s * 4 + 1],
+                            spheres[s * 4 + 2]), spheres[s * 4 + 3]);
+            assertEquals(result != Containment.OUTSIDE, sphereVisible.get(s));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class GlIndexWriterTest {
+    private static final Triangle TRIANGLE = new Triangle(
+            new Vector3(1, 2, 3), new Vector3(4, 5, 6), new Vector3(7, 8, 10),
+            VertexOrder.COUNTER_CLOCKWISE);
+    private static final ConvexPolygon SQUARE = new ConvexPolygon(
+            new Vector3[] {
+                new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                new Vector3(1, 1, 0), new Vector3(0, 1, 0)
+            }, VertexOrder.CLOCKWISE);
+    
+    public GlIndexWriterTest() { }
+    
+    @Test
+    public void testPolygons() {
+        GlIndexWriter writer = new GlIndexWriter(
+                Arrays.asList(TRIANGLE, SQUARE));
+        assertEquals(9, writer.getIndexCount());
+        IntBuffer buffer = IntBuffer.allocate(9);
+        assertEquals(9, writer.write(buffer));
+        assertFalse(writer.hasRemaining());
+        //the square's vertices start at 3, and its triangles are reversed
+        assertArrayEquals(new int[] {0, 1, 2, 3, 5, 4, 3, 6, 5},
+                buffer.array());
+    }
+    
+    @Test
+    public void testLargePolygon() {
+        //more vertices than getVertexCount() can return
+        int count = 40000;
+        Vector3[] outline = new Vector3[count];
+        for(int i = 0; i < count; i++) {
+            double a = Math.PI * 2 * i / count;
+            outline[i] = new Vector3(Math.cos(a), Math.sin(a), 0);
+        }
+        List<Polygon> polygons = Arrays.asList(
+                new SimplePolygon(outline, VertexOrder.COUNTER_CLOCKWISE),
+                TRIANGLE);
+        GlIndexWriter writer = new GlIndexWriter(polygons);
+        int[] all = new int[writer.getIndexCount()];
+        assertEquals(all.length, writer.write(IntBuffer.wrap(all)));
+        //the triangle's vertices come after all of the outline's
+        assertArrayEquals(new int[] {count, count + 1, count + 2},
+                Arrays.copyOfRange(all, all.length - 3, all.length));
+    }
+    
+    @Test
+    public void testChunks() {
+        List<Polygon> polygons = new ArrayList<>();
+        for(int i = 0; i < 100; i++)
+            polygons.add(i % 2 == 0 ? TRIANGLE : SQUARE);
+        GlIndexWriter writer = new GlIndexWriter(polygons);
+        int[] all = new int[writer.getIndexCount()];
+        assertEquals(all.length, writer.write(IntBuffer.wrap(all)));
+        
+        //a buffer that doesn't hold a whole number of triangles
+        writer.reset();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(7 * 4)
+                .order(ByteOrder.nativeOrder());
+        int position = 0;
+        while(writer.hasRemaining()) {
+            chunk.clear();
+            int count = writer.write(chunk);
+            assertEquals(6, count);
+            chunk.flip();
+            while(chunk.hasRemaining())
+                assertEquals(all[position++], chunk.getInt());
+        }
+        assertEquals(all.length, position);
+    }
+    
+    @Test
+    public void testMesh() {
+        IndexedMesh mesh = IndexedMesh.fromPolygons(
+                Arrays.asList(TRIANGLE, SQUARE));
+        GlIndexWriter writer = new GlIndexWriter(mesh);
+        IntBuffer buffer = IntBuffer.allocate(writer.getIndexCount());
+        writer.write(buffer);
+        int[] expected = new int[mesh.getTriangleCount() * 3];
+        mesh.triangulate(expected, 0);
+        //the second face is clockwise, so its triangles are reversed
+        for(int j = 3; j < expected.length; j += 3) {
+            int swap = expected[j + 1];
+            expected[j + 1] = expected[j + 2];
+            expected[j + 2] = swap;
+        }
+        assertArrayEquals(expected, buffer.array());
+    }
+}
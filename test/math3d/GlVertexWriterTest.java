@@ -0,0 +1,156 @@
+package math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class GlVertexWriterTest {
+    private static final Triangle TRIANGLE = new Triangle(
+            new Vector3(1, 2, 3), new Vector3(4, 5, 6), new Vector3(7, 8, 10),
+            VertexOrder.COUNTER_CLOCKWISE);
+    private static final ConvexPolygon SQUARE = new ConvexPolygon(
+            new Vector3[] {
+                new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                new Vector3(1, 1, 0), new Vector3(0, 1, 0)
+            }, VertexOrder.CLOCKWISE);
+    
+    public GlVertexWriterTest() { }
+    
+    //the expected data of one vertex, from toGlArray()
+    private static float[] expected(Polygon.Vertex v) {
+        double[] p = v.getPosition().toGlArray();
+        double[] n = v.getNormal().getUnitVector().toGlArray();
+        return new float[] { (float)p[0], (float)p[1], (float)p[2],
+            (float)n[0], (float)n[1], (float)n[2] };
+    }
+    
+    @Test
+    public void testPolygons() {
+        List<Polygon> polygons = Arrays.asList(TRIANGLE, SQUARE);
+        float[] uv = new float[14];
+        for(int i = 0; i < uv.length; i++)
+            uv[i] = i / 10f;
+        GlVertexWriter writer = GlVertexWriter.forPolygons(polygons, uv);
+        assertEquals(7, writer.getVertexCount());
+        assertEquals(8, writer.getFloatsPerVertex());
+        assertEquals(32, writer.getStride());
+        
+        FloatBuffer buffer = ByteBuffer.allocateDirect(7 * 32)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        assertEquals(7, writer.write(buffer));
+        assertFalse(writer.hasRemaining());
+        assertEquals(0, buffer.remaining());
+        int vertex = 0;
+        for(Polygon p : polygons) {
+            for(Polygon.Vertex v : p.getVertices()) {
+                float[] e = expected(v);
+                for(int i = 0; i < 6; i++)
+                    assertEquals(e[i], buffer.get(vertex * 8 + i), 0);
+                assertEquals(uv[vertex * 2], buffer.get(vertex * 8 + 6), 0);
+                assertEquals(uv[vertex * 2 + 1], buffer.get(vertex * 8 + 7),
+                        0);
+                vertex++;
+            }
+        }
+    }
+    
+    @Test
+    public void testLargePolygon() {
+        //more vertices than getVertexCount() can return
+        int count = 40000;
+        Vector3[] outline = new Vector3[count];
+        for(int i = 0; i < count; i++) {
+            double a = Math.PI * 2 * i / count;
+            outline[i] = new Vector3(Math.cos(a), Math.sin(a), 0);
+        }
+        List<Polygon> polygons = Arrays.asList(
+                new SimplePolygon(outline, VertexOrder.COUNTER_CLOCKWISE),
+                TRIANGLE);
+        GlVertexWriter writer = GlVertexWriter.forPolygons(polygons, null);
+        assertEquals(count + 3, writer.getVertexCount());
+        FloatBuffer buffer = FloatBuffer.allocate(1000 * 6);
+        int written = 0;
+        while(writer.hasRemaining()) {
+            buffer.clear();
+            written += writer.write(buffer);
+        }
+        assertEquals(count + 3, written);
+        //the last vertex written is the last vertex of the triangle
+        float[] e = expected(TRIANGLE.getVertices().get(2));
+        for(int i = 0; i < 6; i++)
+            assertEquals(e[i], buffer.get((buffer.position() / 6 - 1) * 6 + i),
+                    0);
+    }
+    
+    @Test
+    public void testChunks() {
+        Vector3[] positions = new Vector3[3000];
+        Random random = new Random(1);
+        for(int i = 0; i < positions.length; i++)
+            positions[i] = new Vector3(random.nextDouble(),
+                    random.nextDouble(), random.nextDouble());
+        GlVertexWriter writer = GlVertexWriter.forPositions(positions, null);
+        assertEquals(3, writer.getFloatsPerVertex());
+        
+        //a buffer that doesn't hold a whole number of vertices
+        ByteBuffer chunk = ByteBuffer.allocateDirect(1000 * 4)
+                .order(ByteOrder.nativeOrder());
+        List<Float> written = new ArrayList<>();
+        while(writer.hasRemaining()) {
+            chunk.clear();
+            int count = writer.write(chunk);
+            assertTrue(count > 0);
+            assertEquals(count * 12, chunk.position());
+            chunk.flip();
+            while(chunk.hasRemaining())
+                written.add(chunk.getFloat());
+        }
+        assertEquals(0, writer.write(chunk));
+        assertEquals(positions.length * 3, written.size());
+        for(int i = 0; i < positions.length; i++) {
+            double[] e = positions[i].toGlArray();
+            for(int j = 0; j < 3; j++)
+                assertEquals((float)e[j], written.get(i * 3 + j), 0);
+        }
+        
+        //reset and write again, into a heap buffer
+        writer.reset();
+        FloatBuffer heap = FloatBuffer.allocate(positions.length * 3);
+        assertEquals(positions.length, writer.write(heap));
+        for(int i = 0; i < heap.capacity(); i++)
+            assertEquals(written.get(i), heap.get(i), 0);
+    }
+    
+    @Test
+    public void testMesh() {
+        IndexedMesh mesh = IndexedMesh.fromPolygons(
+                Arrays.asList(TRIANGLE, SQUARE));
+        GlVertexWriter writer = GlVertexWriter.forMesh(mesh, null);
+        assertEquals(mesh.getVertexCount(), writer.getVertexCount());
+        FloatBuffer buffer = FloatBuffer.allocate(writer.getVertexCount() * 6
+                + 5);
+        buffer.put(0); //write after the current position
+        writer.write(buffer);
+        assertEquals(1 + writer.getVertexCount() * 6, buffer.position());
+        double[] p = mesh.getPosition(2).toGlArray();
+        double[] n = mesh.getNormal(2).getUnitVector().toGlArray();
+        for(int i = 0; i < 3; i++) {
+            assertEquals((float)p[i], buffer.get(1 + 12 + i), 0);
+            assertEquals((float)n[i], buffer.get(1 + 15 + i), 0);
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTexCoordLength() {
+        GlVertexWriter.forPolygons(Collections.singleton(TRIANGLE),
+                new float[4]);
+    }
+}
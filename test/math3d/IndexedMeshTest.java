@@ -0,0 +1,172 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.PolygonType;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class IndexedMeshTest {
+    
+    public IndexedMeshTest() { }
+    
+    @Test
+    public void testFromPolygons() {
+        //a flat 2x1 grid of quads, and a triangle on the end
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(new ConvexPolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+            new Vector3(1, 1, 0), new Vector3(0, 1, 0)
+        }, VertexOrder.COUNTER_CLOCKWISE));
+        polygons.add(new ConvexPolygon(new Vector3[] {
+            new Vector3(1, 0, 0), new Vector3(2, 0, 0),
+            new Vector3(2, 1, 0), new Vector3(1, 1, 0)
+        }, VertexOrder.COUNTER_CLOCKWISE));
+        polygons.add(new Triangle(
+                new Vector3(2, 0, 0), new Vector3(3, 0, 0),
+                new Vector3(2, 1, 0), VertexOrder.COUNTER_CLOCKWISE));
+        
+        IndexedMesh mesh = IndexedMesh.fromPolygons(polygons);
+        assertEquals(3, mesh.getFaceCount());
+        assertEquals(7, mesh.getVertexCount()); //shared vertices stored once
+        assertEquals(11, mesh.getIndexCount());
+        assertTrue(mesh.getType() == PolygonType.MIXED);
+        assertTrue(mesh.getVertexOrder() == VertexOrder.COUNTER_CLOCKWISE);
+        
+        for(int f = 0; f < polygons.size(); f++) {
+            Polygon original = polygons.get(f);
+            Polygon face = mesh.getFace(f);
+            assertEquals(original.getVertexCount(), face.getVertexCount());
+            assertTrue(original.getType() == face.getType()
+                    || original.getVertexCount() > 4);
+            assertTrue(approximatelyEqual(original.getNormal().getUnitVector(),
+                    face.getNormal().getUnitVector()));
+            List<Vertex> a = original.getVertices();
+            List<Vertex> b = face.getVertices();
+            for(int i = 0; i < a.size(); i++)
+                assertTrue(a.get(i).getPosition()
+                        .equals(b.get(i).getPosition()));
+            assertEquals(original.getTriangles().size(),
+                    face.getTriangles().size());
+        }
+    }
+    
+    @Test
+    public void testLargePolygon() {
+        //more vertices than getVertexCount() can return
+        int count = 40000;
+        Vector3[] circle = new Vector3[count];
+        for(int i = 0; i < count; i++) {
+            double a = Math.PI * 2 * i / count;
+            circle[i] = new Vector3(Math.cos(a), Math.sin(a), 0);
+        }
+        Polygon polygon = new ConvexPolygon(circle,
+                VertexOrder.COUNTER_CLOCKWISE);
+        IndexedMesh mesh = IndexedMesh.fromPolygons(
+                Collections.singletonList(polygon));
+        assertEquals(count, mesh.getVertexCount());
+        assertEquals(count, mesh.getFaceSize(0));
+        assertEquals(count, mesh.getIndexCount());
+        Polygon face = mesh.getFace(0);
+        assertEquals(count, face.getVertices().size());
+        assertEquals(count - 2, face.getTriangleCount());
+        assertEquals(count - 2, face.getTriangles().size());
+    }
+    
+    @Test
+    public void testSimplePolygon() {
+        //a 4x4 square with a 2x2 hole is split into triangles
+        SimplePolygon holed = new SimplePolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(4, 0, 0),
+            new Vector3(4, 4, 0), new Vector3(0, 4, 0)
+        }, Collections.singletonList(new Vector3[] {
+            new Vector3(1, 1, 0), new Vector3(1, 3, 0),
+            new Vector3(3, 3, 0), new Vector3(3, 1, 0)
+        }), VertexOrder.COUNTER_CLOCKWISE);
+        IndexedMesh mesh = IndexedMesh.fromPolygons(
+                Collections.singletonList(holed));
+        assertEquals(holed.getTriangleCount(), mesh.getFaceCount());
+        assertEquals(holed.getTriangleCount(), mesh.getTriangleCount());
+        assertEquals(8, mesh.getVertexCount());
+        assertTrue(mesh.getType() == PolygonType.TRI);
+        double area = 0;
+        for(Polygon face : mesh.getFaces()) {
+            List<Vertex> v = face.getVertices();
+            Vector3 a = v.get(0).getPosition();
+            area += v.get(1).getPosition().subtract(a)
+                    .cross(v.get(2).getPosition().subtract(a)).magnitude() / 2;
+            assertTrue(approximatelyEqual(holed.getNormal().getUnitVector(),
+                    face.getNormal().getUnitVector()));
+        }
+        assertEquals(12, area, 1E-9);
+    }
+    
+    @Test
+    public void testMixedOrder() {
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(new Triangle(new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                new Vector3(0, 1, 0), VertexOrder.COUNTER_CLOCKWISE));
+        polygons.add(new Triangle(new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                new Vector3(0, 1, 0), VertexOrder.CLOCKWISE));
+        IndexedMesh mesh = IndexedMesh.fromPolygons(polygons);
+        
+        assertTrue(mesh.getType() == PolygonType.TRI);
+        assertTrue(mesh.getVertexOrder() == VertexOrder.MIXED);
+        assertTrue(mesh.getFace(1).getVertexOrder() == VertexOrder.CLOCKWISE);
+        assertTrue(approximatelyEqual(new Vector3(0, 0, -1),
+                mesh.getFace(1).getNormal().getUnitVector()));
+        assertTrue(mesh.getFace(1).equals(mesh.getFaces().get(1)));
+    }
+    
+    @Test
+    public void testTriangulate() {
+        Polygon pentagon = new ConvexPolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(2, 0, 0), new Vector3(3, 1, 0),
+            new Vector3(1, 2, 0), new Vector3(-1, 1, 0)
+        }, VertexOrder.COUNTER_CLOCKWISE);
+        assertEquals(3, pentagon.getTriangleCount());
+        int[] indices = new int[10];
+        assertEquals(9, pentagon.triangulate(indices, 1, 100));
+        assertArrayEquals(new int[] {0, 100, 101, 102, 100, 102, 103,
+            100, 103, 104}, indices);
+        
+        for(Polygon t : pentagon.getTriangles())
+            assertTrue(t.getNormal() == pentagon.getNormal());
+        
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(pentagon);
+        polygons.add(new Triangle(new Vector3(5, 5, 5), new Vector3(6, 5, 5),
+                new Vector3(5, 6, 5), VertexOrder.COUNTER_CLOCKWISE));
+        IndexedMesh mesh = IndexedMesh.fromPolygons(polygons);
+        assertEquals(4, mesh.getTriangleCount());
+        int[] meshIndices = new int[12];
+        mesh.triangulate(meshIndices, 0);
+        assertArrayEquals(new int[] {0, 1, 2, 0, 2, 3, 0, 3, 4, 5, 6, 7},
+                meshIndices);
+        
+        int[] count = {0};
+        mesh.triangulate((i0, i1, i2) -> {
+            assertEquals(meshIndices[count[0]], i0);
+            assertEquals(meshIndices[count[0] + 1], i1);
+            assertEquals(meshIndices[count[0] + 2], i2);
+            count[0] += 3;
+        });
+        assertEquals(12, count[0]);
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
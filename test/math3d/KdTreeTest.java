@@ -0,0 +1,136 @@
+package math3d;
+
+import java.util.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class KdTreeTest {
+    
+    public KdTreeTest() { }
+    
+    @Test
+    public void testSmall() {
+        Vector3[] points = {
+            new Vector3(0, 0, 0), new Vector3(1, 0, 0), new Vector3(0, 2, 0),
+            new Vector3(0, 0, 3)
+        };
+        KdTree tree = new KdTree(points);
+        assertEquals(4, tree.size());
+        assertEquals(1, tree.nearest(new Vector3(0.9, 0.1, 0)));
+        assertEquals(3, tree.nearest(new Vector3(0, 0, 10)));
+        //nothing within the maximum distance
+        assertEquals(-1, tree.nearest(0, 0, 10, 5));
+        assertEquals(3, tree.nearest(0, 0, 10, 7));
+        
+        KdTree.Neighbors neighbors = new KdTree.Neighbors();
+        tree.nearest(new Vector3(0, 0, 0), 3, neighbors);
+        assertEquals(3, neighbors.size());
+        assertEquals(0, neighbors.getIndex(0));
+        assertEquals(1, neighbors.getIndex(1));
+        assertEquals(2, neighbors.getIndex(2));
+        assertTrue(approximatelyEqual(2, neighbors.getDistance(2)));
+        assertTrue(approximatelyEqual(4, neighbors.getDistanceSquare(2)));
+        
+        assertEquals(3, tree.withinRadius(new Vector3(0, 0, 0), 2, neighbors));
+        assertEquals(0, tree.withinRadius(5, 5, 5, 1, neighbors));
+        assertEquals(0, neighbors.size());
+    }
+    
+    @Test
+    public void testEmpty() {
+        KdTree tree = new KdTree(new double[0], false);
+        assertEquals(-1, tree.nearest(new Vector3(1, 2, 3)));
+        KdTree.Neighbors neighbors = new KdTree.Neighbors();
+        tree.nearest(new Vector3(1, 2, 3), 5, neighbors);
+        assertEquals(0, neighbors.size());
+    }
+    
+    @Test
+    public void testRandom() {
+        Random random = new Random(18);
+        //enough points to build in parallel, with some duplicates
+        int count = 20000;
+        double[] points = new double[count * 3];
+        for(int i = 0; i < points.length; i++)
+            points[i] = Math.floor(random.nextDouble() * 400) / 4;
+        KdTree parallel = new KdTree(points, true);
+        KdTree sequential = new KdTree(points, false);
+        KdTree.Neighbors neighbors = new KdTree.Neighbors();
+        
+        for(int n = 0; n < 200; n++) {
+            double x = random.nextDouble() * 120 - 10;
+            double y = random.nextDouble() * 120 - 10;
+            double z = random.nextDouble() * 120 - 10;
+            double[] distances = new double[count];
+            for(int i = 0; i < count; i++)
+                distances[i] = distanceSquare(points, i, x, y, z);
+            double[] sorted = distances.clone();
+            Arrays.sort(sorted);
+            
+            for(KdTree tree : new KdTree[] {parallel, sequential}) {
+                int nearest = tree.nearest(x, y, z, Double.POSITIVE_INFINITY);
+                assertEquals(sorted[0], distances[nearest], 0);
+                
+                int k = 1 + random.nextInt(40);
+                tree.nearest(x, y, z, k, Double.POSITIVE_INFINITY, neighbors);
+                assertEquals(k, neighbors.size());
+                for(int i = 0; i < k; i++) {
+                    assertEquals(sorted[i], neighbors.getDistanceSquare(i), 0);
+                    assertEquals(distances[neighbors.getIndex(i)],
+                            neighbors.getDistanceSquare(i), 0);
+                }
+                
+                //limited by distance
+                double max = Math.sqrt(sorted[k / 2]);
+                tree.nearest(x, y, z, k, max, neighbors);
+                int expected = 0;
+                while(expected < k && sorted[expected] <= max * max)
+                    expected++;
+                assertEquals(expected, neighbors.size());
+                if(sorted[0] > 1)
+                    assertEquals(-1, tree.nearest(x, y, z, 1));
+                
+                double radius = random.nextDouble() * 8;
+                int found = tree.withinRadius(x, y, z, radius, neighbors);
+                Set<Integer> inside = new HashSet<>();
+                for(int i = 0; i < count; i++) {
+                    if(distances[i] <= radius * radius)
+                        inside.add(i);
+                }
+                assertEquals(inside.size(), found);
+                for(int i = 0; i < found; i++)
+                    assertTrue(inside.contains(neighbors.getIndex(i)));
+            }
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadArray() {
+        new KdTree(new double[4], false);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadResult() {
+        KdTree tree = new KdTree(new Vector3[] {new Vector3(0, 0, 0)});
+        KdTree.Neighbors neighbors = new KdTree.Neighbors();
+        tree.nearest(new Vector3(0, 0, 0), 2, neighbors);
+        neighbors.getIndex(1);
+    }
+    
+    private double distanceSquare(double[] points, int i,
+            double x, double y, double z) {
+        double dx = points[i * 3] - x;
+        double dy = points[i * 3 + 1] - y;
+        double dz = points[i * 3 + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+}
@@ -0,0 +1,139 @@
+package math3d;
+
+import java.util.*;
+import java.util.concurrent.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class NormalCacheTest {
+    
+    public NormalCacheTest() { }
+    
+    @After
+    public void tearDown() {
+        NormalCache.setShared(null);
+    }
+    
+    @Test
+    public void testIntern() {
+        NormalCache cache = new NormalCache(100);
+        Direction3 up = cache.intern(0, 0, 1);
+        assertSame(up, cache.intern(0, 0, 1));
+        //within the resolution
+        assertSame(up, cache.intern(1E-12, 0, 1));
+        assertNotSame(up, cache.intern(0, 0, -1));
+        assertSame(up, cache.intern(new Direction3(new Vector3(0, 0, 1))));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.6, cache.getHitRate(), 1E-12);
+        
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitRate(), 0);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(up, cache.intern(0, 0, 1));
+    }
+    
+    @Test
+    public void testEviction() {
+        NormalCache cache = new NormalCache(20);
+        Random random = new Random(19);
+        Direction3 kept = cache.intern(1, 0, 0);
+        for(int i = 0; i < 1000; i++) {
+            Vector3 v = new Vector3(random.nextGaussian(),
+                    random.nextGaussian(), random.nextGaussian()).normalize();
+            cache.intern(v.getX(), v.getY(), v.getZ());
+            assertTrue(cache.size() <= 20);
+            //used often, so it is never evicted
+            assertSame(kept, cache.intern(1, 0, 0));
+        }
+        assertEquals(1001 - 20, cache.getEvictionCount());
+        assertEquals(20, cache.size());
+    }
+    
+    @Test
+    public void testPolygons() {
+        Vector3 a = new Vector3(0, 0, 0), b = new Vector3(1, 0.3, 0);
+        Vector3 c = new Vector3(0.2, 1, 0.1);
+        //the same normals as before, without a cache
+        assertEquals(Vector3.normal(a, b, c),
+                new Triangle(a, b, c, VertexOrder.COUNTER_CLOCKWISE)
+                        .getNormal());
+        assertEquals(Vector3.normal(a, b, c).inverse(),
+                new Triangle(a, b, c, VertexOrder.CLOCKWISE).getNormal());
+        
+        NormalCache cache = new NormalCache(10);
+        NormalCache.setShared(cache);
+        assertSame(cache, NormalCache.getShared());
+        Triangle t1 = new Triangle(new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                new Vector3(0, 1, 0), VertexOrder.COUNTER_CLOCKWISE);
+        Triangle t2 = new Triangle(new Vector3(5, 5, 2), new Vector3(6, 5, 2),
+                new Vector3(5, 7, 2), VertexOrder.COUNTER_CLOCKWISE);
+        ConvexPolygon square = new ConvexPolygon(new Vector3[] {
+            new Vector3(0, 0, 3), new Vector3(2, 0, 3),
+            new Vector3(2, 2, 3), new Vector3(0, 2, 3)
+        }, VertexOrder.COUNTER_CLOCKWISE);
+        assertSame(t1.getNormal(), t2.getNormal());
+        assertSame(t1.getNormal(), square.getNormal());
+        assertSame(t1.getNormal(), t2.getVertices().get(1).getNormal());
+        assertEquals(new Vector3(0, 0, 1), t1.getNormal().getUnitVector());
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHitCount());
+        
+        //degenerate polygons aren't cached
+        new Triangle(a, a, a, VertexOrder.COUNTER_CLOCKWISE);
+        assertEquals(1, cache.size());
+    }
+    
+    @Test
+    public void testConcurrent() throws Exception {
+        NormalCache cache = new NormalCache(64);
+        Direction3[] axes = new Direction3[6];
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Direction3[]>> results = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    Direction3[] found = new Direction3[6];
+                    for(int i = 0; i < 10000; i++) {
+                        int axis = i % 6;
+                        double sign = axis < 3 ? 1 : -1;
+                        Direction3 d = cache.intern(
+                                axis % 3 == 0 ? sign : 0,
+                                axis % 3 == 1 ? sign : 0,
+                                axis % 3 == 2 ? sign : 0);
+                        if(found[axis] == null)
+                            found[axis] = d;
+                        assertSame(found[axis], d);
+                    }
+                    return found;
+                }));
+            }
+            for(Future<Direction3[]> f : results) {
+                Direction3[] found = f.get();
+                for(int axis = 0; axis < 6; axis++) {
+                    if(axes[axis] == null)
+                        axes[axis] = found[axis];
+                    assertSame(axes[axis], found[axis]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(6, cache.size());
+        assertEquals(6, cache.getMissCount());
+        assertEquals(40000 - 6, cache.getHitCount());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSize() {
+        new NormalCache(0);
+    }
+}
@@ -0,0 +1,173 @@
+package math3d;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class ObjReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    public ObjReaderTest() { }
+    
+    private static List<Polygon> read(String obj) {
+        InputStream in = new ByteArrayInputStream(
+                obj.getBytes(StandardCharsets.US_ASCII));
+        return ObjReader.faces(in).collect(Collectors.toList());
+    }
+    
+    @Test
+    public void testFaces() {
+        List<Polygon> faces = read("# a square and a triangle\n"
+                + "o square\n"
+                + "v 0 0 0\n"
+                + "v 1 0 0\n"
+                + "v 1 1 0\r\n"
+                + "v 0 1 0\n"
+                + "vt 0.5 0.5\n"
+                + "vn 0 0 2\n"
+                + "f 1/1/1 2/1/1 3/1/1 4/1/1\n"
+                + "v 0 0 1\n"
+                + "  f\t-1 2 -3 # relative indices\n"
+                + "f 1//1 2 3");
+        assertEquals(3, faces.size());
+        
+        Polygon square = faces.get(0);
+        assertTrue(square instanceof ConvexPolygon);
+        assertEquals(VertexOrder.COUNTER_CLOCKWISE, square.getVertexOrder());
+        assertEquals(4, square.getVertices().size());
+        assertEquals(new Vector3(1, 1, 0),
+                square.getVertices().get(2).getPosition());
+        //the normal from the file is normalized
+        assertEquals(new Vector3(0, 0, 1), square.getVertices().get(0)
+                .getNormal().getUnitVector());
+        
+        Polygon triangle = faces.get(1);
+        assertTrue(triangle instanceof Triangle);
+        List<Vertex> v = triangle.getVertices();
+        assertEquals(new Vector3(0, 0, 1), v.get(0).getPosition());
+        assertEquals(new Vector3(1, 0, 0), v.get(1).getPosition());
+        assertEquals(new Vector3(1, 1, 0), v.get(2).getPosition());
+        //no normals in the file, so the face normal is used
+        Vector3 expected = new Triangle(v.get(0).getPosition(),
+                v.get(1).getPosition(), v.get(2).getPosition(),
+                VertexOrder.COUNTER_CLOCKWISE).getNormal().getUnitVector();
+        assertEquals(expected, triangle.getNormal().getUnitVector());
+        assertEquals(expected, v.get(1).getNormal().getUnitVector());
+        
+        //only the first vertex has a normal
+        v = faces.get(2).getVertices();
+        assertEquals(new Vector3(0, 0, 1), v.get(0).getNormal()
+                .getUnitVector());
+        assertEquals(faces.get(2).getNormal(), v.get(1).getNormal());
+    }
+    
+    @Test
+    public void testNumbers() {
+        Random random = new Random(3);
+        StringBuilder obj = new StringBuilder();
+        List<Double> values = new ArrayList<>();
+        String[] fixed = { "1e3", "-2.5E-3", "+7", ".5", "3.", "-0",
+            "123456789012345678901234", "1.7976931348623157e308",
+            "4.9e-324", "0.000000000000000000000000001234" };
+        for(String s : fixed) {
+            obj.append("v ").append(s).append(" 0 0\n");
+            values.add(Double.parseDouble(s));
+        }
+        for(int i = 0; i < 1010; i++) {
+            double d = (random.nextDouble() - 0.5)
+                    * Math.pow(10, random.nextInt(40) - 20);
+            String s = random.nextBoolean() ? Double.toString(d)
+                    : String.format(Locale.ROOT, "%.6f", d);
+            obj.append("v ").append(s).append(" 0 0\n");
+            values.add(Double.parseDouble(s));
+        }
+        for(int i = 0; i < values.size(); i += 3)
+            obj.append("f ").append(i + 1).append(' ').append(i + 2)
+                    .append(' ').append(i + 3).append('\n');
+        List<Polygon> faces = read(obj.toString());
+        int i = 0;
+        for(Polygon face : faces)
+            for(Vertex v : face.getVertices())
+                assertEquals(values.get(i++), v.getPosition().getX(), 0);
+    }
+    
+    @Test
+    public void testErrors() {
+        String[] invalid = { "v 0 0 0\nf 1 2 3\n", "v 0 0 0\nf 1 1\n",
+            "v 0 0 0\nf 0 1 1\n", "v 0 0 x\n", "v 0 0\n",
+            "v 0 0 0\nf -2 1 1\n", "v 0 0 1e\n" };
+        for(String obj : invalid) {
+            try {
+                read(obj);
+                fail(obj);
+            } catch(UncheckedIOException expected) { }
+        }
+    }
+    
+    @Test
+    public void testLazy() {
+        //faces are read one at a time, before the rest of the file
+        InputStream in = new ByteArrayInputStream(("v 0 0 0\nv 1 0 0\n"
+                + "v 0 1 0\nf 1 2 3\nf 1 2 4\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        Iterator<Polygon> faces = ObjReader.faces(in).iterator();
+        assertTrue(faces.hasNext());
+        assertEquals(new Vector3(1, 0, 0),
+                faces.next().getVertices().get(1).getPosition());
+        try {
+            faces.hasNext();
+            fail();
+        } catch(UncheckedIOException expected) { }
+    }
+    
+    @Test
+    public void testParallel() throws IOException {
+        //large enough to be split into several chunks
+        Random random = new Random(5);
+        StringBuilder obj = new StringBuilder();
+        obj.append("v 0 0 0\n");
+        int vertices = 1;
+        for(int i = 0; i < 40000; i++) {
+            for(int j = 0; j < 3; j++) {
+                obj.append(String.format(Locale.ROOT, "v %.4f %.4f %.4f%n",
+                        random.nextDouble(), random.nextDouble(),
+                        random.nextDouble()));
+                vertices++;
+            }
+            obj.append("vn 0 1 0\n");
+            obj.append("f -3//-1 -2 ").append(1 + random.nextInt(vertices - 3))
+                    .append("//1\n");
+        }
+        Path path = folder.newFile("large.obj").toPath();
+        Files.write(path, obj.toString().getBytes(StandardCharsets.US_ASCII));
+        assertTrue(Files.size(path) > 2 << 20);
+        
+        List<Polygon> sequential, parallel;
+        try(Stream<Polygon> faces = ObjReader.faces(path, false)) {
+            sequential = faces.collect(Collectors.toList());
+        }
+        try(Stream<Polygon> faces = ObjReader.faces(path, true)) {
+            parallel = faces.collect(Collectors.toList());
+        }
+        assertEquals(40000, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+}
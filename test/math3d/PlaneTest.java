@@ -0,0 +1,89 @@
+package math3d;
+
+import math3d.Plane.Side;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class PlaneTest {
+    
+    public PlaneTest() { }
+    
+    @Test
+    public void testCoefficients() {
+        Plane p = Plane.at(new Vector3(0, 0, 5),
+                new Direction3(new Vector3(0, 0, 1)));
+        assertArrayEquals(new double[] {0, 0, 1, -5},
+                p.getPlaneCoefficients(), 1E-12);
+        //the returned array is a copy
+        p.getPlaneCoefficients()[3] = 100;
+        assertEquals(-5, p.getPlaneCoefficients()[3], 1E-12);
+    }
+    
+    @Test
+    public void testFromCoefficients() {
+        //2x + 2y + z - 6 = 0, normal length 3
+        Plane p = Plane.fromCoefficients(new double[] {2, 2, 1, -6});
+        assertArrayEquals(new double[] {2.0/3, 2.0/3, 1.0/3, -2},
+                p.getPlaneCoefficients(), 1E-12);
+        assertTrue(approximatelyEqual(new Vector3(2.0/3, 2.0/3, 1.0/3),
+                p.getNormal().getUnitVector()));
+        assertEquals(0, p.signedDistance(p.getPoint()), 1E-12);
+        assertEquals(0, p.signedDistance(new Vector3(3, 0, 0)), 1E-12);
+        assertEquals(3, p.signedDistance(new Vector3(5, 2, 1)), 1E-12);
+        
+        Plane q = Plane.at(p.getPoint(), p.getNormal());
+        assertArrayEquals(p.getPlaneCoefficients(), q.getPlaneCoefficients(),
+                1E-12);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroNormal() {
+        Plane.fromCoefficients(new double[] {0, 0, 0, 1});
+    }
+    
+    @Test
+    public void testBulk() {
+        Plane p = Plane.fromPoints(new Vector3(0, 0, 1),
+                new Vector3(1, 0, 1), new Vector3(0, 1, 1));
+        double[] points = {
+            9, 9, 9, //skipped
+            0, 0, 3,
+            4, -2, 1,
+            1, 1, 1.00001,
+            5, 5, -1
+        };
+        double[] distances = new double[5];
+        p.signedDistances(points, 3, 4, distances, 1);
+        assertArrayEquals(new double[] {0, 2, 0, 0.00001, -2}, distances,
+                1E-12);
+        
+        Side[] sides = new Side[4];
+        int front = p.classify(points, 3, 4, 0.001, sides, 0);
+        assertArrayEquals(new Side[] {Side.FRONT, Side.ON, Side.ON, Side.BACK},
+                sides);
+        assertEquals(1, front);
+        assertEquals(Side.FRONT, p.classify(new Vector3(1, 1, 1.00001), 0));
+        assertEquals(Side.ON, p.classify(new Vector3(1, 1, 1), 0));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBulkRange() {
+        Plane p = Plane.fromCoefficients(new double[] {0, 0, 1, 0});
+        p.signedDistances(new double[9], 3, 3, new double[3], 0);
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
@@ -0,0 +1,182 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class PolygonClipperTest {
+    private final PolygonClipper clipper = new PolygonClipper();
+    //x = 0.5, facing +x
+    private final Plane plane = Plane.at(new Vector3(0.5, 0, 0),
+            new Direction3(new Vector3(1, 0, 0)));
+    
+    public PolygonClipperTest() { }
+    
+    @Test
+    public void testSplitSquare() {
+        ConvexPolygon square = square(VertexOrder.COUNTER_CLOCKWISE);
+        List<ConvexPolygon> front = new ArrayList<>();
+        List<ConvexPolygon> back = new ArrayList<>();
+        clipper.split(square, plane, front, back);
+        assertEquals(1, front.size());
+        assertEquals(1, back.size());
+        checkPart(square, front.get(0), 0.5, 1);
+        checkPart(square, back.get(0), 0, 0.5);
+        assertTrue(approximatelyEqual(0.5, area(front.get(0))));
+        assertTrue(approximatelyEqual(0.5, area(back.get(0))));
+        
+        //the same with clockwise vertices
+        square = square(VertexOrder.CLOCKWISE);
+        ConvexPolygon clipped = clipper.clip(square, plane);
+        checkPart(square, clipped, 0.5, 1);
+    }
+    
+    @Test
+    public void testWholePolygons() {
+        ConvexPolygon square = square(VertexOrder.COUNTER_CLOCKWISE);
+        Plane before = Plane.at(new Vector3(-1, 0, 0),
+                new Direction3(new Vector3(1, 0, 0)));
+        Plane after = Plane.at(new Vector3(2, 0, 0),
+                new Direction3(new Vector3(1, 0, 0)));
+        //not clipped at all, so the same object
+        assertSame(square, clipper.clip(square, before));
+        assertNull(clipper.clip(square, after));
+        //touching the plane with one edge
+        Plane edge = Plane.at(new Vector3(1, 0, 0),
+                new Direction3(new Vector3(1, 0, 0)));
+        assertNull(clipper.clip(square, edge));
+        assertSame(square, clipper.clip(square, new Plane[] {
+            Plane.at(new Vector3(0, 0, 0),
+                    new Direction3(new Vector3(1, 0, 0)))
+        }));
+        
+        //in the plane
+        Plane flat = Plane.at(new Vector3(0, 0, 0),
+                new Direction3(new Vector3(0, 0, -1)));
+        List<ConvexPolygon> front = new ArrayList<>();
+        List<ConvexPolygon> back = new ArrayList<>();
+        clipper.split(square, flat, front, back);
+        assertTrue(front.isEmpty());
+        assertEquals(Collections.singletonList(square), back);
+        
+        //a triangle is converted to a ConvexPolygon
+        Triangle t = new Triangle(new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                new Vector3(0, 1, 0), VertexOrder.COUNTER_CLOCKWISE);
+        ConvexPolygon p = clipper.clip(t, before);
+        assertEquals(t.getVertices(), p.getVertices());
+        assertEquals(t.getNormal(), p.getNormal());
+    }
+    
+    @Test
+    public void testInterpolatedNormals() {
+        Direction3 left = new Vector3(-1, 0, 1).direction();
+        Direction3 right = new Vector3(1, 0, 1).direction();
+        Triangle t = new Triangle(
+                new Vertex(new Vector3(0, 0, 0), left),
+                new Vertex(new Vector3(1, 0, 0), right),
+                new Vertex(new Vector3(0, 1, 0), left),
+                VertexOrder.COUNTER_CLOCKWISE);
+        ConvexPolygon clipped = clipper.clip(t, plane);
+        List<Vertex> vertices = clipped.getVertices();
+        assertEquals(3, vertices.size());
+        //the new vertex halfway along the bottom edge
+        Vertex v = vertices.get(0);
+        assertTrue(approximatelyEqual(new Vector3(0.5, 0, 0),
+                v.getPosition()));
+        assertTrue(approximatelyEqual(new Vector3(0, 0, 1),
+                v.getNormal().getUnitVector()));
+    }
+    
+    @Test
+    public void testMultiplePlanes() {
+        Frustum frustum = new Frustum(new Vector3(0, 0, 0), Rotation3.ZERO,
+                Math.PI / 2, 1, 1, 100);
+        Plane[] planes = new Plane[6];
+        for(int i = 0; i < 6; i++)
+            planes[i] = frustum.getPlane(i);
+        Random random = new Random(16);
+        List<Polygon> polygons = new ArrayList<>();
+        for(int n = 0; n < 500; n++) {
+            Vector3 center = new Vector3(random.nextDouble() * 120 - 10,
+                    random.nextDouble() * 120 - 60,
+                    random.nextDouble() * 120 - 60);
+            polygons.add(new Triangle(
+                    center.add(new Vector3(-10, -10, random.nextDouble())),
+                    center.add(new Vector3(10, -10, random.nextDouble())),
+                    center.add(new Vector3(0, 10, random.nextDouble())),
+                    VertexOrder.COUNTER_CLOCKWISE));
+        }
+        List<ConvexPolygon> clipped = new ArrayList<>();
+        int count = clipper.clipAll(polygons, planes, clipped);
+        assertEquals(count, clipped.size());
+        assertTrue(count > 0 && count < polygons.size());
+        for(ConvexPolygon p : clipped) {
+            assertTrue(p.getVertexCount() >= 3);
+            for(Vertex v : p.getVertices()) {
+                for(Plane plane : planes)
+                    assertTrue(plane.signedDistance(v.getPosition()) > -1E-7);
+            }
+        }
+        //the frustum test agrees about every polygon that is kept
+        for(Polygon p : polygons) {
+            if(clipper.clip(p, planes) != null)
+                assertNotEquals(Frustum.Containment.OUTSIDE, frustum.test(p));
+        }
+    }
+    
+    private ConvexPolygon square(VertexOrder order) {
+        Vector3[] corners = {
+            new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+            new Vector3(1, 1, 0), new Vector3(0, 1, 0)
+        };
+        if(order == VertexOrder.CLOCKWISE)
+            Collections.reverse(Arrays.asList(corners));
+        return new ConvexPolygon(corners, order);
+    }
+    
+    //check that a part is between two x values, and has the same order and
+    //normal as the original
+    private void checkPart(ConvexPolygon original, ConvexPolygon part,
+            double minX, double maxX) {
+        assertEquals(original.getVertexOrder(), part.getVertexOrder());
+        assertEquals(original.getNormal(), part.getNormal());
+        for(Vertex v : part.getVertices()) {
+            assertTrue(v.getPosition().getX() >= minX - 1E-9);
+            assertTrue(v.getPosition().getX() <= maxX + 1E-9);
+        }
+        //the winding of the vertices matches the normal
+        ConvexPolygon recalculated = new ConvexPolygon(part.getVertices(),
+                part.getVertexOrder());
+        assertTrue(approximatelyEqual(part.getNormal().getUnitVector(),
+                recalculated.getNormal().getUnitVector()));
+    }
+    
+    private double area(ConvexPolygon p) {
+        List<Vertex> vertices = p.getVertices();
+        Vector3 first = vertices.get(0).getPosition();
+        double area = 0;
+        for(int i = 2; i < vertices.size(); i++) {
+            Vector3 a = vertices.get(i - 1).getPosition().subtract(first);
+            Vector3 b = vertices.get(i).getPosition().subtract(first);
+            area += a.cross(b).magnitude() / 2;
+        }
+        return area;
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
@@ -0,0 +1,104 @@
+package math3d;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class QuaternionTest {
+    
+    public QuaternionTest() { }
+    
+    @Test
+    public void testRotationConversion() {
+        Random random = new Random();
+        for(int i = 0; i < 100; i++) {
+            Rotation3 r = randomRotation(random);
+            Quaternion q = new Quaternion(r);
+            assertTrue(approximatelyEqual(q.magnitude(), 1));
+            
+            Vector3 v = randomVector(random);
+            assertTrue(approximatelyEqual(v.rotate(r), q.rotate(v)));
+            
+            Rotation3 back = q.toRotation3();
+            assertTrue(approximatelyEqual(v.rotate(r), v.rotate(back)));
+            
+            double[] a = r.getMatrix();
+            double[] b = q.getMatrix();
+            for(int j = 0; j < 9; j++)
+                assertTrue(approximatelyEqual(a[j], b[j]));
+        }
+    }
+    
+    @Test
+    public void testDirectionConversion() {
+        Direction3 d = new Direction3(0.4, 2.3);
+        Quaternion q = new Quaternion(d);
+        assertTrue(approximatelyEqual(
+                d.getUnitVector(), q.rotate(Direction3.BASE_ROTATION)));
+        assertTrue(approximatelyEqual(
+                d.getUnitVector(), q.toDirection3().getUnitVector()));
+    }
+    
+    @Test
+    public void testMultiply() {
+        Random random = new Random();
+        for(int i = 0; i < 100; i++) {
+            Quaternion a = new Quaternion(randomRotation(random));
+            Quaternion b = new Quaternion(randomRotation(random));
+            Vector3 v = randomVector(random);
+            assertTrue(approximatelyEqual(
+                    a.rotate(b.rotate(v)), a.multiply(b).rotate(v)));
+            assertTrue(approximatelyEqual(
+                    v, a.conjugate().rotate(a.rotate(v))));
+        }
+    }
+    
+    @Test
+    public void testInterpolation() {
+        Quaternion a = Quaternion.fromAxisAngle(Vector3.UP, 0.2);
+        Quaternion b = Quaternion.fromAxisAngle(Vector3.UP, 1.4);
+        Quaternion half = Quaternion.fromAxisAngle(Vector3.UP, 0.8);
+        
+        assertTrue(approximatelyEqual(a, a.slerp(b, 0)));
+        assertTrue(approximatelyEqual(b, a.slerp(b, 1)));
+        assertTrue(approximatelyEqual(half, a.slerp(b, 0.5)));
+        assertTrue(approximatelyEqual(half, a.nlerp(b, 0.5)));
+        
+        Quaternion quarter = Quaternion.fromAxisAngle(Vector3.UP, 0.5);
+        assertTrue(approximatelyEqual(quarter, a.slerp(b, 0.25)));
+        //nlerp doesn't move at a constant speed
+        assertFalse(approximatelyEqual(quarter, a.nlerp(b, 0.25)));
+    }
+    
+    private Rotation3 randomRotation(Random random) {
+        return new Rotation3(random.nextDouble() * 7, random.nextDouble() * 7,
+                random.nextDouble() * 7);
+    }
+    
+    private Vector3 randomVector(Random random) {
+        return new Vector3(random.nextDouble() * 10 - 5,
+                random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5);
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+    
+    private boolean approximatelyEqual(Quaternion a, Quaternion b) {
+        return approximatelyEqual(a.getW(), b.getW())
+                && approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
@@ -0,0 +1,119 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class RayTest {
+    
+    public RayTest() { }
+    
+    @Test
+    public void testTriangle() {
+        Triangle t = new Triangle(new Vector3(0, 0, 0), new Vector3(2, 0, 0),
+                new Vector3(0, 2, 0), VertexOrder.COUNTER_CLOCKWISE);
+        Ray down = new Ray(new Vector3(0.5, 0.5, 3), new Vector3(0, 0, -2));
+        assertTrue(approximatelyEqual(1.5, down.intersect(t)));
+        assertTrue(approximatelyEqual(new Vector3(0.5, 0.5, 0),
+                down.getPoint(down.intersect(t))));
+        
+        //from behind, with a Direction3
+        Ray up = new Ray(new Vector3(0.5, 0.5, -3),
+                new Direction3(new Vector3(0, 0, 1)));
+        assertTrue(approximatelyEqual(3, up.intersect(t)));
+        
+        //pointing away, outside, and parallel
+        assertTrue(Double.isInfinite(new Ray(new Vector3(0.5, 0.5, 3),
+                new Vector3(0, 0, 1)).intersect(t)));
+        assertTrue(Double.isInfinite(new Ray(new Vector3(1.5, 1.5, 3),
+                new Vector3(0, 0, -1)).intersect(t)));
+        assertTrue(Double.isInfinite(new Ray(new Vector3(-1, 0.5, 0),
+                new Vector3(1, 0, 0)).intersect(t)));
+    }
+    
+    @Test
+    public void testConvexPolygon() {
+        ConvexPolygon p = new ConvexPolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(2, 0, 0), new Vector3(3, 1, 0),
+            new Vector3(1, 2, 0), new Vector3(-1, 1, 0)
+        }, VertexOrder.COUNTER_CLOCKWISE);
+        //hits the last triangle of the fan
+        Ray r = new Ray(new Vector3(-0.5, 1, 1), new Vector3(0, 0, -1));
+        assertTrue(approximatelyEqual(1, r.intersect(p)));
+        r = new Ray(new Vector3(-0.5, 0, 1), new Vector3(0, 0, -1));
+        assertTrue(Double.isInfinite(r.intersect(p)));
+    }
+    
+    @Test
+    public void testPlane() {
+        Plane p = Plane.at(new Vector3(0, 0, 5),
+                new Direction3(new Vector3(0, 0, 1)));
+        Ray r = new Ray(new Vector3(7, -3, 1), new Vector3(1, 1, 2));
+        assertTrue(approximatelyEqual(2, r.intersect(p)));
+        r = new Ray(new Vector3(7, -3, 9), new Vector3(1, 1, -0.5));
+        assertTrue(approximatelyEqual(8, r.intersect(p)));
+        r = new Ray(new Vector3(7, -3, 9), new Vector3(1, 1, 0.5));
+        assertTrue(Double.isInfinite(r.intersect(p)));
+        r = new Ray(new Vector3(7, -3, 9), new Vector3(1, 1, 0));
+        assertTrue(Double.isInfinite(r.intersect(p)));
+    }
+    
+    @Test
+    public void testBatches() {
+        Random random = new Random(5);
+        int count = 200;
+        double[] triangles = new double[count * 9 + 3];
+        for(int i = 0; i < triangles.length; i++)
+            triangles[i] = random.nextDouble() * 4 - 2;
+        Ray ray = new Ray(new Vector3(0, 0, -5), new Vector3(0.1, 0, 1));
+        
+        double[] distances = new double[count + 1];
+        int closest = ray.intersectAll(triangles, 3, count, distances, 1);
+        assertTrue(closest != -1);
+        for(int t = 0; t < count; t++) {
+            int i = 3 + t * 9;
+            Triangle triangle = new Triangle(Arrays.copyOfRange(triangles,
+                    i, i + 9), VertexOrder.COUNTER_CLOCKWISE);
+            assertEquals(ray.intersect(triangle), distances[t + 1], 1E-9);
+            assertTrue(distances[closest + 1] <= distances[t + 1]);
+        }
+        
+        Triangle triangle = new Triangle(new Vector3(-1, -1, 0),
+                new Vector3(1, -1, 0), new Vector3(0, 1, 0),
+                VertexOrder.COUNTER_CLOCKWISE);
+        double[] rays = new double[count * 6];
+        for(int i = 0; i < rays.length; i++)
+            rays[i] = random.nextDouble() * 4 - 2;
+        distances = new double[count];
+        int hits = Ray.intersectAll(rays, 0, count, triangle, distances, 0);
+        int expectedHits = 0;
+        for(int r = 0; r < count; r++) {
+            Ray single = new Ray(
+                    new Vector3(rays[r * 6], rays[r * 6 + 1], rays[r * 6 + 2]),
+                    new Vector3(rays[r * 6 + 3], rays[r * 6 + 4],
+                            rays[r * 6 + 5]));
+            double d = single.intersect(triangle);
+            assertEquals(d, distances[r], 1E-9);
+            if(!Double.isInfinite(d))
+                expectedHits++;
+        }
+        assertEquals(expectedHits, hits);
+        assertTrue(hits > 0);
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
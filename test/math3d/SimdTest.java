@@ -0,0 +1,173 @@
+package math3d;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ *
+ * @author vanjac
+ */
+public class SimdTest {
+    //not a multiple of any SIMD width, so the scalar remainder is tested too
+    private static final int SIZE = 1003;
+    
+    private final Random random = new Random(13);
+    
+    public SimdTest() { }
+    
+    @After
+    public void tearDown() {
+        Simd.setEnabled(true);
+    }
+    
+    @Test
+    public void testSwitch() {
+        Simd.setEnabled(false);
+        assertFalse(Simd.isEnabled());
+        Simd.setEnabled(true);
+        assertEquals(Simd.isAvailable(), Simd.isEnabled());
+    }
+    
+    @Test
+    public void testMatchesVector3() {
+        //runs with whichever implementation is available
+        Vector3Buffer a = randomBuffer(), b = randomBuffer();
+        Vector3Buffer result = new Vector3Buffer(SIZE);
+        double[] values = new double[SIZE];
+        
+        a.dot(b, values);
+        for(int i = 0; i < SIZE; i++)
+            assertEquals(a.get(i).dot(b.get(i)), values[i], 1E-9);
+        a.cross(b, result);
+        for(int i = 0; i < SIZE; i++)
+            assertTrue(approximatelyEqual(a.get(i).cross(b.get(i)),
+                    result.get(i)));
+        a.normalize(result);
+        for(int i = 0; i < SIZE; i++)
+            assertTrue(approximatelyEqual(a.get(i).normalize(),
+                    result.get(i)));
+        Rotation3 rotation = new Rotation3(0.3, -1.2, 2.5);
+        a.rotate(rotation, result);
+        for(int i = 0; i < SIZE; i++)
+            assertTrue(approximatelyEqual(a.get(i).rotate(rotation),
+                    result.get(i)));
+        
+        Plane plane = Plane.at(new Vector3(1, 2, 3),
+                new Direction3(new Vector3(1, -1, 2).normalize()));
+        a.planeDistance(plane, values);
+        Vector3 unit = plane.getNormal().getUnitVector();
+        for(int i = 0; i < SIZE; i++)
+            assertEquals(unit.dot(a.get(i).subtract(plane.getPoint())),
+                    values[i], 1E-9);
+        
+        Vector3 min = new Vector3(-5, -2, 0), max = new Vector3(3, 6, 8);
+        boolean[] inside = new boolean[SIZE];
+        int count = a.insideBox(min, max, inside), expected = 0;
+        for(int i = 0; i < SIZE; i++) {
+            Vector3 v = a.get(i);
+            boolean in = v.getX() >= -5 && v.getX() <= 3
+                    && v.getY() >= -2 && v.getY() <= 6
+                    && v.getZ() >= 0 && v.getZ() <= 8;
+            assertEquals(in, inside[i]);
+            if(in)
+                expected++;
+        }
+        assertEquals(expected, count);
+        assertTrue(count > 0 && count < SIZE);
+    }
+    
+    @Test
+    public void testSimdMatchesScalar() {
+        assumeTrue(Simd.isAvailable());
+        Vector3Buffer a = randomBuffer(), b = randomBuffer();
+        Vector3Buffer simd = new Vector3Buffer(SIZE);
+        Vector3Buffer scalar = new Vector3Buffer(SIZE);
+        double[] simdValues = new double[SIZE];
+        double[] scalarValues = new double[SIZE];
+        
+        //the results should be exactly the same
+        Simd.setEnabled(true);
+        a.dot(b, simdValues);
+        Simd.setEnabled(false);
+        a.dot(b, scalarValues);
+        assertArrayEquals(scalarValues, simdValues, 0);
+        
+        Simd.setEnabled(true);
+        a.cross(b, simd);
+        Simd.setEnabled(false);
+        a.cross(b, scalar);
+        assertBuffersEqual(scalar, simd);
+        
+        Simd.setEnabled(true);
+        a.normalize(simd);
+        Simd.setEnabled(false);
+        a.normalize(scalar);
+        assertBuffersEqual(scalar, simd);
+        
+        Quaternion q = new Quaternion(0.5, 0.5, -0.5, 0.5);
+        Simd.setEnabled(true);
+        a.rotate(q, simd);
+        Simd.setEnabled(false);
+        a.rotate(q, scalar);
+        assertBuffersEqual(scalar, simd);
+        
+        Plane plane = Plane.at(new Vector3(1, 2, 3),
+                new Direction3(new Vector3(1, -1, 2).normalize()));
+        Simd.setEnabled(true);
+        a.planeDistance(plane, simdValues);
+        Simd.setEnabled(false);
+        a.planeDistance(plane, scalarValues);
+        assertArrayEquals(scalarValues, simdValues, 0);
+        
+        Vector3 min = new Vector3(-5, -2, 0), max = new Vector3(3, 6, 8);
+        boolean[] simdInside = new boolean[SIZE];
+        boolean[] scalarInside = new boolean[SIZE];
+        Simd.setEnabled(true);
+        int simdCount = a.insideBox(min, max, simdInside);
+        Simd.setEnabled(false);
+        int scalarCount = a.insideBox(min, max, scalarInside);
+        assertEquals(scalarCount, simdCount);
+        assertArrayEquals(scalarInside, simdInside);
+    }
+    
+    @Test
+    public void testInPlace() {
+        Vector3Buffer a = randomBuffer(), b = randomBuffer();
+        Vector3[] expected = new Vector3[SIZE];
+        for(int i = 0; i < SIZE; i++)
+            expected[i] = a.get(i).cross(b.get(i));
+        a.cross(b, a);
+        for(int i = 0; i < SIZE; i++)
+            assertTrue(approximatelyEqual(expected[i], a.get(i)));
+    }
+    
+    private Vector3Buffer randomBuffer() {
+        Vector3Buffer buffer = new Vector3Buffer(SIZE);
+        for(int i = 0; i < SIZE; i++)
+            buffer.set(i, random.nextDouble() * 20 - 10,
+                    random.nextDouble() * 20 - 10,
+                    random.nextDouble() * 20 - 10);
+        return buffer;
+    }
+    
+    private void assertBuffersEqual(Vector3Buffer expected,
+            Vector3Buffer actual) {
+        assertArrayEquals(expected.getXArray(), actual.getXArray(), 0);
+        assertArrayEquals(expected.getYArray(), actual.getYArray(), 0);
+        assertArrayEquals(expected.getZArray(), actual.getZArray(), 0);
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
@@ -0,0 +1,125 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class SimplePolygonTest {
+    
+    public SimplePolygonTest() { }
+    
+    @Test
+    public void testConcave() {
+        //an L shape, starting at the reflex vertex
+        Vector3[] outline = {
+            new Vector3(1, 1, 0), new Vector3(1, 2, 0), new Vector3(0, 2, 0),
+            new Vector3(0, 0, 0), new Vector3(2, 0, 0), new Vector3(2, 1, 0)
+        };
+        SimplePolygon p = new SimplePolygon(outline,
+                VertexOrder.COUNTER_CLOCKWISE);
+        assertTrue(approximatelyEqual(new Vector3(0, 0, 1),
+                p.getNormal().getUnitVector()));
+        assertEquals(4, p.getTriangleCount());
+        assertEquals(4, p.getTriangles().size());
+        assertTrue(approximatelyEqual(3, checkTriangles(p)));
+        
+        for(Polygon t : p.getTriangles())
+            assertTrue(t.getNormal() == p.getNormal());
+    }
+    
+    @Test
+    public void testClockwise() {
+        //the same L shape in the y-z plane, clockwise when viewed from +x
+        Vector3[] outline = {
+            new Vector3(5, 0, 0), new Vector3(5, 0, 2), new Vector3(5, 1, 2),
+            new Vector3(5, 1, 1), new Vector3(5, 2, 1), new Vector3(5, 2, 0)
+        };
+        SimplePolygon p = new SimplePolygon(outline, VertexOrder.CLOCKWISE);
+        assertTrue(approximatelyEqual(new Vector3(1, 0, 0),
+                p.getNormal().getUnitVector()));
+        assertTrue(approximatelyEqual(3, checkTriangles(p)));
+    }
+    
+    @Test
+    public void testHoles() {
+        Vector3[] outline = {
+            new Vector3(0, 0, 0), new Vector3(4, 0, 0),
+            new Vector3(4, 4, 0), new Vector3(0, 4, 0)
+        };
+        List<Vector3[]> holes = new ArrayList<>();
+        holes.add(new Vector3[] { //clockwise
+            new Vector3(1, 1, 0), new Vector3(1, 2, 0),
+            new Vector3(2, 2, 0), new Vector3(2, 1, 0)
+        });
+        holes.add(new Vector3[] { //counter-clockwise
+            new Vector3(2.5, 2.5, 0), new Vector3(3.5, 2.5, 0),
+            new Vector3(3.5, 3.5, 0), new Vector3(2.5, 3.5, 0)
+        });
+        SimplePolygon p = new SimplePolygon(outline, holes,
+                VertexOrder.COUNTER_CLOCKWISE);
+        assertEquals(2, p.getHoleCount());
+        assertEquals(12, p.getVertices().size());
+        assertEquals(4, p.getHole(1).size());
+        assertTrue(p.getHole(1).get(0).getPosition().equals(holes.get(1)[0]));
+        assertEquals(14, p.getTriangleCount()); //2 extra for each hole
+        assertTrue(approximatelyEqual(14, checkTriangles(p)));
+    }
+    
+    @Test
+    public void testManyVertices() {
+        //a star with many sharp points, so half the vertices are reflex
+        int points = 5000;
+        Vector3[] outline = new Vector3[points * 2];
+        double area = 0;
+        for(int i = 0; i < outline.length; i++) {
+            double r = i % 2 == 0 ? 10 : 9;
+            double a = Math.PI * i / points;
+            outline[i] = new Vector3(r * Math.cos(a), r * Math.sin(a), 1);
+        }
+        for(int i = 0, j = outline.length - 1; i < outline.length; j = i++)
+            area += (outline[j].getX() * outline[i].getY()
+                    - outline[i].getX() * outline[j].getY()) / 2;
+        
+        SimplePolygon p = new SimplePolygon(outline,
+                VertexOrder.COUNTER_CLOCKWISE);
+        assertEquals(outline.length - 2, p.getTriangleCount());
+        assertTrue(Math.abs(area - checkTriangles(p)) < 1E-6);
+    }
+    
+    //check that every triangle faces the same way as the polygon, and
+    //return the total area
+    private double checkTriangles(Polygon p) {
+        List<Polygon.Vertex> vertices = p.getVertices();
+        Vector3 normal = p.getNormal().getUnitVector();
+        boolean clockwise = p.getVertexOrder() == VertexOrder.CLOCKWISE;
+        double[] area = {0};
+        p.triangulate((i0, i1, i2) -> {
+            Vector3 a = vertices.get(i0).getPosition();
+            Vector3 b = vertices.get(i1).getPosition();
+            Vector3 c = vertices.get(i2).getPosition();
+            double signedArea =
+                    b.subtract(a).cross(c.subtract(a)).dot(normal) / 2;
+            if(clockwise)
+                signedArea = -signedArea;
+            assertTrue(signedArea > 0);
+            area[0] += signedArea;
+        });
+        return area[0];
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
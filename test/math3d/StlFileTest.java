@@ -0,0 +1,120 @@
+package math3d;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class StlFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    public StlFileTest() { }
+    
+    @Test
+    public void testPolygons() throws IOException {
+        ConvexPolygon square = new ConvexPolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+            new Vector3(1, 1, 0), new Vector3(0, 1, 0)
+        }, VertexOrder.COUNTER_CLOCKWISE);
+        Triangle clockwise = new Triangle(new Vector3(0, 0, 1),
+                new Vector3(0, 1, 1), new Vector3(1, 0, 1),
+                VertexOrder.CLOCKWISE);
+        Path path = folder.newFile("polygons.stl").toPath();
+        StlFile.write(path, Arrays.asList(square, clockwise));
+        assertEquals(84 + 3 * 50, Files.size(path));
+        
+        StlFile file = StlFile.read(path);
+        assertEquals(3, file.getTriangleCount());
+        assertEquals("Binary STL", new String(file.getHeader(), 0, 10,
+                "US-ASCII"));
+        assertEquals(new Vector3(0, 0, 1), file.getStoredNormal(0));
+        assertEquals(0, file.getAttribute(0));
+        //the clockwise triangle is reversed, so it faces the same way
+        StlFile.Facet facet = file.getFacet(2);
+        assertEquals(VertexOrder.COUNTER_CLOCKWISE, facet.getVertexOrder());
+        assertEquals(clockwise.getNormal(), facet.getNormal());
+        assertEquals(new Vector3(1, 0, 1), file.getPosition(2, 1));
+        
+        //the faces cover the same points as the original polygons
+        Set<Vector3> points = new HashSet<>();
+        for(StlFile.Facet f : file.getFacets())
+            for(Vertex v : f.getVertices())
+                points.add(v.getPosition());
+        for(Polygon p : Arrays.asList(square, clockwise))
+            for(Vertex v : p.getVertices())
+                assertTrue(points.contains(v.getPosition()));
+        
+        Triangle t = file.getFacet(0).toTriangle();
+        assertEquals(square.getNormal(), t.getNormal());
+    }
+    
+    @Test
+    public void testWindows() throws IOException {
+        Random random = new Random(21);
+        int count = 1000;
+        float[] positions = new float[count * 9];
+        for(int i = 0; i < positions.length; i++)
+            positions[i] = random.nextFloat() * 100;
+        Path path = folder.newFile("random.stl").toPath();
+        StlFile.write(path, positions);
+        
+        //whole file mapped at once, and in windows of 7 triangles
+        for(StlFile file : new StlFile[] {StlFile.read(path),
+                StlFile.read(path, 7)}) {
+            assertArrayEquals(positions, file.getPositions(), 0);
+            double[] part = new double[9 * 20];
+            file.getPositions(500, 20, part, 0);
+            for(int i = 0; i < part.length; i++)
+                assertEquals(positions[500 * 9 + i], part[i], 0);
+            Vector3 p = file.getPosition(999, 2);
+            assertEquals(positions[999 * 9 + 8], p.getZ(), 0);
+            
+            //the stored normals match the calculated ones
+            for(int i = 0; i < count; i += 37) {
+                Vector3 stored = file.getStoredNormal(i);
+                Vector3 calculated = file.getFacet(i).getNormal()
+                        .getUnitVector();
+                assertTrue(stored.distanceTo(calculated) < 1E-5);
+            }
+            
+            //the same sums in parallel
+            double sequential = file.facets(false)
+                    .mapToDouble(f -> f.getVertices().get(0).getPosition()
+                            .getX()).sum();
+            double parallel = file.facets(true)
+                    .mapToDouble(f -> f.getVertices().get(0).getPosition()
+                            .getX()).sum();
+            assertEquals(sequential, parallel, 1E-6);
+            assertEquals(count, file.facets(true).count());
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        Path path = folder.newFile("truncated.stl").toPath();
+        StlFile.write(path, new float[9 * 3]);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        StlFile.read(path);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadIndex() throws IOException {
+        Path path = folder.newFile("empty.stl").toPath();
+        StlFile.write(path, new float[0]);
+        StlFile file = StlFile.read(path);
+        assertEquals(0, file.getTriangleCount());
+        file.getFacet(0);
+    }
+}
@@ -0,0 +1,217 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.Vertex;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class Transform3Test {
+    private static final double DELTA = 1E-9;
+    private static final Rotation3 ROTATION = new Rotation3(0.3, -0.7, 1.9);
+    
+    public Transform3Test() { }
+    
+    private static void assertVector(Vector3 expected, Vector3 actual) {
+        assertEquals(expected.getX(), actual.getX(), DELTA);
+        assertEquals(expected.getY(), actual.getY(), DELTA);
+        assertEquals(expected.getZ(), actual.getZ(), DELTA);
+    }
+    
+    private static double[] randomPoints(int count, long seed) {
+        Random random = new Random(seed);
+        double[] a = new double[count * 3];
+        for(int i = 0; i < a.length; i++)
+            a[i] = random.nextDouble() * 200 - 100;
+        return a;
+    }
+    
+    @Test
+    public void testTransform() {
+        Vector3 v = new Vector3(1.5, -2, 4);
+        Vector3 t = new Vector3(10, 20, -5);
+        //no scale: the same as rotating, then adding
+        Transform3 transform = new Transform3(ROTATION, t);
+        assertEquals(v.rotate(ROTATION).add(t), transform.transform(v));
+        //rotating around a point
+        Vector3 center = new Vector3(3, 1, -1);
+        assertVector(v.rotateAround(ROTATION, center),
+                Transform3.around(ROTATION, center).transform(v));
+        //scale is applied first
+        transform = new Transform3(ROTATION, t, new Vector3(2, -1, 0.5));
+        assertVector(new Vector3(3, 2, 2).rotate(ROTATION).add(t),
+                transform.transform(v));
+        assertTrue(transform.isMirror());
+        assertEquals(v, Transform3.IDENTITY.transform(v));
+        assertEquals(new Transform3(ROTATION, t, 1),
+                new Transform3(ROTATION, t));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroScale() {
+        new Transform3(ROTATION, Vector3.ZERO, new Vector3(1, 0, 1));
+    }
+    
+    @Test
+    public void testArrays() {
+        Transform3 transform = new Transform3(ROTATION,
+                new Vector3(1, 2, 3), new Vector3(1, 2, 3));
+        int count = 50000;
+        double[] points = randomPoints(count, 1);
+        double[] sequential = new double[count * 3 + 3];
+        transform.transformAll(points, 0, sequential, 3, count, false);
+        for(int i = 0; i < count; i += 997) {
+            Vector3 expected = transform.transform(new Vector3(
+                    points[i * 3], points[i * 3 + 1], points[i * 3 + 2]));
+            assertEquals(expected.getX(), sequential[3 + i * 3], 0);
+            assertEquals(expected.getY(), sequential[3 + i * 3 + 1], 0);
+            assertEquals(expected.getZ(), sequential[3 + i * 3 + 2], 0);
+        }
+        //in place and in parallel, with identical results
+        double[] parallel = Arrays.copyOf(points, points.length);
+        transform.transformAll(parallel, 0, parallel, 0, count, true);
+        assertArrayEquals(Arrays.copyOfRange(sequential, 3,
+                sequential.length), parallel, 0);
+        
+        float[] floats = new float[points.length];
+        for(int i = 0; i < floats.length; i++)
+            floats[i] = (float)points[i];
+        transform.transformAll(floats, 0, floats, 0, count, true);
+        for(int i = 0; i < count; i += 997) {
+            Vector3 expected = transform.transform(new Vector3(
+                    (float)points[i * 3],
+                    (float)points[i * 3 + 1], (float)points[i * 3 + 2]));
+            assertEquals((float)expected.getX(), floats[i * 3], 0);
+        }
+        
+        try {
+            transform.transformAll(points, 3, points, 3, count, true);
+            fail();
+        } catch(IndexOutOfBoundsException expected) { }
+    }
+    
+    @Test
+    public void testNormals() {
+        Transform3 transform = new Transform3(ROTATION, new Vector3(5),
+                new Vector3(3, 1, 0.25));
+        int count = 10000;
+        double[] normals = randomPoints(count, 2);
+        for(int i = 0; i < normals.length; i += 3) {
+            Vector3 u = new Vector3(normals[i], normals[i + 1],
+                    normals[i + 2]).normalize();
+            normals[i] = u.getX();
+            normals[i + 1] = u.getY();
+            normals[i + 2] = u.getZ();
+        }
+        double[] dst = new double[normals.length];
+        transform.transformNormals(normals, 0, dst, 0, count, true);
+        for(int i = 0; i < normals.length; i += 3 * 101) {
+            Direction3 expected = transform.transform(new Direction3(
+                    new Vector3(normals[i], normals[i + 1], normals[i + 2])));
+            assertVector(expected.getUnitVector(),
+                    new Vector3(dst[i], dst[i + 1], dst[i + 2]));
+        }
+    }
+    
+    @Test
+    public void testPolygons() {
+        Triangle triangle = new Triangle(new Vector3(0, 0, 0),
+                new Vector3(1, 0, 0), new Vector3(0, 1, 0),
+                VertexOrder.COUNTER_CLOCKWISE);
+        ConvexPolygon square = new ConvexPolygon(new Vector3[] {
+            new Vector3(0, 0, 1), new Vector3(0, 1, 1),
+            new Vector3(1, 1, 1), new Vector3(1, 0, 1)
+        }, VertexOrder.CLOCKWISE);
+        List<Polygon> polygons = new ArrayList<>();
+        for(int i = 0; i < 5000; i++)
+            polygons.add(i % 2 == 0 ? triangle : square);
+        
+        for(Vector3 scale : new Vector3[] { new Vector3(2, 3, 0.5),
+            new Vector3(-2, 3, 0.5) }) {
+            Transform3 transform = new Transform3(ROTATION,
+                    new Vector3(1, -1, 2), scale);
+            List<Polygon> sequential = transform.transformAll(polygons,
+                    false);
+            List<Polygon> parallel = transform.transformAll(polygons, true);
+            assertEquals(sequential, parallel);
+            
+            for(int i = 0; i < 2; i++) {
+                Polygon before = polygons.get(i), after = sequential.get(i);
+                assertEquals(before.getVertexCount(),
+                        after.getVertexCount());
+                assertEquals(i == 0 ? Triangle.class : ConvexPolygon.class,
+                        after.getClass());
+                List<Vertex> v = after.getVertices();
+                for(int j = 0; j < v.size(); j++)
+                    assertEquals(transform.transform(before.getVertices()
+                            .get(j).getPosition()), v.get(j).getPosition());
+                //the transformed normal agrees with the transformed vertices
+                Vector3 normal = Vector3.normal(v.get(0).getPosition(),
+                        v.get(1).getPosition(), v.get(2).getPosition())
+                        .getUnitVector();
+                if(after.getVertexOrder() == VertexOrder.CLOCKWISE)
+                    normal = normal.inverse();
+                assertVector(normal, after.getNormal().getUnitVector());
+                assertVector(normal, v.get(1).getNormal().getUnitVector());
+                assertEquals(transform.isMirror(), before.getVertexOrder()
+                        != after.getVertexOrder());
+            }
+        }
+    }
+    
+    private static double area(Polygon p) {
+        double area = 0;
+        for(Polygon t : p.getTriangles()) {
+            List<Vertex> v = t.getVertices();
+            Vector3 a = v.get(0).getPosition();
+            area += v.get(1).getPosition().subtract(a)
+                    .cross(v.get(2).getPosition().subtract(a)).magnitude() / 2;
+        }
+        return area;
+    }
+    
+    @Test
+    public void testSimplePolygon() {
+        //a 4x4 square with a 2x2 hole, and a concave L shape
+        SimplePolygon holed = new SimplePolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(4, 0, 0),
+            new Vector3(4, 4, 0), new Vector3(0, 4, 0)
+        }, Collections.singletonList(new Vector3[] {
+            new Vector3(1, 1, 0), new Vector3(1, 3, 0),
+            new Vector3(3, 3, 0), new Vector3(3, 1, 0)
+        }), VertexOrder.COUNTER_CLOCKWISE);
+        SimplePolygon concave = new SimplePolygon(new Vector3[] {
+            new Vector3(0, 0, 0), new Vector3(2, 0, 0),
+            new Vector3(2, 1, 0), new Vector3(1, 1, 0),
+            new Vector3(1, 2, 0), new Vector3(0, 2, 0)
+        }, VertexOrder.COUNTER_CLOCKWISE);
+        assertEquals(12, area(holed), DELTA);
+        assertEquals(3, area(concave), DELTA);
+        
+        //the scale multiplies areas in the xy plane by 6
+        for(Transform3 transform : new Transform3[] { Transform3.IDENTITY,
+            new Transform3(ROTATION, new Vector3(1, -1, 2),
+                    new Vector3(2, 3, 0.5)),
+            new Transform3(ROTATION, new Vector3(1, -1, 2),
+                    new Vector3(-2, 3, 0.5)) }) {
+            double scale = transform == Transform3.IDENTITY ? 1 : 6;
+            Polygon after = transform.transform(holed);
+            assertEquals(SimplePolygon.class, after.getClass());
+            assertEquals(1, ((SimplePolygon)after).getHoleCount());
+            assertEquals(12 * scale, area(after), 1E-6);
+            assertVector(transform.transform(holed.getNormal())
+                    .getUnitVector(), after.getNormal().getUnitVector());
+            
+            after = transform.transformAll(
+                    Collections.singletonList(concave), false).get(0);
+            assertEquals(SimplePolygon.class, after.getClass());
+            assertEquals(3 * scale, area(after), 1E-6);
+            assertEquals(transform.isMirror(), concave.getVertexOrder()
+                    != after.getVertexOrder());
+        }
+    }
+}
@@ -151,6 +151,22 @@ public class Vector2Test {
         }
     }
     
+    @Test
+    public void testMutableMatchesImmutable() {
+        Vector2 a = new Vector2(8, 5);
+        Vector2 center = new Vector2(-2, 3);
+        Vector2 expected = a.subtract(center).rotate(0.7).add(center);
+        MutableVector2 m = new MutableVector2(a).rotateAround(0.7, center);
+        assertTrue(approximatelyEqual(expected.getX(), m.getX()));
+        assertTrue(approximatelyEqual(expected.getY(), m.getY()));
+        assertTrue(approximatelyEqual(
+                a.direction(), new MutableVector2(a).direction()));
+        
+        m.set(a).setMagnitude(3);
+        assertTrue(approximatelyEqual(m.magnitude(), 3));
+        assertTrue(approximatelyEqual(m.direction(), a.direction()));
+    }
+    
     private boolean approximatelyEqual(double a, double b) {
         double difference = Math.abs(a - b);
         return difference < 1E-7;
@@ -0,0 +1,107 @@
+package math3d;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class Vector3BufferTest {
+    
+    public Vector3BufferTest() { }
+    
+    @Test
+    public void testConversions() {
+        Vector3[] vectors = randomVectors(new Random(), 20);
+        Vector3Buffer buffer = new Vector3Buffer(vectors);
+        Vector3[] result = buffer.toVectors();
+        for(int i = 0; i < vectors.length; i++)
+            assertTrue(vectors[i].equals(result[i]));
+        
+        Vector3Buffer fromArray = new Vector3Buffer(buffer.toArray());
+        for(int i = 0; i < vectors.length; i++)
+            assertTrue(vectors[i].equals(fromArray.get(i)));
+        
+        double[] gl = buffer.toGlArray();
+        double[] expected = vectors[3].toGlArray();
+        assertTrue(gl[9] == expected[0]);
+        assertTrue(gl[10] == expected[1]);
+        assertTrue(gl[11] == expected[2]);
+    }
+    
+    @Test
+    public void testMatchesVector3() {
+        Random r = new Random();
+        Vector3[] a = randomVectors(r, 50);
+        Vector3[] b = randomVectors(r, 50);
+        Vector3Buffer bufA = new Vector3Buffer(a);
+        Vector3Buffer bufB = new Vector3Buffer(b);
+        Vector3Buffer dest = new Vector3Buffer(a.length);
+        double[] scalars = new double[a.length];
+        
+        bufA.add(bufB, dest);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].add(b[i]), dest.get(i)));
+        
+        bufA.subtract(bufB, dest);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].subtract(b[i]), dest.get(i)));
+        
+        bufA.scale(2.5, dest);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].multiply(2.5), dest.get(i)));
+        
+        bufA.cross(bufB, dest);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].cross(b[i]), dest.get(i)));
+        
+        bufA.normalize(dest);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].normalize(), dest.get(i)));
+        
+        bufA.lerp(bufB, 0.3, dest);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].lerp(b[i], 0.3), dest.get(i)));
+        
+        bufA.dot(bufB, scalars);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].dot(b[i]), scalars[i]));
+        
+        bufA.distance(bufB, scalars);
+        for(int i = 0; i < a.length; i++)
+            assertTrue(approximatelyEqual(a[i].distanceTo(b[i]), scalars[i]));
+    }
+    
+    @Test
+    public void testInPlace() {
+        Vector3Buffer buffer = new Vector3Buffer(new Vector3[] {
+            new Vector3(1, 2, 3), new Vector3(4, 5, 6)
+        });
+        buffer.add(buffer, buffer);
+        assertTrue(buffer.get(0).equals(new Vector3(2, 4, 6)));
+        assertTrue(buffer.get(1).equals(new Vector3(8, 10, 12)));
+    }
+    
+    private Vector3[] randomVectors(Random r, int count) {
+        Vector3[] vectors = new Vector3[count];
+        for(int i = 0; i < count; i++)
+            vectors[i] = new Vector3(
+                    r.nextDouble() * 10 - 5,
+                    r.nextDouble() * 10 - 5,
+                    r.nextDouble() * 10 - 5);
+        return vectors;
+    }
+    
+    private boolean approximatelyEqual(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference < 1E-7;
+    }
+    
+    private boolean approximatelyEqual(Vector3 a, Vector3 b) {
+        return approximatelyEqual(a.getX(), b.getX())
+                && approximatelyEqual(a.getY(), b.getY())
+                && approximatelyEqual(a.getZ(), b.getZ());
+    }
+}
@@ -63,6 +63,56 @@ public class Vector3Test {
         assertTrue(approximatelyEqual(d.getUnitVector(), e.getUnitVector()));
     }
     
+    @Test
+    public void testRotateMatchesAxisRotations() {
+        Random random = new Random();
+        for(int i = 0; i < 100; i++) {
+            Vector3 v = new Vector3(random.nextDouble(), random.nextDouble(),
+                    random.nextDouble());
+            Rotation3 r = new Rotation3(random.nextDouble() * 7,
+                    random.nextDouble() * 7, random.nextDouble() * 7);
+            
+            Vector2 xRot = new Vector2(v.getY(), v.getZ())
+                    .rotate(r.getXRotation());
+            Vector3 expected = new Vector3(v.getX(), xRot.getX(), xRot.getY());
+            Vector2 yRot = new Vector2(expected.getX(), expected.getZ())
+                    .rotate(r.getYRotation());
+            expected = new Vector3(yRot.getX(), expected.getY(), yRot.getY());
+            Vector2 zRot = new Vector2(expected.getX(), expected.getY())
+                    .rotate(r.getZRotation());
+            expected = new Vector3(zRot.getX(), zRot.getY(), expected.getZ());
+            
+            assertTrue(approximatelyEqual(expected, v.rotate(r)));
+        }
+    }
+    
+    @Test
+    public void testRotateAll() {
+        Random random = new Random();
+        Rotation3 r = new Rotation3(random.nextDouble() * 7,
+                random.nextDouble() * 7, random.nextDouble() * 7);
+        Vector3[] vectors = new Vector3[10];
+        double[] array = new double[vectors.length * 3 + 2];
+        double[] glArray = new double[vectors.length * 3];
+        for(int i = 0; i < vectors.length; i++) {
+            vectors[i] = new Vector3(random.nextDouble(), random.nextDouble(),
+                    random.nextDouble());
+            System.arraycopy(vectors[i].toArray(), 0, array, i * 3 + 2, 3);
+            System.arraycopy(vectors[i].toGlArray(), 0, glArray, i * 3, 3);
+        }
+        
+        double[] rotated = new double[vectors.length * 3];
+        Vector3.rotateAll(r, array, 2, rotated, 0, vectors.length);
+        Vector3.rotateAllGl(r, glArray, 0, glArray, 0, vectors.length);
+        for(int i = 0; i < vectors.length; i++) {
+            Vector3 expected = vectors[i].rotate(r);
+            assertTrue(approximatelyEqual(expected,
+                    new Vector3(rotated[i*3], rotated[i*3+1], rotated[i*3+2])));
+            assertTrue(approximatelyEqual(expected,
+                    new Vector3(glArray[i*3+2], glArray[i*3], glArray[i*3+1])));
+        }
+    }
+    
     @Test
     public void testDirectionConversion() {
         Direction3 a = new Direction3(new Vector3(3,4,5).normalize());
@@ -84,6 +134,27 @@ public class Vector3Test {
         assertTrue(normal.equals(new Vector3(0, 0, 1)));
     }
     
+    @Test
+    public void testMutableMatchesImmutable() {
+        Vector3 a = new Vector3(3, 4, 5);
+        Vector3 center = new Vector3(-1, 2, 0.5);
+        Rotation3 rotation = new Rotation3(0.3, 1.2, -2.1);
+        
+        Vector3 expected = a.subtract(center).rotate(rotation).add(center);
+        MutableVector3 m = new MutableVector3(a)
+                .subtract(center).rotate(rotation).add(center);
+        assertTrue(approximatelyEqual(expected, m.toVector3()));
+        assertTrue(approximatelyEqual(
+                expected, a.rotateAround(rotation, center)));
+        
+        Vector3 moved = a.add(center.rotate(rotation));
+        assertTrue(approximatelyEqual(moved, a.move(rotation, center)));
+        
+        m.set(a).cross(center).limitMagnitude(2);
+        assertTrue(approximatelyEqual(
+                a.cross(center).limitMagnitude(2), m.toVector3()));
+    }
+    
     private boolean approximatelyEqual(double a, double b) {
         double difference = Math.abs(a - b);
         return difference < 1E-7;
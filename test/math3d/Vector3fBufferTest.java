@@ -0,0 +1,135 @@
+package math3d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class Vector3fBufferTest {
+    //not a multiple of any SIMD width, so the scalar tail is used too
+    private static final int SIZE = 1003;
+    
+    public Vector3fBufferTest() { }
+    
+    @Test
+    public void testConversions() {
+        Vector3Buffer doubles = new Vector3Buffer(
+                randomVectors(new Random(20), 20));
+        Vector3fBuffer floats = new Vector3fBuffer(doubles);
+        for(int i = 0; i < 20; i++)
+            assertEquals(new Vector3f(doubles.get(i)), floats.get(i));
+        Vector3Buffer back = floats.toVector3Buffer();
+        for(int i = 0; i < 20; i++)
+            assertEquals(floats.get(i).toVector3(), back.get(i));
+        
+        //to heap and direct FloatBuffers, after some other data
+        float[] expected = floats.toGlArray();
+        FloatBuffer heap = FloatBuffer.allocate(70);
+        FloatBuffer direct = ByteBuffer.allocateDirect(70 * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for(FloatBuffer b : new FloatBuffer[] {heap, direct}) {
+            b.put(-1);
+            floats.putGl(b);
+            assertEquals(61, b.position());
+            for(int i = 0; i < expected.length; i++)
+                assertEquals(expected[i], b.get(i + 1), 0);
+        }
+        FloatBuffer fromDoubles = FloatBuffer.allocate(60);
+        doubles.putGl(fromDoubles);
+        assertArrayEquals(expected, fromDoubles.array(), 0);
+    }
+    
+    @Test(expected = java.nio.BufferOverflowException.class)
+    public void testOverflow() {
+        new Vector3fBuffer(10).putGl(FloatBuffer.allocate(29));
+    }
+    
+    @Test
+    public void testMatchesVector3f() {
+        Random r = new Random(21);
+        Vector3fBuffer a = new Vector3fBuffer(
+                new Vector3Buffer(randomVectors(r, SIZE)));
+        Vector3fBuffer b = new Vector3fBuffer(
+                new Vector3Buffer(randomVectors(r, SIZE)));
+        Vector3fBuffer dest = new Vector3fBuffer(SIZE);
+        float[] scalars = new float[SIZE];
+        
+        a.cross(b, dest);
+        for(int i = 0; i < SIZE; i++)
+            assertEquals(a.get(i).cross(b.get(i)), dest.get(i));
+        a.dot(b, scalars);
+        for(int i = 0; i < SIZE; i++)
+            assertEquals(a.get(i).dot(b.get(i)), scalars[i], 0);
+        a.normalize(dest);
+        for(int i = 0; i < SIZE; i++)
+            checkEqual(a.get(i).normalize(), dest.get(i));
+        Rotation3 rotation = new Rotation3(0.5, 1, -2);
+        a.rotate(rotation, dest);
+        for(int i = 0; i < SIZE; i++)
+            checkEqual(a.get(i).rotate(rotation), dest.get(i));
+    }
+    
+    @Test
+    public void testSimdMatchesScalar() {
+        Random r = new Random(22);
+        Vector3fBuffer a = new Vector3fBuffer(
+                new Vector3Buffer(randomVectors(r, SIZE)));
+        Vector3fBuffer b = new Vector3fBuffer(
+                new Vector3Buffer(randomVectors(r, SIZE)));
+        Plane plane = Plane.at(new Vector3(1, 2, 3),
+                new Vector3(1, -1, 0.5).direction());
+        Rotation3 rotation = new Rotation3(0.5, 1, -2);
+        float[][] results = new float[2][];
+        boolean[][] inside = new boolean[2][SIZE];
+        int[] counts = new int[2];
+        boolean wasEnabled = Simd.isEnabled();
+        try {
+            for(int pass = 0; pass < 2; pass++) {
+                Simd.setEnabled(pass == 0);
+                Vector3fBuffer dest = new Vector3fBuffer(SIZE);
+                float[] scalars = new float[SIZE];
+                FloatBuffer out = FloatBuffer.allocate(SIZE * 15);
+                a.cross(b, dest);
+                dest.putGl(out);
+                a.normalize(dest);
+                dest.putGl(out);
+                a.rotate(rotation, dest);
+                dest.putGl(out);
+                a.dot(b, scalars);
+                out.put(scalars);
+                a.planeDistance(plane, scalars);
+                out.put(scalars);
+                counts[pass] = a.insideBox(new Vector3f(-1, -2, -3),
+                        new Vector3f(3, 2, 1), inside[pass]);
+                results[pass] = out.array();
+            }
+        } finally {
+            Simd.setEnabled(wasEnabled);
+        }
+        assertArrayEquals(results[1], results[0], 0);
+        assertArrayEquals(inside[1], inside[0]);
+        assertEquals(counts[1], counts[0]);
+    }
+    
+    private Vector3[] randomVectors(Random r, int count) {
+        Vector3[] vectors = new Vector3[count];
+        for(int i = 0; i < count; i++)
+            vectors[i] = new Vector3(
+                    r.nextDouble() * 10 - 5,
+                    r.nextDouble() * 10 - 5,
+                    r.nextDouble() * 10 - 5);
+        return vectors;
+    }
+    
+    private void checkEqual(Vector3f expected, Vector3f actual) {
+        assertEquals(expected.getX(), actual.getX(), 1E-5);
+        assertEquals(expected.getY(), actual.getY(), 1E-5);
+        assertEquals(expected.getZ(), actual.getZ(), 1E-5);
+    }
+}
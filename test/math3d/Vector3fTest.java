@@ -0,0 +1,61 @@
+package math3d;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class Vector3fTest {
+    
+    public Vector3fTest() { }
+    
+    @Test
+    public void testConversions() {
+        Vector3 v = new Vector3(0.1, 2, -3.5);
+        Vector3f f = new Vector3f(v);
+        assertEquals(0.1f, f.getX(), 0);
+        assertEquals(new Vector3(0.1f, 2, -3.5), f.toVector3());
+        assertArrayEquals(new float[] {2, -3.5f, 0.1f}, f.toGlArray(), 0);
+        assertEquals(f, new Vector3f(f.toArray()));
+        assertEquals(f.hashCode(), new Vector3f(0.1f, 2, -3.5f).hashCode());
+        
+        Vector2f f2 = new Vector2f(new Vector2(0.1, 3));
+        assertEquals(new Vector2(0.1f, 3), f2.toVector2());
+        assertEquals(f2, new Vector2f(f2.toArray()));
+    }
+    
+    @Test
+    public void testMatchesVector3() {
+        Vector3f a = new Vector3f(1, 2, 3);
+        Vector3f b = new Vector3f(-4, 0.5f, 2);
+        checkEqual(a.toVector3().add(b.toVector3()), a.add(b));
+        checkEqual(a.toVector3().cross(b.toVector3()), a.cross(b));
+        checkEqual(a.toVector3().normalize(), a.normalize());
+        checkEqual(a.toVector3().lerp(b.toVector3(), 0.25), a.lerp(b, 0.25f));
+        assertEquals(a.toVector3().dot(b.toVector3()), a.dot(b), 1E-5);
+        assertEquals(a.toVector3().distanceTo(b.toVector3()), a.distanceTo(b),
+                1E-5);
+        
+        Rotation3 r = new Rotation3(0.3, -1, 2);
+        checkEqual(a.toVector3().rotate(r), a.rotate(r));
+        checkEqual(a.toVector3().rotateAround(r, b.toVector3()),
+                a.rotateAround(r, b));
+        checkEqual(a.toVector3().move(r, b.toVector3()), a.move(r, b));
+        
+        Vector2f c = new Vector2f(3, -1);
+        Vector2f d = new Vector2f(0.5f, 2);
+        assertEquals(c.toVector2().rotate(1).getX(), c.rotate(1).getX(), 1E-5);
+        assertEquals(c.toVector2().rotate(1).getY(), c.rotate(1).getY(), 1E-5);
+        assertEquals(c.toVector2().direction(), c.direction(), 1E-7);
+        assertEquals(c.toVector2().angleBetween(d.toVector2()),
+                c.angleBetween(d), 1E-5);
+    }
+    
+    private void checkEqual(Vector3 expected, Vector3f actual) {
+        assertEquals(expected.getX(), actual.getX(), 1E-5);
+        assertEquals(expected.getY(), actual.getY(), 1E-5);
+        assertEquals(expected.getZ(), actual.getZ(), 1E-5);
+    }
+}
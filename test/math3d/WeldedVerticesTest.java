@@ -0,0 +1,148 @@
+package math3d;
+
+import java.util.*;
+import math3d.Polygon.VertexOrder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author vanjac
+ */
+public class WeldedVerticesTest {
+    
+    public WeldedVerticesTest() { }
+    
+    @Test
+    public void testPolygons() {
+        //two triangles sharing an edge, with rounding noise
+        List<Polygon> polygons = Arrays.asList(
+                new Triangle(new Vector3(0, 0, 0), new Vector3(1, 0, 0),
+                        new Vector3(0, 1, 0), VertexOrder.COUNTER_CLOCKWISE),
+                new Triangle(new Vector3(1.0000001, 0, 0),
+                        new Vector3(1, 1, 0), new Vector3(0, 0.9999999, 0),
+                        VertexOrder.COUNTER_CLOCKWISE));
+        WeldedVertices welded = new WeldedVertices(polygons, 1E-5, false);
+        assertEquals(6, welded.getInputCount());
+        assertEquals(4, welded.getVertexCount());
+        assertArrayEquals(new int[] {0, 1, 2, 1, 3, 2}, welded.getIndices());
+        assertEquals(new Vector3(1, 0, 0), welded.getPosition(1));
+        assertEquals(1, welded.getSourceVertex(1));
+        assertEquals(4, welded.getSourceVertex(3));
+        
+        //a smaller epsilon keeps them apart
+        welded = new WeldedVertices(polygons, 1E-8, false);
+        assertEquals(6, welded.getVertexCount());
+    }
+    
+    @Test
+    public void testLargePolygon() {
+        //more vertices than getVertexCount() can return, each one twice
+        int count = 20000;
+        Vector3[] outline = new Vector3[count * 2];
+        for(int i = 0; i < count; i++) {
+            double a = Math.PI * 2 * i / count;
+            outline[i * 2] = new Vector3(Math.cos(a), Math.sin(a), 0);
+            outline[i * 2 + 1] = outline[i * 2];
+        }
+        WeldedVertices welded = new WeldedVertices(Collections.singletonList(
+                new SimplePolygon(outline, VertexOrder.COUNTER_CLOCKWISE)),
+                1E-9, false);
+        assertEquals(count * 2, welded.getInputCount());
+        assertEquals(count, welded.getVertexCount());
+    }
+    
+    @Test
+    public void testRandom() {
+        Random random = new Random(17);
+        int count = 3000;
+        double epsilon = 0.05;
+        double[] positions = new double[count * 3];
+        for(int i = 0; i < positions.length; i++)
+            positions[i] = random.nextDouble() * 2;
+        WeldedVertices welded = new WeldedVertices(positions, epsilon, false);
+        checkWeld(positions, welded, epsilon);
+    }
+    
+    @Test
+    public void testParallel() {
+        //a grid of points, each repeated 3 times with noise, shuffled
+        int size = 45;
+        double spacing = 1, epsilon = 0.1;
+        Random random = new Random(18);
+        int points = size * size * size;
+        List<double[]> list = new ArrayList<>();
+        for(int i = 0; i < points; i++) {
+            for(int copy = 0; copy < 3; copy++) {
+                list.add(new double[] {
+                    (i % size) * spacing + random.nextGaussian() * 0.01,
+                    (i / size % size) * spacing + random.nextGaussian() * 0.01,
+                    (i / size / size) * spacing + random.nextGaussian() * 0.01,
+                    i
+                });
+            }
+        }
+        Collections.shuffle(list, random);
+        double[] positions = new double[list.size() * 3];
+        for(int v = 0; v < list.size(); v++)
+            System.arraycopy(list.get(v), 0, positions, v * 3, 3);
+        
+        WeldedVertices sequential = new WeldedVertices(positions, epsilon,
+                false);
+        WeldedVertices parallel = new WeldedVertices(positions, epsilon,
+                true);
+        assertEquals(points, sequential.getVertexCount());
+        assertEquals(points, parallel.getVertexCount());
+        //copies of the same point have the same index
+        int[] pointIndex = new int[points];
+        Arrays.fill(pointIndex, -1);
+        for(int v = 0; v < list.size(); v++) {
+            int point = (int)list.get(v)[3];
+            if(pointIndex[point] == -1)
+                pointIndex[point] = parallel.getIndex(v);
+            assertEquals(pointIndex[point], parallel.getIndex(v));
+        }
+        for(int u = 0; u < points; u++) {
+            int source = parallel.getSourceVertex(u);
+            assertEquals(u, parallel.getIndex(source));
+            assertEquals(new Vector3(positions[source * 3],
+                    positions[source * 3 + 1], positions[source * 3 + 2]),
+                    parallel.getPosition(u));
+        }
+        //sequential welding numbers vertices in order of first appearance
+        int next = 0;
+        for(int v = 0; v < list.size(); v++) {
+            int index = sequential.getIndex(v);
+            assertTrue(index <= next);
+            if(index == next)
+                next++;
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroEpsilon() {
+        new WeldedVertices(new double[6], 0, false);
+    }
+    
+    //check the rules of a weld by brute force
+    private void checkWeld(double[] positions, WeldedVertices welded,
+            double epsilon) {
+        int count = positions.length / 3;
+        double[] unique = welded.getPositions();
+        for(int v = 0; v < count; v++) {
+            Vector3 p = new Vector3(positions[v * 3], positions[v * 3 + 1],
+                    positions[v * 3 + 2]);
+            assertTrue(p.distanceTo(welded.getPosition(welded.getIndex(v)))
+                    <= epsilon);
+        }
+        for(int a = 0; a < unique.length; a += 3) {
+            for(int b = a + 3; b < unique.length; b += 3) {
+                double dx = unique[a] - unique[b];
+                double dy = unique[a + 1] - unique[b + 1];
+                double dz = unique[a + 2] - unique[b + 2];
+                assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) > epsilon);
+            }
+        }
+        assertTrue(welded.getVertexCount() < count);
+    }
+}